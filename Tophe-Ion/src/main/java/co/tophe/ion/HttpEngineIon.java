@@ -2,7 +2,7 @@ package co.tophe.ion;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.http.protocol.HTTP;
@@ -31,6 +31,7 @@ import com.koushikdutta.ion.builder.LoadBuilder;
 import com.koushikdutta.ion.future.ResponseFuture;
 
 import co.tophe.AbstractHttpEngine;
+import co.tophe.DownloadProgressListener;
 import co.tophe.HttpConfig;
 import co.tophe.HttpException;
 import co.tophe.HttpResponse;
@@ -42,6 +43,7 @@ import co.tophe.body.HttpBodyMultiPart;
 import co.tophe.body.HttpBodyParameters;
 import co.tophe.body.HttpBodyString;
 import co.tophe.body.HttpBodyUrlEncoded;
+import co.tophe.internal.DownloadProgressNotifier;
 import co.tophe.ion.internal.HttpResponseIon;
 import co.tophe.ion.internal.IonBody;
 import co.tophe.ion.internal.IonHttpBodyJSON;
@@ -66,6 +68,8 @@ import co.tophe.parser.XferTransformStringJSONObject;
  */
 public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEngine<T, SE, HttpResponseIon<T>> {
 	public final Builders.Any.B requestBuilder;
+	private final DownloadProgress downloadProgress;
+	private volatile Future<?> pendingRequest;
 	private static final String ENGINE_SIGNATURE = "Ion-"+ com.koushikdutta.ion.BuildConfig.VERSION_CODE+"+AndroidAsync-"+ com.koushikdutta.async.BuildConfig.VERSION_CODE;
 
 	protected HttpEngineIon(Builder<T,SE> builder, Ion ion) {
@@ -94,7 +98,7 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 
 			final UploadProgressListener progressListener = request.getProgressListener();
 			if (null != progressListener) {
-				requestBuilder.progress(new ProgressCallback() {
+				requestBuilder.uploadProgress(new ProgressCallback() {
 					@Override
 					public void onProgress(long downloaded, long total) {
 						progressListener.onParamUploadProgress(request, null, (int) ((100 * downloaded) / total));
@@ -102,6 +106,40 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 				});
 			}
 		}
+
+		final DownloadProgressListener downloadProgressListener = request.getDownloadProgressListener();
+		if (null != downloadProgressListener) {
+			downloadProgress = new DownloadProgress(downloadProgressListener);
+			requestBuilder.progress(downloadProgress);
+		} else {
+			downloadProgress = null;
+		}
+	}
+
+	/**
+	 * Forward the Ion download progress to the {@link co.tophe.DownloadProgressListener} of the request.
+	 */
+	private class DownloadProgress implements ProgressCallback {
+		private final DownloadProgressListener listener;
+		private DownloadProgressNotifier notifier;
+		private long bytesReceived;
+
+		DownloadProgress(DownloadProgressListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public synchronized void onProgress(long downloaded, long total) {
+			if (null == notifier)
+				notifier = new DownloadProgressNotifier(request, listener, total, request.getDownloadProgressInterval());
+			bytesReceived = downloaded;
+			notifier.onBytesReceived(downloaded);
+		}
+
+		synchronized void onComplete() {
+			if (null != notifier)
+				notifier.onComplete(bytesReceived);
+		}
 	}
 
 	@Override
@@ -121,8 +159,16 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 			setHeader(HTTP.CONTENT_TYPE, null);
 		}
 
-		for (Entry<String, String> entry : requestHeaders.entrySet()) {
-			requestBuilder.setHeader(entry.getKey(), entry.getValue());
+		for (int i = 0; i < requestHeaders.size(); ++i) {
+			String name = requestHeaders.getName(i);
+			boolean firstValue = true;
+			for (int j = 0; j < i && firstValue; ++j) {
+				firstValue = !name.equalsIgnoreCase(requestHeaders.getName(j));
+			}
+			if (firstValue)
+				requestBuilder.setHeader(name, requestHeaders.getValue(i)); // replace the Ion default value
+			else
+				requestBuilder.addHeader(name, requestHeaders.getValue(i));
 		}
 
 		if (null != responseHandler.followsRedirect()) {
@@ -130,11 +176,10 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 		}
 
 		HttpConfig httpConfig = request.getHttpConfig();
-		if (null != httpConfig) {
-			int readTimeout = httpConfig.getReadTimeout(request);
-			if (readTimeout >= 0)
-				requestBuilder.setTimeout(readTimeout);
-		}
+		// Ion uses the same timeout to connect and read, the deadline is enforced by cancelling the request
+		int readTimeout = limitToDeadline(null == httpConfig ? -1 : httpConfig.getReadTimeout(request));
+		if (readTimeout >= 0)
+			requestBuilder.setTimeout(readTimeout);
 	}
 
 	@Override
@@ -144,9 +189,15 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 		AsyncParser<Object> parser = getXferTransformParser(commonTransforms);
 		ResponseFuture<Object> req = requestBuilder.as(parser);
 		Future<Response<Object>> withResponse = req.withResponse();
+		pendingRequest = withResponse;
+		if (isCancelled())
+			withResponse.cancel(); // cancelled before the future was known
 		try {
 			Response<Object> response = withResponse.get();
+			if (null != downloadProgress)
+				downloadProgress.onComplete();
 			HttpResponseIon ionResponse = new HttpResponseIon(response, commonTransforms);
+			// Ion only gives the response once the body is read, the headers time is not reported
 			setRequestResponse(ionResponse);
 
 			Exception e = response.getException();
@@ -170,6 +221,9 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 		} catch (InterruptedException e) {
 			throw exceptionToHttpException(e).build();
 
+		} catch (CancellationException e) {
+			throw exceptionToHttpException(e).build();
+
 		} catch (ExecutionException e) {
 			throw exceptionToHttpException(e).build();
 
@@ -182,6 +236,14 @@ public class HttpEngineIon<T, SE extends ServerException> extends AbstractHttpEn
 		}
 	}
 
+	@Override
+	public void cancel() {
+		super.cancel();
+		Future<?> request = pendingRequest;
+		if (null != request)
+			request.cancel();
+	}
+
 	@Override
 	protected T responseToResult(HttpResponseIon<T> response) throws ParserException, IOException {
 		Object data = response.getResult();
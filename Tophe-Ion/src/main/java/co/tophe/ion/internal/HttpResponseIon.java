@@ -13,6 +13,7 @@ import com.koushikdutta.ion.Response;
 
 import co.tophe.HttpResponse;
 import co.tophe.ServerException;
+import co.tophe.encoding.ContentDecoders;
 import co.tophe.parser.XferTransform;
 
 /**
@@ -73,17 +74,27 @@ public class HttpResponseIon<T> implements HttpResponse {
 	@Override
 	public InputStream getContentStream() throws IOException {
 		if (response.getResult() instanceof InputStream)
-			return (InputStream) response.getResult();
+			return getDecodedStream((InputStream) response.getResult());
 
 		if (response.getException() instanceof ServerException) {
 			ServerException exception = (ServerException) response.getException();
 			if (exception.getServerError() instanceof InputStream)
-				return (InputStream) exception.getServerError();
+				return getDecodedStream((InputStream) exception.getServerError());
 		}
 
 		throw new IOException("trying to read an InputStream from Ion result:"+response.getResult()+" error:"+response.getException());
 	}
 
+	private InputStream getDecodedStream(InputStream stream) throws IOException {
+		String contentEncoding = getContentEncoding();
+		if (TextUtils.isEmpty(contentEncoding))
+			return stream;
+		// AndroidAsync only decodes a body with a single gzip or deflate encoding
+		if (ContentDecoders.ENCODING_GZIP.equals(contentEncoding) || ContentDecoders.ENCODING_DEFLATE.equals(contentEncoding))
+			return stream;
+		return ContentDecoders.decode(stream, contentEncoding);
+	}
+
 	public T getResult() {
 		return response.getResult();
 	}
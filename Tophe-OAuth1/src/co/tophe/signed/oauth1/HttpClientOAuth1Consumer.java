@@ -11,6 +11,10 @@ import co.tophe.signed.oauth1.internal.OAuth1RequestAdapter;
 
 import oauth.signpost.AbstractOAuthConsumer;
 import oauth.signpost.http.HttpRequest;
+import oauth.signpost.signature.AuthorizationHeaderSigningStrategy;
+import oauth.signpost.signature.HmacSha1MessageSigner;
+import oauth.signpost.signature.OAuthMessageSigner;
+import oauth.signpost.signature.SigningStrategy;
 
 /**
  * Base class for an OAuth1 consumer app.
@@ -22,6 +26,11 @@ public class HttpClientOAuth1Consumer extends AbstractOAuthConsumer {
 
 	private final SecureRandom random = new SecureRandom();
 
+	// set from the parent constructor, they must not have an initializer
+	private boolean customMessageSigner;
+	private boolean customSigningStrategy;
+	private boolean sendEmptyTokens;
+
 	/**
 	 * Constructor for the {@link co.tophe.signed.OAuthClientApp}
 	 */
@@ -40,4 +49,42 @@ public class HttpClientOAuth1Consumer extends AbstractOAuthConsumer {
 		random.nextBytes(generated);
 		return new String(Hex.encodeHex(generated));
 	}
+
+	/**
+	 * Only overridden to make it accessible to {@link co.tophe.signed.oauth1.RequestSignerOAuth1} in this package.
+	 */
+	@Override
+	protected String generateTimestamp() {
+		return super.generateTimestamp();
+	}
+
+	@Override
+	public void setMessageSigner(OAuthMessageSigner messageSigner) {
+		super.setMessageSigner(messageSigner);
+		customMessageSigner = !(messageSigner instanceof HmacSha1MessageSigner);
+	}
+
+	@Override
+	public void setSigningStrategy(SigningStrategy signingStrategy) {
+		super.setSigningStrategy(signingStrategy);
+		customSigningStrategy = !(signingStrategy instanceof AuthorizationHeaderSigningStrategy);
+	}
+
+	@Override
+	public void setSendEmptyTokens(boolean enable) {
+		super.setSendEmptyTokens(enable);
+		sendEmptyTokens = enable;
+	}
+
+	/**
+	 * @return whether the requests are signed with HMAC-SHA1 in the {@code Authorization} header, in which case
+	 * {@link co.tophe.signed.oauth1.RequestSignerOAuth1} can sign them without locking the consumer.
+	 */
+	boolean isDefaultSigning() {
+		return !customMessageSigner && !customSigningStrategy;
+	}
+
+	boolean isSendingEmptyTokens() {
+		return sendEmptyTokens;
+	}
 }
\ No newline at end of file
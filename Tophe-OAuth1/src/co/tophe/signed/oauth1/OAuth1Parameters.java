@@ -0,0 +1,330 @@
+package co.tophe.signed.oauth1;
+
+import java.io.IOException;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.utils.PercentEncoder;
+
+/**
+ * Sorted list of percent-encoded OAuth1 signature parameters.
+ * <p>All the encoded names and values are stored one after the other in a single buffer and each parameter is 3 offsets
+ * in a flat array, kept sorted by encoded name and value as the parameters are added. Instances are reused between
+ * signatures with {@link #reset()}, they are not thread-safe.</p>
+ * <p>Like signpost, a parameter with the same name and value as another one is only used once.</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc5849#section-3.4.1.3.2">RFC 5849 Parameters Normalization</a>
+ */
+final class OAuth1Parameters {
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private static final int NAME_START = 0;
+	private static final int VALUE_START = 1;
+	private static final int VALUE_END = 2;
+	private static final int ENTRY_SIZE = 3;
+
+	private final StringBuilder chars = new StringBuilder(512);
+	private int[] entries = new int[16 * ENTRY_SIZE];
+	private int count;
+
+	void reset() {
+		chars.setLength(0);
+		count = 0;
+	}
+
+	/**
+	 * @return the size of the buffers, to avoid keeping large ones around.
+	 */
+	int getCapacity() {
+		return chars.capacity() + entries.length;
+	}
+
+	/**
+	 * Add a parameter that is already percent-encoded, like the parameters from signpost or the {@code Authorization} header.
+	 */
+	void addEncoded(@NonNull CharSequence name, @Nullable CharSequence value) {
+		int nameStart = chars.length();
+		chars.append(name);
+		int valueStart = chars.length();
+		if (null != value)
+			chars.append(value);
+		insert(nameStart, valueStart);
+	}
+
+	/**
+	 * Add a parameter that is not encoded, like the parameters of a {@link co.tophe.body.HttpBodyUrlEncoded}.
+	 */
+	void add(@NonNull String name, @Nullable String value) {
+		int nameStart = chars.length();
+		PercentEncoder.QUERY.encode(name, chars);
+		int valueStart = chars.length();
+		if (null != value)
+			PercentEncoder.QUERY.encode(value, chars);
+		insert(nameStart, valueStart);
+	}
+
+	/**
+	 * Add the parameters of an {@code application/x-www-form-urlencoded} string, like the query of a URL.
+	 * <p>The escaped sequences are normalized to the OAuth encoding without decoding the values.</p>
+	 */
+	void addForm(@NonNull CharSequence form) {
+		int length = form.length();
+		int start = 0;
+		while (start < length) {
+			int end = start;
+			int equal = -1;
+			for (char c; end < length && (c = form.charAt(end)) != '&'; ++end) {
+				if (c == '=' && equal < 0)
+					equal = end;
+			}
+			// like signpost, a name without a value is not used
+			if (equal >= 0) {
+				int nameStart = chars.length();
+				appendNormalized(form, start, equal);
+				int valueStart = chars.length();
+				appendNormalized(form, equal + 1, end);
+				insert(nameStart, valueStart);
+			}
+			start = end + 1;
+		}
+	}
+
+	private void appendNormalized(CharSequence form, int start, int end) {
+		for (int i = start; i < end; ++i) {
+			char c = form.charAt(i);
+			if (c == '+') {
+				appendEscaped(' ');
+			} else if (c == '%' && isEscape(form, i, end)) {
+				int b = (Character.digit(form.charAt(i + 1), 16) << 4) | Character.digit(form.charAt(i + 2), 16);
+				if (isUnreserved(b))
+					chars.append((char) b);
+				else
+					appendEscaped(b);
+				i += 2;
+			} else if (c < 0x80) {
+				if (isUnreserved(c))
+					chars.append(c);
+				else
+					appendEscaped(c);
+			} else {
+				int runEnd = i + 1;
+				while (runEnd < end && form.charAt(runEnd) >= 0x80)
+					++runEnd;
+				PercentEncoder.QUERY.encode(form.subSequence(i, runEnd), chars);
+				i = runEnd - 1;
+			}
+		}
+	}
+
+	private static boolean isEscape(CharSequence form, int index, int end) {
+		return index + 2 < end
+				&& Character.digit(form.charAt(index + 1), 16) >= 0
+				&& Character.digit(form.charAt(index + 2), 16) >= 0;
+	}
+
+	private static boolean isUnreserved(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+				|| c == '-' || c == '.' || c == '_' || c == '~';
+	}
+
+	private void appendEscaped(int b) {
+		chars.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+	}
+
+	/**
+	 * Insert the parameter stored at the end of the buffer at its sorted position.
+	 */
+	private void insert(int nameStart, int valueStart) {
+		int valueEnd = chars.length();
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int offset = middle * ENTRY_SIZE;
+			int cmp = compare(entries[offset + NAME_START], entries[offset + VALUE_START], nameStart, valueStart);
+			if (cmp == 0)
+				cmp = compare(entries[offset + VALUE_START], entries[offset + VALUE_END], valueStart, valueEnd);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				// duplicate parameter
+				chars.setLength(nameStart);
+				return;
+			}
+		}
+
+		if ((count + 1) * ENTRY_SIZE > entries.length) {
+			int[] newEntries = new int[entries.length * 2];
+			System.arraycopy(entries, 0, newEntries, 0, count * ENTRY_SIZE);
+			entries = newEntries;
+		}
+		int offset = low * ENTRY_SIZE;
+		System.arraycopy(entries, offset, entries, offset + ENTRY_SIZE, (count - low) * ENTRY_SIZE);
+		entries[offset + NAME_START] = nameStart;
+		entries[offset + VALUE_START] = valueStart;
+		entries[offset + VALUE_END] = valueEnd;
+		++count;
+	}
+
+	private int compare(int start1, int end1, int start2, int end2) {
+		int length1 = end1 - start1;
+		int length2 = end2 - start2;
+		int length = Math.min(length1, length2);
+		for (int i = 0; i < length; ++i) {
+			char c1 = chars.charAt(start1 + i);
+			char c2 = chars.charAt(start2 + i);
+			if (c1 != c2)
+				return c1 - c2;
+		}
+		return length1 - length2;
+	}
+
+	private boolean nameEquals(int index, String name) {
+		int offset = index * ENTRY_SIZE;
+		int start = entries[offset + NAME_START];
+		int length = entries[offset + VALUE_START] - start;
+		if (length != name.length())
+			return false;
+		for (int i = 0; i < length; ++i) {
+			if (chars.charAt(start + i) != name.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean nameStartsWith(int index, String prefix) {
+		int offset = index * ENTRY_SIZE;
+		int start = entries[offset + NAME_START];
+		int length = entries[offset + VALUE_START] - start;
+		if (length < prefix.length())
+			return false;
+		for (int i = 0; i < prefix.length(); ++i) {
+			if (chars.charAt(start + i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < count; ++i) {
+			if (nameEquals(i, name))
+				return i;
+		}
+		return -1;
+	}
+
+	boolean containsName(String name) {
+		return indexOf(name) >= 0;
+	}
+
+	/**
+	 * Remove all the parameters with the encoded {@code name}.
+	 */
+	void removeName(String name) {
+		int index = indexOf(name);
+		if (index < 0)
+			return;
+		int end = index + 1;
+		while (end < count && nameEquals(end, name))
+			++end;
+		System.arraycopy(entries, end * ENTRY_SIZE, entries, index * ENTRY_SIZE, (count - end) * ENTRY_SIZE);
+		count -= end - index;
+	}
+
+	/**
+	 * Write the normalized parameters, percent-encoded a second time as they are in the signature base string.
+	 *
+	 * @param skipName1 name of parameters not part of the signature.
+	 * @param skipName2 name of parameters not part of the signature.
+	 */
+	void appendBaseStringParameters(Appendable output, String skipName1, String skipName2) throws IOException {
+		boolean first = true;
+		for (int i = 0; i < count; ++i) {
+			if (nameEquals(i, skipName1) || nameEquals(i, skipName2))
+				continue;
+			if (!first)
+				output.append("%26"); // '&'
+			first = false;
+			int offset = i * ENTRY_SIZE;
+			appendEncodedAgain(output, entries[offset + NAME_START], entries[offset + VALUE_START]);
+			output.append("%3D"); // '='
+			appendEncodedAgain(output, entries[offset + VALUE_START], entries[offset + VALUE_END]);
+		}
+	}
+
+	private void appendEncodedAgain(Appendable output, int start, int end) throws IOException {
+		// an encoded value only has unreserved characters and escaped sequences
+		for (int i = start; i < end; ++i) {
+			char c = chars.charAt(i);
+			if (c == '%')
+				output.append("%25");
+			else
+				output.append(c);
+		}
+	}
+
+	/**
+	 * Write the {@code Authorization} header parameters: the realm and the {@code oauth_} and {@code x_oauth_}
+	 * parameters with {@code extraName} in their sorted position. Only the first value of each name is used.
+	 */
+	void appendHeaderParameters(StringBuilder header, String realmName, String extraName, String extraValue) {
+		boolean first = true;
+		int realm = indexOf(realmName);
+		if (realm >= 0) {
+			appendHeaderElement(header, realm);
+			first = false;
+		}
+
+		boolean extraWritten = false;
+		for (int i = 0; i < count; ++i) {
+			if (!nameStartsWith(i, "oauth_") && !nameStartsWith(i, "x_oauth_"))
+				continue;
+			if (i > 0 && compare(entries[(i - 1) * ENTRY_SIZE + NAME_START], entries[(i - 1) * ENTRY_SIZE + VALUE_START],
+					entries[i * ENTRY_SIZE + NAME_START], entries[i * ENTRY_SIZE + VALUE_START]) == 0)
+				continue; // not the first value of this name
+			if (!extraWritten && compareName(i, extraName) > 0) {
+				if (!first)
+					header.append(", ");
+				first = false;
+				header.append(extraName).append("=\"").append(extraValue).append('"');
+				extraWritten = true;
+			}
+			if (!first)
+				header.append(", ");
+			first = false;
+			appendHeaderElement(header, i);
+		}
+		if (!extraWritten) {
+			if (!first)
+				header.append(", ");
+			header.append(extraName).append("=\"").append(extraValue).append('"');
+		}
+	}
+
+	private int compareName(int index, String name) {
+		int offset = index * ENTRY_SIZE;
+		int start = entries[offset + NAME_START];
+		int length1 = entries[offset + VALUE_START] - start;
+		int length2 = name.length();
+		int length = Math.min(length1, length2);
+		for (int i = 0; i < length; ++i) {
+			char c1 = chars.charAt(start + i);
+			char c2 = name.charAt(i);
+			if (c1 != c2)
+				return c1 - c2;
+		}
+		return length1 - length2;
+	}
+
+	private void appendHeaderElement(StringBuilder header, int index) {
+		int offset = index * ENTRY_SIZE;
+		header.append(chars, entries[offset + NAME_START], entries[offset + VALUE_START])
+				.append("=\"")
+				.append(chars, entries[offset + VALUE_START], entries[offset + VALUE_END])
+				.append('"');
+	}
+}
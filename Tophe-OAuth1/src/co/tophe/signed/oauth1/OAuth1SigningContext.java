@@ -0,0 +1,278 @@
+package co.tophe.signed.oauth1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import co.tophe.HttpEngine;
+import co.tophe.HttpRequestInfo;
+import co.tophe.body.HttpBodyParameters;
+import co.tophe.body.HttpBodyUrlEncoded;
+import co.tophe.utils.PercentEncodedWriter;
+import co.tophe.utils.PercentEncoder;
+
+import oauth.signpost.OAuth;
+import oauth.signpost.http.HttpParameters;
+
+/**
+ * Immutable data to sign requests with HMAC-SHA1 for a consumer and a user token.
+ * <p>The {@link javax.crypto.Mac} is initialized once with the consumer and token secrets and cloned for each signature,
+ * so requests can be signed concurrently without any lock.</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc5849#section-3.4">RFC 5849 Signature</a>
+ */
+final class OAuth1SigningContext {
+
+	private static final String MAC_NAME = "HmacSHA1";
+	private static final String SIGNATURE_METHOD = "HMAC-SHA1";
+
+	private static final String REALM = "realm";
+
+	private static final ThreadLocal<OAuth1Parameters> PARAMETERS = new ThreadLocal<OAuth1Parameters>() {
+		@Override
+		protected OAuth1Parameters initialValue() {
+			return new OAuth1Parameters();
+		}
+	};
+
+	private final String consumerKey;
+	@Nullable
+	private final String token;
+	@Nullable
+	private final String tokenSecret;
+	private final boolean sendEmptyToken;
+	private final SecretKeySpec key;
+	private final Mac prototype;
+	private final boolean cloneable;
+
+	OAuth1SigningContext(@NonNull String consumerKey, @NonNull String consumerSecret, @Nullable String token, @Nullable String tokenSecret,
+	                     boolean sendEmptyToken) throws GeneralSecurityException {
+		this.consumerKey = consumerKey;
+		this.token = token;
+		this.tokenSecret = tokenSecret;
+		this.sendEmptyToken = sendEmptyToken;
+
+		String keyString = PercentEncoder.QUERY.encode(consumerSecret) + '&' + PercentEncoder.QUERY.encode(null == tokenSecret ? "" : tokenSecret);
+		this.key = new SecretKeySpec(getBytes(keyString), MAC_NAME);
+		this.prototype = Mac.getInstance(MAC_NAME);
+		prototype.init(key);
+
+		boolean canClone;
+		try {
+			prototype.clone();
+			canClone = true;
+		} catch (CloneNotSupportedException e) {
+			canClone = false;
+		}
+		this.cloneable = canClone;
+	}
+
+	/**
+	 * @return whether this context signs for the {@code token} and {@code tokenSecret}.
+	 */
+	boolean isFor(@Nullable String token, @Nullable String tokenSecret, boolean sendEmptyToken) {
+		return TextUtils.equals(this.token, token) && TextUtils.equals(this.tokenSecret, tokenSecret) && this.sendEmptyToken == sendEmptyToken;
+	}
+
+	/**
+	 * @return a {@link javax.crypto.Mac} ready to compute a signature, not shared with other threads.
+	 */
+	private Mac newMac() throws GeneralSecurityException {
+		if (cloneable) {
+			try {
+				return (Mac) prototype.clone();
+			} catch (CloneNotSupportedException ignored) {
+			}
+		}
+		Mac mac = Mac.getInstance(MAC_NAME);
+		mac.init(key);
+		return mac;
+	}
+
+	/**
+	 * Sign the request and set its {@code Authorization} header.
+	 * <p>The parameters are read directly from the request URI, the {@code Authorization} header and the
+	 * {@link co.tophe.body.HttpBodyUrlEncoded} body. The signature base string is never built, it's written straight
+	 * into the {@link javax.crypto.Mac}.</p>
+	 *
+	 * @param request         the request to sign.
+	 * @param extraParameters OAuth parameters to add to the request, may be {@code null}.
+	 * @param nonce           the nonce for this request.
+	 * @param timestamp       the timestamp for this request, in seconds.
+	 */
+	void sign(HttpEngine<?, ?> request, @Nullable HttpParameters extraParameters, String nonce, String timestamp)
+			throws IOException, GeneralSecurityException {
+		HttpRequestInfo httpRequest = request.getHttpRequest();
+		OAuth1Parameters parameters = PARAMETERS.get();
+		parameters.reset();
+		try {
+			if (null != extraParameters) {
+				for (Map.Entry<String, SortedSet<String>> extra : extraParameters.entrySet()) {
+					for (String value : extra.getValue()) {
+						parameters.addEncoded(extra.getKey(), value);
+					}
+				}
+			}
+			addHeaderParameters(parameters, httpRequest.getHeader(OAuth.HTTP_AUTHORIZATION_HEADER));
+			Uri uri = httpRequest.getUri();
+			if (null != uri) {
+				String query = uri.getEncodedQuery();
+				if (null != query)
+					parameters.addForm(query);
+			}
+			addBodyParameters(parameters, httpRequest);
+
+			if (!parameters.containsName(OAuth.OAUTH_CONSUMER_KEY))
+				parameters.add(OAuth.OAUTH_CONSUMER_KEY, consumerKey);
+			if (!parameters.containsName(OAuth.OAUTH_SIGNATURE_METHOD))
+				parameters.add(OAuth.OAUTH_SIGNATURE_METHOD, SIGNATURE_METHOD);
+			if (!parameters.containsName(OAuth.OAUTH_TIMESTAMP))
+				parameters.add(OAuth.OAUTH_TIMESTAMP, timestamp);
+			if (!parameters.containsName(OAuth.OAUTH_NONCE))
+				parameters.add(OAuth.OAUTH_NONCE, nonce);
+			if (!parameters.containsName(OAuth.OAUTH_VERSION))
+				parameters.add(OAuth.OAUTH_VERSION, OAuth.VERSION_1_0);
+			if (!parameters.containsName(OAuth.OAUTH_TOKEN) && (!TextUtils.isEmpty(token) || sendEmptyToken))
+				parameters.add(OAuth.OAUTH_TOKEN, token);
+			parameters.removeName(OAuth.OAUTH_SIGNATURE);
+
+			String url = null == uri ? "" : uri.toString();
+			String normalizedUrl;
+			try {
+				normalizedUrl = normalizeUrl(url);
+			} catch (URISyntaxException e) {
+				throw new IOException("invalid URL " + url);
+			}
+
+			Mac mac = newMac();
+			PercentEncodedWriter baseString = new PercentEncodedWriter(new MacOutputStream(mac), new byte[256]);
+			baseString.append(httpRequest.getHttpMethod()).append('&');
+			PercentEncoder.QUERY.encode(normalizedUrl, baseString);
+			baseString.append('&');
+			parameters.appendBaseStringParameters(baseString, OAuth.OAUTH_SIGNATURE, REALM);
+			baseString.flush();
+			String signature = new String(Base64.encodeBase64(mac.doFinal()), "US-ASCII").trim();
+
+			StringBuilder header = new StringBuilder(256);
+			header.append("OAuth ");
+			parameters.appendHeaderParameters(header, REALM, OAuth.OAUTH_SIGNATURE, PercentEncoder.QUERY.encode(signature));
+			request.setHeader(OAuth.HTTP_AUTHORIZATION_HEADER, header.toString());
+		} finally {
+			if (parameters.getCapacity() > 8192) {
+				// don't keep large buffers for each thread
+				PARAMETERS.remove();
+			}
+		}
+	}
+
+	/**
+	 * Add the parameters of an existing {@code Authorization} header, like signpost does.
+	 */
+	private static void addHeaderParameters(OAuth1Parameters parameters, @Nullable String authorization) {
+		if (null == authorization || !authorization.startsWith("OAuth "))
+			return;
+		int length = authorization.length();
+		int start = "OAuth ".length();
+		while (start < length) {
+			int end = authorization.indexOf(',', start);
+			if (end < 0)
+				end = length;
+			int equal = authorization.indexOf('=', start);
+			if (equal >= 0 && equal < end) {
+				int valueEnd = authorization.indexOf('=', equal + 1);
+				if (valueEnd < 0 || valueEnd > end)
+					valueEnd = end;
+				String name = authorization.substring(start, equal).trim();
+				String value = authorization.substring(equal + 1, valueEnd).replace("\"", "").trim();
+				parameters.addEncoded(name, value);
+			}
+			start = end + 1;
+		}
+	}
+
+	private static void addBodyParameters(OAuth1Parameters parameters, HttpRequestInfo httpRequest) throws IOException {
+		HttpBodyParameters body = httpRequest.getBodyParameters();
+		if (null == body)
+			return;
+		String contentType = body.getContentType();
+		if (null == contentType || !contentType.startsWith(OAuth.FORM_ENCODED))
+			return;
+
+		if (body instanceof HttpBodyUrlEncoded) {
+			HttpBodyUrlEncoded form = (HttpBodyUrlEncoded) body;
+			for (int i = 0, count = form.getParameterCount(); i < count; ++i) {
+				parameters.add(form.getParameterName(i), form.getParameterValue(i));
+			}
+		} else {
+			ByteArrayOutputStream output = new ByteArrayOutputStream(64);
+			body.writeBodyTo(output, httpRequest, null);
+			parameters.addForm(output.toString("UTF-8"));
+		}
+	}
+
+	/**
+	 * Feed the bytes written to the {@link javax.crypto.Mac}.
+	 */
+	private static final class MacOutputStream extends OutputStream {
+		private final Mac mac;
+
+		MacOutputStream(Mac mac) {
+			this.mac = mac;
+		}
+
+		@Override
+		public void write(int oneByte) {
+			mac.update((byte) oneByte);
+		}
+
+		@Override
+		public void write(@NonNull byte[] buffer, int offset, int count) {
+			mac.update(buffer, offset, count);
+		}
+	}
+
+	/**
+	 * @return the URL without the query, the default port or the fragment.
+	 */
+	static String normalizeUrl(String url) throws URISyntaxException {
+		URI uri = new URI(url);
+		String scheme = uri.getScheme().toLowerCase(Locale.US);
+		String authority = uri.getAuthority().toLowerCase(Locale.US);
+		boolean dropPort = (scheme.equals("http") && uri.getPort() == 80) || (scheme.equals("https") && uri.getPort() == 443);
+		if (dropPort) {
+			int index = authority.lastIndexOf(':');
+			if (index >= 0)
+				authority = authority.substring(0, index);
+		}
+		String path = uri.getRawPath();
+		if (path == null || path.length() == 0)
+			path = "/";
+		return scheme + "://" + authority + path;
+	}
+
+	private static byte[] getBytes(CharSequence value) {
+		int length = value.length();
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			// the encoded key is only made of ASCII characters
+			result[i] = (byte) value.charAt(i);
+		}
+		return result;
+	}
+}
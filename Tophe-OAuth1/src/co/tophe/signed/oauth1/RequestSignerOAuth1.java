@@ -1,5 +1,8 @@
 package co.tophe.signed.oauth1;
 
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -16,10 +19,14 @@ import oauth.signpost.http.HttpParameters;
 /**
  * Helper class to add a {@link co.tophe.BaseHttpRequest BaseHttpRequest} OAuth1 signature
  * using <a href="https://code.google.com/p/oauth-signpost/">oauth-signpost</a>
+ * <p>When the consumer is a {@link co.tophe.signed.oauth1.HttpClientOAuth1Consumer} signing with HMAC-SHA1 in the
+ * {@code Authorization} header (the default) the requests are signed concurrently without locking the consumer.
+ * Other consumers sign one request at a time.</p>
  */
 public class RequestSignerOAuth1 extends AbstractOAuthSigner {
 
 	private final OAuthConsumer mOAuthConsumer;
+	private volatile OAuth1SigningContext signingContext;
 
 	/**
 	 * A {@link RequestSignerOAuth1} for the specified clientApp and user authenticating
@@ -51,6 +58,18 @@ public class RequestSignerOAuth1 extends AbstractOAuthSigner {
 	}
 	
 	public void sign(HttpEngine<?,?> req, HttpParameters oauthParams) throws HttpSignException {
+		if (mOAuthConsumer instanceof HttpClientOAuth1Consumer && ((HttpClientOAuth1Consumer) mOAuthConsumer).isDefaultSigning()) {
+			HttpClientOAuth1Consumer consumer = (HttpClientOAuth1Consumer) mOAuthConsumer;
+			try {
+				getSigningContext(consumer).sign(req, oauthParams, consumer.generateNonce(), consumer.generateTimestamp());
+			} catch (GeneralSecurityException e) {
+				throw signException(req, e);
+			} catch (IOException e) {
+				throw signException(req, e);
+			}
+			return;
+		}
+
 		synchronized (mOAuthConsumer) {
 			if (null!=getOAuthUser()) {
 				mOAuthConsumer.setTokenWithSecret(getOAuthUser().getToken(), getOAuthUser().getTokenSecret());
@@ -62,11 +81,30 @@ public class RequestSignerOAuth1 extends AbstractOAuthSigner {
 			try {
 				mOAuthConsumer.sign(req);
 			} catch (OAuthException e) {
-				HttpSignException.Builder builder = new HttpSignException.Builder(req.getHttpRequest());
-				builder.setErrorMessage("Bad OAuth for "+getOAuthUser()+" on "+req);
-				builder.setCause(e);
-				throw builder.build();
+				throw signException(req, e);
 			}
 		}
 	}
+
+	/**
+	 * @return the signing context for the current token of the user, a new one is created if the token changed.
+	 */
+	private OAuth1SigningContext getSigningContext(HttpClientOAuth1Consumer consumer) throws GeneralSecurityException {
+		String token = null == getOAuthUser() ? "" : getOAuthUser().getToken();
+		String tokenSecret = null == getOAuthUser() ? "" : getOAuthUser().getTokenSecret();
+		OAuth1SigningContext context = signingContext;
+		if (null == context || !context.isFor(token, tokenSecret, consumer.isSendingEmptyTokens())) {
+			context = new OAuth1SigningContext(consumer.getConsumerKey(), consumer.getConsumerSecret(), token, tokenSecret,
+					consumer.isSendingEmptyTokens());
+			signingContext = context;
+		}
+		return context;
+	}
+
+	private HttpSignException signException(HttpEngine<?,?> req, Exception cause) {
+		HttpSignException.Builder builder = new HttpSignException.Builder(req.getHttpRequest());
+		builder.setErrorMessage("Bad OAuth for "+getOAuthUser()+" on "+req);
+		builder.setCause(cause);
+		return builder.build();
+	}
 }
@@ -0,0 +1,196 @@
+package co.tophe.signed.oauth1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import co.tophe.HttpEngine;
+import co.tophe.HttpRequestGet;
+import co.tophe.HttpRequestPost;
+import co.tophe.ServerException;
+import co.tophe.UriParams;
+import co.tophe.body.HttpBodyUrlEncoded;
+import co.tophe.parser.BodyToString;
+import co.tophe.signed.OAuthClientApp;
+import co.tophe.signed.OAuthUser;
+
+import oauth.signpost.http.HttpParameters;
+
+public class OAuth1SigningTest extends TestCase {
+
+	// values from https://dev.twitter.com/oauth/overview/creating-signatures
+	private static final OAuthClientApp TWITTER_APP = new OAuthClientApp() {
+		@Override
+		public String getConsumerKey() {
+			return "xvz1evFS4wEEPTGEFPHBog";
+		}
+
+		@Override
+		public String getConsumerSecret() {
+			return "kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw";
+		}
+	};
+
+	private static final OAuthUser TWITTER_USER = new OAuthUser() {
+		@Override
+		public String getToken() {
+			return "370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb";
+		}
+
+		@Override
+		public String getTokenSecret() {
+			return "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE";
+		}
+	};
+
+	private static class FixedConsumer extends HttpClientOAuth1Consumer {
+		private final String nonce;
+
+		FixedConsumer(String nonce) {
+			super(TWITTER_APP);
+			this.nonce = nonce;
+		}
+
+		@Override
+		protected String generateNonce() {
+			return nonce;
+		}
+
+		@Override
+		protected String generateTimestamp() {
+			return "1318622958";
+		}
+	}
+
+	/**
+	 * Same consumer but signed the signpost way, one request at a time.
+	 */
+	private static class SignpostConsumer extends FixedConsumer {
+		SignpostConsumer(String nonce) {
+			super(nonce);
+		}
+
+		@Override
+		boolean isDefaultSigning() {
+			return false;
+		}
+	}
+
+	private static HttpEngine<String, ServerException> createTwitterPost(String status) {
+		HttpBodyUrlEncoded body = new HttpBodyUrlEncoded();
+		body.add("status", status);
+		HttpRequestPost<String> request = new HttpRequestPost<String>("https://api.twitter.com/1/statuses/update.json?include_entities=true", body, BodyToString.INSTANCE);
+		return new HttpEngine.Builder<String, ServerException>().setTypedRequest(request).build();
+	}
+
+	private static HttpEngine<String, ServerException> createGet() {
+		UriParams params = new UriParams(3);
+		params.add("q", "tophe & co");
+		params.add("count", 20);
+		params.add("a", "~*+");
+		HttpRequestGet<String> request = new HttpRequestGet<String>("http://Example.COM:80/search/tweets.json", params, BodyToString.INSTANCE);
+		return new HttpEngine.Builder<String, ServerException>().setTypedRequest(request).build();
+	}
+
+	private static String getSignature(String authorization) {
+		int start = authorization.indexOf("oauth_signature=\"") + 17;
+		return authorization.substring(start, authorization.indexOf('"', start));
+	}
+
+	public void testTwitterSignature() throws Exception {
+		RequestSignerOAuth1 signer = new RequestSignerOAuth1(new FixedConsumer("kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg"), TWITTER_USER);
+		HttpEngine<String, ServerException> engine = createTwitterPost("Hello Ladies + Gentlemen, a signed OAuth request!");
+		signer.sign(engine);
+
+		String authorization = engine.getHeader("Authorization");
+		assertTrue(authorization, authorization.startsWith("OAuth "));
+		assertEquals("tnnArxj06cWHq44gCs1OSKk%2FjLY%3D", getSignature(authorization));
+	}
+
+	public void testSameAsSignpost() throws Exception {
+		HttpParameters realm = new HttpParameters();
+		realm.put("realm", "http://example.com/");
+
+		for (int i = 0; i < 2; ++i) {
+			HttpParameters extra = 0 == i ? null : realm;
+
+			HttpEngine<String, ServerException> lockFree = createGet();
+			new RequestSignerOAuth1(new FixedConsumer("nonce"), TWITTER_USER).sign(lockFree, extra);
+			HttpEngine<String, ServerException> signpost = createGet();
+			new RequestSignerOAuth1(new SignpostConsumer("nonce"), TWITTER_USER).sign(signpost, extra);
+			assertEquals(signpost.getHeader("Authorization"), lockFree.getHeader("Authorization"));
+
+			lockFree = createTwitterPost("café & crème");
+			new RequestSignerOAuth1(new FixedConsumer("nonce"), null).sign(lockFree, extra);
+			signpost = createTwitterPost("café & crème");
+			new RequestSignerOAuth1(new SignpostConsumer("nonce"), null).sign(signpost, extra);
+			assertEquals(signpost.getHeader("Authorization"), lockFree.getHeader("Authorization"));
+		}
+	}
+
+	public void testEscapedQuerySameAsSignpost() throws Exception {
+		String url = "https://api.example.com/1.1/search?q=x+y&q=x%20y&star=%2a&tilde=%7e&empty&utf=%c3%a9t%C3%A9&raw=\u00e9&order=B&order=A";
+		HttpEngine<String, ServerException> lockFree = new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(new HttpRequestGet<String>(url, BodyToString.INSTANCE)).build();
+		new RequestSignerOAuth1(new FixedConsumer("nonce"), TWITTER_USER).sign(lockFree);
+		HttpEngine<String, ServerException> signpost = new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(new HttpRequestGet<String>(url, BodyToString.INSTANCE)).build();
+		new RequestSignerOAuth1(new SignpostConsumer("nonce"), TWITTER_USER).sign(signpost);
+		assertEquals(signpost.getHeader("Authorization"), lockFree.getHeader("Authorization"));
+	}
+
+	public void testResignSameAsSignpost() throws Exception {
+		HttpEngine<String, ServerException> lockFree = createGet();
+		new RequestSignerOAuth1(new FixedConsumer("first"), TWITTER_USER).sign(lockFree);
+		new RequestSignerOAuth1(new FixedConsumer("second"), TWITTER_USER).sign(lockFree);
+
+		HttpEngine<String, ServerException> signpost = createGet();
+		new RequestSignerOAuth1(new SignpostConsumer("first"), TWITTER_USER).sign(signpost);
+		new RequestSignerOAuth1(new SignpostConsumer("second"), TWITTER_USER).sign(signpost);
+		assertEquals(signpost.getHeader("Authorization"), lockFree.getHeader("Authorization"));
+	}
+
+	public void testParametersSorted() throws Exception {
+		OAuth1Parameters parameters = new OAuth1Parameters();
+		parameters.add("b", "2");
+		parameters.addForm("a=3&c=&a=1&b=2&ignored");
+		parameters.add("a", "\u00e9 ");
+		parameters.addEncoded("oauth_nonce", "n");
+		StringBuilder baseString = new StringBuilder();
+		parameters.appendBaseStringParameters(baseString, "oauth_signature", "realm");
+		assertEquals("a%3D%25C3%25A9%2520%26a%3D1%26a%3D3%26b%3D2%26c%3D%26oauth_nonce%3Dn", baseString.toString());
+
+		parameters.removeName("a");
+		StringBuilder header = new StringBuilder();
+		parameters.appendHeaderParameters(header, "realm", "oauth_signature", "sig");
+		assertEquals("oauth_nonce=\"n\", oauth_signature=\"sig\"", header.toString());
+	}
+
+	public void testConcurrentSigning() throws Exception {
+		final RequestSignerOAuth1 signer = new RequestSignerOAuth1(new FixedConsumer("kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg"), TWITTER_USER);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> signatures = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; ++i) {
+				signatures.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						HttpEngine<String, ServerException> engine = createTwitterPost("Hello Ladies + Gentlemen, a signed OAuth request!");
+						signer.sign(engine);
+						return getSignature(engine.getHeader("Authorization"));
+					}
+				}));
+			}
+			for (Future<String> signature : signatures) {
+				assertEquals("tnnArxj06cWHq44gCs1OSKk%2FjLY%3D", signature.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
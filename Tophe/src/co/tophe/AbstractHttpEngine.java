@@ -2,12 +2,13 @@ package co.tophe;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.http.protocol.HTTP;
@@ -19,6 +20,8 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import co.tophe.bandwidth.BandwidthLimiter;
+import co.tophe.internal.DeadlineWatchdog;
 import co.tophe.log.LogManager;
 import co.tophe.parser.ParserException;
 import co.tophe.signed.AbstractOAuthSigner;
@@ -33,7 +36,7 @@ import co.tophe.signed.AbstractOAuthSigner;
  * @param <R>  type of the {@link co.tophe.HttpResponse} provided by the engine.
  */
 public abstract class AbstractHttpEngine<T, SE extends ServerException, R extends HttpResponse> implements HttpEngine<T, SE>, Closeable {
-	protected final Map<String, String> requestHeaders = new HashMap<String, String>();
+	protected final Headers requestHeaders;
 
 	protected final RawHttpRequest request;
 	protected final ResponseHandler<T, SE> responseHandler;
@@ -41,6 +44,11 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 
 	protected R httpResponse;
 
+	private volatile long headersReceivedTime;
+	private volatile boolean cancelled;
+	private volatile boolean deadlineExpired;
+	private Deadline deadline;
+
 	/**
 	 * Tests if an {@link co.tophe.HttpResponse} is a server error or not.
 	 *
@@ -55,9 +63,7 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 		this.responseHandler = builder.getResponseHandler();
 		this.threadStatsTag = builder.getThreadStatsTag();
 
-		for (Header header : request.getAllHeaders()) {
-			requestHeaders.put(header.getName(), header.getValue());
-		}
+		this.requestHeaders = request.getHeaders().copy();
 
 		String userAgent = requestHeaders.get(HTTP.USER_AGENT);
 		if (null!=userAgent) {
@@ -79,18 +85,20 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 		return request;
 	}
 
+	/**
+	 * @return the tag marking the traffic class of this engine, {@code 0} if not set.
+	 * @see co.tophe.HttpEngine.Builder#setThreadStatsTag(int)
+	 */
+	public final int getThreadStatsTag() {
+		return threadStatsTag;
+	}
+
 	/**
 	 * Set all internal variables and sign the query if needed
 	 * <p>Usually you don't need to call this yourself, the engine will do it</p>
 	 * @throws HttpSignException
 	 */
 	public final void prepareEngine() throws HttpSignException {
-			/*
-			HttpResponse resp = null;
-			try {
-				HttpConnectionParams.setSoTimeout(client.getParams(), config.getReadTimeout(request));
-				HttpConnectionParams.setConnectionTimeout(client.getParams(), CONNECTION_TIMEOUT_IN_MS);
-			 */
 		if (null != TopheClient.getCookieManager()) {
 			TopheClient.getCookieManager().setHttpEngineCookies(this);
 		}
@@ -130,10 +138,7 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 
 	@Override
 	public final void setHeader(@NonNull String name, @Nullable String value) {
-		if (null == value)
-			requestHeaders.remove(name);
-		else
-			requestHeaders.put(name, value);
+		requestHeaders.set(name, value);
 	}
 
 	@Override
@@ -142,6 +147,7 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 	}
 
 	protected void outputBody(OutputStream outputStream, HttpRequestInfo requestInfo) throws IOException {
+		outputStream = BandwidthLimiter.limitOutputStream(outputStream, threadStatsTag);
 		final UploadProgressListener listener = request.getProgressListener();
 		if (null != listener)
 			listener.onParamUploadProgress(requestInfo, null, 0);
@@ -165,17 +171,46 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 	@SuppressLint("NewApi")
 	@Override
 	public final T call() throws SE, HttpException {
+		if (cancelled)
+			throw new HttpException.Builder(request, null).setErrorMessage("cancelled").build();
+
+		deadline = Deadline.current();
+		HttpConfig httpConfig = request.getHttpConfig();
+		if (httpConfig instanceof HttpTimeoutConfig) {
+			long requestTimeout = ((HttpTimeoutConfig) httpConfig).getRequestTimeout(request);
+			if (requestTimeout >= 0)
+				deadline = Deadline.after(requestTimeout).earliest(deadline);
+		}
+
+		Future<?> watchdog = null;
+		Deadline previousDeadline = null;
+		if (null != deadline) {
+			if (deadline.isExpired())
+				throw new HttpTimeoutException.Builder(request, null).setErrorMessage("deadline exceeded").build();
+			previousDeadline = Deadline.enter(deadline); // for requests done while processing this one
+			watchdog = DeadlineWatchdog.schedule(deadline, new Runnable() {
+				@Override
+				public void run() {
+					deadlineExpired = true;
+					cancel();
+				}
+			});
+		}
+
 		if (0 != threadStatsTag) {
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH)
 				TrafficStats.setThreadStatsTag(threadStatsTag);
 		}
 
-		prepareEngine();
-
-		R httpResponse = queryResponse();
 		try {
+			prepareEngine();
+			// signing may have waited for a token long enough to be cancelled
+			checkCancelled();
+
+			R httpResponse = queryResponse();
 			String expectedMimeType = request.getHeader(HttpRequest.HEADER_ACCEPT);
-			if (!TextUtils.isEmpty(expectedMimeType)) {
+			// a 304 response has no body to check
+			if (!TextUtils.isEmpty(expectedMimeType) && HttpURLConnection.HTTP_NOT_MODIFIED != httpResponse.getResponseCode()) {
 				MediaType expectedType = MediaType.parse(expectedMimeType);
 				if (null!=expectedType && !expectedType.equalsType(MediaType.parse(httpResponse.getContentType()))) {
 					HttpMimeException.Builder builder = new HttpMimeException.Builder(request, httpResponse);
@@ -193,6 +228,10 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 			throw exceptionToHttpException(e).build();
 
 		} finally {
+			if (null != deadline) {
+				watchdog.cancel(false);
+				Deadline.exit(previousDeadline);
+			}
 			if (0 != threadStatsTag) {
 				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH)
 					TrafficStats.clearThreadStatsTag();
@@ -200,12 +239,84 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 		}
 	}
 
+	/**
+	 * @return the deadline of the request being processed, or {@code null} if it has no time limit.
+	 */
+	@Nullable
+	protected final Deadline getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Limit a timeout so it doesn't go past the deadline of the request.
+	 *
+	 * @param timeout the timeout in milliseconds, negative for none
+	 * @return the timeout to use in milliseconds, -1 for none
+	 */
+	protected final int limitToDeadline(int timeout) {
+		if (null == deadline)
+			return timeout < 0 ? -1 : timeout;
+		long remaining = Math.max(1L, Math.min(Integer.MAX_VALUE, deadline.getRemainingMillis()));
+		if (timeout < 0 || timeout > remaining)
+			return (int) remaining;
+		return timeout;
+	}
+
+	/**
+	 * Mark the engine as cancelled, engines must override it to abort their network operations.
+	 */
+	@Override
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} when the response headers were received, {@code 0} if they were not received yet,
+	 * the request failed before or the engine doesn't report it.
+	 */
+	public final long getHeadersReceivedTime() {
+		return headersReceivedTime;
+	}
+
+	/**
+	 * @return whether {@link #cancel()} was called on this engine.
+	 */
+	public final boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Engines call it between the steps that {@link #cancel()} cannot abort, like opening the connection.
+	 *
+	 * @throws HttpException the same exception as a request aborted by {@link #cancel()} or its deadline.
+	 */
+	protected final void checkCancelled() throws HttpException {
+		if (cancelled)
+			throw exceptionToHttpException(new InterruptedIOException("cancelled")).build();
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (null != httpResponse)
 			httpResponse.disconnect();
 	}
 
+	/**
+	 * Engines call it when the status and headers of the response are received, before reading the body.
+	 *
+	 * @see #reportsHeadersReceived()
+	 */
+	protected final void setHeadersReceived() {
+		headersReceivedTime = System.nanoTime();
+	}
+
+	/**
+	 * @return whether the engine calls {@link #setHeadersReceived()}, only these engines can be hedged.
+	 */
+	protected boolean reportsHeadersReceived() {
+		return false;
+	}
+
 	protected void setRequestResponse(R httpResponse) {
 		this.httpResponse = httpResponse;
 		responseHandler.onHttpResponse(request, httpResponse);
@@ -248,6 +359,20 @@ public abstract class AbstractHttpEngine<T, SE extends ServerException, R extend
 	}
 
 	protected HttpException.AbstractBuilder<? extends HttpException, ?> exceptionToHttpException(Exception e) throws HttpException {
+		if (deadlineExpired) {
+			LogManager.getLogger().d("deadline exceeded for "+request);
+			return new HttpTimeoutException.Builder(request, httpResponse)
+					.setErrorMessage("deadline exceeded")
+					.setCause(e);
+		}
+
+		if (cancelled) {
+			// the error is caused by the connection aborted in cancel()
+			return new HttpException.Builder(request, httpResponse)
+					.setErrorMessage("cancelled")
+					.setCause(e);
+		}
+
 		if (e instanceof SocketTimeoutException || e instanceof TimeoutException) {
 			LogManager.getLogger().d("timeout for "+request);
 			return new HttpTimeoutException.Builder(request, httpResponse)
@@ -6,17 +6,34 @@ import android.text.format.DateUtils;
 /**
  * Basic HTTP configuration to access servers.
  * <p>For GET request the read timeout is 6s, for post the read timeout is 80s.</p>
+ * <p>The connect timeout is 15s and there is no limit on the total time of a request, unless set in the constructor.</p>
  *
  * @see co.tophe.HttpConfig
  */
-public class BasicHttpConfig implements HttpConfig {
+public class BasicHttpConfig implements HttpTimeoutConfig {
 
 	public static final int READ_TIMEOUT_IN_MS = (int) (6 * DateUtils.SECOND_IN_MILLIS);
 	public static final int READ_TIMEOUT_LONG_POST_IN_MS = (int) (80 * DateUtils.SECOND_IN_MILLIS);
+	public static final int CONNECT_TIMEOUT_IN_MS = (int) (15 * DateUtils.SECOND_IN_MILLIS);
 
 	public static final BasicHttpConfig INSTANCE = new BasicHttpConfig();
 
+	private final int connectTimeout;
+	private final long requestTimeout;
+
 	public BasicHttpConfig() {
+		this(CONNECT_TIMEOUT_IN_MS, -1L);
+	}
+
+	/**
+	 * Constructor with custom timeouts.
+	 *
+	 * @param connectTimeout connect timeout in milliseconds, -1 for the system default
+	 * @param requestTimeout total time allowed for each request in milliseconds, -1 for no limit
+	 */
+	public BasicHttpConfig(int connectTimeout, long requestTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.requestTimeout = requestTimeout;
 	}
 
 	@Override
@@ -29,4 +46,14 @@ public class BasicHttpConfig implements HttpConfig {
 
 		return READ_TIMEOUT_IN_MS;
 	}
+
+	@Override
+	public int getConnectTimeout(HttpRequestInfo request) {
+		return connectTimeout;
+	}
+
+	@Override
+	public long getRequestTimeout(HttpRequestInfo request) {
+		return requestTimeout;
+	}
 }
@@ -0,0 +1,207 @@
+package co.tophe;
+
+import android.support.annotation.Nullable;
+
+import co.tophe.utils.HeaderParser;
+
+/**
+ * The directives of a {@code Cache-Control} header, as defined in <a href="https://tools.ietf.org/html/rfc7234#section-5.2">RFC 7234</a>.
+ * <p>Durations are in seconds, {@code -1} when the directive is not present. Unknown directives are ignored.</p>
+ */
+public final class CacheControl {
+
+	/**
+	 * Cache control with no directive.
+	 */
+	public static final CacheControl EMPTY = new CacheControl(null);
+
+	private static final InternCache<CacheControl> INTERNED = new InternCache<CacheControl>(16);
+
+	private final String value;
+	private boolean noCache;
+	private boolean noStore;
+	private boolean noTransform;
+	private boolean onlyIfCached;
+	private boolean isPublic;
+	private boolean isPrivate;
+	private boolean mustRevalidate;
+	private boolean immutable;
+	private int maxAge = -1;
+	private int sMaxAge = -1;
+	private int maxStale = -1;
+	private int minFresh = -1;
+	private int staleWhileRevalidate = -1;
+
+	private CacheControl(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * Parse the value of a {@code Cache-Control} header.
+	 * <p>The most recently parsed values are cached so the same instance is returned.</p>
+	 *
+	 * @param value the header value, may be {@code null}.
+	 * @return the parsed directives, never {@code null}.
+	 */
+	public static CacheControl parse(@Nullable String value) {
+		if (null == value || value.length() == 0)
+			return EMPTY;
+		CacheControl result = INTERNED.get(value);
+		if (null == result) {
+			result = new CacheControl(value);
+			result.parseDirectives();
+			INTERNED.put(value, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the directives of the {@code Cache-Control} header of a response.
+	 */
+	public static CacheControl parse(HttpResponse response) {
+		return parse(response.getHeaderField("Cache-Control"));
+	}
+
+	private void parseDirectives() {
+		int length = value.length();
+		int pos = 0;
+		while (pos < length) {
+			pos = HeaderParser.skipWhitespace(value, pos);
+			int nameStart = pos;
+			int nameEnd = HeaderParser.skipToken(value, pos);
+			pos = HeaderParser.skipWhitespace(value, nameEnd);
+
+			int argStart = -1;
+			int argEnd = -1;
+			if (pos < length && value.charAt(pos) == '=') {
+				pos = HeaderParser.skipWhitespace(value, pos + 1);
+				if (pos < length && value.charAt(pos) == '"') {
+					int quoteEnd = HeaderParser.skipQuoted(value, pos);
+					if (quoteEnd < 0)
+						quoteEnd = length;
+					argStart = pos + 1;
+					argEnd = quoteEnd;
+					pos = Math.min(length, quoteEnd + 1);
+				} else {
+					argStart = pos;
+					argEnd = HeaderParser.skipToken(value, pos);
+					pos = argEnd;
+				}
+			}
+
+			if (nameEnd > nameStart)
+				setDirective(nameStart, nameEnd, argStart, argEnd);
+
+			// skip to the next directive
+			int comma = value.indexOf(',', pos);
+			if (comma < 0)
+				break;
+			pos = comma + 1;
+		}
+	}
+
+	private void setDirective(int nameStart, int nameEnd, int argStart, int argEnd) {
+		if (isDirective(nameStart, nameEnd, "no-cache"))
+			noCache = true;
+		else if (isDirective(nameStart, nameEnd, "no-store"))
+			noStore = true;
+		else if (isDirective(nameStart, nameEnd, "max-age"))
+			maxAge = HeaderParser.parseSeconds(value, argStart, argEnd);
+		else if (isDirective(nameStart, nameEnd, "s-maxage"))
+			sMaxAge = HeaderParser.parseSeconds(value, argStart, argEnd);
+		else if (isDirective(nameStart, nameEnd, "private"))
+			isPrivate = true;
+		else if (isDirective(nameStart, nameEnd, "public"))
+			isPublic = true;
+		else if (isDirective(nameStart, nameEnd, "must-revalidate"))
+			mustRevalidate = true;
+		else if (isDirective(nameStart, nameEnd, "no-transform"))
+			noTransform = true;
+		else if (isDirective(nameStart, nameEnd, "only-if-cached"))
+			onlyIfCached = true;
+		else if (isDirective(nameStart, nameEnd, "immutable"))
+			immutable = true;
+		else if (isDirective(nameStart, nameEnd, "max-stale"))
+			maxStale = argStart < 0 ? Integer.MAX_VALUE : HeaderParser.parseSeconds(value, argStart, argEnd);
+		else if (isDirective(nameStart, nameEnd, "min-fresh"))
+			minFresh = HeaderParser.parseSeconds(value, argStart, argEnd);
+		else if (isDirective(nameStart, nameEnd, "stale-while-revalidate"))
+			staleWhileRevalidate = HeaderParser.parseSeconds(value, argStart, argEnd);
+	}
+
+	private boolean isDirective(int nameStart, int nameEnd, String directive) {
+		return nameEnd - nameStart == directive.length() && value.regionMatches(true, nameStart, directive, 0, directive.length());
+	}
+
+	public boolean noCache() {
+		return noCache;
+	}
+
+	public boolean noStore() {
+		return noStore;
+	}
+
+	public boolean noTransform() {
+		return noTransform;
+	}
+
+	public boolean onlyIfCached() {
+		return onlyIfCached;
+	}
+
+	public boolean isPublic() {
+		return isPublic;
+	}
+
+	public boolean isPrivate() {
+		return isPrivate;
+	}
+
+	public boolean mustRevalidate() {
+		return mustRevalidate;
+	}
+
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	/**
+	 * @return the {@code max-age} in seconds, {@code -1} if not set.
+	 */
+	public int maxAgeSeconds() {
+		return maxAge;
+	}
+
+	/**
+	 * @return the {@code s-maxage} in seconds, {@code -1} if not set.
+	 */
+	public int sMaxAgeSeconds() {
+		return sMaxAge;
+	}
+
+	/**
+	 * @return the {@code max-stale} in seconds, {@link Integer#MAX_VALUE} if set without a value, {@code -1} if not set.
+	 */
+	public int maxStaleSeconds() {
+		return maxStale;
+	}
+
+	/**
+	 * @return the {@code min-fresh} in seconds, {@code -1} if not set.
+	 */
+	public int minFreshSeconds() {
+		return minFresh;
+	}
+
+	/**
+	 * @return the {@code stale-while-revalidate} in seconds, {@code -1} if not set.
+	 */
+	public int staleWhileRevalidateSeconds() {
+		return staleWhileRevalidate;
+	}
+
+	@Override
+	public String toString() {
+		return null == value ? "" : value;
+	}
+}
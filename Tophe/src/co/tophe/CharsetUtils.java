@@ -2,29 +2,55 @@ package co.tophe;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
-import android.annotation.SuppressLint;
-import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 public final class CharsetUtils {
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int MAX_CACHED_CHARSETS = 32;
+	/**
+	 * Charsets found by name, or {@link #UNSUPPORTED} when the name is not supported.
+	 */
+	private static final ConcurrentHashMap<String, Object> charsets = new ConcurrentHashMap<String, Object>();
+	private static final Object UNSUPPORTED = new Object();
+
 	private CharsetUtils() {
 	}
 
+	/**
+	 * Get the {@link Charset} for the name, the lookups are cached.
+	 *
+	 * @param charsetName the name of the charset, like {@code "utf-8"}.
+	 * @return the {@link Charset} or {@code null} if it's not supported.
+	 */
+	@Nullable
+	public static Charset forName(@NonNull String charsetName) {
+		Object cached = charsets.get(charsetName);
+		if (null == cached) {
+			try {
+				cached = Charset.forName(charsetName);
+			} catch (IllegalArgumentException e) {
+				// IllegalCharsetNameException or UnsupportedCharsetException
+				cached = UNSUPPORTED;
+			}
+			if (charsets.size() < MAX_CACHED_CHARSETS)
+				charsets.put(charsetName, cached);
+		}
+		return cached == UNSUPPORTED ? null : (Charset) cached;
+	}
+
 	/**
 	 * Get the {@link Charset} of the HTTP response of the provided httpResponse or UTF-8
 	 * @param httpResponse received the server
 	 * @return The Charset of specified by the server, if found locally, or UTF-8
 	 * @throws IOException
 	 */
-	@SuppressLint("NewApi")
 	public static Charset getInputCharsetOrUtf8(HttpResponse httpResponse) {
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
-			return getInputCharset(httpResponse, StandardCharsets.UTF_8);
-		
-		return getInputCharset(httpResponse, Charset.forName("UTF-8"));
+		return getInputCharset(httpResponse, UTF_8);
 	}
 	
 	/**
@@ -38,8 +64,8 @@ public final class CharsetUtils {
 		String contentType = httpResponse.getContentType();
 		if (!TextUtils.isEmpty(contentType)) {
 			MediaType type = MediaType.parse(contentType);
-			if (null!=type && null!=type.charset())
-				readCharset = type.charset();
+			if (null!=type)
+				readCharset = type.charset(defaultCharset);
 		}
 		return readCharset;
 	}
@@ -0,0 +1,94 @@
+package co.tophe;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Point in time after which a request, or a group of chained requests, must not keep running.
+ * <p>The deadline of the calling thread is inherited by the {@link co.tophe.HttpEngine} run in that thread, so chained
+ * and paged requests share the time left of the first one.</p>
+ *
+ * @see co.tophe.HttpTimeoutConfig#getRequestTimeout(HttpRequestInfo)
+ * @see #enter(Deadline)
+ */
+public final class Deadline {
+	private static final ThreadLocal<Deadline> currentDeadline = new ThreadLocal<Deadline>();
+
+	private final long expirationNanos;
+
+	private Deadline(long expirationNanos) {
+		this.expirationNanos = expirationNanos;
+	}
+
+	/**
+	 * Create a deadline {@code timeoutMillis} from now.
+	 */
+	@NonNull
+	public static Deadline after(long timeoutMillis) {
+		if (timeoutMillis < 0) throw new IllegalArgumentException("negative timeout " + timeoutMillis);
+		return new Deadline(System.nanoTime() + timeoutMillis * 1000000L);
+	}
+
+	/**
+	 * @return the time left before the deadline in milliseconds, {@code 0} if it's expired.
+	 */
+	public long getRemainingMillis() {
+		long remaining = expirationNanos - System.nanoTime();
+		if (remaining <= 0)
+			return 0;
+		return (remaining + 999999L) / 1000000L;
+	}
+
+	public boolean isExpired() {
+		return expirationNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @return the deadline that expires first between this one and {@code other}.
+	 */
+	@NonNull
+	public Deadline earliest(@Nullable Deadline other) {
+		if (null == other || expirationNanos - other.expirationNanos <= 0)
+			return this;
+		return other;
+	}
+
+	/**
+	 * @return the deadline of the current thread, or {@code null}.
+	 */
+	@Nullable
+	public static Deadline current() {
+		return currentDeadline.get();
+	}
+
+	/**
+	 * Set the deadline of the current thread, it must be followed by a call to {@link #exit(Deadline)} in a {@code finally} block.
+	 *
+	 * @param deadline the deadline for the code run in this thread, {@code null} to keep the current one.
+	 * @return the previous deadline to give to {@link #exit(Deadline)}.
+	 */
+	@Nullable
+	public static Deadline enter(@Nullable Deadline deadline) {
+		Deadline previous = currentDeadline.get();
+		if (null != deadline)
+			currentDeadline.set(deadline.earliest(previous));
+		return previous;
+	}
+
+	/**
+	 * Restore the deadline of the current thread as it was before {@link #enter(Deadline)}.
+	 *
+	 * @param previous the value returned by {@link #enter(Deadline)}.
+	 */
+	public static void exit(@Nullable Deadline previous) {
+		if (null == previous)
+			currentDeadline.remove();
+		else
+			currentDeadline.set(previous);
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline{" + getRemainingMillis() + "ms}";
+	}
+}
@@ -0,0 +1,18 @@
+package co.tophe;
+
+/**
+ * Listener to know the progress of a long HTTP response body.
+ *
+ * @see co.tophe.RawHttpRequest#setDownloadProgressListener(DownloadProgressListener, long)
+ * @see co.tophe.UploadProgressListener
+ */
+public interface DownloadProgressListener {
+	/**
+	 * Notify when data of the response body have been received.
+	 *
+	 * @param request       the request whose progress is notified.
+	 * @param bytesReceived the amount of bytes of the body received so far, as sent by the server before any decoding.
+	 * @param contentLength the {@code Content-Length} of the response, {@code -1} if unknown.
+	 */
+	void onDownloadProgress(HttpRequestInfo request, long bytesReceived, long contentLength);
+}
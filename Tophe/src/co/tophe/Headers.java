@@ -0,0 +1,229 @@
+package co.tophe;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Compact list of HTTP headers stored in parallel arrays, header names are compared case-insensitively.
+ * <p>{@link #copy()} doesn't duplicate the storage until one of the copies is modified, so a request can start from the
+ * default headers of {@link co.tophe.TopheClient} without allocating anything. A frozen instance can be shared between
+ * threads, other instances are not thread-safe.</p>
+ */
+public final class Headers {
+
+	private static final String[] EMPTY = new String[0];
+
+	/**
+	 * An empty frozen list of headers.
+	 */
+	public static final Headers EMPTY_HEADERS = new Headers(EMPTY, EMPTY, 0).freeze();
+
+	private String[] names;
+	private String[] values;
+	private int size;
+	private boolean shared;
+	private boolean frozen;
+
+	public Headers() {
+		this(EMPTY, EMPTY, 0);
+	}
+
+	/**
+	 * Constructor with headers to copy, the same header name may be used more than once.
+	 */
+	public Headers(@Nullable Header[] headers) {
+		this(EMPTY, EMPTY, 0);
+		if (null != headers) {
+			for (Header header : headers) {
+				add(header.getName(), header.getValue());
+			}
+		}
+	}
+
+	private Headers(String[] names, String[] values, int size) {
+		this.names = names;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * @return the number of headers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the name of the header at {@code index}, as it was set.
+	 */
+	@NonNull
+	public String getName(int index) {
+		if (index >= size) throw new IndexOutOfBoundsException("invalid index " + index + " size " + size);
+		return names[index];
+	}
+
+	/**
+	 * @return the value of the header at {@code index}.
+	 */
+	@NonNull
+	public String getValue(int index) {
+		if (index >= size) throw new IndexOutOfBoundsException("invalid index " + index + " size " + size);
+		return values[index];
+	}
+
+	/**
+	 * Get the first value of the header {@code name}.
+	 *
+	 * @return the value of the header or {@code null} if it is not set.
+	 */
+	@Nullable
+	public String get(@NonNull String name) {
+		int index = indexOf(name, 0);
+		return index < 0 ? null : values[index];
+	}
+
+	/**
+	 * Set the value of the header {@code name}, removing all its previous values.
+	 *
+	 * @param value the value of the header, {@code null} to remove the header.
+	 */
+	public void set(@NonNull String name, @Nullable String value) {
+		if (null == value) {
+			remove(name);
+			return;
+		}
+
+		int index = indexOf(name, 0);
+		if (index < 0) {
+			append(name, value);
+		} else {
+			prepareWrite(size);
+			names[index] = name;
+			values[index] = value;
+			removeFrom(name, index + 1);
+		}
+	}
+
+	/**
+	 * Add a value to the header {@code name}, unless it already has this value.
+	 */
+	public void add(@NonNull String name, @NonNull String value) {
+		if (null == value) throw new NullPointerException("null value for header " + name);
+		for (int index = indexOf(name, 0); index >= 0; index = indexOf(name, index + 1)) {
+			if (values[index].equals(value))
+				return;
+		}
+		append(name, value);
+	}
+
+	/**
+	 * Remove all the values of the header {@code name}.
+	 */
+	public void remove(@NonNull String name) {
+		int index = indexOf(name, 0);
+		if (index >= 0)
+			removeFrom(name, index);
+	}
+
+	/**
+	 * Get a copy of these headers that can be modified independently. The storage is only duplicated when one of them is modified.
+	 */
+	@NonNull
+	public Headers copy() {
+		if (!frozen)
+			shared = true;
+		Headers result = new Headers(names, values, size);
+		result.shared = true;
+		return result;
+	}
+
+	/**
+	 * Make these headers read-only so they can be shared between threads.
+	 *
+	 * @return this object.
+	 */
+	@NonNull
+	public Headers freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * Get the headers as an array of {@link co.tophe.Header}, allocated for each call.
+	 */
+	@NonNull
+	public Header[] toArray() {
+		Header[] result = new Header[size];
+		for (int i = 0; i < size; ++i) {
+			result[i] = new Header(names[i], values[i]);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size * 32);
+		sb.append('{');
+		for (int i = 0; i < size; ++i) {
+			if (i != 0)
+				sb.append(", ");
+			sb.append(names[i]).append(':').append(values[i]);
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	private int indexOf(String name, int start) {
+		for (int i = start; i < size; ++i) {
+			if (names[i].equalsIgnoreCase(name))
+				return i;
+		}
+		return -1;
+	}
+
+	private void append(String name, String value) {
+		prepareWrite(size + 1);
+		names[size] = name;
+		values[size] = value;
+		size++;
+	}
+
+	private void removeFrom(String name, int start) {
+		int write = start;
+		for (int read = start; read < size; ++read) {
+			if (!names[read].equalsIgnoreCase(name)) {
+				if (write != read) {
+					prepareWrite(size);
+					names[write] = names[read];
+					values[write] = values[read];
+				}
+				write++;
+			}
+		}
+		if (write != size) {
+			prepareWrite(size);
+			for (int i = write; i < size; ++i) {
+				names[i] = null;
+				values[i] = null;
+			}
+			size = write;
+		}
+	}
+
+	/**
+	 * Make sure the storage can be modified and holds at least {@code capacity} headers.
+	 */
+	private void prepareWrite(int capacity) {
+		if (frozen) throw new UnsupportedOperationException("frozen headers cannot be modified");
+		if (shared || capacity > names.length) {
+			int newCapacity = capacity > names.length ? Math.max(capacity, Math.max(8, names.length * 2)) : names.length;
+			String[] newNames = new String[newCapacity];
+			String[] newValues = new String[newCapacity];
+			System.arraycopy(names, 0, newNames, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			names = newNames;
+			values = newValues;
+			shared = false;
+		}
+	}
+}
@@ -2,7 +2,8 @@ package co.tophe;
 
 
 /**
- * Configuration for an HTTP request. Only the read-timeout tweaking can be configured for now.
+ * Configuration for an HTTP request, it sets the read timeout.
+ * <p>Implement {@link co.tophe.HttpTimeoutConfig} to also configure the connect timeout and the request deadline.</p>
  *
  * @see co.tophe.BasicHttpConfig
  */
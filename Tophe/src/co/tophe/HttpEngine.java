@@ -6,6 +6,10 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import co.tophe.engine.DummyHttpEngine;
+import co.tophe.engine.HedgedHttpEngine;
+import co.tophe.engine.HedgingPolicy;
+import co.tophe.engine.ReauthenticatingHttpEngine;
+import co.tophe.signed.RenewableRequestSigner;
 
 /**
  * An HTTP engine to process an HTTP request.
@@ -52,6 +56,13 @@ public interface HttpEngine<T, SE extends ServerException> extends Callable<T>,
 	@NonNull
 	String getHeader(String name);
 
+	/**
+	 * Abort the processing of the request, the pending network operations fail right away and the connection is closed.
+	 * <p>Can be called from any thread. It has no effect if the request is already processed.</p>
+	 * <p>{@link #call()} throws an {@link co.tophe.HttpException} when the engine is cancelled.</p>
+	 */
+	void cancel();
+
 	/**
 	 * Builder to turn an HTTP request ({@link co.tophe.TypedHttpRequest} or a {@link co.tophe.HttpRequest} with a
 	 * {@link co.tophe.ResponseHandler}) into an {@link co.tophe.HttpEngine} to process the request.
@@ -64,6 +75,7 @@ public interface HttpEngine<T, SE extends ServerException> extends Callable<T>,
 		private RawHttpRequest httpRequest;
 		private HttpEngineFactory factory = TopheClient.getHttpEngineFactory();
 		private int threadStatsTag;
+		private HedgingPolicy hedgingPolicy;
 
 		public Builder() {
 		}
@@ -122,6 +134,18 @@ public interface HttpEngine<T, SE extends ServerException> extends Callable<T>,
 			return this;
 		}
 
+		/**
+		 * Send a duplicate of idempotent requests when their response is slow to come, the first response wins.
+		 * <p>Only the engines that report when the response headers are received are hedged, not the Ion engine.</p>
+		 *
+		 * @param hedgingPolicy the policy to decide when to hedge the request, {@code null} to never hedge (default).
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setHedgingPolicy(@Nullable HedgingPolicy hedgingPolicy) {
+			this.hedgingPolicy = hedgingPolicy;
+			return this;
+		}
+
         @NonNull
 		public HttpEngine<T, SE> build() {
 			if (null == httpRequest) throw new NullPointerException("missing a HttpRequest for the engine");
@@ -129,6 +153,11 @@ public interface HttpEngine<T, SE extends ServerException> extends Callable<T>,
 			HttpEngine<T, SE> httpEngine = factory.createEngine(this);
 			if (null == httpEngine)
 				return new DummyHttpEngine<T, SE>(this);
+			if (null != hedgingPolicy && httpEngine instanceof AbstractHttpEngine && ((AbstractHttpEngine<T, SE, ?>) httpEngine).reportsHeadersReceived()
+					&& hedgingPolicy.isHedgeable(httpRequest))
+				httpEngine = new HedgedHttpEngine<T, SE>(this, (AbstractHttpEngine<T, SE, ?>) httpEngine, hedgingPolicy);
+			if (httpRequest.getRequestSigner() instanceof RenewableRequestSigner && ReauthenticatingHttpEngine.isReplayable(httpRequest))
+				httpEngine = new ReauthenticatingHttpEngine<T, SE>(this, httpEngine, (RenewableRequestSigner) httpRequest.getRequestSigner());
 			return httpEngine;
 		}
 
@@ -144,5 +173,9 @@ public interface HttpEngine<T, SE extends ServerException> extends Callable<T>,
 		public int getThreadStatsTag() {
 			return threadStatsTag;
 		}
+
+		public HttpEngineFactory getHttpEngineFactory() {
+			return factory;
+		}
 	}
 }
@@ -0,0 +1,27 @@
+package co.tophe;
+
+/**
+ * {@link co.tophe.HttpConfig} that also configures the connect timeout and the total time a request can take.
+ *
+ * @see co.tophe.BasicHttpConfig
+ * @see co.tophe.Deadline
+ */
+public interface HttpTimeoutConfig extends HttpConfig {
+
+	/**
+	 * Get the connect timeout for the request
+	 *
+	 * @param request the HTTP request to configure.
+	 * @return connect timeout in milliseconds, -1 for the system default
+	 */
+	int getConnectTimeout(HttpRequestInfo request);
+
+	/**
+	 * Get the maximum time to process the request, including connecting, sending the body, receiving and parsing the response
+	 * <p>When it expires the request is aborted with an {@link co.tophe.HttpTimeoutException}.</p>
+	 *
+	 * @param request the HTTP request to configure.
+	 * @return the total timeout in milliseconds, -1 for no limit
+	 */
+	long getRequestTimeout(HttpRequestInfo request);
+}
@@ -0,0 +1,32 @@
+package co.tophe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small least-recently-used cache of parsed header values, keyed by the raw header value.
+ * <p>The same few header values are received over and over, so parsing them once saves work and garbage.</p>
+ *
+ * @param <V> type of the parsed value.
+ */
+final class InternCache<V> {
+
+	private final LinkedHashMap<String, V> entries;
+
+	InternCache(final int maxSize) {
+		this.entries = new LinkedHashMap<String, V>(maxSize + 1, 1.0f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	synchronized V get(String key) {
+		return entries.get(key);
+	}
+
+	synchronized void put(String key, V value) {
+		entries.put(key, value);
+	}
+}
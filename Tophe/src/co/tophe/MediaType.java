@@ -17,11 +17,11 @@ package co.tophe;
 
 import java.nio.charset.Charset;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import android.text.TextUtils;
 
+import co.tophe.utils.HeaderParser;
+
 /**
  * An <a href="http://tools.ietf.org/html/rfc2045">RFC 2045</a> Media Type,
  * appropriate to describe the content type of an HTTP request or response body.
@@ -29,47 +29,72 @@ import android.text.TextUtils;
  */
 public final class MediaType {
 
-  private static final String TOKEN = "([a-zA-Z0-9-!#$%&'*+.^_`{|}~]+)";
-  private static final String QUOTED = "\"([^\"]*)\"";
-  private static final Pattern TYPE_SUBTYPE = Pattern.compile(TOKEN + "/" + TOKEN);
-  private static final Pattern PARAMETER = Pattern.compile(
-      ";\\s*(?:" + TOKEN + "=(?:" + TOKEN + "|" + QUOTED + "))?");
+  private static final InternCache<MediaType> INTERNED = new InternCache<MediaType>(32);
 
   private final String mediaType;
   private final String type;
   private final String subtype;
-  private final String charset;
+  private final Charset charset;
 
   private MediaType(String mediaType, String type, String subtype, String charset) {
     this.mediaType = mediaType;
     this.type = type;
     this.subtype = subtype;
-    this.charset = charset;
+    this.charset = charset != null ? CharsetUtils.forName(charset) : null;
   }
 
   /**
    * Returns a media type for {@code string}, or null if {@code string} is not a
    * well-formed media type.
+   * <p>The most recently parsed values are cached so the same instance is returned.</p>
    */
   public static MediaType parse(String string) {
     if (string == null) return null;
-    Matcher typeSubtype = TYPE_SUBTYPE.matcher(string);
-    if (!typeSubtype.lookingAt()) return null;
-    String type = typeSubtype.group(1).toLowerCase(Locale.US);
-    String subtype = typeSubtype.group(2).toLowerCase(Locale.US);
+    MediaType result = INTERNED.get(string);
+    if (result == null) {
+      result = parseValue(string);
+      if (result != null) INTERNED.put(string, result);
+    }
+    return result;
+  }
+
+  private static MediaType parseValue(String string) {
+    int length = string.length();
+    int typeEnd = HeaderParser.skipToken(string, 0);
+    if (typeEnd == 0 || typeEnd == length || string.charAt(typeEnd) != '/') return null;
+    int subtypeEnd = HeaderParser.skipToken(string, typeEnd + 1);
+    if (subtypeEnd == typeEnd + 1) return null;
+    String type = string.substring(0, typeEnd).toLowerCase(Locale.US);
+    String subtype = string.substring(typeEnd + 1, subtypeEnd).toLowerCase(Locale.US);
 
     String charset = null;
-    Matcher parameter = PARAMETER.matcher(string);
-    for (int s = typeSubtype.end(); s < string.length(); s = parameter.end()) {
-      parameter.region(s, string.length());
-      if (!parameter.lookingAt()) return null; // This is not a well-formed media type.
-
-      String name = parameter.group(1);
-      if (name == null || !name.equalsIgnoreCase("charset")) continue;
-      if (charset != null) throw new IllegalArgumentException("Multiple charsets: " + string);
-      charset = parameter.group(2) != null
-          ? parameter.group(2)  // Value is a token.
-          : parameter.group(3); // Value is a quoted string.
+    int pos = subtypeEnd;
+    while (pos < length) {
+      if (string.charAt(pos) != ';') return null; // This is not a well-formed media type.
+      pos = HeaderParser.skipWhitespace(string, pos + 1);
+      int nameEnd = HeaderParser.skipToken(string, pos);
+      if (nameEnd == pos) continue; // empty parameter
+
+      if (nameEnd == length || string.charAt(nameEnd) != '=') return null;
+      int valueStart = nameEnd + 1;
+      int valueEnd;
+      String value;
+      if (valueStart < length && string.charAt(valueStart) == '"') {
+        valueEnd = string.indexOf('"', valueStart + 1);
+        if (valueEnd < 0) return null;
+        value = string.substring(valueStart + 1, valueEnd);
+        valueEnd++;
+      } else {
+        valueEnd = HeaderParser.skipToken(string, valueStart);
+        if (valueEnd == valueStart) return null;
+        value = string.substring(valueStart, valueEnd);
+      }
+
+      if (nameEnd - pos == 7 && string.regionMatches(true, pos, "charset", 0, 7)) {
+        if (charset != null) throw new IllegalArgumentException("Multiple charsets: " + string);
+        charset = value;
+      }
+      pos = valueEnd;
     }
 
     return new MediaType(string, type, subtype, charset);
@@ -93,18 +118,18 @@ public final class MediaType {
 
   /**
    * Returns the charset of this media type, or null if this media type doesn't
-   * specify a charset.
+   * specify a charset or it's not supported.
    */
   public Charset charset() {
-    return charset != null ? Charset.forName(charset) : null;
+    return charset;
   }
 
   /**
    * Returns the charset of this media type, or {@code defaultValue} if this
-   * media type doesn't specify a charset.
+   * media type doesn't specify a supported charset.
    */
   public Charset charset(Charset defaultValue) {
-    return charset != null ? Charset.forName(charset) : defaultValue;
+    return charset != null ? charset : defaultValue;
   }
   
   /**
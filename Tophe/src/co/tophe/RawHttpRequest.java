@@ -2,15 +2,9 @@ package co.tophe;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.http.protocol.HTTP;
 
 import android.net.Uri;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
@@ -25,6 +19,11 @@ import co.tophe.signed.RequestSigner;
  * @author Created by robUx4 on 29/08/2014.
  */
 public class RawHttpRequest implements HttpRequest {
+	/**
+	 * Default minimum time in milliseconds between two calls to the {@link co.tophe.DownloadProgressListener}.
+	 */
+	public static final long DEFAULT_DOWNLOAD_PROGRESS_INTERVAL = 100L;
+
 	/**
 	 * Builder for a {@link RawHttpRequest RawHttpRequest}
 	 */
@@ -71,6 +70,7 @@ public class RawHttpRequest implements HttpRequest {
 		private Uri uri;
 		private String httpMethod;
 		private RequestSigner signer;
+		private Headers baseHeaders;
 
 		/**
 		 * Constructor for the {@link RawHttpRequest} builder, setting {@code GET} method by default
@@ -78,6 +78,14 @@ public class RawHttpRequest implements HttpRequest {
 		public AbstractBuilder() {
 		}
 
+		/**
+		 * Set the headers the request starts with instead of the {@link co.tophe.TopheClient} default ones.
+		 */
+		B setBaseHeaders(@NonNull Headers headers) {
+			this.baseHeaders = headers;
+			return (B) this;
+		}
+
 		/**
 		 * Set the class that will be responsible to send the HTTP body of the query
 		 * <p>sets {@code POST} method by default
@@ -231,30 +239,17 @@ public class RawHttpRequest implements HttpRequest {
 	private HttpConfig httpConfig = BasicHttpConfig.INSTANCE;
 	private LoggerTagged loggerTagged;
 	private UploadProgressListener progressListener;
+	private DownloadProgressListener downloadProgressListener;
+	private long downloadProgressInterval = DEFAULT_DOWNLOAD_PROGRESS_INTERVAL;
 
-	protected final Map<String, String> mRequestSetHeaders = new HashMap<String, String>();
-	protected final Map<String, HashSet<String>> mRequestAddHeaders = new HashMap<String, HashSet<String>>();
+	protected final Headers mRequestHeaders;
 
 	protected RawHttpRequest(AbstractBuilder builder) {
 		this.uri = builder.getUri();
 		this.httpMethod = builder.getHttpMethod();
 		this.signer = builder.getSigner();
 		this.bodyParams = builder.getBodyParams();
-
-		if (!TextUtils.isEmpty(TopheClient.getUserAgent())) {
-			mRequestSetHeaders.put(HTTP.USER_AGENT, TopheClient.getUserAgent());
-		}
-
-		if (!TextUtils.isEmpty(TopheClient.getXRequestedWith())) {
-			mRequestSetHeaders.put("X-Requested-With", TopheClient.getXRequestedWith());
-		}
-
-		final Header[] defaultHeaders = TopheClient.getDefaultHeaders();
-		if (null != defaultHeaders) {
-			for (Header defaultHeader : defaultHeaders) {
-				mRequestSetHeaders.put(defaultHeader.getName(), defaultHeader.getValue());
-			}
-		}
+		this.mRequestHeaders = (null != builder.baseHeaders ? builder.baseHeaders : TopheClient.getDefaultRequestHeaders()).copy();
 	}
 
 	@Override
@@ -275,34 +270,26 @@ public class RawHttpRequest implements HttpRequest {
 	// TODO move this in the AbstractBuilder ?
 	@Override
 	public void addHeader(String key, String value) {
-		HashSet<String> values = mRequestAddHeaders.get(key);
-		if (null == values) {
-			values = new HashSet<String>();
-			mRequestAddHeaders.put(key, values);
-		}
-		values.add(value);
+		mRequestHeaders.add(key, value);
 	}
 
 	// TODO move this in the AbstractBuilder ?
 	@Override
 	public void setHeader(String key, String value) {
-		mRequestAddHeaders.remove(key);
-		if (null == value)
-			mRequestSetHeaders.remove(key);
-		else
-			mRequestSetHeaders.put(key, value);
+		mRequestHeaders.set(key, value);
 	}
 
 	@Override
 	public String getHeader(String name) {
-		if (mRequestSetHeaders.containsKey(name))
-			return mRequestSetHeaders.get(name);
-		if (mRequestAddHeaders.containsKey(name)) {
-			HashSet<String> values = mRequestAddHeaders.get(name);
-			if (!values.isEmpty())
-				return values.iterator().next();
-		}
-		return null;
+		return mRequestHeaders.get(name);
+	}
+
+	/**
+	 * Get the headers of this request, the engines use it directly rather than {@link #getAllHeaders()}.
+	 */
+	@NonNull
+	public Headers getHeaders() {
+		return mRequestHeaders;
 	}
 
 	@Override
@@ -322,16 +309,7 @@ public class RawHttpRequest implements HttpRequest {
 
 	@Override
 	public Header[] getAllHeaders() {
-		List<Header> headers = new ArrayList<Header>(mRequestSetHeaders.size() + mRequestAddHeaders.size());
-		for (Map.Entry<String, String> setHeader : mRequestSetHeaders.entrySet()) {
-			headers.add(new Header(setHeader.getKey(), setHeader.getValue()));
-		}
-		for (Map.Entry<String, HashSet<String>> entries : mRequestAddHeaders.entrySet()) {
-			for (String entry : entries.getValue()) {
-				headers.add(new Header(entries.getKey(), entry));
-			}
-		}
-		return headers.toArray(new Header[headers.size()]);
+		return mRequestHeaders.toArray();
 	}
 
 	/**
@@ -353,6 +331,37 @@ public class RawHttpRequest implements HttpRequest {
 		return progressListener;
 	}
 
+	/**
+	 * Set the progress listener for the response of this request, notified at most every {@link #DEFAULT_DOWNLOAD_PROGRESS_INTERVAL} ms.
+	 * Useful when receiving a large body.
+	 */
+	public void setDownloadProgressListener(DownloadProgressListener listener) {
+		setDownloadProgressListener(listener, DEFAULT_DOWNLOAD_PROGRESS_INTERVAL);
+	}
+
+	/**
+	 * Set the progress listener for the response of this request. Useful when receiving a large body.
+	 *
+	 * @param listener    the listener to notify, {@code null} to remove it.
+	 * @param minInterval the minimum time in milliseconds between two notifications, {@code 0} to notify every read.
+	 */
+	public void setDownloadProgressListener(DownloadProgressListener listener, long minInterval) {
+		if (minInterval < 0) throw new IllegalArgumentException("invalid interval " + minInterval);
+		this.downloadProgressListener = listener;
+		this.downloadProgressInterval = minInterval;
+	}
+
+	public DownloadProgressListener getDownloadProgressListener() {
+		return downloadProgressListener;
+	}
+
+	/**
+	 * @return the minimum time in milliseconds between two calls to the {@link co.tophe.DownloadProgressListener}.
+	 */
+	public long getDownloadProgressInterval() {
+		return downloadProgressInterval;
+	}
+
 	@Override
 	public RequestSigner getRequestSigner() {
 		return signer;
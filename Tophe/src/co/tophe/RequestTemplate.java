@@ -0,0 +1,328 @@
+package co.tophe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import co.tophe.body.HttpBodyParameters;
+import co.tophe.signed.RequestSigner;
+import co.tophe.utils.PercentEncoder;
+
+/**
+ * Template to create {@link co.tophe.BaseHttpRequest} for an endpoint called often, where only some parts of the URL change.
+ * <p>The URL skeleton is parsed and encoded once, with placeholders like {@code {id}} for the variable parts. The static headers
+ * and the {@link co.tophe.ResponseHandler} are shared by all the requests created from the template.</p>
+ * <pre>
+ * RequestTemplate&lt;JSONObject, ServerException&gt; userPosts = new RequestTemplate.Builder&lt;JSONObject, ServerException&gt;()
+ *     .setUrl("https://api.example.com/users/{user}/posts?count=20")
+ *     .setHeader("Accept", "application/json")
+ *     .setResponseHandler(BodyToJSONObject.RESPONSE_HANDLER)
+ *     .build();
+ *
+ * JSONObject posts = TopheClient.parseRequest(userPosts.newRequest("robUx4"));
+ * </pre>
+ * <p>A template is immutable and can be used from any thread.</p>
+ *
+ * @param <T>  type of the data read from the HTTP response.
+ * @param <SE> type of the Exception raised for all server generated errors.
+ */
+public class RequestTemplate<T, SE extends ServerException> {
+
+	/**
+	 * Builder for a {@link co.tophe.RequestTemplate}.
+	 *
+	 * @param <T>  type of the data read from the HTTP response.
+	 * @param <SE> type of the Exception raised for all server generated errors.
+	 */
+	public static class Builder<T, SE extends ServerException> {
+		private String url;
+		private String httpMethod;
+		private final Headers headers = new Headers();
+		private ResponseHandler<T, SE> responseHandler;
+		private RequestSigner signer;
+		private HttpConfig httpConfig;
+
+		public Builder() {
+		}
+
+		/**
+		 * Set the URL skeleton, the variable parts are surrounded by curly braces like {@code https://example.com/users/{user}}.
+		 * <p>The placeholders can be in the path or in the query of the URL, the values are encoded accordingly.</p>
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setUrl(@NonNull String url) {
+			this.url = url;
+			return this;
+		}
+
+		/**
+		 * Set the HTTP method of the requests, {@code GET} by default or {@code POST} when a body is used.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setHttpMethod(@Nullable String httpMethod) {
+			this.httpMethod = httpMethod;
+			return this;
+		}
+
+		/**
+		 * Set a header sent with all the requests.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setHeader(@NonNull String name, @Nullable String value) {
+			headers.set(name, value);
+			return this;
+		}
+
+		/**
+		 * Set the {@link co.tophe.ResponseHandler} used by all the requests.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setResponseHandler(@NonNull ResponseHandler<T, SE> responseHandler) {
+			this.responseHandler = responseHandler;
+			return this;
+		}
+
+		/**
+		 * Set the object that will sign all the requests.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setSigner(@Nullable RequestSigner signer) {
+			this.signer = signer;
+			return this;
+		}
+
+		/**
+		 * Set the {@link co.tophe.HttpConfig} of all the requests.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder<T, SE> setHttpConfig(@Nullable HttpConfig httpConfig) {
+			this.httpConfig = httpConfig;
+			return this;
+		}
+
+		@NonNull
+		public RequestTemplate<T, SE> build() {
+			if (null == url) throw new NullPointerException("missing a URL for the template");
+			if (null == responseHandler) throw new NullPointerException("missing a ResponseHandler for the template of " + url);
+			return new RequestTemplate<T, SE>(this);
+		}
+	}
+
+	/**
+	 * The headers of the {@link co.tophe.TopheClient} the template headers were merged with.
+	 */
+	private static final class PreparedHeaders {
+		final Headers clientHeaders;
+		final Headers headers;
+
+		PreparedHeaders(Headers clientHeaders, Headers templateHeaders) {
+			Headers merged = clientHeaders.copy();
+			for (int i = 0; i < templateHeaders.size(); ++i) {
+				merged.set(templateHeaders.getName(i), templateHeaders.getValue(i));
+			}
+			this.clientHeaders = clientHeaders;
+			this.headers = merged.freeze();
+		}
+	}
+
+	private final String template;
+	private final String httpMethod;
+	private final ResponseHandler<T, SE> responseHandler;
+	private final RequestSigner signer;
+	private final HttpConfig httpConfig;
+	private final Headers templateHeaders;
+	private volatile PreparedHeaders preparedHeaders;
+
+	/**
+	 * Encoded parts of the URL between the placeholders, one more than the placeholders.
+	 */
+	private final String[] literals;
+	private final int[] placeholderValues;
+	private final PercentEncoder[] placeholderEncoders;
+	private final String[] valueNames;
+	private final int literalsLength;
+	private final boolean hasQuery;
+
+	protected RequestTemplate(Builder<T, SE> builder) {
+		this.template = builder.url;
+		this.httpMethod = builder.httpMethod;
+		this.responseHandler = builder.responseHandler;
+		this.signer = builder.signer;
+		this.httpConfig = builder.httpConfig;
+		this.templateHeaders = builder.headers.copy().freeze();
+
+		List<String> literalList = new ArrayList<String>();
+		List<Integer> valueList = new ArrayList<Integer>();
+		List<PercentEncoder> encoderList = new ArrayList<PercentEncoder>();
+		List<String> nameList = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder(template.length());
+		boolean inQuery = false;
+		int length = 0;
+		int start = 0;
+		while (start < template.length()) {
+			int open = template.indexOf('{', start);
+			int end = open < 0 ? template.length() : open;
+			String text = template.substring(start, end);
+			if (text.indexOf('#') >= 0)
+				throw new IllegalArgumentException("fragments are not supported in " + template);
+			if (text.indexOf('}') >= 0)
+				throw new IllegalArgumentException("unexpected '}' in " + template);
+			if (text.indexOf('?') >= 0)
+				inQuery = true;
+			PercentEncoder.URL.encode(text, literal);
+			if (open < 0)
+				break;
+
+			int close = template.indexOf('}', open);
+			if (close < 0)
+				throw new IllegalArgumentException("unterminated placeholder in " + template);
+			String name = template.substring(open + 1, close);
+			if (TextUtils.isEmpty(name))
+				throw new IllegalArgumentException("empty placeholder in " + template);
+			int valueIndex = nameList.indexOf(name);
+			if (valueIndex < 0) {
+				valueIndex = nameList.size();
+				nameList.add(name);
+			}
+
+			literalList.add(literal.toString());
+			length += literal.length();
+			literal.setLength(0);
+			valueList.add(valueIndex);
+			encoderList.add(inQuery ? PercentEncoder.QUERY : PercentEncoder.PATH_SEGMENT);
+			start = close + 1;
+		}
+		literalList.add(literal.toString());
+		length += literal.length();
+
+		this.literals = literalList.toArray(new String[literalList.size()]);
+		this.placeholderEncoders = encoderList.toArray(new PercentEncoder[encoderList.size()]);
+		this.placeholderValues = new int[valueList.size()];
+		for (int i = 0; i < placeholderValues.length; ++i) {
+			placeholderValues[i] = valueList.get(i);
+		}
+		this.valueNames = nameList.toArray(new String[nameList.size()]);
+		this.literalsLength = length;
+		this.hasQuery = inQuery;
+	}
+
+	/**
+	 * Get the names of the placeholders in the order their values are passed to {@link #newRequest(String...)}.
+	 * <p>A placeholder used more than once in the URL only has one value.</p>
+	 */
+	@NonNull
+	public String[] getPlaceholderNames() {
+		return valueNames.clone();
+	}
+
+	/**
+	 * Create a request with the placeholders replaced by {@code values}.
+	 *
+	 * @param values the values of the placeholders, in the order of {@link #getPlaceholderNames()}.
+	 */
+	@NonNull
+	public BaseHttpRequest<T, SE> newRequest(@NonNull String... values) {
+		return newRequest(null, null, values);
+	}
+
+	/**
+	 * Create a request with the placeholders replaced by {@code values} and extra parameters in the URL query.
+	 *
+	 * @param uriParams extra parameters to add to the URL, may be {@code null}.
+	 * @param values    the values of the placeholders, in the order of {@link #getPlaceholderNames()}.
+	 */
+	@NonNull
+	public BaseHttpRequest<T, SE> newRequest(@Nullable HttpUriParameters uriParams, @NonNull String... values) {
+		return newRequest(uriParams, null, values);
+	}
+
+	/**
+	 * Create a request with the placeholders replaced by {@code values}, extra parameters in the URL query and a body.
+	 *
+	 * @param uriParams extra parameters to add to the URL, may be {@code null}.
+	 * @param body      the body to send, may be {@code null}.
+	 * @param values    the values of the placeholders, in the order of {@link #getPlaceholderNames()}.
+	 */
+	@NonNull
+	public BaseHttpRequest<T, SE> newRequest(@Nullable HttpUriParameters uriParams, @Nullable HttpBodyParameters body, @NonNull String... values) {
+		BaseHttpRequest.Builder<T, SE> builder = new BaseHttpRequest.Builder<T, SE>();
+		builder.setUri(Uri.parse(expandUrl(uriParams, values)))
+				.setHttpMethod(httpMethod)
+				.setResponseHandler(responseHandler)
+				.setBaseHeaders(getPreparedHeaders());
+		if (null != body)
+			builder.setBody(httpMethod, body);
+		if (null != signer)
+			builder.setSigner(signer);
+
+		BaseHttpRequest<T, SE> request = builder.build();
+		if (null != httpConfig)
+			request.setHttpConfig(httpConfig);
+		return request;
+	}
+
+	/**
+	 * Get the URL with the placeholders replaced by {@code values} and extra parameters in the URL query.
+	 *
+	 * @param uriParams extra parameters to add to the URL, may be {@code null}.
+	 * @param values    the values of the placeholders, in the order of {@link #getPlaceholderNames()}.
+	 */
+	@NonNull
+	public String expandUrl(@Nullable HttpUriParameters uriParams, @NonNull String... values) {
+		if (values.length != valueNames.length)
+			throw new IllegalArgumentException("expected " + valueNames.length + " values for " + template + " got " + values.length);
+
+		StringBuilder url = new StringBuilder(literalsLength + 16 * placeholderValues.length + (null == uriParams ? 0 : 64));
+		url.append(literals[0]);
+		for (int i = 0; i < placeholderValues.length; ++i) {
+			String value = values[placeholderValues[i]];
+			if (null == value) throw new NullPointerException("missing value for {" + valueNames[placeholderValues[i]] + "} in " + template);
+			placeholderEncoders[i].encode(value, url);
+			url.append(literals[i + 1]);
+		}
+
+		if (uriParams instanceof UriParams) {
+			UriParams params = (UriParams) uriParams;
+			if (!params.isEmpty()) {
+				char last = url.charAt(url.length() - 1);
+				if (!hasQuery)
+					url.append('?');
+				else if (last != '?' && last != '&')
+					url.append('&');
+				params.appendEncodedQuery(url);
+			}
+		} else if (null != uriParams) {
+			Uri.Builder uriBuilder = Uri.parse(url.toString()).buildUpon();
+			uriParams.appendUriParameters(uriBuilder);
+			return uriBuilder.build().toString();
+		}
+		return url.toString();
+	}
+
+	@NonNull
+	private Headers getPreparedHeaders() {
+		Headers clientHeaders = TopheClient.getDefaultRequestHeaders();
+		PreparedHeaders prepared = preparedHeaders;
+		if (null == prepared || prepared.clientHeaders != clientHeaders) {
+			// the TopheClient default headers changed
+			prepared = new PreparedHeaders(clientHeaders, templateHeaders);
+			preparedHeaders = prepared;
+		}
+		return prepared.headers;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestTemplate{" + template + '}';
+	}
+}
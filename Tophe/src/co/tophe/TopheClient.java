@@ -2,11 +2,14 @@ package co.tophe;
 
 import java.lang.reflect.Method;
 
+import org.apache.http.protocol.HTTP;
+
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
@@ -22,6 +25,7 @@ public final class TopheClient {
 	private static String xRequestedWith;
 	private static CookieManager cookieManager;
 	private static Header[] defaultHeaders;
+	private static volatile Headers defaultRequestHeaders = Headers.EMPTY_HEADERS;
 	private static HttpEngineFactory httpEngineFactory = HttpEngineFactoryUrlConnection.INSTANCE;
 
 	//public static final int PLAY_SERVICES_BOGUS_SSLV3 = 6183070;
@@ -85,6 +89,8 @@ public final class TopheClient {
 
 			HttpEngineFactoryUrlConnection.INSTANCE.init();
 		}
+
+		updateDefaultRequestHeaders();
 	}
 
 	/**
@@ -121,6 +127,7 @@ public final class TopheClient {
 	 */
 	public static void setDefaultHeaders(@Nullable Header[] headers) {
 		defaultHeaders = headers;
+		updateDefaultRequestHeaders();
 	}
 
 	/**
@@ -131,6 +138,33 @@ public final class TopheClient {
 		return defaultHeaders;
 	}
 
+	/**
+	 * Get the frozen headers every new request starts with: the user agent, {@code X-Requested-With} and the default headers.
+	 */
+	@NonNull
+	static Headers getDefaultRequestHeaders() {
+		return defaultRequestHeaders;
+	}
+
+	private static synchronized void updateDefaultRequestHeaders() {
+		Headers headers = new Headers();
+		if (!TextUtils.isEmpty(userAgent)) {
+			headers.set(HTTP.USER_AGENT, userAgent);
+		}
+
+		if (!TextUtils.isEmpty(xRequestedWith)) {
+			headers.set("X-Requested-With", xRequestedWith);
+		}
+
+		final Header[] extraHeaders = defaultHeaders;
+		if (null != extraHeaders) {
+			for (Header defaultHeader : extraHeaders) {
+				headers.set(defaultHeader.getName(), defaultHeader.getValue());
+			}
+		}
+		defaultRequestHeaders = headers.freeze();
+	}
+
 	/**
 	 * Helper function to read the response of the HTTP request as a {@code String}.
 	 *
@@ -4,8 +4,11 @@ import java.util.ArrayList;
 
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.text.TextUtils;
 import android.util.Pair;
 
+import co.tophe.utils.PercentEncoder;
+
 /**
  * Main implementation of {@link co.tophe.HttpUriParameters}
  */
@@ -84,10 +87,37 @@ public class UriParams implements HttpUriParameters {
 		add(name, String.valueOf(l));
 	}
 
+	/**
+	 * Append the encoded parameters to a URL query, without the leading {@code '?'} or {@code '&'}.
+	 */
+	void appendEncodedQuery(StringBuilder query) {
+		for (int i = 0; i < mParams.size(); ++i) {
+			Pair<String,String> param = mParams.get(i);
+			if (i != 0)
+				query.append('&');
+			PercentEncoder.QUERY.encode(param.first, query);
+			query.append('=');
+			if (null != param.second)
+				PercentEncoder.QUERY.encode(param.second, query);
+		}
+	}
+
+	boolean isEmpty() {
+		return mParams.isEmpty();
+	}
+
 	@Override
 	public void appendUriParameters(Uri.Builder uriBuilder) {
-		for (Pair<String,String> param : mParams) {
-			uriBuilder.appendQueryParameter(param.first, param.second);
-		}
+		if (mParams.isEmpty())
+			return;
+
+		String query = uriBuilder.build().getEncodedQuery();
+		StringBuilder encodedQuery;
+		if (TextUtils.isEmpty(query))
+			encodedQuery = new StringBuilder(mParams.size() * 16);
+		else
+			encodedQuery = new StringBuilder(query.length() + mParams.size() * 16).append(query).append('&');
+		appendEncodedQuery(encodedQuery);
+		uriBuilder.encodedQuery(encodedQuery.toString());
 	}
 }
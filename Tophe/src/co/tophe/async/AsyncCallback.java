@@ -29,7 +29,7 @@ public interface AsyncCallback<T> {
 	
 	/**
 	 * Called when the asynchronous task is about to start processing
-	 * <p>Always balanced with {@link #onAsyncTaskFinished(AsyncTask)}
+	 * <p>Always balanced with {@link #onAsyncTaskFinished(AsyncTask)}, unless disabled with {@link co.tophe.async.AsyncTask.Builder#setNotifyStarted(boolean)}
 	 * @param task The {@link AsyncTask} that has started
 	 */
 	void onAsyncTaskStarted(AsyncTask<T> task);
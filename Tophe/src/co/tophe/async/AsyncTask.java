@@ -2,16 +2,18 @@ package co.tophe.async;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -23,17 +25,26 @@ import co.tophe.TypedHttpRequest;
 
 /**
  * {@link java.util.concurrent.FutureTask FutureTask} that will be used to do the HTTP processing in the background,
- * the result/error will be sent to the {@link AsyncCallback} in the UI thread
+ * the result/error will be sent to the {@link AsyncCallback} in the UI thread, or through the {@link co.tophe.async.CallbackDispatcher} set on the task.
+ * <p>Tasks can be composed with {@link #then(NextCallable)}, {@link #thenAsync(NextCallable, Executor)},
+ * {@link #exceptionally(FailureRecovery)}, {@link #allOf(Collection)} and {@link #anyOf(Collection)}. The resulting tasks
+ * are completed as soon as their input is, no thread is blocked waiting between the stages.</p>
  *
  * @param <T> the type of data returned by the task.
  * @author Steve Lhomme
  * @see co.tophe.async.AsyncTask.Builder
  */
 public class AsyncTask<T> extends FutureTask<T> {
+	private final Callable<T> callable;
 	private final AsyncCallback<T> callback;
 	private final boolean reportNullResult;
 
-	private static final Handler uiHandler = new Handler(Looper.getMainLooper());
+	private CallbackDispatcher callbackDispatcher;
+	private boolean notifyStarted = true;
+
+	private final Object continuationsLock = new Object();
+	private ArrayList<Runnable> continuations;
+	private boolean completed;
 
 	/**
 	 * Constructor to process a {@link co.tophe.TypedHttpRequest} asynchronously and call the callback when it's done.
@@ -65,13 +76,32 @@ public class AsyncTask<T> extends FutureTask<T> {
 	 */
 	public AsyncTask(Callable<T> callable, AsyncCallback<T> callback, boolean reportNullResult) {
 		super(callable);
+		this.callable = callable;
 		this.callback = callback;
 		this.reportNullResult = reportNullResult;
 	}
 
+	/**
+	 * Set how the callback of this task is called, must be called before the task is run.
+	 *
+	 * @param dispatcher    the dispatcher for the callback, {@link co.tophe.async.MainThreadCallbackDispatcher#INSTANCE} if {@code null}.
+	 * @param notifyStarted whether {@link co.tophe.async.AsyncCallback#onAsyncTaskStarted(AsyncTask)} is called.
+	 */
+	void setCallbackDispatcher(@Nullable CallbackDispatcher dispatcher, boolean notifyStarted) {
+		this.callbackDispatcher = dispatcher;
+		this.notifyStarted = notifyStarted;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>When {@code mayInterruptIfRunning} is {@code true} the running {@link co.tophe.HttpEngine} is cancelled as well,
+	 * so its connection is closed right away.</p>
+	 */
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
 		boolean result = super.cancel(mayInterruptIfRunning);
+		if (result && mayInterruptIfRunning)
+			cancelEngine(callable);
 		if (callback instanceof Closeable) {
 			try {
 				((Closeable) callback).close();
@@ -81,8 +111,19 @@ public class AsyncTask<T> extends FutureTask<T> {
 		return result;
 	}
 
+	private static void cancelEngine(Callable<?> callable) {
+		if (callable instanceof HttpEngine) {
+			((HttpEngine<?, ?>) callable).cancel();
+		} else if (callable instanceof CallableChain) {
+			CallableChain<?, ?> chain = (CallableChain<?, ?>) callable;
+			cancelEngine(chain.inputCallable);
+			cancelEngine(chain.getSecondCallable());
+		}
+	}
+
 	/**
 	 * Method called in the UI thread after the job has finished running
+	 * <p>It's called through the {@link co.tophe.async.CallbackDispatcher} of the task if one was set.</p>
 	 */
 	protected void onDownloadDone() {
 		if (null!=callback)
@@ -104,8 +145,9 @@ public class AsyncTask<T> extends FutureTask<T> {
 
 	@Override
 	public void run() {
-		if (null!=callback)
-			uiHandler.post(new Runnable() {
+		final CallbackDispatcher dispatcher = null == callbackDispatcher ? MainThreadCallbackDispatcher.INSTANCE : callbackDispatcher;
+		if (null != callback && notifyStarted)
+			dispatcher.dispatch(new Runnable() {
 				@Override
 				public void run() {
 					callback.onAsyncTaskStarted(AsyncTask.this);
@@ -115,7 +157,7 @@ public class AsyncTask<T> extends FutureTask<T> {
 		try {
 			super.run();
 		} finally {
-			uiHandler.post(new Runnable() {
+			dispatcher.dispatch(new Runnable() {
 				@Override
 				public void run() {
 					onDownloadDone();
@@ -132,13 +174,13 @@ public class AsyncTask<T> extends FutureTask<T> {
 	 * @author Created by robUx4 on 03/09/2014.
 	 */
 	public static class Builder<T> {
-		private static final HashMap<String, AsyncTask<?>> taggedJobs = new HashMap<String, AsyncTask<?>>();
-
 		private AsyncTaskFactory<T> factory = BaseAsyncTaskFactory.INSTANCE;
 		private Executor executor = AsyncTopheClient.getExecutor();
 		private Callable<T> callable;
 		private AsyncCallback<T> callback;
 		private String taskTag;
+		private CallbackDispatcher callbackDispatcher;
+		private boolean notifyStarted = true;
 
 		public Builder() {
 		}
@@ -190,6 +232,29 @@ public class AsyncTask<T> extends FutureTask<T> {
 			return this;
 		}
 
+		/**
+		 * Set how the callback is called, by default it's called in the UI thread via {@link co.tophe.async.MainThreadCallbackDispatcher#INSTANCE}
+		 * @param dispatcher the dispatcher to use for the callback
+		 * @return Current Builder
+		 * @see co.tophe.async.DirectCallbackDispatcher
+		 * @see co.tophe.async.ExecutorCallbackDispatcher
+		 */
+		public Builder<T> setCallbackDispatcher(@NonNull CallbackDispatcher dispatcher) {
+			this.callbackDispatcher = dispatcher;
+			return this;
+		}
+
+		/**
+		 * Set whether {@link co.tophe.async.AsyncCallback#onAsyncTaskStarted(AsyncTask)} is called, {@code true} by default
+		 * <p>Skipping it saves one callback dispatch per task.</p>
+		 * @param notifyStarted {@code false} to skip the "started" callback
+		 * @return Current Builder
+		 */
+		public Builder<T> setNotifyStarted(boolean notifyStarted) {
+			this.notifyStarted = notifyStarted;
+			return this;
+		}
+
 		/**
 		 * Set the {@code AsyncTask} factory in case you need to do some extra process when a AsyncTask is ran
 		 * @param factory
@@ -202,6 +267,7 @@ public class AsyncTask<T> extends FutureTask<T> {
 
 		/**
 		 * Set a tag on this request so the previous {@link AsyncTask} with the same tag are cancelled
+		 * <p>The tag can be part of a group, like {@code "screen:timeline"}, see {@link co.tophe.async.TaggedTaskRegistry}</p>
 		 * @param tag
 		 * @return Current Builder
 		 */
@@ -228,6 +294,7 @@ public class AsyncTask<T> extends FutureTask<T> {
 		public AsyncTask<T> build() {
 			if (null == factory) throw new NullPointerException("Missing factory");
 			AsyncTask<T> result = factory.createAsyncTask(callable, callback);
+			result.setCallbackDispatcher(callbackDispatcher, notifyStarted);
 			this.callable = null; // safety as an HttpEngine is not reusable
 			return result;
 		}
@@ -240,45 +307,305 @@ public class AsyncTask<T> extends FutureTask<T> {
 		public AsyncTask<T> execute() {
 			if (null == factory) throw new NullPointerException("Missing factory");
 
-			final String tag = taskTag;
+			AsyncTask<T> task = build();
+
 			if (null != taskTag) {
-				callback = new DelegateAsyncCallback<T>(callback) {
-					@Override
-					public void onAsyncTaskFinished(AsyncTask<T> task) {
-						try {
-							super.onAsyncTaskFinished(task);
-						} finally {
-							synchronized (taggedJobs) {
-								taggedJobs.remove(tag);
-							}
-						}
+				TaggedTaskRegistry.DEFAULT.register(taskTag, task);
+			}
+
+			executor.execute(task);
+			return task;
+		}
+	}
+
+	@Override
+	protected void done() {
+		ArrayList<Runnable> toRun;
+		synchronized (continuationsLock) {
+			completed = true;
+			toRun = continuations;
+			continuations = null;
+		}
+		if (null != toRun) {
+			for (Runnable continuation : toRun) {
+				continuation.run();
+			}
+		}
+	}
+
+	/**
+	 * Run {@code continuation} when the task is done, right away if it's already done.
+	 */
+	void whenDone(Runnable continuation) {
+		synchronized (continuationsLock) {
+			if (!completed) {
+				if (null == continuations)
+					continuations = new ArrayList<Runnable>(1);
+				continuations.add(continuation);
+				return;
+			}
+		}
+		continuation.run();
+	}
+
+	/**
+	 * Process the result of this task once it's available.
+	 * <p>The {@link java.util.concurrent.Callable} created by {@code nextCallable} is run in the thread that completed this
+	 * task, use it for quick transformations. A {@code null} {@link java.util.concurrent.Callable} gives a {@code null} result.</p>
+	 * <p>If this task fails or is cancelled, the returned task fails or is cancelled the same way.</p>
+	 *
+	 * @param nextCallable the transformation of the data returned by this task.
+	 * @param <NEW_OUTPUT> the type of data returned by the new task.
+	 * @return a task that is done when the transformation is done.
+	 * @see #thenAsync(NextCallable, java.util.concurrent.Executor)
+	 */
+	public <NEW_OUTPUT> AsyncTask<NEW_OUTPUT> then(@NonNull final NextCallable<T, NEW_OUTPUT> nextCallable) {
+		final DependentTask<NEW_OUTPUT> next = new DependentTask<NEW_OUTPUT>();
+		whenDone(new Runnable() {
+			@Override
+			public void run() {
+				if (next.isDone() || !forwardFailure(AsyncTask.this, next))
+					return;
+				try {
+					Callable<NEW_OUTPUT> callable = nextCallable.createCallable(get());
+					next.complete(null == callable ? null : callable.call());
+				} catch (ExecutionException e) {
+					next.fail(e.getCause());
+				} catch (Exception e) {
+					next.fail(e);
+				}
+			}
+		});
+		return next;
+	}
+
+	/**
+	 * Process the result of this task once it's available in the {@code executor}, for example to run another HTTP request.
+	 * <p>If this task fails or is cancelled, the returned task fails or is cancelled the same way. Cancelling the returned
+	 * task cancels the processing of the {@link java.util.concurrent.Callable} created by {@code nextCallable}.</p>
+	 *
+	 * @param nextCallable the processing of the data returned by this task.
+	 * @param executor     the executor that runs the {@link java.util.concurrent.Callable} created by {@code nextCallable}.
+	 * @param <NEW_OUTPUT> the type of data returned by the new task.
+	 * @return a task that is done when the {@link java.util.concurrent.Callable} created by {@code nextCallable} is done.
+	 * @see #then(NextCallable)
+	 */
+	public <NEW_OUTPUT> AsyncTask<NEW_OUTPUT> thenAsync(@NonNull final NextCallable<T, NEW_OUTPUT> nextCallable, @NonNull final Executor executor) {
+		final DependentTask<NEW_OUTPUT> next = new DependentTask<NEW_OUTPUT>();
+		whenDone(new Runnable() {
+			@Override
+			public void run() {
+				if (next.isDone() || !forwardFailure(AsyncTask.this, next))
+					return;
+				try {
+					Callable<NEW_OUTPUT> callable = nextCallable.createCallable(get());
+					if (null == callable)
+						next.complete(null);
+					else
+						next.runStage(callable, executor);
+				} catch (ExecutionException e) {
+					next.fail(e.getCause());
+				} catch (Exception e) {
+					next.fail(e);
+				}
+			}
+		});
+		return next;
+	}
+
+	/**
+	 * Replace the error of this task by a result.
+	 * <p>The {@code recovery} is run in the thread that completed this task. A successful result or a cancellation is
+	 * passed as is to the returned task.</p>
+	 *
+	 * @param recovery the handler turning the error into a result.
+	 * @return a task with the result of this task or the recovered value.
+	 */
+	public AsyncTask<T> exceptionally(@NonNull final FailureRecovery<T> recovery) {
+		final DependentTask<T> next = new DependentTask<T>();
+		whenDone(new Runnable() {
+			@Override
+			public void run() {
+				if (next.isDone())
+					return;
+				try {
+					next.complete(get());
+				} catch (CancellationException e) {
+					next.cancel(false);
+				} catch (InterruptedException e) {
+					next.cancel(false);
+				} catch (ExecutionException e) {
+					try {
+						next.complete(recovery.recover(e.getCause()));
+					} catch (Exception recoveryError) {
+						next.fail(recoveryError);
 					}
-				};
+				}
 			}
+		});
+		return next;
+	}
 
-			AsyncTask<T> task = build();
+	/**
+	 * Combine the results of many tasks, in the same order as the source tasks.
+	 * <p>The returned task fails as soon as one of the tasks fails and is cancelled as soon as one of them is cancelled.
+	 * The other tasks keep running.</p>
+	 *
+	 * @param tasks the tasks to wait for.
+	 * @param <T>   the type of data returned by the tasks.
+	 * @return a task that is done when all the {@code tasks} are done.
+	 */
+	public static <T> AsyncTask<List<T>> allOf(@NonNull Collection<? extends AsyncTask<? extends T>> tasks) {
+		final DependentTask<List<T>> all = new DependentTask<List<T>>();
+		final List<T> results = new ArrayList<T>(Collections.<T>nCopies(tasks.size(), null));
+		if (results.isEmpty()) {
+			all.complete(results);
+			return all;
+		}
 
-			if (null != taskTag) {
-				synchronized (taggedJobs) {
-					Future<?> oldTask = taggedJobs.get(tag);
-					if (null != oldTask) {
-						oldTask.cancel(true);
+		final AtomicInteger remaining = new AtomicInteger(results.size());
+		int index = 0;
+		for (final AsyncTask<? extends T> task : tasks) {
+			final int taskIndex = index++;
+			task.whenDone(new Runnable() {
+				@Override
+				public void run() {
+					if (all.isDone() || !forwardFailure(task, all))
+						return;
+					try {
+						results.set(taskIndex, task.get());
+					} catch (Exception e) {
+						all.fail(e); // not possible, the task is done
+						return;
 					}
+					if (remaining.decrementAndGet() == 0)
+						all.complete(results);
+				}
+			});
+		}
+		return all;
+	}
 
-					taggedJobs.put(tag, task);
+	/**
+	 * Get the outcome of the first task that finishes, whether it's a result, an error or a cancellation.
+	 *
+	 * @param tasks the tasks to wait for.
+	 * @param <T>   the type of data returned by the tasks.
+	 * @return a task that is done when one of the {@code tasks} is done.
+	 */
+	public static <T> AsyncTask<T> anyOf(@NonNull Collection<? extends AsyncTask<? extends T>> tasks) {
+		if (tasks.isEmpty()) throw new IllegalArgumentException("no task to wait for");
+		final DependentTask<T> any = new DependentTask<T>();
+		for (final AsyncTask<? extends T> task : tasks) {
+			task.whenDone(new Runnable() {
+				@Override
+				public void run() {
+					if (any.isDone() || !forwardFailure(task, any))
+						return;
+					try {
+						any.complete(task.get());
+					} catch (Exception e) {
+						any.fail(e); // not possible, the task is done
+					}
 				}
-			}
+			});
+		}
+		return any;
+	}
 
-			executor.execute(task);
-			return task;
+	/**
+	 * Pass the error or the cancellation of a finished task to a dependent task.
+	 *
+	 * @return {@code true} if the {@code source} task has a result.
+	 */
+	private static boolean forwardFailure(Future<?> source, DependentTask<?> target) {
+		if (source.isCancelled()) {
+			target.cancel(false);
+			return false;
+		}
+		try {
+			source.get();
+			return true;
+		} catch (ExecutionException e) {
+			target.fail(e.getCause());
+		} catch (CancellationException e) {
+			target.cancel(false);
+		} catch (InterruptedException e) {
+			target.cancel(false);
 		}
+		return false;
 	}
 
-/*
-	public <NEW_OUTPUT> AsyncTask<NEW_OUTPUT> then(NextCallable<T, NEW_OUTPUT> nextCallable) {
-		new Builder<NEW_OUTPUT>()
-				.setCallable(nextCallable.createCallable())
-				.setExecutor(this.e)
+	/**
+	 * {@link co.tophe.async.AsyncTask} that is not run directly but completed by the tasks it depends on.
+	 */
+	private static class DependentTask<T> extends AsyncTask<T> {
+		private static final Callable<Object> NOT_RUNNABLE = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				throw new IllegalStateException("this task is completed by the tasks it depends on");
+			}
+		};
+
+		private volatile Callable<T> stageCallable;
+		private volatile Future<?> stage;
+
+		@SuppressWarnings("unchecked")
+		DependentTask() {
+			super((Callable<T>) NOT_RUNNABLE, null);
+		}
+
+		@Override
+		public void run() {
+			throw new IllegalStateException("this task is completed by the tasks it depends on");
+		}
+
+		void complete(T result) {
+			set(result);
+		}
+
+		void fail(Throwable error) {
+			setException(error);
+		}
+
+		/**
+		 * Run the {@code callable} in the {@code executor} and complete this task with its outcome.
+		 */
+		void runStage(Callable<T> callable, Executor executor) {
+			FutureTask<T> stageTask = new FutureTask<T>(callable) {
+				@Override
+				protected void done() {
+					if (isCancelled()) {
+						DependentTask.this.cancel(false);
+						return;
+					}
+					try {
+						complete(get());
+					} catch (ExecutionException e) {
+						fail(e.getCause());
+					} catch (Exception e) {
+						fail(e);
+					}
+				}
+			};
+			stageCallable = callable;
+			stage = stageTask;
+			if (isCancelled())
+				return;
+			executor.execute(stageTask);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean result = super.cancel(mayInterruptIfRunning);
+			Future<?> runningStage = stage;
+			if (result && null != runningStage) {
+				runningStage.cancel(mayInterruptIfRunning);
+				// interrupting the stage thread doesn't abort a blocked HttpURLConnection
+				if (mayInterruptIfRunning)
+					cancelEngine(stageCallable);
+			}
+			return result;
+		}
 	}
-*/
-}
\ No newline at end of file
+}
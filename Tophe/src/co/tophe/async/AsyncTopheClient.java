@@ -42,6 +42,21 @@ public final class AsyncTopheClient {
 		executor = newExecutor;
 	}
 
+	/**
+	 * Replaces the default {@link Executor} with a {@link co.tophe.async.VirtualThreadExecutor} if the runtime supports
+	 * virtual threads, the current {@link Executor} is kept otherwise (on Android).
+	 * <p>This should be called before doing any queries
+	 * @param maxConcurrentTasks The maximum number of queries running at the same time
+	 * @return {@code true} if the queries will run on virtual threads
+	 */
+	public static boolean useVirtualThreads(int maxConcurrentTasks) {
+		VirtualThreadExecutor virtualThreadExecutor = VirtualThreadExecutor.create(maxConcurrentTasks);
+		if (null == virtualThreadExecutor)
+			return false;
+		setExecutor(virtualThreadExecutor);
+		return true;
+	}
+
 	/**
 	 * Get the {@link Executor} used by the Async client.
 	 * <p>Can be useful if you want to use it as your network Thread pool 
@@ -2,8 +2,14 @@ package co.tophe.async;
 
 import java.util.concurrent.Callable;
 
+import android.support.annotation.Nullable;
+
+import co.tophe.Deadline;
+
 /**
  * Helper class to chain {@link java.util.concurrent.Callable} to do transformations on them in the same call.
+ * <p>Both {@link java.util.concurrent.Callable} share the same {@link co.tophe.Deadline}, by default the one of the thread
+ * creating the chain.</p>
  *
  * @param <INPUT>  the type returned by the {@link java.util.concurrent.Callable}
  * @param <OUTPUT> the type returned by the {@link co.tophe.async.NextCallable}
@@ -13,24 +19,40 @@ import java.util.concurrent.Callable;
 public class CallableChain<INPUT, OUTPUT> implements Callable<OUTPUT> {
 	public final Callable<INPUT> inputCallable;
 	public final NextCallable<INPUT, OUTPUT> postProcess;
-	private Callable<OUTPUT> nextPageCall;
+	private final Deadline deadline;
+	private volatile Callable<OUTPUT> nextPageCall;
 
 	/**
 	 * @param inputCallable the main {@link java.util.concurrent.Callable} to execute.
 	 * @param postProcess the transformation of the data returned by the first {@link java.util.concurrent.Callable}.
 	 */
 	public CallableChain(Callable<INPUT> inputCallable, NextCallable<INPUT, OUTPUT> postProcess) {
+		this(inputCallable, postProcess, Deadline.current());
+	}
+
+	/**
+	 * @param inputCallable the main {@link java.util.concurrent.Callable} to execute.
+	 * @param postProcess the transformation of the data returned by the first {@link java.util.concurrent.Callable}.
+	 * @param deadline the time limit for the whole chain, may be {@code null}.
+	 */
+	public CallableChain(Callable<INPUT> inputCallable, NextCallable<INPUT, OUTPUT> postProcess, @Nullable Deadline deadline) {
 		this.inputCallable = inputCallable;
 		this.postProcess = postProcess;
+		this.deadline = deadline;
 	}
 
 	@Override
 	public OUTPUT call() throws Exception {
-		INPUT input = inputCallable.call();
-		nextPageCall = postProcess.createCallable(input);
-		if (null == nextPageCall)
-			return null;
-		return nextPageCall.call();
+		Deadline previousDeadline = Deadline.enter(deadline);
+		try {
+			INPUT input = inputCallable.call();
+			nextPageCall = postProcess.createCallable(input);
+			if (null == nextPageCall)
+				return null;
+			return nextPageCall.call();
+		} finally {
+			Deadline.exit(previousDeadline);
+		}
 	}
 
 	public Callable<OUTPUT> getSecondCallable() {
@@ -0,0 +1,21 @@
+package co.tophe.async;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Interface to choose the thread where the {@link co.tophe.async.AsyncCallback} of an {@link co.tophe.async.AsyncTask} are called.
+ *
+ * @see co.tophe.async.MainThreadCallbackDispatcher
+ * @see co.tophe.async.ExecutorCallbackDispatcher
+ * @see co.tophe.async.DirectCallbackDispatcher
+ * @see co.tophe.async.AsyncTask.Builder#setCallbackDispatcher(CallbackDispatcher)
+ */
+public interface CallbackDispatcher {
+	/**
+	 * Run the {@code callback} in the thread(s) handled by this dispatcher.
+	 * <p>Callbacks dispatched from the same thread must be run in the same order.</p>
+	 *
+	 * @param callback the code calling the {@link co.tophe.async.AsyncCallback}.
+	 */
+	void dispatch(@NonNull Runnable callback);
+}
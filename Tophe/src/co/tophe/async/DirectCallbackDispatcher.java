@@ -0,0 +1,22 @@
+package co.tophe.async;
+
+import android.support.annotation.NonNull;
+
+/**
+ * {@link co.tophe.async.CallbackDispatcher} that calls the {@link co.tophe.async.AsyncCallback} directly in the worker thread.
+ * <p>Useful when the callback does its own thread handling or when there is no UI thread, like in unit tests.</p>
+ */
+public final class DirectCallbackDispatcher implements CallbackDispatcher {
+	/**
+	 * The instance to use in {@link co.tophe.async.AsyncTask.Builder#setCallbackDispatcher(CallbackDispatcher)}.
+	 */
+	public static final DirectCallbackDispatcher INSTANCE = new DirectCallbackDispatcher();
+
+	private DirectCallbackDispatcher() {
+	}
+
+	@Override
+	public void dispatch(@NonNull Runnable callback) {
+		callback.run();
+	}
+}
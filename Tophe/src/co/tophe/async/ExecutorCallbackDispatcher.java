@@ -0,0 +1,29 @@
+package co.tophe.async;
+
+import java.util.concurrent.Executor;
+
+import android.support.annotation.NonNull;
+
+/**
+ * {@link co.tophe.async.CallbackDispatcher} that calls the {@link co.tophe.async.AsyncCallback} in an {@link java.util.concurrent.Executor}
+ * owned by the caller.
+ * <p>Use a serial {@link java.util.concurrent.Executor} to keep the callbacks of a task in order.</p>
+ */
+public class ExecutorCallbackDispatcher implements CallbackDispatcher {
+	private final Executor executor;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param executor the executor that will run the callbacks.
+	 */
+	public ExecutorCallbackDispatcher(@NonNull Executor executor) {
+		if (null == executor) throw new NullPointerException("null executor");
+		this.executor = executor;
+	}
+
+	@Override
+	public void dispatch(@NonNull Runnable callback) {
+		executor.execute(callback);
+	}
+}
@@ -0,0 +1,20 @@
+package co.tophe.async;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Interface to turn the error of an {@link co.tophe.async.AsyncTask} into a regular result.
+ *
+ * @param <T> the type of data returned by the task.
+ * @see co.tophe.async.AsyncTask#exceptionally(FailureRecovery)
+ */
+public interface FailureRecovery<T> {
+	/**
+	 * Create a result from the error raised by the task.
+	 *
+	 * @param error the cause of the failure.
+	 * @return the replacement result, may be {@code null}.
+	 * @throws Exception if the error cannot be recovered, it becomes the error of the resulting task.
+	 */
+	T recover(@NonNull Throwable error) throws Exception;
+}
@@ -0,0 +1,72 @@
+package co.tophe.async;
+
+import java.util.ArrayList;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+/**
+ * {@link co.tophe.async.CallbackDispatcher} that calls the {@link co.tophe.async.AsyncCallback} in the UI thread.
+ * <p>The callbacks dispatched within the same frame are run together from a single message posted to the main
+ * {@link android.os.Looper}, so a burst of finished requests doesn't flood the UI thread message queue.</p>
+ * <p>This is the default dispatcher of {@link co.tophe.async.AsyncTask}.</p>
+ */
+public final class MainThreadCallbackDispatcher implements CallbackDispatcher {
+	/**
+	 * The instance to use in {@link co.tophe.async.AsyncTask.Builder#setCallbackDispatcher(CallbackDispatcher)}.
+	 */
+	public static final MainThreadCallbackDispatcher INSTANCE = new MainThreadCallbackDispatcher();
+
+	private static final long FRAME_DURATION = 16L;
+
+	private final Handler uiHandler = new Handler(Looper.getMainLooper());
+	private final Object lock = new Object();
+	private ArrayList<Runnable> pending = new ArrayList<Runnable>();
+	private ArrayList<Runnable> running = new ArrayList<Runnable>();
+	private boolean flushPosted;
+	private long lastFlushTime;
+
+	private final Runnable flush = new Runnable() {
+		@Override
+		public void run() {
+			ArrayList<Runnable> batch;
+			synchronized (lock) {
+				batch = pending;
+				pending = running;
+				running = batch;
+				flushPosted = false;
+				lastFlushTime = SystemClock.uptimeMillis();
+			}
+
+			try {
+				for (int i = 0; i < batch.size(); ++i) {
+					batch.get(i).run();
+				}
+			} finally {
+				batch.clear();
+			}
+		}
+	};
+
+	private MainThreadCallbackDispatcher() {
+	}
+
+	@Override
+	public void dispatch(@NonNull Runnable callback) {
+		long delay;
+		synchronized (lock) {
+			pending.add(callback);
+			if (flushPosted)
+				return;
+			flushPosted = true;
+			delay = lastFlushTime + FRAME_DURATION - SystemClock.uptimeMillis();
+		}
+
+		if (delay > 0)
+			uiHandler.postDelayed(flush, delay);
+		else
+			uiHandler.post(flush);
+	}
+}
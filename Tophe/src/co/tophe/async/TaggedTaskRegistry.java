@@ -0,0 +1,121 @@
+package co.tophe.async;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Registry of the running {@link co.tophe.async.AsyncTask} that have a tag, only one task can run for a given tag.
+ * <p>Tags can be grouped hierarchically with {@link #GROUP_SEPARATOR}, for example the tasks tagged {@code "screen:timeline:refresh"}
+ * and {@code "screen:timeline:more"} can all be cancelled with {@code cancelGroup("screen:timeline")}.</p>
+ * <p>This class is thread-safe and doesn't lock when registering or unregistering tasks.</p>
+ *
+ * @see co.tophe.async.AsyncTask.Builder#setTaskTag(String)
+ */
+public final class TaggedTaskRegistry {
+	/**
+	 * Separator between the levels of a tag.
+	 */
+	public static final char GROUP_SEPARATOR = ':';
+
+	/**
+	 * The registry used by {@link co.tophe.async.AsyncTask.Builder#execute()}.
+	 */
+	public static final TaggedTaskRegistry DEFAULT = new TaggedTaskRegistry();
+
+	private final ConcurrentHashMap<String, AsyncTask<?>> tasks = new ConcurrentHashMap<String, AsyncTask<?>>();
+	private final AtomicLong replacedCount = new AtomicLong();
+	private final AtomicLong cancelledCount = new AtomicLong();
+
+	/**
+	 * Register the {@code task} with {@code tag}, the task previously registered with this tag is cancelled.
+	 * <p>The task is unregistered automatically when it's done.</p>
+	 *
+	 * @return the task that was replaced, or {@code null}.
+	 */
+	@Nullable
+	public AsyncTask<?> register(@NonNull final String tag, @NonNull final AsyncTask<?> task) {
+		AsyncTask<?> oldTask = tasks.put(tag, task);
+		if (null != oldTask && oldTask != task && oldTask.cancel(true)) {
+			// also aborts the connection of the replaced task
+			replacedCount.incrementAndGet();
+		}
+
+		task.whenDone(new Runnable() {
+			@Override
+			public void run() {
+				tasks.remove(tag, task);
+			}
+		});
+		return oldTask;
+	}
+
+	/**
+	 * @return the task currently registered with {@code tag}, or {@code null}.
+	 */
+	@Nullable
+	public AsyncTask<?> get(@NonNull String tag) {
+		return tasks.get(tag);
+	}
+
+	/**
+	 * Cancel the task registered with exactly this {@code tag}.
+	 *
+	 * @return {@code true} if a task was cancelled.
+	 */
+	public boolean cancel(@NonNull String tag) {
+		AsyncTask<?> task = tasks.remove(tag);
+		if (null != task && task.cancel(true)) {
+			cancelledCount.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Cancel the task registered with {@code group} and all the tasks with a tag starting with {@code group} followed by
+	 * {@link #GROUP_SEPARATOR}.
+	 *
+	 * @return the number of tasks cancelled.
+	 */
+	public int cancelGroup(@NonNull String group) {
+		int cancelled = 0;
+		for (Map.Entry<String, AsyncTask<?>> entry : tasks.entrySet()) {
+			String tag = entry.getKey();
+			if (isInGroup(tag, group) && tasks.remove(tag, entry.getValue()) && entry.getValue().cancel(true)) {
+				cancelled++;
+			}
+		}
+		if (cancelled != 0)
+			cancelledCount.addAndGet(cancelled);
+		return cancelled;
+	}
+
+	private static boolean isInGroup(String tag, String group) {
+		return tag.startsWith(group) && (tag.length() == group.length() || tag.charAt(group.length()) == GROUP_SEPARATOR);
+	}
+
+	/**
+	 * @return the number of tasks currently registered.
+	 */
+	public int size() {
+		return tasks.size();
+	}
+
+	/**
+	 * @return the number of running or pending tasks cancelled because a new task was registered with the same tag.
+	 */
+	public long getReplacedCount() {
+		return replacedCount.get();
+	}
+
+	/**
+	 * @return the number of tasks cancelled with {@link #cancel(String)} or {@link #cancelGroup(String)}.
+	 */
+	public long getCancelledCount() {
+		return cancelledCount.get();
+	}
+}
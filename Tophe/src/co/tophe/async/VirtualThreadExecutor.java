@@ -0,0 +1,107 @@
+package co.tophe.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.log.LogManager;
+
+/**
+ * {@link java.util.concurrent.Executor} running each task on its own virtual thread, for JVM runtimes that support them.
+ * <p>Blocking network calls don't hold a platform thread, so the number of concurrent requests is only limited by the
+ * {@link java.util.concurrent.Semaphore} given to {@link #create(int)}, not by the size of a thread pool.</p>
+ * <p>Virtual threads are not available on Android, {@link #create(int)} returns {@code null} there.</p>
+ *
+ * @see co.tophe.async.AsyncTopheClient#useVirtualThreads(int)
+ */
+public final class VirtualThreadExecutor implements Executor {
+
+	private static final Method NEW_VIRTUAL_THREAD_EXECUTOR;
+
+	static {
+		Method method = null;
+		try {
+			// Java 21+, looked up by reflection to build and run on older runtimes
+			method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException ignored) {
+		} catch (SecurityException ignored) {
+		}
+		NEW_VIRTUAL_THREAD_EXECUTOR = method;
+	}
+
+	private final ExecutorService virtualThreads;
+	private final Semaphore permits;
+
+	private VirtualThreadExecutor(ExecutorService virtualThreads, int maxConcurrentTasks) {
+		this.virtualThreads = virtualThreads;
+		this.permits = new Semaphore(maxConcurrentTasks);
+	}
+
+	/**
+	 * @return whether the runtime can create virtual threads.
+	 */
+	public static boolean isSupported() {
+		return null != NEW_VIRTUAL_THREAD_EXECUTOR;
+	}
+
+	/**
+	 * Create an executor running at most {@code maxConcurrentTasks} tasks at the same time, each on a virtual thread.
+	 * <p>Tasks beyond that limit wait on their own virtual thread until a running task is done.</p>
+	 *
+	 * @param maxConcurrentTasks maximum number of tasks running at the same time.
+	 * @return the executor or {@code null} if virtual threads are not supported.
+	 */
+	@Nullable
+	public static VirtualThreadExecutor create(int maxConcurrentTasks) {
+		if (maxConcurrentTasks <= 0) throw new IllegalArgumentException("invalid maximum concurrent tasks " + maxConcurrentTasks);
+		if (null == NEW_VIRTUAL_THREAD_EXECUTOR)
+			return null;
+
+		try {
+			ExecutorService virtualThreads = (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+			return new VirtualThreadExecutor(virtualThreads, maxConcurrentTasks);
+		} catch (Exception e) {
+			LogManager.getLogger().w("failed to create the virtual thread executor", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void execute(@NonNull final Runnable command) {
+		virtualThreads.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the number of tasks that can still start without waiting.
+	 */
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Stop accepting new tasks, the running tasks keep running.
+	 */
+	public void shutdown() {
+		virtualThreads.shutdown();
+	}
+}
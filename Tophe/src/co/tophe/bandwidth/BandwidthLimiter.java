@@ -0,0 +1,179 @@
+package co.tophe.bandwidth;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Limit the bandwidth used by requests, for example to keep background synchronization from slowing down the requests the user
+ * is waiting for.
+ * <p>Requests are grouped in traffic classes using the tag set with {@link co.tophe.HttpEngine.Builder#setThreadStatsTag(int)}.
+ * Each class can have its own upload and download rates. A global link rate is shared by all the classes: foreground classes use
+ * it first and may exceed it by up to one second of data, background classes only send or receive data when there is capacity left.</p>
+ * <p>All the settings can be changed at runtime and apply to the transfers in progress.</p>
+ */
+public final class BandwidthLimiter {
+
+	/**
+	 * Maximum amount of data read or written at once on a limited stream.
+	 */
+	static final int CHUNK_SIZE = 8 * 1024;
+
+	private static final class TrafficClass {
+		final TokenBucket download = new TokenBucket();
+		final TokenBucket upload = new TokenBucket();
+		volatile boolean background;
+	}
+
+	private static final ConcurrentMap<Integer, TrafficClass> trafficClasses = new ConcurrentHashMap<Integer, TrafficClass>();
+	private static final TokenBucket linkDownload = new TokenBucket();
+	private static final TokenBucket linkUpload = new TokenBucket();
+	private static volatile boolean enabled;
+
+	private BandwidthLimiter() {
+	}
+
+	/**
+	 * Set the bandwidth available for all the requests.
+	 *
+	 * @param downloadBytesPerSecond the maximum download rate in bytes per second, {@code 0} for no limit.
+	 * @param uploadBytesPerSecond   the maximum upload rate in bytes per second, {@code 0} for no limit.
+	 */
+	public static synchronized void setLinkRate(long downloadBytesPerSecond, long uploadBytesPerSecond) {
+		linkDownload.setRate(downloadBytesPerSecond);
+		linkUpload.setRate(uploadBytesPerSecond);
+		updateEnabled();
+	}
+
+	/**
+	 * Set the bandwidth available to the requests using the {@code threadStatsTag}.
+	 *
+	 * @param threadStatsTag         the tag of the traffic class.
+	 * @param downloadBytesPerSecond the maximum download rate in bytes per second, {@code 0} for no limit.
+	 * @param uploadBytesPerSecond   the maximum upload rate in bytes per second, {@code 0} for no limit.
+	 * @see co.tophe.HttpEngine.Builder#setThreadStatsTag(int)
+	 */
+	public static synchronized void setClassRate(int threadStatsTag, long downloadBytesPerSecond, long uploadBytesPerSecond) {
+		TrafficClass trafficClass = obtainTrafficClass(threadStatsTag);
+		trafficClass.download.setRate(downloadBytesPerSecond);
+		trafficClass.upload.setRate(uploadBytesPerSecond);
+		updateEnabled();
+	}
+
+	/**
+	 * Mark the requests using the {@code threadStatsTag} as background traffic, they will only use the link bandwidth left
+	 * by the foreground requests. All classes are foreground by default.
+	 *
+	 * @see #setLinkRate(long, long)
+	 */
+	public static void setBackground(int threadStatsTag, boolean background) {
+		obtainTrafficClass(threadStatsTag).background = background;
+	}
+
+	/**
+	 * Remove all the limits.
+	 */
+	public static synchronized void clear() {
+		enabled = false;
+		trafficClasses.clear();
+		linkDownload.setRate(0);
+		linkUpload.setRate(0);
+	}
+
+	/**
+	 * Wrap the {@link java.io.InputStream} of a response body to limit its download rate.
+	 *
+	 * @param stream         the stream to limit, may be {@code null}.
+	 * @param threadStatsTag the traffic class of the request.
+	 * @return the stream to read from, the same stream if no limit has been set.
+	 */
+	@Nullable
+	public static InputStream limitInputStream(@Nullable InputStream stream, int threadStatsTag) {
+		if (null == stream || !enabled)
+			return stream;
+		return new LimitedInputStream(stream, threadStatsTag);
+	}
+
+	/**
+	 * Wrap the {@link java.io.OutputStream} of a request body to limit its upload rate.
+	 *
+	 * @param stream         the stream to limit.
+	 * @param threadStatsTag the traffic class of the request.
+	 * @return the stream to write to, the same stream if no limit has been set.
+	 */
+	@NonNull
+	public static OutputStream limitOutputStream(@NonNull OutputStream stream, int threadStatsTag) {
+		if (!enabled)
+			return stream;
+		return new LimitedOutputStream(stream, threadStatsTag);
+	}
+
+	/**
+	 * Wait until {@code bytes} of data can be transferred for the traffic class.
+	 *
+	 * @param bytes the amount of data to transfer, not more than {@link #CHUNK_SIZE}.
+	 * @throws InterruptedIOException if the thread is interrupted while waiting.
+	 */
+	static void acquire(int threadStatsTag, boolean upload, int bytes) throws InterruptedIOException {
+		TrafficClass trafficClass = trafficClasses.get(threadStatsTag);
+		if (null != trafficClass)
+			sleep((upload ? trafficClass.upload : trafficClass.download).take(bytes));
+
+		TokenBucket link = upload ? linkUpload : linkDownload;
+		if (null != trafficClass && trafficClass.background) {
+			// wait for the capacity left by the foreground traffic
+			long wait;
+			while ((wait = link.tryTake(bytes)) != 0) {
+				sleep(wait);
+			}
+		} else {
+			// foreground traffic goes first and may borrow up to one second of future capacity
+			sleep(link.borrow(bytes));
+		}
+	}
+
+	/**
+	 * Only wrap the streams when a rate is set, the streams of the requests in progress keep their wrapping.
+	 */
+	private static void updateEnabled() {
+		boolean limited = 0 != linkDownload.getRate() || 0 != linkUpload.getRate();
+		if (!limited) {
+			for (TrafficClass trafficClass : trafficClasses.values()) {
+				if (0 != trafficClass.download.getRate() || 0 != trafficClass.upload.getRate()) {
+					limited = true;
+					break;
+				}
+			}
+		}
+		enabled = limited;
+	}
+
+	private static TrafficClass obtainTrafficClass(int threadStatsTag) {
+		TrafficClass trafficClass = trafficClasses.get(threadStatsTag);
+		if (null == trafficClass) {
+			trafficClass = new TrafficClass();
+			TrafficClass previous = trafficClasses.putIfAbsent(threadStatsTag, trafficClass);
+			if (null != previous)
+				trafficClass = previous;
+		}
+		return trafficClass;
+	}
+
+	private static void sleep(long nanos) throws InterruptedIOException {
+		if (nanos <= 0)
+			return;
+		try {
+			Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException exception = new InterruptedIOException("interrupted while limiting the bandwidth");
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package co.tophe.bandwidth;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link java.io.InputStream} reading at the rate allowed by the {@link co.tophe.bandwidth.BandwidthLimiter}.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+	private final int threadStatsTag;
+
+	LimitedInputStream(InputStream in, int threadStatsTag) {
+		super(in);
+		this.threadStatsTag = threadStatsTag;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1)
+			BandwidthLimiter.acquire(threadStatsTag, false, 1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int count) throws IOException {
+		int read = super.read(buffer, offset, Math.min(count, BandwidthLimiter.CHUNK_SIZE));
+		if (read > 0)
+			BandwidthLimiter.acquire(threadStatsTag, false, read);
+		return read;
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		long skipped = super.skip(Math.min(count, BandwidthLimiter.CHUNK_SIZE));
+		if (skipped > 0)
+			BandwidthLimiter.acquire(threadStatsTag, false, (int) skipped);
+		return skipped;
+	}
+}
@@ -0,0 +1,35 @@
+package co.tophe.bandwidth;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link java.io.OutputStream} writing at the rate allowed by the {@link co.tophe.bandwidth.BandwidthLimiter}.
+ */
+final class LimitedOutputStream extends FilterOutputStream {
+
+	private final int threadStatsTag;
+
+	LimitedOutputStream(OutputStream out, int threadStatsTag) {
+		super(out);
+		this.threadStatsTag = threadStatsTag;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		BandwidthLimiter.acquire(threadStatsTag, true, 1);
+		out.write(b);
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int count) throws IOException {
+		while (count > 0) {
+			int chunk = Math.min(count, BandwidthLimiter.CHUNK_SIZE);
+			BandwidthLimiter.acquire(threadStatsTag, true, chunk);
+			out.write(buffer, offset, chunk);
+			offset += chunk;
+			count -= chunk;
+		}
+	}
+}
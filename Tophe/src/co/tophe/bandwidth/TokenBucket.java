@@ -0,0 +1,86 @@
+package co.tophe.bandwidth;
+
+/**
+ * A token bucket refilled at a fixed rate of bytes per second, allowing bursts up to one second of data.
+ * <p>A rate of {@code 0} means the bucket is unlimited.</p>
+ */
+final class TokenBucket {
+
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	private long rate;
+	private long capacity;
+	private double tokens;
+	private long lastRefill = System.nanoTime();
+
+	/**
+	 * @param bytesPerSecond the new rate, {@code 0} for no limit.
+	 */
+	synchronized void setRate(long bytesPerSecond) {
+		if (bytesPerSecond < 0) throw new IllegalArgumentException("invalid rate " + bytesPerSecond);
+		boolean wasUnlimited = 0 == rate;
+		refill();
+		rate = bytesPerSecond;
+		capacity = Math.max(bytesPerSecond, BandwidthLimiter.CHUNK_SIZE);
+		if (wasUnlimited || tokens > capacity)
+			tokens = capacity;
+	}
+
+	synchronized long getRate() {
+		return rate;
+	}
+
+	/**
+	 * Take tokens even if there are not enough, the bucket goes into debt.
+	 *
+	 * @return the time in nanoseconds to wait until the debt is paid back, {@code 0} if there was enough tokens.
+	 */
+	synchronized long take(int bytes) {
+		if (0 == rate)
+			return 0;
+		refill();
+		tokens -= bytes;
+		if (tokens >= 0)
+			return 0;
+		return (long) (-tokens * NANOS_PER_SECOND / rate);
+	}
+
+	/**
+	 * Take tokens even if there are not enough, the bucket goes into debt up to its capacity.
+	 *
+	 * @return the time in nanoseconds to wait until the debt is back within the capacity, {@code 0} if it's not exceeded.
+	 */
+	synchronized long borrow(int bytes) {
+		if (0 == rate)
+			return 0;
+		refill();
+		tokens -= bytes;
+		if (tokens >= -capacity)
+			return 0;
+		return (long) ((-capacity - tokens) * NANOS_PER_SECOND / rate);
+	}
+
+	/**
+	 * Take tokens only if there are enough available.
+	 *
+	 * @return {@code 0} if the tokens were taken, otherwise the time in nanoseconds until enough tokens are available.
+	 */
+	synchronized long tryTake(int bytes) {
+		if (0 == rate)
+			return 0;
+		refill();
+		if (tokens >= bytes) {
+			tokens -= bytes;
+			return 0;
+		}
+		return Math.max(1L, (long) ((bytes - tokens) * NANOS_PER_SECOND / rate));
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		if (0 != rate) {
+			tokens = Math.min(capacity, tokens + (double) (now - lastRefill) * rate / NANOS_PER_SECOND);
+		}
+		lastRefill = now;
+	}
+}
@@ -0,0 +1,175 @@
+package co.tophe.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.HttpResponse;
+import co.tophe.ImmutableHttpRequest;
+import co.tophe.parser.ParserException;
+import co.tophe.parser.XferTransform;
+import co.tophe.utils.HeaderParser;
+
+/**
+ * Split a {@code multipart/mixed} batch response into the {@link co.tophe.HttpResponse} of each request.
+ */
+final class BatchResponseParser implements XferTransform<HttpResponse, List<HttpResponseBatchPart>> {
+
+	static final BatchResponseParser INSTANCE = new BatchResponseParser();
+
+	// 1:1 mapping between bytes and chars, the binary bodies are kept intact
+	private static final String BINARY_CHARSET = "ISO-8859-1";
+
+	private BatchResponseParser() {
+	}
+
+	@Override
+	public List<HttpResponseBatchPart> transformData(HttpResponse response, ImmutableHttpRequest request) throws IOException, ParserException {
+		String boundary = getBoundary(response.getContentType());
+		if (null == boundary)
+			throw new ParserException("missing multipart boundary in " + response.getContentType(), null, null);
+
+		InputStream input = response.getContentStream();
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream(Math.max(1024, response.getContentLength()));
+			byte[] buffer = new byte[4096];
+			for (int length; (length = input.read(buffer)) > 0; ) {
+				body.write(buffer, 0, length);
+			}
+			return parse(body.toByteArray(), boundary);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * @return the boundary parameter of a {@code multipart} Content-Type, or {@code null} if there's none.
+	 */
+	@Nullable
+	static String getBoundary(@Nullable String contentType) {
+		if (null == contentType)
+			return null;
+		int start = contentType.toLowerCase(Locale.ENGLISH).indexOf("boundary=");
+		if (start < 0)
+			return null;
+		start += "boundary=".length();
+		if (start < contentType.length() && contentType.charAt(start) == '"') {
+			int end = contentType.indexOf('"', start + 1);
+			return end < 0 ? null : contentType.substring(start + 1, end);
+		}
+		int end = start;
+		while (end < contentType.length() && contentType.charAt(end) != ';' && !HeaderParser.isWhitespace(contentType.charAt(end))) {
+			end++;
+		}
+		return end == start ? null : contentType.substring(start, end);
+	}
+
+	@NonNull
+	static List<HttpResponseBatchPart> parse(@NonNull byte[] body, @NonNull String boundary) throws ParserException {
+		final String data;
+		try {
+			data = new String(body, BINARY_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+
+		List<HttpResponseBatchPart> parts = new ArrayList<HttpResponseBatchPart>();
+		String delimiter = "--" + boundary;
+		int pos = data.indexOf(delimiter);
+		if (pos < 0)
+			throw new ParserException("boundary not found in the batch response", null, null);
+
+		while (true) {
+			pos += delimiter.length();
+			if (data.startsWith("--", pos))
+				break; // close delimiter
+			pos = skipLine(data, pos);
+
+			// the delimiter is on its own line, some servers end lines with a bare LF
+			int next = data.indexOf('\n' + delimiter, pos);
+			if (next < 0)
+				throw new ParserException("unterminated part in the batch response", null, null);
+
+			int partEnd = (next > pos && data.charAt(next - 1) == '\r') ? next - 1 : next;
+			parts.add(parsePart(data, pos, partEnd));
+			pos = next + 1;
+		}
+		return parts;
+	}
+
+	private static HttpResponseBatchPart parsePart(String data, int start, int end) throws ParserException {
+		// MIME headers of the part
+		String contentId = null;
+		int pos = start;
+		while (pos < end) {
+			int lineEnd = lineEnd(data, pos, end);
+			if (lineEnd == pos) {
+				pos = skipLine(data, pos);
+				break;
+			}
+			String line = data.substring(pos, lineEnd);
+			if (line.regionMatches(true, 0, "Content-ID:", 0, "Content-ID:".length()))
+				contentId = line.substring("Content-ID:".length()).trim();
+			pos = skipLine(data, lineEnd);
+		}
+
+		// embedded HTTP response status line
+		int lineEnd = lineEnd(data, pos, end);
+		String statusLine = data.substring(pos, lineEnd);
+		int codeStart = statusLine.indexOf(' ');
+		if (codeStart < 0)
+			throw new ParserException("invalid status line in batch part '" + statusLine + '\'', null, null);
+		int codeEnd = statusLine.indexOf(' ', codeStart + 1);
+		if (codeEnd < 0)
+			codeEnd = statusLine.length();
+		int responseCode;
+		try {
+			responseCode = Integer.parseInt(statusLine.substring(codeStart + 1, codeEnd));
+		} catch (NumberFormatException e) {
+			throw new ParserException("invalid status code in batch part '" + statusLine + '\'', e, null);
+		}
+		String responseMessage = codeEnd < statusLine.length() ? statusLine.substring(codeEnd + 1) : null;
+		pos = skipLine(data, lineEnd);
+
+		// embedded HTTP response headers
+		List<String> headerLines = new ArrayList<String>();
+		while (pos < end) {
+			lineEnd = lineEnd(data, pos, end);
+			if (lineEnd == pos) {
+				pos = skipLine(data, pos);
+				break;
+			}
+			headerLines.add(data.substring(pos, lineEnd));
+			pos = skipLine(data, lineEnd);
+		}
+
+		byte[] partBody;
+		try {
+			partBody = data.substring(Math.min(pos, end), end).getBytes(BINARY_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+		return new HttpResponseBatchPart(contentId, responseCode, responseMessage, headerLines, partBody);
+	}
+
+	private static int lineEnd(String data, int start, int limit) {
+		int end = data.indexOf('\n', start);
+		if (end < 0 || end > limit)
+			end = limit;
+		if (end > start && data.charAt(end - 1) == '\r')
+			end--;
+		return end;
+	}
+
+	private static int skipLine(String data, int pos) {
+		int end = data.indexOf('\n', pos);
+		return end < 0 ? data.length() : end + 1;
+	}
+}
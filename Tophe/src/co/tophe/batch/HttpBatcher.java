@@ -0,0 +1,490 @@
+package co.tophe.batch;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.AbstractHttpEngine;
+import co.tophe.BaseResponseHandler;
+import co.tophe.Header;
+import co.tophe.Headers;
+import co.tophe.HttpConfig;
+import co.tophe.HttpDataParserException;
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpIOException;
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpResponse;
+import co.tophe.HttpSignException;
+import co.tophe.RawHttpRequest;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.TypedHttpRequest;
+import co.tophe.parser.ParserException;
+import co.tophe.signed.RequestSigner;
+
+/**
+ * Group the requests queued within a short time window into a single {@code multipart/mixed} batch HTTP call.
+ * <p>Each {@link co.tophe.TypedHttpRequest} is turned into a {@link co.tophe.batch.HttpBatcher.BatchedCall} that can
+ * be used like any other {@link co.tophe.HttpEngine}. The first call of a window waits for the other calls and sends the
+ * batch, then the response of each request is parsed with its own {@link co.tophe.ResponseHandler} in the thread that
+ * called it.</p>
+ * <p>The batch format is the one used by Google APIs, each request is sent as an {@code application/http} part
+ * with a {@code Content-ID} to match the response part. A request with its own {@link co.tophe.signed.RequestSigner}
+ * is signed in its part.</p>
+ *
+ * @see <a href="https://developers.google.com/drive/api/v3/batch">Google APIs batch requests</a>
+ */
+public class HttpBatcher {
+	private static final String CONTENT_ID_PREFIX = "item";
+	private static final String RESPONSE_ID_PREFIX = "response-";
+	private static final SecureRandom random = new SecureRandom();
+
+	private final String batchUrl;
+	private final long window;
+	private final int maxBatchSize;
+	private final RequestSigner signer;
+	private final HttpConfig httpConfig;
+	private final Headers headers;
+
+	private final Object lock = new Object();
+	private final AtomicInteger batchCount = new AtomicInteger();
+	private Batch openBatch;
+
+	public static class Builder {
+		private String batchUrl;
+		private long window = 10;
+		private int maxBatchSize = 50;
+		private RequestSigner signer;
+		private HttpConfig httpConfig;
+		private final Headers headers = new Headers();
+
+		public Builder() {
+		}
+
+		/**
+		 * @param batchUrl the URL of the batch endpoint receiving the {@code multipart/mixed} requests.
+		 * @return the Builder.
+		 */
+		public Builder setUrl(@NonNull String batchUrl) {
+			this.batchUrl = batchUrl;
+			return this;
+		}
+
+		/**
+		 * @param windowInMs time to wait for more requests before sending a batch, default is 10 ms.
+		 * @return the Builder.
+		 */
+		public Builder setWindow(long windowInMs) {
+			if (windowInMs < 0) throw new IllegalArgumentException("invalid batch window " + windowInMs);
+			this.window = windowInMs;
+			return this;
+		}
+
+		/**
+		 * @param maxBatchSize the maximum number of requests in a batch, a full batch is sent right away. Default is 50.
+		 * @return the Builder.
+		 */
+		public Builder setMaxBatchSize(int maxBatchSize) {
+			if (maxBatchSize < 1) throw new IllegalArgumentException("invalid batch size " + maxBatchSize);
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+
+		/**
+		 * @param signer the {@link co.tophe.signed.RequestSigner} used to sign the batch HTTP call.
+		 * @return the Builder.
+		 */
+		public Builder setSigner(@Nullable RequestSigner signer) {
+			this.signer = signer;
+			return this;
+		}
+
+		/**
+		 * @param httpConfig the {@link co.tophe.HttpConfig} of the batch HTTP call.
+		 * @return the Builder.
+		 */
+		public Builder setHttpConfig(@Nullable HttpConfig httpConfig) {
+			this.httpConfig = httpConfig;
+			return this;
+		}
+
+		/**
+		 * Add a header to the batch HTTP call, the headers of each request are sent in its own part.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder addHeader(@NonNull String name, @NonNull String value) {
+			headers.add(name, value);
+			return this;
+		}
+
+		public HttpBatcher build() {
+			if (null == batchUrl) throw new NullPointerException("missing the batch URL");
+			return new HttpBatcher(this);
+		}
+	}
+
+	protected HttpBatcher(Builder builder) {
+		this.batchUrl = builder.batchUrl;
+		this.window = builder.window;
+		this.maxBatchSize = builder.maxBatchSize;
+		this.signer = builder.signer;
+		this.httpConfig = builder.httpConfig;
+		this.headers = builder.headers.copy().freeze();
+	}
+
+	/**
+	 * Create the {@link co.tophe.HttpEngine} that will send the request as part of a batch when it's called.
+	 *
+	 * @param request the request to batch with other requests.
+	 */
+	@NonNull
+	public <T, SE extends ServerException> BatchedCall<T, SE> newCall(@NonNull TypedHttpRequest<T, SE> request) {
+		return new BatchedCall<T, SE>(this, request);
+	}
+
+	/**
+	 * @return the number of batch HTTP calls sent.
+	 */
+	public int getBatchCount() {
+		return batchCount.get();
+	}
+
+	private static class Batch {
+		final List<BatchedCall<?, ?>> calls = new ArrayList<BatchedCall<?, ?>>();
+	}
+
+	void enqueueAndWait(BatchedCall<?, ?> call) {
+		Batch batch;
+		boolean leader = false;
+		synchronized (lock) {
+			if (null == openBatch) {
+				openBatch = new Batch();
+				leader = true;
+			}
+			batch = openBatch;
+			batch.calls.add(call);
+			call.contentId = CONTENT_ID_PREFIX + batch.calls.size();
+			if (batch.calls.size() >= maxBatchSize) {
+				openBatch = null;
+				lock.notifyAll();
+			}
+		}
+
+		if (leader) {
+			boolean interrupted = false;
+			synchronized (lock) {
+				long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+				long remaining;
+				while (openBatch == batch && (remaining = end - System.nanoTime()) > 0) {
+					try {
+						TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+					} catch (InterruptedException e) {
+						// the other calls rely on this thread to send the batch
+						interrupted = true;
+						break;
+					}
+				}
+				if (openBatch == batch)
+					openBatch = null;
+			}
+			send(batch.calls);
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+
+		call.awaitResponse();
+	}
+
+	private void send(List<BatchedCall<?, ?>> calls) {
+		List<BatchedCall<?, ?>> pending = new ArrayList<BatchedCall<?, ?>>(calls.size());
+		for (BatchedCall<?, ?> call : calls) {
+			if (!call.isDone())
+				pending.add(call);
+		}
+		if (pending.isEmpty())
+			return;
+
+		if (1 == pending.size()) {
+			// no need for a batch
+			pending.get(0).sendAlone();
+			return;
+		}
+
+		pending = signCalls(pending);
+		if (pending.isEmpty())
+			return;
+
+		try {
+			HttpBodyBatch body = new HttpBodyBatch("batch_" + Long.toHexString(random.nextLong()), pending);
+			RawHttpRequest.Builder builder = new RawHttpRequest.Builder()
+					.setUrl(batchUrl)
+					.setBody(body);
+			if (null != signer)
+				builder.setSigner(signer);
+			RawHttpRequest batchRequest = builder.build();
+			for (int i = 0; i < headers.size(); ++i) {
+				batchRequest.addHeader(headers.getName(i), headers.getValue(i));
+			}
+			if (null != httpConfig)
+				batchRequest.setHttpConfig(httpConfig);
+
+			batchCount.incrementAndGet();
+			List<HttpResponseBatchPart> parts = new HttpEngine.Builder<List<HttpResponseBatchPart>, ServerException>()
+					.setRequest(batchRequest)
+					.setResponseHandler(new BaseResponseHandler<List<HttpResponseBatchPart>>(BatchResponseParser.INSTANCE))
+					.build()
+					.call();
+
+			Map<String, HttpResponseBatchPart> partsById = new HashMap<String, HttpResponseBatchPart>(parts.size());
+			for (HttpResponseBatchPart part : parts) {
+				String partId = getRequestContentId(part.getContentId());
+				if (null != partId)
+					partsById.put(partId, part);
+			}
+			for (int i = 0; i < pending.size(); ++i) {
+				BatchedCall<?, ?> call = pending.get(i);
+				HttpResponseBatchPart part = partsById.get(call.contentId);
+				if (null == part && partsById.isEmpty() && i < parts.size())
+					part = parts.get(i); // the server doesn't send the Content-ID back, use the order
+				if (null != part)
+					call.setResponse(part);
+				else
+					call.setFailure(new HttpException.Builder(call.getHttpRequest(), null)
+							.setErrorMessage("missing response in the batch")
+							.build());
+			}
+
+		} catch (ServerException e) {
+			failAll(pending, e);
+		} catch (HttpException e) {
+			failAll(pending, e);
+		} catch (IOException e) {
+			failAll(pending, e);
+		} catch (RuntimeException e) {
+			failAll(pending, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Sign each request with its own {@link co.tophe.signed.RequestSigner}, the signature headers are sent in its part.
+	 *
+	 * @return the calls to send, the ones that could not be signed are failed.
+	 */
+	@NonNull
+	static List<BatchedCall<?, ?>> signCalls(@NonNull List<BatchedCall<?, ?>> calls) {
+		List<BatchedCall<?, ?>> signed = new ArrayList<BatchedCall<?, ?>>(calls.size());
+		for (BatchedCall<?, ?> call : calls) {
+			RequestSigner requestSigner = call.getHttpRequest().getRequestSigner();
+			if (null != requestSigner) {
+				try {
+					requestSigner.sign(call);
+				} catch (HttpSignException e) {
+					call.setFailure(e);
+					continue;
+				}
+			}
+			signed.add(call);
+		}
+		return signed;
+	}
+
+	private static void failAll(List<BatchedCall<?, ?>> calls, Exception e) {
+		for (BatchedCall<?, ?> call : calls) {
+			call.setFailure(new HttpException.Builder(call.getHttpRequest(), null)
+					.setErrorMessage("batch failed " + e.getMessage())
+					.setCause(e)
+					.build());
+		}
+	}
+
+	/**
+	 * @return the {@code Content-ID} of the request matching the response {@code Content-ID}.
+	 */
+	@Nullable
+	static String getRequestContentId(@Nullable String responseContentId) {
+		if (null == responseContentId)
+			return null;
+		String id = responseContentId;
+		if (id.startsWith("<") && id.endsWith(">"))
+			id = id.substring(1, id.length() - 1);
+		if (id.startsWith(RESPONSE_ID_PREFIX))
+			id = id.substring(RESPONSE_ID_PREFIX.length());
+		return id;
+	}
+
+	/**
+	 * An {@link co.tophe.HttpEngine} for a request sent in a batch.
+	 * <p>{@link #call()} blocks until the batch response is received, then parses the response of the request
+	 * with its own {@link co.tophe.ResponseHandler}.</p>
+	 *
+	 * @param <T>  type of the object returned from the request after parsing the response body.
+	 * @param <SE> type of exception raised when a server-generated error is returned in the response.
+	 */
+	public static class BatchedCall<T, SE extends ServerException> implements HttpEngine<T, SE> {
+		private final HttpBatcher batcher;
+		private final TypedHttpRequest<T, SE> request;
+		private final Headers extraHeaders = new Headers();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile HttpResponseBatchPart response;
+		private volatile HttpException failure;
+		private volatile boolean alone;
+		private volatile HttpEngine<T, SE> aloneEngine;
+		private volatile boolean cancelled;
+		String contentId;
+
+		BatchedCall(HttpBatcher batcher, TypedHttpRequest<T, SE> request) {
+			this.batcher = batcher;
+			this.request = request;
+		}
+
+		@Override
+		public T call() throws SE, HttpException {
+			if (isDone() && null != failure)
+				throw failure;
+			batcher.enqueueAndWait(this);
+			if (null != failure)
+				throw failure;
+			if (alone)
+				return callAlone();
+
+			ResponseHandler<T, SE> responseHandler = request.getResponseHandler();
+			try {
+				responseHandler.onHttpResponse(request, response);
+				if (AbstractHttpEngine.isHttpError(response))
+					throw responseHandler.errorParser.transformData(response, this);
+				return responseHandler.contentParser.transformData(response, this);
+
+			} catch (ParserException e) {
+				if (e.getCause() instanceof HttpException)
+					throw (HttpException) e.getCause();
+				throw new HttpDataParserException.Builder(request, response, e).build();
+
+			} catch (IOException e) {
+				throw new HttpIOException.Builder(request, response)
+						.setErrorMessage("IO error " + e.getMessage())
+						.setCause(e)
+						.build();
+			}
+		}
+
+		private T callAlone() throws SE, HttpException {
+			HttpEngine<T, SE> engine = new HttpEngine.Builder<T, SE>()
+					.setTypedRequest(request)
+					.build();
+			for (int i = 0; i < extraHeaders.size(); ++i) {
+				engine.setHeader(extraHeaders.getName(i), extraHeaders.getValue(i));
+			}
+			aloneEngine = engine;
+			if (cancelled)
+				engine.cancel();
+			return engine.call();
+		}
+
+		void awaitResponse() {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				setFailure(new HttpException.Builder(request, null).setErrorMessage("interrupted").setCause(e).build());
+			}
+		}
+
+		boolean isDone() {
+			return 0 == done.getCount();
+		}
+
+		synchronized void setResponse(HttpResponseBatchPart response) {
+			if (!isDone()) {
+				this.response = response;
+				done.countDown();
+			}
+		}
+
+		synchronized void setFailure(HttpException failure) {
+			if (!isDone()) {
+				this.failure = failure;
+				done.countDown();
+			}
+		}
+
+		synchronized void sendAlone() {
+			if (!isDone()) {
+				this.alone = true;
+				done.countDown();
+			}
+		}
+
+		/**
+		 * @return the {@code Content-ID} of the request in the batch.
+		 */
+		String getContentId() {
+			return contentId;
+		}
+
+		/**
+		 * @return the headers of the request with the ones set on this engine.
+		 */
+		@NonNull
+		Header[] getAllHeaders() {
+			if (0 == extraHeaders.size())
+				return request.getAllHeaders();
+			Headers allHeaders = new Headers(request.getAllHeaders());
+			for (int i = 0; i < extraHeaders.size(); ++i) {
+				allHeaders.set(extraHeaders.getName(i), extraHeaders.getValue(i));
+			}
+			return allHeaders.toArray();
+		}
+
+		/**
+		 * Abort the request, it's not sent if the batch is not sent yet, otherwise its response is ignored.
+		 */
+		@Override
+		public void cancel() {
+			cancelled = true;
+			setFailure(new HttpException.Builder(request, null).setErrorMessage("cancelled").build());
+			HttpEngine<T, SE> engine = aloneEngine;
+			if (null != engine)
+				engine.cancel();
+		}
+
+		@NonNull
+		@Override
+		public ResponseHandler<T, SE> getResponseHandler() {
+			return request.getResponseHandler();
+		}
+
+		@Override
+		public void setHeader(@NonNull String name, @Nullable String value) {
+			extraHeaders.set(name, value);
+		}
+
+		@NonNull
+		@Override
+		public String getHeader(String name) {
+			String value = extraHeaders.get(name);
+			return null != value ? value : request.getHeader(name);
+		}
+
+		@Override
+		public HttpRequestInfo getHttpRequest() {
+			return request;
+		}
+
+		@Nullable
+		@Override
+		public HttpResponse getHttpResponse() {
+			return response;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package co.tophe.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import co.tophe.Header;
+import co.tophe.HttpRequestInfo;
+import co.tophe.UploadProgressListener;
+import co.tophe.body.HttpBodyParameters;
+
+/**
+ * HTTP body holding several HTTP requests encoded as {@code application/http} parts of a {@code multipart/mixed} body.
+ */
+final class HttpBodyBatch implements HttpBodyParameters {
+	private static final String CRLF = "\r\n";
+	private static final String charset = "UTF-8";
+
+	private final String boundary;
+	private final byte[] body;
+
+	HttpBodyBatch(@NonNull String boundary, @NonNull List<? extends HttpBatcher.BatchedCall<?, ?>> calls) throws IOException {
+		this.boundary = boundary;
+		ByteArrayOutputStream output = new ByteArrayOutputStream(256 * calls.size());
+		for (HttpBatcher.BatchedCall<?, ?> call : calls) {
+			writePart(output, call);
+		}
+		writeAscii(output, "--" + boundary + "--" + CRLF);
+		this.body = output.toByteArray();
+	}
+
+	private void writePart(ByteArrayOutputStream output, HttpBatcher.BatchedCall<?, ?> call) throws IOException {
+		HttpRequestInfo request = call.getHttpRequest();
+		StringBuilder part = new StringBuilder(256);
+		part.append("--").append(boundary).append(CRLF);
+		part.append("Content-Type: application/http").append(CRLF);
+		part.append("Content-ID: <").append(call.getContentId()).append('>').append(CRLF);
+		part.append(CRLF);
+
+		Uri uri = request.getUri();
+		part.append(request.getHttpMethod()).append(' ');
+		String path = uri.getEncodedPath();
+		part.append(TextUtils.isEmpty(path) ? "/" : path);
+		String query = uri.getEncodedQuery();
+		if (!TextUtils.isEmpty(query))
+			part.append('?').append(query);
+		part.append(" HTTP/1.1").append(CRLF);
+
+		for (Header header : call.getAllHeaders()) {
+			part.append(header.getName()).append(": ").append(header.getValue()).append(CRLF);
+		}
+
+		HttpBodyParameters bodyParameters = request.getBodyParameters();
+		if (null == bodyParameters) {
+			part.append(CRLF);
+			writeAscii(output, part);
+		} else {
+			ByteArrayOutputStream partBody = new ByteArrayOutputStream();
+			bodyParameters.writeBodyTo(partBody, request, null);
+			part.append("Content-Type: ").append(bodyParameters.getContentType()).append(CRLF);
+			part.append("Content-Length: ").append(partBody.size()).append(CRLF);
+			part.append(CRLF);
+			writeAscii(output, part);
+			partBody.writeTo(output);
+		}
+		writeAscii(output, CRLF);
+	}
+
+	private static void writeAscii(OutputStream output, CharSequence value) throws IOException {
+		output.write(value.toString().getBytes(charset));
+	}
+
+	/**
+	 * Do not use, parameters cannot be added to a batch
+	 * @throws IllegalAccessError
+	 */
+	@Deprecated
+	@Override
+	public void add(@NonNull String name, String value) {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Do not use, parameters cannot be added to a batch
+	 * @throws IllegalAccessError
+	 */
+	@Deprecated
+	@Override
+	public void add(@NonNull String name, boolean b) {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Do not use, parameters cannot be added to a batch
+	 * @throws IllegalAccessError
+	 */
+	@Deprecated
+	@Override
+	public void add(@NonNull String name, int value) {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Do not use, parameters cannot be added to a batch
+	 * @throws IllegalAccessError
+	 */
+	@Deprecated
+	@Override
+	public void add(@NonNull String name, long value) {
+		throw new IllegalAccessError();
+	}
+
+	@Override
+	public String getContentType() {
+		return "multipart/mixed; boundary=" + boundary;
+	}
+
+	@Override
+	public long getContentLength() {
+		return body.length;
+	}
+
+	@Override
+	public void writeBodyTo(OutputStream output, HttpRequestInfo request, UploadProgressListener progressListener) throws IOException {
+		output.write(body);
+	}
+}
@@ -0,0 +1,105 @@
+package co.tophe.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.HttpResponse;
+
+/**
+ * {@link co.tophe.HttpResponse} of a single request found in a {@code multipart/mixed} batch response.
+ */
+final class HttpResponseBatchPart implements HttpResponse {
+	private final String contentId;
+	private final int responseCode;
+	private final String responseMessage;
+	private final Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+	private final byte[] body;
+
+	HttpResponseBatchPart(@Nullable String contentId, int responseCode, @Nullable String responseMessage, @NonNull List<String> headerLines, @NonNull byte[] body) {
+		this.contentId = contentId;
+		this.responseCode = responseCode;
+		this.responseMessage = responseMessage;
+		this.body = body;
+		for (String line : headerLines) {
+			int colon = line.indexOf(':');
+			if (colon <= 0)
+				continue;
+			String name = line.substring(0, colon).trim();
+			List<String> values = headers.get(name);
+			if (null == values) {
+				values = new ArrayList<String>(1);
+				headers.put(name, values);
+			}
+			values.add(line.substring(colon + 1).trim());
+		}
+	}
+
+	/**
+	 * @return the {@code Content-ID} of the part, or {@code null} if the part doesn't have one.
+	 */
+	@Nullable
+	String getContentId() {
+		return contentId;
+	}
+
+	@Nullable
+	@Override
+	public String getContentType() {
+		return getHeaderField("Content-Type");
+	}
+
+	@Override
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	@Nullable
+	@Override
+	public String getHeaderField(String name) {
+		List<String> values = headers.get(name);
+		return null == values || values.isEmpty() ? null : values.get(values.size() - 1);
+	}
+
+	@Override
+	public int getContentLength() {
+		return body.length;
+	}
+
+	@Override
+	public String getResponseMessage() {
+		return responseMessage;
+	}
+
+	@Nullable
+	@Override
+	public String getContentEncoding() {
+		return getHeaderField("Content-Encoding");
+	}
+
+	@Override
+	public void disconnect() {
+	}
+
+	@Override
+	public InputStream getContentStream() {
+		return new ByteArrayInputStream(body);
+	}
+
+	@Override
+	public String toString() {
+		return "HttpResponseBatchPart{" + contentId + ' ' + responseCode + '}';
+	}
+}
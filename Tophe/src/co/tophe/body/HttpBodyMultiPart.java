@@ -316,6 +316,17 @@ public class HttpBodyMultiPart implements HttpBodyParameters {
 		return "multipart/form-data; boundary="+boundary;
 	}
 
+	/**
+	 * @return whether the body can be written again, ie it doesn't contain an {@link InputStream}.
+	 */
+	public boolean isReplayable() {
+		for (int i = 0; i < mParams.size(); ++i) {
+			if (mParams.get(i).value instanceof InputStream)
+				return false;
+		}
+		return true;
+	}
+
 	protected static class HttpParam {
 		private static final String TEXT_PLAIN = "text/plain; charset=UTF-8";
 
@@ -5,22 +5,25 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 
 import org.apache.http.NameValuePair;
-import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicNameValuePair;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import co.tophe.HttpRequestInfo;
 import co.tophe.UploadProgressListener;
+import co.tophe.utils.PercentEncodedWriter;
+import co.tophe.utils.PercentEncoder;
 
 /**
  * HTTP body class with data sent as {@code form-urlencoded}
+ * <p>The parameters are encoded with {@link co.tophe.utils.PercentEncoder#FORM} directly into the request stream.</p>
  */
 public class HttpBodyUrlEncoded implements HttpBodyParameters {
 
 	protected final ArrayList<NameValuePair> mParams;
-	private byte[] encodedParams;
-	private static final String CONTENT_TYPE = URLEncodedUtils.CONTENT_TYPE + "; charset=utf-8";
+	private long contentLength = -1L;
+	private static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
 
 	/**
 	 * Basic constructor
@@ -45,14 +48,6 @@ public class HttpBodyUrlEncoded implements HttpBodyParameters {
 		this.mParams = new ArrayList<NameValuePair>(copy.mParams);
 	}
 
-	private byte[] getEncodedParams() {
-		if (null==encodedParams) {
-			encodedParams = URLEncodedUtils.format(mParams, "UTF-8")/*.replace("*", "∗")*/.getBytes();
-			mParams.clear();
-		}
-		return encodedParams;
-	}
-
 	@Override
 	public String getContentType() {
 		return CONTENT_TYPE;
@@ -60,17 +55,64 @@ public class HttpBodyUrlEncoded implements HttpBodyParameters {
 
 	@Override
 	public long getContentLength() {
-		return getEncodedParams().length;
+		if (contentLength < 0) {
+			long length = 0;
+			for (int i = 0; i < mParams.size(); ++i) {
+				NameValuePair param = mParams.get(i);
+				if (i != 0)
+					length++; // '&'
+				length += PercentEncoder.FORM.encodedLength(param.getName()) + 1;
+				if (null != param.getValue())
+					length += PercentEncoder.FORM.encodedLength(param.getValue());
+			}
+			contentLength = length;
+		}
+		return contentLength;
 	}
 
 	@Override
 	public void writeBodyTo(OutputStream output, HttpRequestInfo request, UploadProgressListener progressListener) throws IOException {
-		output.write(getEncodedParams());
+		PercentEncodedWriter writer = new PercentEncodedWriter(output);
+		for (int i = 0; i < mParams.size(); ++i) {
+			NameValuePair param = mParams.get(i);
+			if (i != 0)
+				writer.append('&');
+			writer.append(PercentEncoder.FORM, param.getName()).append('=');
+			if (null != param.getValue())
+				writer.append(PercentEncoder.FORM, param.getValue());
+		}
+		writer.flush();
+	}
+
+	/**
+	 * @return the number of parameters in the body.
+	 */
+	public int getParameterCount() {
+		return mParams.size();
+	}
+
+	/**
+	 * @param index the index of the parameter, in the order they were added.
+	 * @return the name of the parameter, not encoded.
+	 */
+	@NonNull
+	public String getParameterName(int index) {
+		return mParams.get(index).getName();
+	}
+
+	/**
+	 * @param index the index of the parameter, in the order they were added.
+	 * @return the value of the parameter, not encoded.
+	 */
+	@Nullable
+	public String getParameterValue(int index) {
+		return mParams.get(index).getValue();
 	}
 
 	@Override
 	public void add(@NonNull String name, String value) {
 		mParams.add(new BasicNameValuePair(name, value));
+		contentLength = -1L;
 	}
 
 	@Override
@@ -0,0 +1,338 @@
+package co.tophe.cookie;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.utils.DateUtils;
+import co.tophe.utils.HeaderParser;
+
+/**
+ * An HTTP cookie received in a {@code Set-Cookie} header.
+ * <p>The domain, the path and the expiration time are resolved when the cookie is received so matching it with a
+ * request only compares strings and numbers.</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc6265">RFC 6265</a>
+ */
+public final class Cookie {
+
+	/**
+	 * Expiration time of a session cookie, it's never written to the journal.
+	 */
+	static final long SESSION = Long.MAX_VALUE;
+
+	/**
+	 * Generic second level domains used under country codes, like {@code co.uk} or {@code com.au}.
+	 */
+	private static final Set<String> COUNTRY_SECOND_LEVELS = new HashSet<String>(Arrays.asList(
+			"ac", "co", "com", "edu", "gob", "gov", "ltd", "mil", "ne", "net", "nom", "or", "org", "plc", "sch"));
+
+	private final String name;
+	private final String value;
+	private final String domain;
+	private final String path;
+	private final long expiresAt;
+	private final long creationTime;
+	private final boolean hostOnly;
+	private final boolean secure;
+	private final boolean httpOnly;
+
+	Cookie(String name, String value, String domain, String path, long expiresAt, long creationTime, boolean hostOnly, boolean secure, boolean httpOnly) {
+		this.name = name;
+		this.value = value;
+		this.domain = domain;
+		this.path = path;
+		this.expiresAt = expiresAt;
+		this.creationTime = creationTime;
+		this.hostOnly = hostOnly;
+		this.secure = secure;
+		this.httpOnly = httpOnly;
+	}
+
+	/**
+	 * Parse the value of a {@code Set-Cookie} header.
+	 *
+	 * @param setCookie   the header value.
+	 * @param requestHost the host of the request that received the cookie.
+	 * @param requestPath the path of the request that received the cookie.
+	 * @param now         the current time in milliseconds.
+	 * @return the cookie or {@code null} if it's invalid or set for a domain the request host can't set cookies for.
+	 */
+	@Nullable
+	public static Cookie parse(@NonNull String setCookie, @NonNull String requestHost, @Nullable String requestPath, long now) {
+		int end = setCookie.indexOf(';');
+		if (end < 0)
+			end = setCookie.length();
+		int equal = setCookie.indexOf('=');
+		if (equal < 0 || equal > end)
+			return null;
+		String name = setCookie.substring(0, equal).trim();
+		String value = setCookie.substring(equal + 1, end).trim();
+		if (name.length() == 0 || hasControlChar(name) || hasControlChar(value))
+			return null;
+
+		requestHost = requestHost.toLowerCase(Locale.US);
+		String domain = null;
+		String path = null;
+		long expires = DateUtils.INVALID_DATE;
+		long maxAge = DateUtils.INVALID_DATE;
+		boolean secure = false;
+		boolean httpOnly = false;
+
+		while (end < setCookie.length()) {
+			int start = end + 1;
+			end = setCookie.indexOf(';', start);
+			if (end < 0)
+				end = setCookie.length();
+			int attrEqual = setCookie.indexOf('=', start);
+			String attrName;
+			String attrValue;
+			if (attrEqual < 0 || attrEqual > end) {
+				attrName = setCookie.substring(start, end).trim();
+				attrValue = "";
+			} else {
+				attrName = setCookie.substring(start, attrEqual).trim();
+				attrValue = setCookie.substring(attrEqual + 1, end).trim();
+			}
+
+			if ("expires".equalsIgnoreCase(attrName)) {
+				expires = DateUtils.parseHttpDate(attrValue);
+			} else if ("max-age".equalsIgnoreCase(attrName)) {
+				if (attrValue.startsWith("-")) {
+					if (HeaderParser.parseSeconds(attrValue, 1, attrValue.length()) >= 0)
+						maxAge = 0L; // already expired
+				} else {
+					int seconds = HeaderParser.parseSeconds(attrValue, 0, attrValue.length());
+					if (seconds == 0)
+						maxAge = 0L; // already expired
+					else if (seconds > 0)
+						maxAge = now + seconds * 1000L;
+				}
+			} else if ("domain".equalsIgnoreCase(attrName)) {
+				if (attrValue.startsWith("."))
+					attrValue = attrValue.substring(1);
+				if (attrValue.length() != 0 && !hasControlChar(attrValue))
+					domain = attrValue.toLowerCase(Locale.US);
+			} else if ("path".equalsIgnoreCase(attrName)) {
+				if (attrValue.startsWith("/") && !hasControlChar(attrValue))
+					path = attrValue;
+			} else if ("secure".equalsIgnoreCase(attrName)) {
+				secure = true;
+			} else if ("httponly".equalsIgnoreCase(attrName)) {
+				httpOnly = true;
+			}
+		}
+
+		boolean hostOnly = null == domain;
+		if (hostOnly) {
+			domain = requestHost;
+		} else if (!domain.equals(requestHost)) {
+			// without a public suffix list only the registrable domain of the host and its subdomains are accepted
+			String registrable = getRegistrableDomain(requestHost);
+			if (null == registrable || !domainMatches(requestHost, domain) || !domainMatches(domain, registrable))
+				return null;
+		}
+
+		if (null == path)
+			path = getDefaultPath(requestPath);
+
+		long expiresAt;
+		if (maxAge != DateUtils.INVALID_DATE)
+			expiresAt = maxAge;
+		else if (expires != DateUtils.INVALID_DATE)
+			expiresAt = expires;
+		else
+			expiresAt = SESSION;
+
+		return new Cookie(name, value, domain, path, expiresAt, now, hostOnly, secure, httpOnly);
+	}
+
+	private static boolean hasControlChar(String value) {
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c == 0x7F)
+				return true;
+		}
+		return false;
+	}
+
+	private static String getDefaultPath(@Nullable String requestPath) {
+		if (null == requestPath || !requestPath.startsWith("/"))
+			return "/";
+		int lastSlash = requestPath.lastIndexOf('/');
+		if (lastSlash == 0)
+			return "/";
+		return requestPath.substring(0, lastSlash);
+	}
+
+	/**
+	 * @return whether the {@code host} is an IPv4 or IPv6 address.
+	 */
+	static boolean isIpAddress(String host) {
+		if (host.indexOf(':') >= 0)
+			return true;
+		for (int i = 0; i < host.length(); ++i) {
+			char c = host.charAt(i);
+			if ((c < '0' || c > '9') && c != '.')
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Guess the domain a site can set cookies for from the {@code host}, its last two labels or its last three labels
+	 * when it's under a generic second level domain of a country, like {@code co.uk} or {@code com.au}.
+	 *
+	 * @return the registrable domain or {@code null} if the {@code host} is an IP address or has too few labels.
+	 */
+	@Nullable
+	static String getRegistrableDomain(String host) {
+		if (isIpAddress(host))
+			return null;
+		int last = host.lastIndexOf('.');
+		if (last <= 0)
+			return null;
+		int previous = host.lastIndexOf('.', last - 1);
+		if (host.length() - last - 1 == 2 && COUNTRY_SECOND_LEVELS.contains(host.substring(previous + 1, last))) {
+			// a country code with a generic second level domain
+			if (previous <= 0)
+				return null;
+			previous = host.lastIndexOf('.', previous - 1);
+		}
+		return previous < 0 ? host : host.substring(previous + 1);
+	}
+
+	static boolean domainMatches(String host, String domain) {
+		if (host.equals(domain))
+			return true;
+		return host.endsWith(domain)
+				&& host.charAt(host.length() - domain.length() - 1) == '.'
+				&& !isIpAddress(host);
+	}
+
+	/**
+	 * @return whether the cookie should be sent to the {@code host}, in lower case.
+	 */
+	boolean matchesHost(String host) {
+		return hostOnly ? host.equals(domain) : domainMatches(host, domain);
+	}
+
+	/**
+	 * @return whether the cookie should be sent for the {@code requestPath}.
+	 */
+	boolean matchesPath(String requestPath) {
+		if (!requestPath.startsWith(path))
+			return false;
+		return requestPath.length() == path.length()
+				|| path.charAt(path.length() - 1) == '/'
+				|| requestPath.charAt(path.length()) == '/';
+	}
+
+	boolean isExpired(long now) {
+		return expiresAt <= now;
+	}
+
+	/**
+	 * @return whether {@code other} replaces this cookie.
+	 */
+	boolean isSameCookie(Cookie other) {
+		return name.equals(other.name) && domain.equals(other.domain) && path.equals(other.path);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the domain of the cookie, in lower case and without a leading dot.
+	 */
+	public String getDomain() {
+		return domain;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the expiration time in milliseconds, {@link Long#MAX_VALUE} for a session cookie.
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	long getCreationTime() {
+		return creationTime;
+	}
+
+	/**
+	 * @return whether the cookie is kept after the application is closed.
+	 */
+	public boolean isPersistent() {
+		return expiresAt != SESSION;
+	}
+
+	/**
+	 * @return whether the cookie is only sent to the host that set it and not its subdomains.
+	 */
+	public boolean isHostOnly() {
+		return hostOnly;
+	}
+
+	public boolean isSecure() {
+		return secure;
+	}
+
+	public boolean isHttpOnly() {
+		return httpOnly;
+	}
+
+	/**
+	 * @return the cookie as a tab separated line, the name and value never contain a tab.
+	 * @see #fromJournalLine(String)
+	 */
+	String toJournalLine() {
+		StringBuilder sb = new StringBuilder(name.length() + value.length() + domain.length() + path.length() + 48);
+		sb.append(name).append('\t')
+				.append(value).append('\t')
+				.append(domain).append('\t')
+				.append(path).append('\t')
+				.append(expiresAt).append('\t')
+				.append(creationTime).append('\t');
+		if (hostOnly) sb.append('h');
+		if (secure) sb.append('s');
+		if (httpOnly) sb.append('o');
+		return sb.toString();
+	}
+
+	/**
+	 * @return the cookie read from the {@code line} or {@code null} if the line is invalid.
+	 * @see #toJournalLine()
+	 */
+	@Nullable
+	static Cookie fromJournalLine(String line) {
+		String[] fields = line.split("\t", -1);
+		if (fields.length != 7)
+			return null;
+		try {
+			String flags = fields[6];
+			return new Cookie(fields[0], fields[1], fields[2], fields[3], Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+					flags.indexOf('h') >= 0, flags.indexOf('s') >= 0, flags.indexOf('o') >= 0);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Cookie{" + name + " for " + domain + path + '}';
+	}
+}
@@ -0,0 +1,144 @@
+package co.tophe.cookie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Append-only file where the changes of the persistent cookies are written.
+ * <p>Each line adds ({@code +}) or removes ({@code -}) a cookie. The file is rewritten with only the live cookies
+ * when it contains too many obsolete lines.</p>
+ */
+final class CookieJournal {
+
+	private static final String CHARSET = "UTF-8";
+	private static final int MIN_COMPACTION_LINES = 100;
+
+	private final File file;
+	private Writer writer;
+	private int lineCount;
+
+	CookieJournal(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Replay the journal.
+	 *
+	 * @param now the current time in milliseconds.
+	 * @return the cookies in the journal that are not expired.
+	 * @throws IOException if the journal exists but cannot be read.
+	 */
+	synchronized List<Cookie> load(long now) throws IOException {
+		LinkedHashMap<String, Cookie> cookies = new LinkedHashMap<String, Cookie>();
+		lineCount = 0;
+		BufferedReader reader;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+		} catch (FileNotFoundException e) {
+			return new ArrayList<Cookie>();
+		}
+		try {
+			for (String line; null != (line = reader.readLine()); ) {
+				++lineCount;
+				if (line.length() == 0)
+					continue;
+				char op = line.charAt(0);
+				if ('+' == op) {
+					Cookie cookie = Cookie.fromJournalLine(line.substring(1));
+					if (null != cookie)
+						cookies.put(getKey(cookie), cookie);
+				} else if ('-' == op) {
+					cookies.remove(line.substring(1));
+				}
+				// other lines, like one truncated by a crash, are ignored
+			}
+		} finally {
+			reader.close();
+		}
+
+		List<Cookie> result = new ArrayList<Cookie>(cookies.size());
+		for (Cookie cookie : cookies.values()) {
+			if (!cookie.isExpired(now))
+				result.add(cookie);
+		}
+		return result;
+	}
+
+	private static String getKey(Cookie cookie) {
+		return cookie.getDomain() + '\t' + cookie.getPath() + '\t' + cookie.getName();
+	}
+
+	synchronized void add(Cookie cookie) throws IOException {
+		append('+' + cookie.toJournalLine());
+	}
+
+	synchronized void remove(Cookie cookie) throws IOException {
+		append('-' + getKey(cookie));
+	}
+
+	private void append(String line) throws IOException {
+		if (null == writer)
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), CHARSET));
+		writer.write(line);
+		writer.write('\n');
+		writer.flush();
+		++lineCount;
+	}
+
+	/**
+	 * @param liveCount the number of persistent cookies, the expired cookies not removed yet may be counted.
+	 * @return whether the journal has enough obsolete lines to be compacted.
+	 */
+	synchronized boolean needsCompaction(int liveCount) {
+		return lineCount >= MIN_COMPACTION_LINES && lineCount > 2 * liveCount;
+	}
+
+	/**
+	 * Rewrite the journal with only the {@code cookies}.
+	 * <p>The new journal is written in a temporary file that replaces the journal when it's complete.</p>
+	 */
+	synchronized void compact(Collection<Cookie> cookies) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		Writer tempWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), CHARSET));
+		try {
+			for (Cookie cookie : cookies) {
+				tempWriter.write('+' + cookie.toJournalLine());
+				tempWriter.write('\n');
+			}
+		} finally {
+			tempWriter.close();
+		}
+
+		close();
+		if (!tempFile.renameTo(file)) {
+			// some filesystems don't replace an existing file
+			if (!file.delete() || !tempFile.renameTo(file)) {
+				tempFile.delete();
+				throw new IOException("failed to replace " + file);
+			}
+		}
+		lineCount = cookies.size();
+	}
+
+	synchronized void close() throws IOException {
+		if (null != writer) {
+			try {
+				writer.close();
+			} finally {
+				writer = null;
+			}
+		}
+	}
+}
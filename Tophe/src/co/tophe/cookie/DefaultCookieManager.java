@@ -0,0 +1,415 @@
+package co.tophe.cookie;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import co.tophe.CookieManager;
+import co.tophe.HttpEngine;
+import co.tophe.HttpResponse;
+import co.tophe.ImmutableHttpRequest;
+import co.tophe.async.AsyncTopheClient;
+import co.tophe.log.LogManager;
+
+/**
+ * A {@link co.tophe.CookieManager} keeping the cookies in memory and optionally in a journal file.
+ * <p>The cookies are grouped by domain, a request only looks at the cookies of its own domain. The {@code Cookie}
+ * header sent to a host and path is kept until the cookies of the domain change or one of the cookies it contains expires.</p>
+ * <p>The persistent cookies are appended to the journal as they are received. The journal is rewritten in the background
+ * when it contains too many obsolete entries.</p>
+ * <p>Set it with {@link co.tophe.TopheClient#setCookieManager(co.tophe.CookieManager)}. It is safe to use from multiple threads.</p>
+ *
+ * @see co.tophe.cookie.DefaultCookieManager.Builder
+ */
+public class DefaultCookieManager implements CookieManager, Closeable {
+
+	private static final String HEADER_COOKIE = "Cookie";
+	private static final String HEADER_SET_COOKIE = "Set-Cookie";
+	private static final int MAX_CACHED_HEADERS = 64;
+	private static final Cookie[] NO_COOKIES = new Cookie[0];
+
+	/**
+	 * Builder for a {@link co.tophe.cookie.DefaultCookieManager}.
+	 */
+	public static class Builder {
+		private File journalFile;
+		private Executor executor = AsyncTopheClient.getExecutor();
+		private int maxCookiesPerDomain = 50;
+
+		public Builder() {
+		}
+
+		/**
+		 * Keep the persistent cookies in a journal file. By default the cookies are only kept in memory.
+		 *
+		 * @param journalFile the file where the cookies are written, {@code null} to not keep them.
+		 * @return the Builder.
+		 */
+		public Builder setJournal(@Nullable File journalFile) {
+			this.journalFile = journalFile;
+			return this;
+		}
+
+		/**
+		 * Set the {@link java.util.concurrent.Executor} used to compact the journal, the
+		 * {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor} by default.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setExecutor(@NonNull Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of cookies kept for a domain, 50 by default. The oldest cookies are dropped first.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setMaxCookiesPerDomain(int maxCookiesPerDomain) {
+			if (maxCookiesPerDomain < 1) throw new IllegalArgumentException("invalid number of cookies " + maxCookiesPerDomain);
+			this.maxCookiesPerDomain = maxCookiesPerDomain;
+			return this;
+		}
+
+		/**
+		 * Build the cookie manager, the cookies in the journal are read right away.
+		 *
+		 * @throws IOException if the journal cannot be read.
+		 */
+		public DefaultCookieManager build() throws IOException {
+			return new DefaultCookieManager(this);
+		}
+	}
+
+	/**
+	 * The {@code Cookie} header value for a host and path, valid until the cookies of the domain change or {@code validUntil}.
+	 */
+	private static final class CachedHeader {
+		final Cookie[] source;
+		@Nullable
+		final String value;
+		final long validUntil;
+
+		CachedHeader(Cookie[] source, @Nullable String value, long validUntil) {
+			this.source = source;
+			this.value = value;
+			this.validUntil = validUntil;
+		}
+	}
+
+	/**
+	 * The cookies of a domain sorted with the longest paths first, as they should be sent. The array is replaced on each change.
+	 */
+	private static final class DomainCookies {
+		volatile Cookie[] cookies = NO_COOKIES;
+		final ConcurrentHashMap<String, CachedHeader> headers = new ConcurrentHashMap<String, CachedHeader>();
+		private final AtomicInteger persistentCount;
+
+		/**
+		 * @param persistentCount the number of persistent cookies of all the domains, updated on each change.
+		 */
+		DomainCookies(AtomicInteger persistentCount) {
+			this.persistentCount = persistentCount;
+		}
+
+		/**
+		 * Add the {@code cookie}, or remove the cookie it replaces if it's expired.
+		 *
+		 * @return the cookie replaced by {@code cookie} or {@code null}.
+		 */
+		@Nullable
+		synchronized Cookie put(Cookie cookie, long now, int maxCookies) {
+			Cookie[] current = cookies;
+			ArrayList<Cookie> updated = new ArrayList<Cookie>(current.length + 1);
+			Cookie replaced = null;
+			for (Cookie existing : current) {
+				if (existing.isSameCookie(cookie))
+					replaced = existing;
+				else if (!existing.isExpired(now))
+					updated.add(existing);
+			}
+
+			if (!cookie.isExpired(now)) {
+				int index = 0;
+				int pathLength = cookie.getPath().length();
+				while (index < updated.size() && updated.get(index).getPath().length() >= pathLength) {
+					++index;
+				}
+				updated.add(index, cookie);
+
+				while (updated.size() > maxCookies) {
+					int oldest = -1;
+					for (int i = 0; i < updated.size(); ++i) {
+						Cookie candidate = updated.get(i);
+						if (candidate != cookie && (oldest < 0 || candidate.getCreationTime() < updated.get(oldest).getCreationTime()))
+							oldest = i;
+					}
+					updated.remove(oldest);
+				}
+			}
+
+			setCookies(updated);
+			return replaced;
+		}
+
+		synchronized void removeExpired(long now) {
+			Cookie[] current = cookies;
+			ArrayList<Cookie> updated = new ArrayList<Cookie>(current.length);
+			for (Cookie existing : current) {
+				if (!existing.isExpired(now))
+					updated.add(existing);
+			}
+			if (updated.size() != current.length)
+				setCookies(updated);
+		}
+
+		private void setCookies(List<Cookie> updated) {
+			Cookie[] current = cookies;
+			cookies = updated.toArray(NO_COOKIES);
+			headers.clear();
+			persistentCount.addAndGet(countPersistent(cookies) - countPersistent(current));
+		}
+
+		private static int countPersistent(Cookie[] cookies) {
+			int count = 0;
+			for (Cookie cookie : cookies) {
+				if (cookie.isPersistent())
+					++count;
+			}
+			return count;
+		}
+
+		@Nullable
+		String getHeader(String host, String path, boolean secure, long now) {
+			Cookie[] current = cookies;
+			String key = (secure ? "s:" : ":") + host + path;
+			CachedHeader cached = headers.get(key);
+			if (null != cached && cached.source == current && now < cached.validUntil)
+				return cached.value;
+
+			StringBuilder header = null;
+			long validUntil = Long.MAX_VALUE;
+			boolean hasExpired = false;
+			for (Cookie cookie : current) {
+				if (cookie.isExpired(now)) {
+					hasExpired = true;
+					continue;
+				}
+				if (!cookie.matchesHost(host) || !cookie.matchesPath(path) || (cookie.isSecure() && !secure))
+					continue;
+				if (null == header)
+					header = new StringBuilder();
+				else
+					header.append("; ");
+				header.append(cookie.getName()).append('=').append(cookie.getValue());
+				validUntil = Math.min(validUntil, cookie.getExpiresAt());
+			}
+
+			String value = null == header ? null : header.toString();
+			if (hasExpired) {
+				removeExpired(now);
+			} else {
+				if (headers.size() >= MAX_CACHED_HEADERS)
+					headers.clear();
+				headers.put(key, new CachedHeader(current, value, validUntil));
+			}
+			return value;
+		}
+	}
+
+	private final ConcurrentHashMap<String, DomainCookies> domains = new ConcurrentHashMap<String, DomainCookies>();
+	@Nullable
+	private final CookieJournal journal;
+	private final Executor executor;
+	private final int maxCookiesPerDomain;
+	private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+	private final AtomicInteger persistentCount = new AtomicInteger();
+
+	protected DefaultCookieManager(Builder builder) throws IOException {
+		this.executor = builder.executor;
+		this.maxCookiesPerDomain = builder.maxCookiesPerDomain;
+		if (null == builder.journalFile) {
+			this.journal = null;
+		} else {
+			this.journal = new CookieJournal(builder.journalFile);
+			long now = System.currentTimeMillis();
+			for (Cookie cookie : journal.load(now)) {
+				getDomainCookies(cookie.getDomain()).put(cookie, now, maxCookiesPerDomain);
+			}
+		}
+	}
+
+	/**
+	 * @return the key of the cookies of the {@code host}, its registrable domain or the host itself when it has none.
+	 * <p>Hosts that can share cookies always have the same key.</p>
+	 * @see co.tophe.cookie.Cookie#getRegistrableDomain(String)
+	 */
+	static String getDomainKey(String host) {
+		String registrable = Cookie.getRegistrableDomain(host);
+		return null == registrable ? host : registrable;
+	}
+
+	private DomainCookies getDomainCookies(String domain) {
+		String key = getDomainKey(domain);
+		DomainCookies domainCookies = domains.get(key);
+		if (null == domainCookies) {
+			domainCookies = new DomainCookies(persistentCount);
+			DomainCookies previous = domains.putIfAbsent(key, domainCookies);
+			if (null != previous)
+				domainCookies = previous;
+		}
+		return domainCookies;
+	}
+
+	@Override
+	public void setHttpEngineCookies(@NonNull HttpEngine<?, ?> engine) {
+		String cookies = getCookieHeader(engine.getHttpRequest().getUri());
+		if (null != cookies) {
+			String existing = engine.getHeader(HEADER_COOKIE);
+			engine.setHeader(HEADER_COOKIE, TextUtils.isEmpty(existing) ? cookies : existing + "; " + cookies);
+		}
+	}
+
+	/**
+	 * @return the value of the {@code Cookie} header to send to the {@code uri}, {@code null} if there are no cookies to send.
+	 */
+	@Nullable
+	public String getCookieHeader(@NonNull Uri uri) {
+		String host = uri.getHost();
+		if (null == host)
+			return null;
+		host = host.toLowerCase(Locale.US);
+		DomainCookies domainCookies = domains.get(getDomainKey(host));
+		if (null == domainCookies)
+			return null;
+		String path = uri.getEncodedPath();
+		if (TextUtils.isEmpty(path))
+			path = "/";
+		return domainCookies.getHeader(host, path, "https".equalsIgnoreCase(uri.getScheme()), System.currentTimeMillis());
+	}
+
+	@Override
+	public void onCookiesReceived(@NonNull ImmutableHttpRequest request) throws IOException {
+		HttpResponse response = request.getHttpResponse();
+		if (null == response)
+			return;
+		Map<String, List<String>> headers = response.getHeaderFields();
+		if (null == headers)
+			return;
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (HEADER_SET_COOKIE.equalsIgnoreCase(header.getKey())) {
+				for (String setCookie : header.getValue()) {
+					setCookie(request.getHttpRequest().getUri(), setCookie);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set a cookie as if it was received from the {@code uri}.
+	 *
+	 * @param uri       the URI that sent the cookie.
+	 * @param setCookie the value of the {@code Set-Cookie} header.
+	 * @return {@code false} if the cookie is invalid or the {@code uri} is not allowed to set it.
+	 */
+	public boolean setCookie(@NonNull Uri uri, @NonNull String setCookie) {
+		String host = uri.getHost();
+		if (null == host)
+			return false;
+		long now = System.currentTimeMillis();
+		Cookie cookie = Cookie.parse(setCookie, host, uri.getEncodedPath(), now);
+		if (null == cookie)
+			return false;
+		if (cookie.isSecure() && !"https".equalsIgnoreCase(uri.getScheme()))
+			return false;
+
+		Cookie replaced = getDomainCookies(cookie.getDomain()).put(cookie, now, maxCookiesPerDomain);
+		if (null != journal) {
+			try {
+				if (cookie.isPersistent() && !cookie.isExpired(now))
+					journal.add(cookie);
+				else if (null != replaced && replaced.isPersistent())
+					journal.remove(replaced);
+			} catch (IOException e) {
+				LogManager.getLogger().w("failed to write the cookie journal", e);
+			}
+			compactIfNeeded();
+		}
+		return true;
+	}
+
+	/**
+	 * Remove all the cookies.
+	 */
+	public void removeAll() {
+		domains.clear();
+		persistentCount.set(0);
+		if (null != journal) {
+			try {
+				journal.compact(Collections.<Cookie>emptyList());
+			} catch (IOException e) {
+				LogManager.getLogger().w("failed to clear the cookie journal", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the persistent cookies that are not expired.
+	 */
+	private List<Cookie> getPersistentCookies(long now) {
+		List<Cookie> result = new ArrayList<Cookie>();
+		for (DomainCookies domainCookies : domains.values()) {
+			for (Cookie cookie : domainCookies.cookies) {
+				if (cookie.isPersistent() && !cookie.isExpired(now))
+					result.add(cookie);
+			}
+		}
+		return result;
+	}
+
+	private void compactIfNeeded() {
+		if (!journal.needsCompaction(persistentCount.get()))
+			return;
+		if (!compactionScheduled.compareAndSet(false, true))
+			return;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// no cookie can be written to the journal between the snapshot and the rewrite
+					synchronized (journal) {
+						journal.compact(getPersistentCookies(System.currentTimeMillis()));
+					}
+				} catch (IOException e) {
+					LogManager.getLogger().w("failed to compact the cookie journal", e);
+				} finally {
+					compactionScheduled.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Close the journal file, it's reopened if more cookies are received.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (null != journal)
+			journal.close();
+	}
+}
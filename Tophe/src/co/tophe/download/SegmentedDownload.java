@@ -0,0 +1,689 @@
+package co.tophe.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import co.tophe.BaseResponseHandler;
+import co.tophe.Header;
+import co.tophe.HttpConfig;
+import co.tophe.HttpEngine;
+import co.tophe.HttpEngineFactory;
+import co.tophe.HttpException;
+import co.tophe.HttpIOException;
+import co.tophe.HttpRequest;
+import co.tophe.HttpResponse;
+import co.tophe.ImmutableHttpRequest;
+import co.tophe.RawHttpRequest;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.async.AsyncTopheClient;
+import co.tophe.engine.HttpEngineFactoryUrlConnection;
+import co.tophe.log.LogManager;
+import co.tophe.parser.BodyToVoid;
+import co.tophe.parser.BodyTransformChain;
+import co.tophe.parser.ParserException;
+import co.tophe.parser.XferTransform;
+
+/**
+ * Download a large resource into a file using multiple connections in parallel, each one reading a byte range of the resource.
+ * <p>The resource is first probed with a {@code HEAD} request, or a one byte {@code Range} request if {@code HEAD} doesn't tell
+ * the size, to know if the server supports byte ranges. The destination file is preallocated and each range is written in its own
+ * region of the file. When a connection is done with its range, it takes over the second half of the range that has the longest
+ * estimated time left, so slow connections end up with less data to read.</p>
+ * <p>If the server doesn't support byte ranges the resource is downloaded with a single connection.</p>
+ * <p>It's a java {@link java.util.concurrent.Callable} so you can call {@link #call()} directly or use an
+ * {@link co.tophe.async.AsyncTask AsyncTask} to process it asynchronously.</p>
+ *
+ * @see co.tophe.download.SegmentedDownload.Builder
+ */
+public class SegmentedDownload implements Callable<File> {
+
+	private static final String HEADER_RANGE = "Range";
+	private static final String HEADER_IF_RANGE = "If-Range";
+	private static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	private static final String HEADER_ETAG = "ETag";
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
+	private static final int HTTP_PARTIAL_CONTENT = 206;
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int MAX_SEGMENT_ATTEMPTS = 2;
+
+	/**
+	 * Builder for a {@link co.tophe.download.SegmentedDownload}.
+	 */
+	public static class Builder {
+		private RawHttpRequest request;
+		private File destination;
+		private int segmentCount = 4;
+		private long minSegmentSize = 256 * 1024;
+		private Executor executor = AsyncTopheClient.getExecutor();
+		private HttpEngineFactory factory = HttpEngineFactoryUrlConnection.INSTANCE;
+		private int threadStatsTag;
+
+		public Builder() {
+		}
+
+		/**
+		 * Set the URL of the resource to download.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setUrl(@NonNull String url) {
+			return setRequest(new RawHttpRequest.Builder().setUrl(url).build());
+		}
+
+		/**
+		 * Set the {@link co.tophe.HttpRequest} used as a model for all the requests done by the download.
+		 * <p>Its URL, headers, {@link co.tophe.signed.RequestSigner} and {@link co.tophe.HttpConfig} are used. The HTTP method
+		 * and the body are not.</p>
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setRequest(@NonNull HttpRequest request) {
+			if (null != request && !(request instanceof RawHttpRequest)) throw new IllegalStateException("invalid RawRequest:" + request);
+			this.request = (RawHttpRequest) request;
+			return this;
+		}
+
+		/**
+		 * Set the file where the resource will be written. It is overwritten if it already exists.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setDestination(@NonNull File destination) {
+			this.destination = destination;
+			return this;
+		}
+
+		/**
+		 * Set the number of connections to use in parallel, 4 by default.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setSegmentCount(int segmentCount) {
+			if (segmentCount < 1) throw new IllegalArgumentException("invalid segment count " + segmentCount);
+			this.segmentCount = segmentCount;
+			return this;
+		}
+
+		/**
+		 * Set the minimum size of a byte range, to avoid splitting the resource in ranges too small to be worth a connection.
+		 * <p>256 KB by default.</p>
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setMinSegmentSize(long minSegmentSize) {
+			if (minSegmentSize < 1) throw new IllegalArgumentException("invalid segment size " + minSegmentSize);
+			this.minSegmentSize = minSegmentSize;
+			return this;
+		}
+
+		/**
+		 * Set the {@link java.util.concurrent.Executor} running the extra connections, {@link co.tophe.async.AsyncTopheClient#getExecutor()}
+		 * by default. The thread calling {@link #call()} also reads ranges.
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setExecutor(@NonNull Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Set the {@link co.tophe.HttpEngineFactory} creating the engine of each connection.
+		 * <p>By default {@link co.tophe.engine.HttpEngineFactoryUrlConnection} is used as it streams the data directly to the file.</p>
+		 *
+		 * @return the Builder.
+		 */
+		public Builder setHttpEngineFactory(@NonNull HttpEngineFactory factory) {
+			this.factory = factory;
+			return this;
+		}
+
+		/**
+		 * Set a tag to mark the connections of this download as belonging to a certain class of requests.
+		 *
+		 * @return the Builder.
+		 * @see co.tophe.HttpEngine.Builder#setThreadStatsTag(int)
+		 */
+		public Builder setThreadStatsTag(int threadStatsTag) {
+			this.threadStatsTag = threadStatsTag;
+			return this;
+		}
+
+		@NonNull
+		public SegmentedDownload build() {
+			if (null == request) throw new NullPointerException("missing a HttpRequest for the download");
+			if (null == destination) throw new NullPointerException("missing a destination for " + request);
+			if (null == executor) throw new NullPointerException("missing an executor for " + request);
+			if (null == factory) throw new NullPointerException("missing an engine factory for " + request);
+			return new SegmentedDownload(this);
+		}
+	}
+
+	/**
+	 * The resource doesn't match the one being downloaded anymore, reading the range again won't help.
+	 */
+	private static final class ResourceChangedException extends IOException {
+		private static final long serialVersionUID = -2315306372484928513L;
+
+		ResourceChangedException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * A byte range of the resource being read by a connection. {@code end} may be reduced when another connection takes over a
+	 * part of the range.
+	 */
+	private static final class Segment {
+		final long start;
+		final int attempt;
+		long position;
+		long end; // exclusive
+		long startTime;
+		volatile HttpEngine<?, ?> engine;
+
+		Segment(long start, long end, int attempt) {
+			this.start = start;
+			this.position = start;
+			this.end = end;
+			this.attempt = attempt;
+		}
+
+		synchronized long remaining() {
+			return end - position;
+		}
+
+		/**
+		 * @return the estimated time left to read this range, {@link Long#MAX_VALUE} if no data has been received yet.
+		 */
+		synchronized long estimatedTimeLeft(long now) {
+			long read = position - start;
+			if (read <= 0)
+				return Long.MAX_VALUE;
+			return (end - position) * Math.max(1L, now - startTime) / read;
+		}
+
+		/**
+		 * Write the data read at the current position of the range, the data past the end of the range are discarded.
+		 *
+		 * @return the amount of bytes written in the file.
+		 */
+		synchronized int write(FileChannel channel, byte[] buffer, int length) throws IOException {
+			int usable = (int) Math.min(length, end - position);
+			if (usable > 0) {
+				ByteBuffer data = ByteBuffer.wrap(buffer, 0, usable);
+				long writePosition = position;
+				while (data.hasRemaining()) {
+					writePosition += channel.write(data, writePosition);
+				}
+				position += usable;
+			}
+			return usable;
+		}
+
+		/**
+		 * Take over the second half of this range if it's big enough.
+		 *
+		 * @return the new range to read or {@code null}
+		 */
+		synchronized Segment split(long minSegmentSize) {
+			long remaining = end - position;
+			if (remaining < 2 * minSegmentSize)
+				return null;
+			long middle = position + remaining / 2;
+			Segment result = new Segment(middle, end, 0);
+			end = middle;
+			return result;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return "bytes=" + position + '-' + (end - 1);
+		}
+	}
+
+	private final RawHttpRequest request;
+	private final File destination;
+	private final int segmentCount;
+	private final long minSegmentSize;
+	private final Executor executor;
+	private final HttpEngineFactory factory;
+	private final int threadStatsTag;
+
+	private final LinkedList<Segment> pendingSegments = new LinkedList<Segment>();
+	private final List<Segment> activeSegments = new ArrayList<Segment>();
+	private FileChannel channel;
+	private String validator;
+	private long totalLength = -1L;
+	private long writtenLength;
+	private Exception error;
+
+	protected SegmentedDownload(Builder builder) {
+		this.request = builder.request;
+		this.destination = builder.destination;
+		this.segmentCount = builder.segmentCount;
+		this.minSegmentSize = builder.minSegmentSize;
+		this.executor = builder.executor;
+		this.factory = builder.factory;
+		this.threadStatsTag = builder.threadStatsTag;
+	}
+
+	/**
+	 * Get the size of the resource, or {@code -1} if it's not known yet.
+	 */
+	public synchronized long getTotalLength() {
+		return totalLength;
+	}
+
+	/**
+	 * Get the amount of bytes written in the destination file so far.
+	 */
+	public synchronized long getDownloadedLength() {
+		return writtenLength;
+	}
+
+	/**
+	 * Download the resource in the destination file.
+	 *
+	 * @return the destination file.
+	 * @throws ServerException if the server refused to send the resource.
+	 * @throws HttpException   if there was an error other than a server error, including when the resource changed during the download.
+	 */
+	@Override
+	public File call() throws ServerException, HttpException {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(destination, "rw");
+			channel = file.getChannel();
+
+			if (probeResource(file)) {
+				scheduleSegments();
+				runSegments();
+				waitForSegments();
+				synchronized (this) {
+					if (null == error && writtenLength != totalLength)
+						error = new IOException("incomplete download " + writtenLength + '/' + totalLength);
+				}
+			}
+
+			synchronized (this) {
+				if (null != error)
+					throw error;
+			}
+			return destination;
+
+		} catch (ServerException e) {
+			throw e;
+
+		} catch (HttpException e) {
+			throw e;
+
+		} catch (InterruptedException e) {
+			throw new HttpException.Builder(request, null)
+					.setErrorMessage("interrupted")
+					.setCause(e)
+					.build();
+
+		} catch (Exception e) {
+			LogManager.getLogger().d("i/o error for " + request + ' ' + e.getMessage());
+			throw new HttpIOException.Builder(request, null)
+					.setErrorMessage("IO error " + e.getMessage())
+					.setCause(e)
+					.build();
+
+		} finally {
+			if (null != file) {
+				try {
+					file.close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the size of the resource and if ranges are supported.
+	 *
+	 * @return {@code true} if the resource has to be read with ranges, {@code false} if it was already fully read.
+	 */
+	private boolean probeResource(final RandomAccessFile file) throws ServerException, HttpException, IOException {
+		HttpEngine<Void, ServerException> headEngine = createEngine(createRequest("HEAD", null), BodyToVoid.RESPONSE_HANDLER);
+		try {
+			headEngine.call();
+			HttpResponse headResponse = headEngine.getHttpResponse();
+			long contentLength = parseLong(headResponse.getHeaderField(HEADER_CONTENT_LENGTH));
+			if (contentLength > 0 && "bytes".equalsIgnoreCase(headResponse.getHeaderField(HEADER_ACCEPT_RANGES))) {
+				setResource(file, contentLength, getValidator(headResponse));
+				return true;
+			}
+		} catch (ServerException e) {
+			// the server may not handle HEAD, try with a range request
+			LogManager.getLogger().d("HEAD failed for " + request + ' ' + e);
+		} finally {
+			disconnect(headEngine);
+		}
+
+		// read the first byte or the whole resource if the server doesn't support ranges
+		final Segment firstByte = new Segment(0, 1, 0);
+		XferTransform<InputStream, Void> probeReader = new XferTransform<InputStream, Void>() {
+			@Override
+			public Void transformData(InputStream inputStream, ImmutableHttpRequest engine) throws IOException, ParserException {
+				HttpResponse response = engine.getHttpResponse();
+				if (response.getResponseCode() == HTTP_PARTIAL_CONTENT) {
+					long total = parseContentRange(response.getHeaderField(HEADER_CONTENT_RANGE), 0);
+					if (total <= 0)
+						throw new IOException("unknown resource size " + response.getHeaderField(HEADER_CONTENT_RANGE));
+					setResource(file, total, getValidator(response));
+					readSegment(firstByte, inputStream);
+					return null;
+				}
+
+				// no range support, read everything with this connection
+				long contentLength = parseLong(response.getHeaderField(HEADER_CONTENT_LENGTH));
+				LogManager.getLogger().d("no range support for " + request + " reading " + contentLength + " bytes");
+				file.setLength(0);
+				Segment wholeFile = new Segment(0, Long.MAX_VALUE, 0);
+				readSegment(wholeFile, inputStream);
+				synchronized (SegmentedDownload.this) {
+					totalLength = wholeFile.position;
+				}
+				if (contentLength >= 0 && wholeFile.position != contentLength)
+					throw new IOException("incomplete download " + wholeFile.position + '/' + contentLength);
+				return null;
+			}
+		};
+		HttpEngine<Void, ServerException> probeEngine = createEngine(createRequest("GET", firstByte), new BaseResponseHandler<Void>(new BodyTransformChain<Void>(probeReader)));
+		try {
+			probeEngine.call();
+		} finally {
+			disconnect(probeEngine);
+		}
+		return firstByte.remaining() == 0 && totalLength > 1;
+	}
+
+	private synchronized void setResource(RandomAccessFile file, long contentLength, @Nullable String validator) throws IOException {
+		this.totalLength = contentLength;
+		this.validator = validator;
+		file.setLength(contentLength);
+	}
+
+	private void scheduleSegments() {
+		int count;
+		synchronized (this) {
+			// the first byte may already be read by the probe
+			long start = writtenLength;
+			long length = totalLength - start;
+			count = (int) Math.max(1L, Math.min(segmentCount, length / minSegmentSize));
+			long segmentLength = length / count;
+			for (int i = 0; i < count; ++i) {
+				long end = (i == count - 1) ? totalLength : start + segmentLength;
+				pendingSegments.add(new Segment(start, end, 0));
+				start = end;
+			}
+		}
+
+		// the calling thread also reads segments, a single segment is too small to be split with helpers
+		for (int i = 1; i < count; ++i) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					runSegments();
+				}
+			});
+		}
+	}
+
+	private void runSegments() {
+		Segment segment;
+		while (null != (segment = nextSegment())) {
+			try {
+				downloadSegment(segment);
+				segmentDone(segment, null);
+			} catch (Exception e) {
+				segmentDone(segment, e);
+			}
+		}
+	}
+
+	private synchronized Segment nextSegment() {
+		if (null != error)
+			return null;
+
+		Segment segment = pendingSegments.poll();
+		if (null == segment) {
+			// help the slowest connection
+			long now = System.currentTimeMillis();
+			Segment slowest = null;
+			long slowestTimeLeft = 0;
+			for (Segment activeSegment : activeSegments) {
+				long timeLeft = activeSegment.estimatedTimeLeft(now);
+				if (null == slowest || timeLeft > slowestTimeLeft) {
+					slowest = activeSegment;
+					slowestTimeLeft = timeLeft;
+				}
+			}
+			if (null != slowest)
+				segment = slowest.split(minSegmentSize);
+		}
+
+		if (null != segment)
+			activeSegments.add(segment);
+		return segment;
+	}
+
+	private synchronized void segmentDone(Segment segment, @Nullable Exception e) {
+		activeSegments.remove(segment);
+		if (null != e && null == error) {
+			if (e instanceof InterruptedException || e instanceof InterruptedIOException || isResourceChanged(e) || segment.attempt + 1 >= MAX_SEGMENT_ATTEMPTS) {
+				error = e;
+			} else {
+				LogManager.getLogger().d("retrying " + segment + " of " + request + ' ' + e);
+				pendingSegments.add(new Segment(segment.position, segment.end, segment.attempt + 1));
+			}
+		}
+		notifyAll();
+	}
+
+	private static boolean isResourceChanged(Throwable e) {
+		for (; null != e; e = e.getCause()) {
+			if (e instanceof ResourceChangedException)
+				return true;
+			if (e.getCause() == e)
+				break;
+		}
+		return false;
+	}
+
+	private void waitForSegments() throws InterruptedException {
+		try {
+			synchronized (this) {
+				while (!activeSegments.isEmpty() || (null == error && !pendingSegments.isEmpty())) {
+					wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			abortSegments(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Stop the helper threads and the connections still reading.
+	 */
+	private void abortSegments(Exception e) {
+		List<Segment> segments;
+		synchronized (this) {
+			if (null == error)
+				error = e;
+			pendingSegments.clear();
+			segments = new ArrayList<Segment>(activeSegments);
+		}
+		for (Segment segment : segments) {
+			HttpEngine<?, ?> engine = segment.engine;
+			if (null != engine)
+				engine.cancel();
+		}
+	}
+
+	private void downloadSegment(final Segment segment) throws Exception {
+		if (segment.remaining() <= 0)
+			return;
+
+		XferTransform<InputStream, Void> segmentReader = new XferTransform<InputStream, Void>() {
+			@Override
+			public Void transformData(InputStream inputStream, ImmutableHttpRequest engine) throws IOException, ParserException {
+				HttpResponse response = engine.getHttpResponse();
+				if (response.getResponseCode() != HTTP_PARTIAL_CONTENT)
+					throw new ResourceChangedException("resource changed during download, got HTTP " + response.getResponseCode() + " for " + segment);
+				if (parseContentRange(response.getHeaderField(HEADER_CONTENT_RANGE), segment.position) != totalLength)
+					throw new ResourceChangedException("bad range " + response.getHeaderField(HEADER_CONTENT_RANGE) + " for " + segment);
+				readSegment(segment, inputStream);
+				return null;
+			}
+		};
+
+		HttpEngine<Void, ServerException> engine = createEngine(createRequest("GET", segment), new BaseResponseHandler<Void>(new BodyTransformChain<Void>(segmentReader)));
+		segment.engine = engine;
+		try {
+			synchronized (this) {
+				if (null != error)
+					throw new InterruptedIOException("download aborted");
+			}
+			engine.call();
+		} finally {
+			segment.engine = null;
+			disconnect(engine);
+		}
+
+		if (segment.remaining() > 0)
+			throw new IOException("premature end of " + segment);
+	}
+
+	private void readSegment(Segment segment, InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		synchronized (segment) {
+			segment.startTime = System.currentTimeMillis();
+		}
+		try {
+			long remaining;
+			while ((remaining = segment.remaining()) > 0) {
+				int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (read < 0)
+					break;
+				int written = segment.write(channel, buffer, read);
+				synchronized (this) {
+					writtenLength += written;
+					if (null != error)
+						throw new InterruptedIOException("download aborted");
+				}
+				if (Thread.interrupted())
+					throw new InterruptedIOException("download interrupted");
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private RawHttpRequest createRequest(String httpMethod, @Nullable Segment segment) {
+		RawHttpRequest.Builder builder = new RawHttpRequest.Builder()
+				.setUri(request.getUri())
+				.setHttpMethod(httpMethod);
+		if (null != request.getRequestSigner())
+			builder.setSigner(request.getRequestSigner());
+		RawHttpRequest result = builder.build();
+
+		for (Header header : request.getAllHeaders()) {
+			result.setHeader(header.getName(), header.getValue());
+		}
+		HttpConfig httpConfig = request.getHttpConfig();
+		if (null != httpConfig)
+			result.setHttpConfig(httpConfig);
+
+		// ranges are on the raw bytes
+		result.setHeader(HttpRequest.HEADER_ACCEPT_ENCODING, "identity");
+		if (null != segment) {
+			result.setHeader(HEADER_RANGE, segment.toString());
+			synchronized (this) {
+				if (!TextUtils.isEmpty(validator))
+					result.setHeader(HEADER_IF_RANGE, validator);
+			}
+		}
+		return result;
+	}
+
+	private <T> HttpEngine<T, ServerException> createEngine(RawHttpRequest segmentRequest, ResponseHandler<T, ServerException> responseHandler) {
+		return new HttpEngine.Builder<T, ServerException>()
+				.setRequest(segmentRequest)
+				.setResponseHandler(responseHandler)
+				.setHttpEngineFactory(factory)
+				.setThreadStatsTag(threadStatsTag)
+				.build();
+	}
+
+	private static void disconnect(HttpEngine<?, ?> engine) {
+		HttpResponse response = engine.getHttpResponse();
+		if (null != response)
+			response.disconnect();
+	}
+
+	/**
+	 * @return the strong validator of the resource to use with {@code If-Range} or {@code null}
+	 */
+	@Nullable
+	private static String getValidator(HttpResponse response) {
+		String etag = response.getHeaderField(HEADER_ETAG);
+		if (!TextUtils.isEmpty(etag) && !etag.startsWith("W/"))
+			return etag;
+		return response.getHeaderField(HEADER_LAST_MODIFIED);
+	}
+
+	/**
+	 * Parse a {@code Content-Range: bytes start-end/total} header.
+	 *
+	 * @return the total size of the resource or {@code -1} if the range doesn't start at {@code expectedStart}.
+	 */
+	private static long parseContentRange(@Nullable String contentRange, long expectedStart) {
+		if (null == contentRange || !contentRange.startsWith("bytes "))
+			return -1L;
+		int dash = contentRange.indexOf('-', 6);
+		int slash = contentRange.indexOf('/', 6);
+		if (dash < 0 || slash < dash)
+			return -1L;
+		if (parseLong(contentRange.substring(6, dash).trim()) != expectedStart)
+			return -1L;
+		return parseLong(contentRange.substring(slash + 1).trim());
+	}
+
+	private static long parseLong(@Nullable String value) {
+		if (TextUtils.isEmpty(value))
+			return -1L;
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return -1L;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SegmentedDownload{" + Integer.toHexString(System.identityHashCode(this)) + ' ' + request + " to " + destination + '}';
+	}
+}
@@ -0,0 +1,25 @@
+package co.tophe.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Decoder for an HTTP {@code Content-Encoding}, like {@code gzip} or {@code br}.
+ * <p>Decoders must be thread-safe as the same instance is used for all the responses.</p>
+ *
+ * @see co.tophe.encoding.ContentDecoders#register(String, ContentDecoder)
+ */
+public interface ContentDecoder {
+	/**
+	 * Wrap the encoded body of a response into a stream that reads the decoded data.
+	 * <p>Closing the returned stream must close the {@code encoded} stream.</p>
+	 *
+	 * @param encoded the raw body received from the server.
+	 * @return a stream to read the decoded body.
+	 * @throws IOException if the stream cannot be decoded, for example if the header of the encoding is corrupted.
+	 */
+	@NonNull
+	InputStream decode(@NonNull InputStream encoded) throws IOException;
+}
@@ -0,0 +1,163 @@
+package co.tophe.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import co.tophe.log.LogManager;
+
+/**
+ * Registry of the {@link co.tophe.encoding.ContentDecoder} used by all the HTTP engines to decode the response body.
+ * <p>{@code gzip} and {@code deflate} are registered by default, using pooled {@link java.util.zip.Inflater}. Other encodings
+ * like {@code br} can be added with {@link #register(String, ContentDecoder)} and will be advertised in the {@code Accept-Encoding}
+ * of the requests.</p>
+ */
+public final class ContentDecoders {
+
+	public static final String ENCODING_GZIP = "gzip";
+	public static final String ENCODING_DEFLATE = "deflate";
+	public static final String ENCODING_IDENTITY = "identity";
+
+	/**
+	 * Decoder for the {@code gzip} encoding.
+	 */
+	public static final ContentDecoder GZIP = new ContentDecoder() {
+		@NonNull
+		@Override
+		public InputStream decode(@NonNull InputStream encoded) throws IOException {
+			return new GzipInflaterInputStream(encoded);
+		}
+	};
+
+	/**
+	 * Decoder for the {@code deflate} encoding, zlib wrapped or raw deflate data as some servers send.
+	 */
+	public static final ContentDecoder DEFLATE = new ContentDecoder() {
+		@NonNull
+		@Override
+		public InputStream decode(@NonNull InputStream encoded) throws IOException {
+			PushbackInputStream stream = new PushbackInputStream(encoded, 2);
+			byte[] header = new byte[2];
+			int read = 0;
+			while (read < header.length) {
+				int n = stream.read(header, read, header.length - read);
+				if (n < 0)
+					break;
+				read += n;
+			}
+			stream.unread(header, 0, read);
+
+			int cmf = header[0] & 0xFF;
+			int flg = header[1] & 0xFF;
+			boolean zlibWrapped = read == 2 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+			return new PooledInflaterInputStream(stream, !zlibWrapped);
+		}
+	};
+
+	// copy on write, lookups are done for every response without locking
+	private static volatile Map<String, ContentDecoder> decoders = Collections.emptyMap();
+	private static volatile String acceptEncoding;
+
+	static {
+		register(ENCODING_GZIP, GZIP);
+		register(ENCODING_DEFLATE, DEFLATE);
+	}
+
+	private ContentDecoders() {
+	}
+
+	/**
+	 * Register a decoder for a {@code Content-Encoding}, replacing the previous one for this encoding.
+	 *
+	 * @param encoding the encoding name, like {@code "br"}.
+	 * @param decoder  the decoder to use for this encoding, {@code null} to remove support for the encoding.
+	 */
+	public static synchronized void register(@NonNull String encoding, @Nullable ContentDecoder decoder) {
+		if (TextUtils.isEmpty(encoding)) throw new IllegalArgumentException("invalid encoding");
+
+		Map<String, ContentDecoder> newDecoders = new LinkedHashMap<String, ContentDecoder>(decoders);
+		String key = encoding.toLowerCase(Locale.US);
+		if (null == decoder)
+			newDecoders.remove(key);
+		else
+			newDecoders.put(key, decoder);
+
+		StringBuilder sb = new StringBuilder();
+		for (String name : newDecoders.keySet()) {
+			if (sb.length() != 0)
+				sb.append(',');
+			sb.append(name);
+		}
+
+		decoders = Collections.unmodifiableMap(newDecoders);
+		acceptEncoding = sb.length() == 0 ? ENCODING_IDENTITY : sb.toString();
+	}
+
+	/**
+	 * Get the decoder for the {@code encoding} or {@code null} if it's not supported.
+	 */
+	@Nullable
+	public static ContentDecoder getDecoder(@NonNull String encoding) {
+		Map<String, ContentDecoder> currentDecoders = decoders;
+		ContentDecoder decoder = currentDecoders.get(encoding);
+		if (null == decoder) {
+			String key = encoding.toLowerCase(Locale.US);
+			decoder = currentDecoders.get(key);
+			if (null == decoder && key.startsWith("x-"))
+				decoder = currentDecoders.get(key.substring(2)); // x-gzip
+		}
+		return decoder;
+	}
+
+	/**
+	 * Get the {@code Accept-Encoding} value listing all the registered encodings.
+	 */
+	@NonNull
+	public static String getAcceptEncoding() {
+		return acceptEncoding;
+	}
+
+	/**
+	 * Decode the body of a response using the registered decoders.
+	 * <p>When multiple encodings are listed, they are decoded in the reverse order they were applied. An encoding with no
+	 * registered decoder leaves the stream as it is.</p>
+	 *
+	 * @param stream          the body received from the server, may be {@code null}.
+	 * @param contentEncoding the {@code Content-Encoding} header of the response, may be {@code null}.
+	 * @return the stream to read the decoded body.
+	 * @throws IOException if the stream cannot be decoded.
+	 */
+	@Nullable
+	public static InputStream decode(@Nullable InputStream stream, @Nullable String contentEncoding) throws IOException {
+		if (null == stream || TextUtils.isEmpty(contentEncoding))
+			return stream;
+		if (stream instanceof InflaterInputStream)
+			return stream; // already decoded by the platform
+
+		int end = contentEncoding.length();
+		while (end > 0) {
+			int start = contentEncoding.lastIndexOf(',', end - 1) + 1;
+			String encoding = contentEncoding.substring(start, end).trim();
+			end = start - 1;
+			if (encoding.length() == 0 || ENCODING_IDENTITY.equalsIgnoreCase(encoding))
+				continue;
+
+			ContentDecoder decoder = getDecoder(encoding);
+			if (null == decoder) {
+				LogManager.getLogger().w("unsupported Content-Encoding " + encoding);
+				return stream;
+			}
+			stream = decoder.decode(stream);
+		}
+		return stream;
+	}
+}
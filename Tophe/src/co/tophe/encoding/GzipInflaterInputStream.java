@@ -0,0 +1,110 @@
+package co.tophe.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * A {@code gzip} decoding stream similar to {@link java.util.zip.GZIPInputStream} but using a pooled {@link java.util.zip.Inflater}.
+ * <p>Only the first member of the gzip data is read, which is all an HTTP server sends.</p>
+ */
+final class GzipInflaterInputStream extends PooledInflaterInputStream {
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int METHOD_DEFLATE = 8;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final CRC32 crc = new CRC32();
+	private boolean eos;
+
+	GzipInflaterInputStream(InputStream in) throws IOException {
+		super(in, true);
+		try {
+			readHeader();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (eos)
+			return -1;
+		int read = super.read(buffer, offset, length);
+		if (read == -1) {
+			readTrailer();
+			eos = true;
+		} else {
+			crc.update(buffer, offset, read);
+		}
+		return read;
+	}
+
+	private void readHeader() throws IOException {
+		if (readUShort(in) != GZIP_MAGIC)
+			throw new ZipException("Not in GZIP format");
+		if (readUByte(in) != METHOD_DEFLATE)
+			throw new ZipException("Unsupported compression method");
+		int flags = readUByte(in);
+		skipBytes(in, 6); // MTIME, XFL, OS
+		if ((flags & FEXTRA) != 0)
+			skipBytes(in, readUShort(in));
+		if ((flags & FNAME) != 0)
+			skipString(in);
+		if ((flags & FCOMMENT) != 0)
+			skipString(in);
+		if ((flags & FHCRC) != 0)
+			skipBytes(in, 2);
+	}
+
+	private void readTrailer() throws IOException {
+		// the trailer may be partially in the buffer already given to the inflater
+		int remaining = inf.getRemaining();
+		InputStream trailer = in;
+		if (remaining > 0)
+			trailer = new SequenceInputStream(new ByteArrayInputStream(buf, len - remaining, remaining), in);
+
+		long expectedCrc = readUInt(trailer);
+		long expectedSize = readUInt(trailer);
+		if (expectedCrc != crc.getValue())
+			throw new ZipException("Corrupt GZIP trailer, bad CRC");
+		if (expectedSize != (inf.getBytesWritten() & 0xffffffffL))
+			throw new ZipException("Corrupt GZIP trailer, bad size");
+	}
+
+	private static long readUInt(InputStream in) throws IOException {
+		long low = readUShort(in);
+		return ((long) readUShort(in) << 16) | low;
+	}
+
+	private static int readUShort(InputStream in) throws IOException {
+		int low = readUByte(in);
+		return (readUByte(in) << 8) | low;
+	}
+
+	private static int readUByte(InputStream in) throws IOException {
+		int b = in.read();
+		if (b == -1)
+			throw new EOFException();
+		return b;
+	}
+
+	private static void skipBytes(InputStream in, int count) throws IOException {
+		while (count-- > 0) {
+			readUByte(in);
+		}
+	}
+
+	private static void skipString(InputStream in) throws IOException {
+		while (readUByte(in) != 0) {
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package co.tophe.encoding;
+
+import java.util.zip.Inflater;
+
+/**
+ * A small pool of {@link java.util.zip.Inflater} objects so their native memory is reused between responses instead of waiting
+ * for the finalizer to release it.
+ */
+final class InflaterPool {
+
+	private static final int MAX_POOLED = 4;
+
+	private static final Inflater[] zlibInflaters = new Inflater[MAX_POOLED];
+	private static final Inflater[] rawInflaters = new Inflater[MAX_POOLED];
+	private static int zlibCount;
+	private static int rawCount;
+
+	private InflaterPool() {
+	}
+
+	/**
+	 * Get an {@link java.util.zip.Inflater} ready to use.
+	 *
+	 * @param nowrap {@code true} to read raw deflate data, {@code false} for zlib wrapped data.
+	 */
+	static Inflater obtain(boolean nowrap) {
+		synchronized (InflaterPool.class) {
+			if (nowrap) {
+				if (rawCount > 0) {
+					Inflater result = rawInflaters[--rawCount];
+					rawInflaters[rawCount] = null;
+					return result;
+				}
+			} else if (zlibCount > 0) {
+				Inflater result = zlibInflaters[--zlibCount];
+				zlibInflaters[zlibCount] = null;
+				return result;
+			}
+		}
+		return new Inflater(nowrap);
+	}
+
+	/**
+	 * Give back an {@link java.util.zip.Inflater} obtained with {@link #obtain(boolean)}, it must not be used after this call.
+	 */
+	static void release(Inflater inflater, boolean nowrap) {
+		inflater.reset();
+		synchronized (InflaterPool.class) {
+			if (nowrap) {
+				if (rawCount < MAX_POOLED) {
+					rawInflaters[rawCount++] = inflater;
+					return;
+				}
+			} else if (zlibCount < MAX_POOLED) {
+				zlibInflaters[zlibCount++] = inflater;
+				return;
+			}
+		}
+		inflater.end();
+	}
+}
@@ -0,0 +1,36 @@
+package co.tophe.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An {@link java.util.zip.InflaterInputStream} using an {@link java.util.zip.Inflater} from the {@link InflaterPool} and a larger
+ * buffer than the default one. The {@link java.util.zip.Inflater} goes back to the pool when the stream is closed.
+ */
+class PooledInflaterInputStream extends InflaterInputStream {
+
+	static final int BUFFER_SIZE = 8 * 1024;
+
+	private final boolean nowrap;
+	private boolean released;
+
+	PooledInflaterInputStream(InputStream in, boolean nowrap) {
+		super(in, InflaterPool.obtain(nowrap), BUFFER_SIZE);
+		this.nowrap = nowrap;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			synchronized (this) {
+				if (!released) {
+					released = true;
+					InflaterPool.release(inf, nowrap);
+				}
+			}
+		}
+	}
+}
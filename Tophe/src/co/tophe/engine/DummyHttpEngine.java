@@ -53,6 +53,10 @@ public final class DummyHttpEngine<T, SE extends ServerException> implements Htt
 		throw new AssertionError("not supported");
 	}
 
+	@Override
+	public void cancel() {
+	}
+
 	@Override
 	@Nullable
 	public HttpResponse getHttpResponse() {
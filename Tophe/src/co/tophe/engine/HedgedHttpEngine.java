@@ -0,0 +1,223 @@
+package co.tophe.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.AbstractHttpEngine;
+import co.tophe.Deadline;
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpResponse;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.internal.DeadlineWatchdog;
+
+/**
+ * {@link co.tophe.HttpEngine} that sends a duplicate of the request on another connection when the response headers
+ * are not received quickly enough, according to a {@link co.tophe.engine.HedgingPolicy}.
+ * <p>The first successful response is returned and the other request is {@link co.tophe.HttpEngine#cancel() cancelled}.</p>
+ *
+ * @param <T>  type of the object returned from the request after parsing the response body.
+ * @param <SE> type of exception raised when a server-generated error is returned in the response.
+ * @see co.tophe.HttpEngine.Builder#setHedgingPolicy(HedgingPolicy)
+ */
+public class HedgedHttpEngine<T, SE extends ServerException> implements HttpEngine<T, SE> {
+	private final Builder<T, SE> builder;
+	private final AbstractHttpEngine<T, SE, ?> primary;
+	private final HedgingPolicy policy;
+	private final Map<String, String> extraHeaders = new LinkedHashMap<String, String>();
+	private final AtomicReference<HttpEngine<T, SE>> winner = new AtomicReference<HttpEngine<T, SE>>();
+	private final CountDownLatch secondaryDone = new CountDownLatch(1);
+
+	private volatile HttpEngine<T, SE> secondary;
+	private T secondaryResult;
+	private Exception secondaryError;
+	private boolean primaryDone;
+	private boolean hedgeStarted;
+	private volatile boolean cancelled;
+
+	public HedgedHttpEngine(@NonNull Builder<T, SE> builder, @NonNull AbstractHttpEngine<T, SE, ?> primary, @NonNull HedgingPolicy policy) {
+		this.builder = builder;
+		this.primary = primary;
+		this.policy = policy;
+	}
+
+	@Override
+	public T call() throws SE, HttpException {
+		policy.onRequest();
+		final Deadline deadline = Deadline.current();
+		final long startTime = System.nanoTime();
+		Future<?> hedgeTimer = DeadlineWatchdog.schedule(policy.getDelay(primary.getHttpRequest()), new Runnable() {
+			@Override
+			public void run() {
+				startHedge(deadline);
+			}
+		});
+
+		Exception primaryError = null;
+		boolean hedged;
+		try {
+			T result = primary.call();
+			if (winner.compareAndSet(null, primary)) {
+				cancelSecondary();
+				return result;
+			}
+			// the duplicate request won while the response body was processed
+		} catch (ServerException e) {
+			primaryError = e;
+		} catch (HttpException e) {
+			primaryError = e;
+		} catch (RuntimeException e) {
+			cancelSecondary();
+			throw e;
+		} finally {
+			hedgeTimer.cancel(false);
+			recordLatency(primary, startTime);
+			synchronized (this) {
+				primaryDone = true;
+				hedged = hedgeStarted;
+			}
+		}
+
+		if (!hedged)
+			throw rethrow(primaryError);
+
+		try {
+			secondaryDone.await();
+		} catch (InterruptedException e) {
+			cancelSecondary();
+			if (null != primaryError)
+				throw rethrow(primaryError);
+			throw new HttpException.Builder(primary.getHttpRequest(), null).setErrorMessage("interrupted").setCause(e).build();
+		}
+
+		if (winner.get() == secondary)
+			return secondaryResult;
+		// both failed, the original request error is more relevant
+		throw rethrow(null != primaryError ? primaryError : secondaryError);
+	}
+
+	private void startHedge(final Deadline deadline) {
+		if (0 != primary.getHeadersReceivedTime())
+			return;
+
+		synchronized (this) {
+			if (primaryDone || cancelled || !policy.tryAcquireHedge())
+				return;
+			hedgeStarted = true;
+		}
+
+		final HttpEngine<T, SE> duplicate = createSecondary();
+		secondary = duplicate;
+		if (cancelled)
+			duplicate.cancel();
+		try {
+			policy.getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					Deadline previous = Deadline.enter(deadline);
+					long startTime = System.nanoTime();
+					try {
+						secondaryResult = duplicate.call();
+						if (winner.compareAndSet(null, duplicate))
+							primary.cancel();
+					} catch (Exception e) {
+						secondaryError = e;
+					} finally {
+						Deadline.exit(previous);
+						recordLatency(duplicate, startTime);
+						secondaryDone.countDown();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			secondaryError = e;
+			secondaryDone.countDown();
+		}
+	}
+
+	@NonNull
+	private HttpEngine<T, SE> createSecondary() {
+		HttpEngine<T, SE> engine = builder.getHttpEngineFactory().createEngine(builder);
+		if (null == engine)
+			return new DummyHttpEngine<T, SE>(builder);
+		synchronized (extraHeaders) {
+			for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+				engine.setHeader(header.getKey(), header.getValue());
+			}
+		}
+		return engine;
+	}
+
+	private void cancelSecondary() {
+		HttpEngine<T, SE> duplicate = secondary;
+		if (null != duplicate)
+			duplicate.cancel();
+	}
+
+	private void recordLatency(HttpEngine<T, SE> engine, long startTime) {
+		if (engine instanceof AbstractHttpEngine) {
+			long headersTime = ((AbstractHttpEngine<?, ?, ?>) engine).getHeadersReceivedTime();
+			if (0 != headersTime)
+				policy.recordLatency(engine.getHttpRequest(), (headersTime - startTime) / 1000000L);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private SE rethrow(Exception e) throws HttpException {
+		if (e instanceof HttpException)
+			throw (HttpException) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof ServerException)
+			return (SE) e;
+		throw new HttpException.Builder(primary.getHttpRequest(), null).setErrorMessage("hedged request failed").setCause(e).build();
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		primary.cancel();
+		cancelSecondary();
+	}
+
+	@NonNull
+	@Override
+	public ResponseHandler<T, SE> getResponseHandler() {
+		return primary.getResponseHandler();
+	}
+
+	@Override
+	public void setHeader(@NonNull String name, @Nullable String value) {
+		primary.setHeader(name, value);
+		synchronized (extraHeaders) {
+			extraHeaders.put(name, value);
+		}
+	}
+
+	@NonNull
+	@Override
+	public String getHeader(String name) {
+		return primary.getHeader(name);
+	}
+
+	@Override
+	public HttpRequestInfo getHttpRequest() {
+		return primary.getHttpRequest();
+	}
+
+	@Nullable
+	@Override
+	public HttpResponse getHttpResponse() {
+		HttpEngine<T, SE> engine = winner.get();
+		return null != engine ? engine.getHttpResponse() : primary.getHttpResponse();
+	}
+}
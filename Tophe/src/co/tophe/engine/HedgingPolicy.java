@@ -0,0 +1,261 @@
+package co.tophe.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.HttpRequestInfo;
+import co.tophe.async.AsyncTopheClient;
+
+/**
+ * Policy to send a duplicate request when the response headers of an idempotent request are slow to come.
+ * <p>The first response wins and the other request is cancelled. Only {@code GET}, {@code HEAD} and {@code OPTIONS}
+ * requests are hedged.</p>
+ * <p>The hedging delay is either fixed or derived from a rolling percentile of the time to receive the response headers
+ * of each host. The number of hedged requests is limited by a budget: each request earns {@code ratio} token and
+ * each hedge costs one token.</p>
+ * <p>Only the requests that received response headers are counted in the percentile, failed and cancelled attempts are
+ * not. The Ion engine doesn't report when the headers are received, its requests are neither hedged nor counted.</p>
+ *
+ * @see co.tophe.HttpEngine.Builder#setHedgingPolicy(HedgingPolicy)
+ */
+public final class HedgingPolicy {
+
+	private static final int SAMPLE_COUNT = 128;
+	private static final int TOKEN_UNIT = 1000;
+
+	private final long fixedDelay;
+	private final int percentile;
+	private final long minDelay;
+	private final long maxDelay;
+	private final int minSamples;
+	private final int tokenRatio;
+	private final int maxTokens;
+	private final Executor executor;
+
+	private final AtomicInteger tokens;
+	private final AtomicInteger hedgedCount = new AtomicInteger();
+	private final ConcurrentMap<String, HostLatency> hostLatencies = new ConcurrentHashMap<String, HostLatency>();
+
+	public static class Builder {
+		private long fixedDelay = 100;
+		private int percentile;
+		private long minDelay;
+		private long maxDelay;
+		private int minSamples = 20;
+		private float ratio = 0.05f;
+		private int maxBurst = 10;
+		private Executor executor;
+
+		public Builder() {
+		}
+
+		/**
+		 * Send the duplicate request when no response headers are received after a fixed delay.
+		 *
+		 * @param delayInMs the time to wait for the response headers before hedging, default is 100 ms.
+		 * @return the Builder.
+		 */
+		public Builder setDelay(long delayInMs) {
+			if (delayInMs < 0) throw new IllegalArgumentException("invalid hedging delay " + delayInMs);
+			this.fixedDelay = delayInMs;
+			this.percentile = 0;
+			return this;
+		}
+
+		/**
+		 * Send the duplicate request when no response headers are received after the {@code percentile} of the latest
+		 * response times of the host.
+		 * <p>The fixed delay is used until enough responses are received from the host.</p>
+		 *
+		 * @param percentile the percentile of the host response times to use, {@code 95} is a good value.
+		 * @param minDelay   the shortest delay in milliseconds to wait before hedging.
+		 * @param maxDelay   the longest delay in milliseconds to wait before hedging.
+		 * @return the Builder.
+		 */
+		public Builder setAdaptiveDelay(int percentile, long minDelay, long maxDelay) {
+			if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("invalid percentile " + percentile);
+			if (minDelay < 0 || maxDelay < minDelay) throw new IllegalArgumentException("invalid delay range " + minDelay + '-' + maxDelay);
+			this.percentile = percentile;
+			this.minDelay = minDelay;
+			this.maxDelay = maxDelay;
+			return this;
+		}
+
+		/**
+		 * @param minSamples number of responses received from a host before using its adaptive delay, default is 20.
+		 * @return the Builder.
+		 */
+		public Builder setMinSamples(int minSamples) {
+			if (minSamples < 1 || minSamples > SAMPLE_COUNT) throw new IllegalArgumentException("invalid sample count " + minSamples);
+			this.minSamples = minSamples;
+			return this;
+		}
+
+		/**
+		 * Limit the extra load caused by hedging.
+		 *
+		 * @param ratio    the maximum ratio of hedged requests in the long run, default is 0.05 (5%).
+		 * @param maxBurst the maximum number of hedged requests in a row, default is 10.
+		 * @return the Builder.
+		 */
+		public Builder setBudget(float ratio, int maxBurst) {
+			if (ratio <= 0 || ratio > 1) throw new IllegalArgumentException("invalid hedging ratio " + ratio);
+			if (maxBurst < 1) throw new IllegalArgumentException("invalid hedging burst " + maxBurst);
+			this.ratio = ratio;
+			this.maxBurst = maxBurst;
+			return this;
+		}
+
+		/**
+		 * @param executor the {@link java.util.concurrent.Executor} running the duplicate requests, by default the
+		 *                 {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.
+		 * @return the Builder.
+		 */
+		public Builder setExecutor(@Nullable Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public HedgingPolicy build() {
+			return new HedgingPolicy(this);
+		}
+	}
+
+	private HedgingPolicy(Builder builder) {
+		this.fixedDelay = builder.fixedDelay;
+		this.percentile = builder.percentile;
+		this.minDelay = builder.minDelay;
+		this.maxDelay = builder.maxDelay;
+		this.minSamples = builder.minSamples;
+		this.tokenRatio = Math.max(1, Math.round(builder.ratio * TOKEN_UNIT));
+		this.maxTokens = builder.maxBurst * TOKEN_UNIT;
+		this.executor = builder.executor;
+		this.tokens = new AtomicInteger(maxTokens);
+	}
+
+	/**
+	 * @return whether the request can be hedged, ie it's idempotent.
+	 */
+	public boolean isHedgeable(@NonNull HttpRequestInfo request) {
+		String method = request.getHttpMethod();
+		return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+	}
+
+	/**
+	 * @return the time in milliseconds to wait for the response headers before sending a duplicate of the request.
+	 */
+	public long getDelay(@NonNull HttpRequestInfo request) {
+		if (0 == percentile)
+			return fixedDelay;
+
+		HostLatency latency = hostLatencies.get(getHostKey(request));
+		long delay = null == latency ? -1 : latency.getPercentile(percentile, minSamples);
+		if (delay < 0)
+			delay = fixedDelay;
+		return Math.min(maxDelay, Math.max(minDelay, delay));
+	}
+
+	/**
+	 * @return the number of requests that were hedged with this policy.
+	 */
+	public int getHedgedCount() {
+		return hedgedCount.get();
+	}
+
+	@NonNull
+	Executor getExecutor() {
+		return null != executor ? executor : AsyncTopheClient.getExecutor();
+	}
+
+	/**
+	 * Record the time it took to receive the response headers of the request.
+	 */
+	void recordLatency(@NonNull HttpRequestInfo request, long latencyInMs) {
+		if (0 == percentile)
+			return;
+
+		String host = getHostKey(request);
+		HostLatency latency = hostLatencies.get(host);
+		if (null == latency) {
+			latency = new HostLatency();
+			HostLatency previous = hostLatencies.putIfAbsent(host, latency);
+			if (null != previous)
+				latency = previous;
+		}
+		latency.add(latencyInMs);
+	}
+
+	/**
+	 * Earn the budget of a hedgeable request.
+	 */
+	void onRequest() {
+		int current;
+		do {
+			current = tokens.get();
+			if (current >= maxTokens)
+				return;
+		} while (!tokens.compareAndSet(current, Math.min(maxTokens, current + tokenRatio)));
+	}
+
+	/**
+	 * Use the budget of a hedged request.
+	 *
+	 * @return {@code false} if there is not enough budget left to hedge.
+	 */
+	boolean tryAcquireHedge() {
+		int current;
+		do {
+			current = tokens.get();
+			if (current < TOKEN_UNIT)
+				return false;
+		} while (!tokens.compareAndSet(current, current - TOKEN_UNIT));
+		hedgedCount.incrementAndGet();
+		return true;
+	}
+
+	@NonNull
+	private static String getHostKey(HttpRequestInfo request) {
+		Uri uri = request.getUri();
+		String host = null == uri ? null : uri.getAuthority();
+		return null == host ? "" : host;
+	}
+
+	/**
+	 * Ring buffer of the latest response times of a host.
+	 */
+	private static class HostLatency {
+		private final long[] samples = new long[SAMPLE_COUNT];
+		private int count;
+		private int next;
+		private long cachedPercentile = -1;
+		private int cachedFor;
+
+		synchronized void add(long latencyInMs) {
+			samples[next] = latencyInMs;
+			next = (next + 1) % SAMPLE_COUNT;
+			if (count < SAMPLE_COUNT)
+				++count;
+			cachedPercentile = -1;
+		}
+
+		synchronized long getPercentile(int percentile, int minSamples) {
+			if (count < minSamples)
+				return -1;
+			if (cachedPercentile < 0 || cachedFor != percentile) {
+				long[] sorted = Arrays.copyOf(samples, count);
+				Arrays.sort(sorted);
+				int index = (int) Math.ceil(percentile * count / 100.0) - 1;
+				cachedPercentile = sorted[Math.max(0, index)];
+				cachedFor = percentile;
+			}
+			return cachedPercentile;
+		}
+	}
+}
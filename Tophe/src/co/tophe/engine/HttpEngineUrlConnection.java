@@ -9,7 +9,6 @@ import java.net.ProtocolException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import android.annotation.SuppressLint;
 import android.os.Build;
@@ -19,7 +18,9 @@ import co.tophe.HttpConfig;
 import co.tophe.HttpException;
 import co.tophe.HttpIOException;
 import co.tophe.HttpRequest;
+import co.tophe.HttpTimeoutConfig;
 import co.tophe.ServerException;
+import co.tophe.encoding.ContentDecoders;
 import co.tophe.log.LogManager;
 import co.tophe.log.LoggerTagged;
 import co.tophe.parser.ParserException;
@@ -61,7 +62,7 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 		}
 
 		if (request.getHeader(HttpRequest.HEADER_ACCEPT_ENCODING)==null) {
-			setHeader(HttpRequest.HEADER_ACCEPT_ENCODING, "gzip,deflate");
+			setHeader(HttpRequest.HEADER_ACCEPT_ENCODING, ContentDecoders.getAcceptEncoding());
 		}
 	}
 
@@ -75,6 +76,10 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 	protected void setContentLength(long contentLength) {
 		super.setContentLength(contentLength);
 
+		// without a body the JVM HttpURLConnection refuses to read the response of a streaming request
+		if (null == request.getBodyParameters())
+			return;
+
 		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT)
 			urlConnection.setFixedLengthStreamingMode((int) contentLength);
 		else
@@ -83,8 +88,8 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 
 	@Override
 	public void setHeadersAndConfig() {
-		for (Entry<String, String> entry : requestHeaders.entrySet()) {
-			urlConnection.setRequestProperty(entry.getKey(), entry.getValue());
+		for (int i = 0; i < requestHeaders.size(); ++i) {
+			urlConnection.addRequestProperty(requestHeaders.getName(i), requestHeaders.getValue(i));
 		}
 
 		if (null != responseHandler.followsRedirect()) {
@@ -92,15 +97,29 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 		}
 
 		HttpConfig httpConfig = request.getHttpConfig();
-		if (null != httpConfig) {
-			int readTimeout = httpConfig.getReadTimeout(request);
-			if (readTimeout >= 0)
-				urlConnection.setReadTimeout(readTimeout);
-		}
+		int readTimeout = limitToDeadline(null == httpConfig ? -1 : httpConfig.getReadTimeout(request));
+		if (readTimeout >= 0)
+			urlConnection.setReadTimeout(readTimeout);
+		int connectTimeout = limitToDeadline(httpConfig instanceof HttpTimeoutConfig ? ((HttpTimeoutConfig) httpConfig).getConnectTimeout(request) : -1);
+		if (connectTimeout >= 0)
+			urlConnection.setConnectTimeout(connectTimeout);
+	}
+
+	@Override
+	protected boolean reportsHeadersReceived() {
+		return true;
+	}
+
+	@Override
+	public void cancel() {
+		super.cancel();
+		// closes the socket so blocked reads and writes fail right away
+		urlConnection.disconnect();
 	}
 
 	@Override
 	protected HttpResponseUrlConnection queryResponse() throws SE, HttpException {
+		boolean responseRequested = false;
 		try {
 			final LoggerTagged logger = request.getLogger();
 			if (null != logger) {
@@ -115,7 +134,9 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 			}
 			urlConnection.setDoInput(true);
 
+			// disconnect() does nothing on a connection that is not open yet
 			urlConnection.connect();
+			checkCancelled();
 
 			if (null != request.getBodyParameters()) {
 				OutputStream output = urlConnection.getOutputStream();
@@ -126,6 +147,12 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 				}
 			}
 
+			checkCancelled();
+			responseRequested = true;
+			// wait for the response headers here so the time to receive them is known
+			urlConnection.getResponseCode();
+			setHeadersReceived();
+
 			if (null != logger) {
 				logger.v(urlConnection.getResponseMessage());
 				for (Map.Entry<String, List<String>> header : urlConnection.getHeaderFields().entrySet()) {
@@ -140,15 +167,18 @@ public class HttpEngineUrlConnection<T, SE extends ServerException> extends Abst
 			throw exceptionToHttpException(e).build();
 
 		} finally {
-			try {
-				setRequestResponse(new HttpResponseUrlConnection(this));
-			} catch (IllegalStateException e) {
-				// okhttp 2.0.0 issue https://github.com/square/okhttp/issues/689
-				LogManager.getLogger().d("connection closed ? for "+request+' '+e);
-				HttpIOException.Builder builder = new HttpIOException.Builder(request, httpResponse);
-				builder.setErrorMessage("Connection closed "+e.getMessage());
-				builder.setCause(e);
-				throw builder.build();
+			// reading the headers of a request cancelled before it was sent would send it
+			if (responseRequested || !isCancelled()) {
+				try {
+					setRequestResponse(new HttpResponseUrlConnection(this));
+				} catch (IllegalStateException e) {
+					// okhttp 2.0.0 issue https://github.com/square/okhttp/issues/689
+					LogManager.getLogger().d("connection closed ? for "+request+' '+e);
+					HttpIOException.Builder builder = new HttpIOException.Builder(request, httpResponse);
+					builder.setErrorMessage("Connection closed "+e.getMessage());
+					builder.setCause(e);
+					throw builder.build();
+				}
 			}
 		}
 
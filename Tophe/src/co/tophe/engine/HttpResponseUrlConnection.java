@@ -5,13 +5,17 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 
 import android.support.annotation.NonNull;
 
 import co.tophe.AbstractHttpEngine;
+import co.tophe.HttpRequestInfo;
 import co.tophe.HttpResponse;
+import co.tophe.RawHttpRequest;
+import co.tophe.bandwidth.BandwidthLimiter;
+import co.tophe.encoding.ContentDecoders;
+import co.tophe.internal.DownloadProgressNotifier;
+import co.tophe.internal.ProgressInputStream;
 
 /**
  * The {@link co.tophe.HttpResponse} used by {@link co.tophe.engine.HttpEngineUrlConnection}.
@@ -21,6 +25,8 @@ import co.tophe.HttpResponse;
 public class HttpResponseUrlConnection implements HttpResponse {
 
 	private final HttpURLConnection response;
+	private final RawHttpRequest progressRequest;
+	private final int threadStatsTag;
 	private InputStream inputStream;
 	private InputStream errorStream;
 
@@ -28,6 +34,13 @@ public class HttpResponseUrlConnection implements HttpResponse {
 		if (null == request) throw new NullPointerException();
 		if (null == request.urlConnection) throw new NullPointerException();
 		this.response = request.urlConnection;
+		this.threadStatsTag = request.getThreadStatsTag();
+
+		HttpRequestInfo requestInfo = request.getHttpRequest();
+		if (requestInfo instanceof RawHttpRequest && null != ((RawHttpRequest) requestInfo).getDownloadProgressListener())
+			this.progressRequest = (RawHttpRequest) requestInfo;
+		else
+			this.progressRequest = null;
 	}
 
 	@Override
@@ -71,13 +84,13 @@ public class HttpResponseUrlConnection implements HttpResponse {
 	}
 
 	private InputStream getDecompressedStream(InputStream stream) throws IOException {
-		if (null != stream) {
-			if ("deflate".equals(getContentEncoding()) && !(stream instanceof InflaterInputStream))
-				stream = new InflaterInputStream(stream);
-			if ("gzip".equals(getContentEncoding()) && !(stream instanceof GZIPInputStream))
-				stream = new GZIPInputStream(stream);
+		stream = BandwidthLimiter.limitInputStream(stream, threadStatsTag);
+		if (null != stream && null != progressRequest) {
+			DownloadProgressNotifier notifier = new DownloadProgressNotifier(progressRequest, progressRequest.getDownloadProgressListener(),
+					getContentLength(), progressRequest.getDownloadProgressInterval());
+			stream = new ProgressInputStream(stream, notifier);
 		}
-		return stream;
+		return ContentDecoders.decode(stream, getContentEncoding());
 	}
 
 	public InputStream getErrorStream() throws IOException {
@@ -0,0 +1,135 @@
+package co.tophe.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpResponse;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.TopheException;
+import co.tophe.body.HttpBodyJSON;
+import co.tophe.body.HttpBodyMultiPart;
+import co.tophe.body.HttpBodyParameters;
+import co.tophe.body.HttpBodyString;
+import co.tophe.body.HttpBodyUrlEncoded;
+import co.tophe.signed.RenewableRequestSigner;
+
+/**
+ * {@link co.tophe.HttpEngine} that signs and sends the request again once when the server rejects its credentials with
+ * {@code 401 Unauthorized}, if the {@link co.tophe.signed.RenewableRequestSigner} renewed them.
+ *
+ * @param <T>  type of the object returned from the request after parsing the response body.
+ * @param <SE> type of exception raised when a server-generated error is returned in the response.
+ * @see co.tophe.signed.RequestSignerOAuth2#withTokenManager(co.tophe.signed.OAuth2TokenManager)
+ */
+public class ReauthenticatingHttpEngine<T, SE extends ServerException> implements HttpEngine<T, SE> {
+	private final Builder<T, SE> builder;
+	private final HttpEngine<T, SE> primary;
+	private final RenewableRequestSigner signer;
+	private final Map<String, String> extraHeaders = new LinkedHashMap<String, String>();
+
+	private volatile HttpEngine<T, SE> current;
+	private volatile boolean cancelled;
+
+	public ReauthenticatingHttpEngine(@NonNull Builder<T, SE> builder, @NonNull HttpEngine<T, SE> primary, @NonNull RenewableRequestSigner signer) {
+		this.builder = builder;
+		this.primary = primary;
+		this.signer = signer;
+		this.current = primary;
+	}
+
+	/**
+	 * @return whether the request can be sent again, ie its body can be written more than once.
+	 */
+	public static boolean isReplayable(@NonNull HttpRequestInfo request) {
+		HttpBodyParameters body = request.getBodyParameters();
+		if (null == body)
+			return true;
+		if (body instanceof HttpBodyMultiPart)
+			return ((HttpBodyMultiPart) body).isReplayable();
+		return body instanceof HttpBodyUrlEncoded || body instanceof HttpBodyString || body instanceof HttpBodyJSON;
+	}
+
+	@Override
+	public T call() throws SE, HttpException {
+		try {
+			return primary.call();
+		} catch (ServerException e) {
+			if (!shouldReplay(e))
+				throw rethrow(e);
+		} catch (HttpException e) {
+			if (!shouldReplay(e))
+				throw e;
+		}
+
+		HttpEngine<T, SE> replay = createReplay();
+		current = replay;
+		if (cancelled)
+			replay.cancel();
+		return replay.call();
+	}
+
+	private boolean shouldReplay(TopheException e) {
+		return ServerException.HTTP_STATUS_UNAUTHORIZED == e.getStatusCode() && !cancelled && signer.onUnauthorized(primary);
+	}
+
+	@SuppressWarnings("unchecked")
+	private SE rethrow(ServerException e) {
+		return (SE) e;
+	}
+
+	@NonNull
+	private HttpEngine<T, SE> createReplay() {
+		HttpEngine<T, SE> engine = builder.getHttpEngineFactory().createEngine(builder);
+		if (null == engine)
+			return new DummyHttpEngine<T, SE>(builder);
+		synchronized (extraHeaders) {
+			for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+				engine.setHeader(header.getKey(), header.getValue());
+			}
+		}
+		return engine;
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		current.cancel();
+	}
+
+	@NonNull
+	@Override
+	public ResponseHandler<T, SE> getResponseHandler() {
+		return primary.getResponseHandler();
+	}
+
+	@Override
+	public void setHeader(@NonNull String name, @Nullable String value) {
+		primary.setHeader(name, value);
+		synchronized (extraHeaders) {
+			extraHeaders.put(name, value);
+		}
+	}
+
+	@Override
+	public String getHeader(String name) {
+		return current.getHeader(name);
+	}
+
+	@Override
+	public HttpRequestInfo getHttpRequest() {
+		return primary.getHttpRequest();
+	}
+
+	@Nullable
+	@Override
+	public HttpResponse getHttpResponse() {
+		return current.getHttpResponse();
+	}
+}
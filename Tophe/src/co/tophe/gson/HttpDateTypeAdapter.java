@@ -0,0 +1,50 @@
+package co.tophe.gson;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import co.tophe.utils.DateUtils;
+
+/**
+ * Gson {@link com.google.gson.TypeAdapter} for {@link java.util.Date} fields written in the HTTP date format,
+ * like {@code "Sun, 06 Nov 1994 08:49:37 GMT"}.
+ * <p>Register it with {@code new GsonBuilder().registerTypeAdapter(Date.class, HttpDateTypeAdapter.INSTANCE)}.</p>
+ *
+ * @see co.tophe.utils.DateUtils#parseHttpDate(String)
+ * @see co.tophe.utils.DateUtils#formatHttpDate(java.util.Date)
+ */
+public final class HttpDateTypeAdapter extends TypeAdapter<Date> {
+
+	public static final HttpDateTypeAdapter INSTANCE = new HttpDateTypeAdapter();
+
+	private HttpDateTypeAdapter() {
+	}
+
+	@Override
+	public void write(JsonWriter out, Date value) throws IOException {
+		if (null == value)
+			out.nullValue();
+		else
+			out.value(DateUtils.formatHttpDate(value));
+	}
+
+	@Override
+	public Date read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		String dateString = in.nextString();
+		long time = DateUtils.parseHttpDate(dateString);
+		if (time == DateUtils.INVALID_DATE)
+			throw new JsonSyntaxException("invalid HTTP date " + dateString);
+		return new Date(time);
+	}
+}
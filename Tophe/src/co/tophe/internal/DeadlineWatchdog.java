@@ -0,0 +1,63 @@
+package co.tophe.internal;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import co.tophe.Deadline;
+
+/**
+ * Single thread running the actions scheduled when a {@link co.tophe.Deadline} expires or after a delay.
+ * <p>This class is internal to TOPHE.</p>
+ */
+public final class DeadlineWatchdog {
+
+	private static final ScheduledThreadPoolExecutor scheduler;
+
+	static {
+		scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(@NonNull Runnable r) {
+				Thread thread = new Thread(r, "TOPHE-deadline");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		setRemoveOnCancel();
+	}
+
+	@SuppressLint("NewApi")
+	private static void setRemoveOnCancel() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+			scheduler.setRemoveOnCancelPolicy(true); // most requests finish before their deadline
+	}
+
+	private DeadlineWatchdog() {
+	}
+
+	/**
+	 * Run {@code onExpired} when the {@code deadline} expires.
+	 *
+	 * @return the {@link java.util.concurrent.Future} to cancel when the deadline doesn't matter anymore.
+	 */
+	@NonNull
+	public static Future<?> schedule(@NonNull Deadline deadline, @NonNull Runnable onExpired) {
+		return scheduler.schedule(onExpired, deadline.getRemainingMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run {@code action} after {@code delayInMs} milliseconds.
+	 * <p>The action should be short, it runs in the thread shared with the deadlines.</p>
+	 *
+	 * @return the {@link java.util.concurrent.Future} to cancel when the action is not needed anymore.
+	 */
+	@NonNull
+	public static Future<?> schedule(long delayInMs, @NonNull Runnable action) {
+		return scheduler.schedule(action, delayInMs, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,62 @@
+package co.tophe.internal;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import co.tophe.DownloadProgressListener;
+import co.tophe.HttpRequestInfo;
+
+/**
+ * Throttle the calls to a {@link co.tophe.DownloadProgressListener} so it's not called more than once per interval, except
+ * for the final notification.
+ */
+public class DownloadProgressNotifier {
+
+	private final HttpRequestInfo request;
+	private final DownloadProgressListener listener;
+	private final long contentLength;
+	private final long minInterval;
+	private long lastNotification;
+	private long lastBytesReceived = -1L;
+
+	/**
+	 * @param request       the request to notify the progress for.
+	 * @param listener      the listener to notify.
+	 * @param contentLength the size of the body, {@code -1} if unknown.
+	 * @param minInterval   the minimum time in milliseconds between two notifications.
+	 */
+	public DownloadProgressNotifier(@NonNull HttpRequestInfo request, @NonNull DownloadProgressListener listener, long contentLength, long minInterval) {
+		if (null == listener) throw new NullPointerException("missing a DownloadProgressListener");
+		this.request = request;
+		this.listener = listener;
+		this.contentLength = contentLength;
+		this.minInterval = minInterval;
+	}
+
+	/**
+	 * Report the amount of bytes received so far, the listener is only called if the interval has elapsed since the last call
+	 * or if the whole body is received.
+	 */
+	public synchronized void onBytesReceived(long bytesReceived) {
+		if (bytesReceived == lastBytesReceived)
+			return;
+
+		long now = SystemClock.uptimeMillis();
+		if (lastBytesReceived < 0 || now - lastNotification >= minInterval || bytesReceived == contentLength) {
+			lastNotification = now;
+			lastBytesReceived = bytesReceived;
+			listener.onDownloadProgress(request, bytesReceived, contentLength);
+		}
+	}
+
+	/**
+	 * Report the end of the body, the listener is called if the last amount of bytes received was not notified yet.
+	 */
+	public synchronized void onComplete(long bytesReceived) {
+		if (bytesReceived != lastBytesReceived) {
+			lastNotification = SystemClock.uptimeMillis();
+			lastBytesReceived = bytesReceived;
+			listener.onDownloadProgress(request, bytesReceived, contentLength);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package co.tophe.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.support.annotation.NonNull;
+
+/**
+ * An {@link java.io.InputStream} counting the bytes read to report them to a {@link co.tophe.internal.DownloadProgressNotifier}.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+	private final DownloadProgressNotifier notifier;
+	private long bytesReceived;
+	private long mark;
+
+	public ProgressInputStream(@NonNull InputStream in, @NonNull DownloadProgressNotifier notifier) {
+		super(in);
+		if (null == notifier) throw new NullPointerException("missing a DownloadProgressNotifier");
+		this.notifier = notifier;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b == -1)
+			notifier.onComplete(bytesReceived);
+		else
+			notifier.onBytesReceived(++bytesReceived);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int count) throws IOException {
+		int read = super.read(buffer, offset, count);
+		if (read == -1)
+			notifier.onComplete(bytesReceived);
+		else if (read > 0) {
+			bytesReceived += read;
+			notifier.onBytesReceived(bytesReceived);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		long skipped = super.skip(count);
+		if (skipped > 0) {
+			bytesReceived += skipped;
+			notifier.onBytesReceived(bytesReceived);
+		}
+		return skipped;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		super.mark(readLimit);
+		mark = bytesReceived;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		super.reset();
+		bytesReceived = mark;
+	}
+}
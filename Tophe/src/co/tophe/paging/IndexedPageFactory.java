@@ -0,0 +1,19 @@
+package co.tophe.paging;
+
+import java.util.concurrent.Callable;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Factory for the requests of pages accessed by their index, like APIs using an offset and a limit.
+ *
+ * @see co.tophe.paging.PagingHelper#processIndexedPages(IndexedPageFactory, int, Object, PageCallback, int)
+ */
+public interface IndexedPageFactory<PAGE> {
+	/**
+	 * @param pageIndex The index of the page to read, starting from {@code 0}
+	 * @return A {@link java.util.concurrent.Callable} to retrieve the page at {@code pageIndex}
+	 */
+	@NonNull
+	Callable<PAGE> createCallable(int pageIndex);
+}
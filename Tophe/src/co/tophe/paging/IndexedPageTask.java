@@ -0,0 +1,56 @@
+package co.tophe.paging;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import android.support.annotation.Nullable;
+
+import co.tophe.Deadline;
+import co.tophe.HttpEngine;
+
+/**
+ * {@link java.util.concurrent.FutureTask} reading a page with the {@link co.tophe.Deadline} of the whole paging.
+ * <p>Cancelling the task with interruption cancels the {@link co.tophe.HttpEngine} reading the page.</p>
+ */
+final class IndexedPageTask<PAGE> extends FutureTask<PAGE> {
+	private final Callable<PAGE> pageRequest;
+
+	IndexedPageTask(final Callable<PAGE> pageRequest, @Nullable final Deadline deadline) {
+		super(new Callable<PAGE>() {
+			@Override
+			public PAGE call() throws Exception {
+				Deadline previousDeadline = Deadline.enter(deadline);
+				try {
+					return pageRequest.call();
+				} finally {
+					Deadline.exit(previousDeadline);
+				}
+			}
+		});
+		this.pageRequest = pageRequest;
+	}
+
+	/**
+	 * Wait for the page to be read.
+	 *
+	 * @throws Exception the error raised while reading the page.
+	 */
+	PAGE getPage() throws Exception {
+		try {
+			return get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean result = super.cancel(mayInterruptIfRunning);
+		if (mayInterruptIfRunning && pageRequest instanceof HttpEngine)
+			((HttpEngine<?, ?>) pageRequest).cancel();
+		return result;
+	}
+}
@@ -0,0 +1,74 @@
+package co.tophe.paging;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link java.util.Iterator} over the items of pages, the pages are read only when the consumer reaches their items.
+ * <p>The iterator can only be used once, {@link #iterator()} returns itself so it can be used in a for-each loop.
+ * {@link #close()} it if the iteration is abandoned before the end, to cancel the page being read.</p>
+ * <p>Errors are reported as a {@link co.tophe.paging.PagingException}.</p>
+ *
+ * @param <PAGE> Type of the Object representing a page
+ * @param <ITEM> Type of the items in a page
+ * @see co.tophe.paging.PagingHelper#iterateItems(java.util.concurrent.Callable, NextPageFactory, PageItemsReader, int)
+ */
+public class ItemIterator<PAGE, ITEM> implements Iterator<ITEM>, Iterable<ITEM>, Closeable {
+	private final PageIterator<PAGE> pages;
+	private final PageItemsReader<PAGE, ITEM> itemsReader;
+	private volatile boolean closed;
+	private Iterator<ITEM> pageItems;
+
+	ItemIterator(PageIterator<PAGE> pages, PageItemsReader<PAGE, ITEM> itemsReader) {
+		this.pages = pages;
+		this.itemsReader = itemsReader;
+	}
+
+	@Override
+	public Iterator<ITEM> iterator() {
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			pageItems = null;
+			return false;
+		}
+		while (null == pageItems || !pageItems.hasNext()) {
+			pageItems = null; // release the previous page
+			if (!pages.hasNext())
+				return false;
+			pageItems = itemsReader.getItems(pages.next()).iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public ITEM next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return pageItems.next();
+	}
+
+	/**
+	 * Not supported.
+	 *
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stop reading pages, the page being read is cancelled and the pages read in advance are dropped.
+	 * <p>Can be called from any thread.</p>
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		pages.close();
+	}
+}
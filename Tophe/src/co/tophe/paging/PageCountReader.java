@@ -0,0 +1,14 @@
+package co.tophe.paging;
+
+/**
+ * Read the total number of pages from the first page, when the API reports the total number of items.
+ *
+ * @see co.tophe.paging.PagingHelper#processIndexedPages(IndexedPageFactory, PageCountReader, Object, PageCallback, int)
+ */
+public interface PageCountReader<PAGE> {
+	/**
+	 * @param firstPage The page at index {@code 0}
+	 * @return The total number of pages, including the first one
+	 */
+	int getPageCount(PAGE firstPage);
+}
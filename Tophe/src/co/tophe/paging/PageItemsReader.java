@@ -0,0 +1,19 @@
+package co.tophe.paging;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Read the items found in a page.
+ *
+ * @param <PAGE> Type of the Object representing a page
+ * @param <ITEM> Type of the items in a page
+ * @see co.tophe.paging.PagingHelper#iterateItems(java.util.concurrent.Callable, NextPageFactory, PageItemsReader, int)
+ */
+public interface PageItemsReader<PAGE, ITEM> {
+	/**
+	 * @param page The page read
+	 * @return The items of the page, in order
+	 */
+	@NonNull
+	Iterable<ITEM> getItems(PAGE page);
+}
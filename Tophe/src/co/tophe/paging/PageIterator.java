@@ -0,0 +1,137 @@
+package co.tophe.paging;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import android.support.annotation.Nullable;
+
+import co.tophe.Deadline;
+import co.tophe.HttpEngine;
+
+/**
+ * {@link java.util.Iterator} over pages, the pages are read only when the consumer asks for them.
+ * <p>With a {@code prefetchDepth} of {@code 0} each page is read in the thread calling {@link #hasNext()}. Otherwise
+ * the pages are read in the background and at most {@code prefetchDepth} pages are kept in memory until they are
+ * consumed.</p>
+ * <p>The iterator can only be used once, {@link #iterator()} returns itself so it can be used in a for-each loop.
+ * {@link #close()} it if the iteration is abandoned before the end, to cancel the page being read.</p>
+ * <p>Errors are reported as a {@link co.tophe.paging.PagingException}.</p>
+ *
+ * @param <PAGE> Type of the Object representing a page
+ * @see co.tophe.paging.PagingHelper#iteratePages(java.util.concurrent.Callable, NextPageFactory, int)
+ */
+public class PageIterator<PAGE> implements Iterator<PAGE>, Iterable<PAGE>, Closeable {
+	private final NextPageFactory<PAGE> nextPageFactory;
+	private final int prefetchDepth;
+	private final Executor executor;
+	private final Deadline deadline;
+
+	private volatile Callable<PAGE> pendingRequest;
+	private volatile PagePrefetcher<PAGE> prefetcher;
+	private volatile boolean closed;
+	private boolean started;
+	private boolean hasPage;
+	private PAGE page;
+
+	PageIterator(Callable<PAGE> firstPageRequest, NextPageFactory<PAGE> nextPageFactory, int prefetchDepth, Executor executor) {
+		if (prefetchDepth < 0) throw new IllegalArgumentException("invalid prefetch depth " + prefetchDepth);
+		this.pendingRequest = firstPageRequest;
+		this.nextPageFactory = nextPageFactory;
+		this.prefetchDepth = prefetchDepth;
+		this.executor = executor;
+		this.deadline = Deadline.current();
+	}
+
+	@Override
+	public Iterator<PAGE> iterator() {
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (hasPage)
+			return true;
+		if (closed)
+			return false;
+
+		Deadline previousDeadline = Deadline.enter(deadline);
+		try {
+			if (0 == prefetchDepth)
+				readPage();
+			else
+				readPrefetchedPage();
+		} catch (Exception e) {
+			close();
+			throw new PagingException(e);
+		} finally {
+			Deadline.exit(previousDeadline);
+		}
+		return hasPage;
+	}
+
+	private void readPage() throws Exception {
+		Callable<PAGE> pageRequest = pendingRequest;
+		if (null == pageRequest) {
+			closed = true;
+			return;
+		}
+		page = pageRequest.call();
+		pendingRequest = closed ? null : nextPageFactory.createCallable(page);
+		hasPage = true;
+	}
+
+	private void readPrefetchedPage() throws Exception {
+		if (!started) {
+			started = true;
+			prefetcher = new PagePrefetcher<PAGE>(pendingRequest, nextPageFactory, prefetchDepth).start(executor);
+			pendingRequest = null;
+			if (closed)
+				prefetcher.cancel();
+		}
+		if (prefetcher.next()) {
+			page = prefetcher.getPage();
+			hasPage = true;
+		} else {
+			closed = true;
+		}
+	}
+
+	@Nullable
+	@Override
+	public PAGE next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		PAGE result = page;
+		page = null;
+		hasPage = false;
+		return result;
+	}
+
+	/**
+	 * Not supported.
+	 *
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stop reading pages, the page being read is cancelled and the pages read in advance are dropped.
+	 * <p>Can be called from any thread.</p>
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		PagePrefetcher<PAGE> pagePrefetcher = prefetcher;
+		if (null != pagePrefetcher)
+			pagePrefetcher.cancel();
+		Callable<PAGE> pageRequest = pendingRequest;
+		if (pageRequest instanceof HttpEngine)
+			((HttpEngine<?, ?>) pageRequest).cancel();
+	}
+}
@@ -0,0 +1,218 @@
+package co.tophe.paging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import android.support.annotation.Nullable;
+
+import co.tophe.Deadline;
+import co.tophe.HttpEngine;
+
+/**
+ * Read the pages one after the other in a background thread and keep them until they are consumed.
+ * <p>The next page is requested as soon as the current page is read, without waiting for the current page to be
+ * consumed. At most {@code prefetchDepth} pages are kept in memory, the reading stops until pages are consumed.</p>
+ * <p>Until the executor starts the background reading, {@link #next()} reads the pages in the consumer thread, so an
+ * executor busy with the consumers doesn't block them.</p>
+ *
+ * @param <PAGE> Type of the Object representing a page
+ */
+final class PagePrefetcher<PAGE> implements Runnable {
+
+	private static final Object END = new Object();
+	private static final Object NULL_PAGE = new Object();
+
+	private static class Failure {
+		final Exception exception;
+
+		Failure(Exception exception) {
+			this.exception = exception;
+		}
+	}
+
+	private final NextPageFactory<PAGE> nextPageFactory;
+	private final BlockingQueue<Object> pages;
+	private final Deadline deadline;
+
+	private volatile Callable<PAGE> pendingRequest;
+	private volatile boolean cancelled;
+	private volatile boolean ended;
+	private Object currentPage;
+	private Thread producer; // guarded by this
+	private boolean producerStarted; // guarded by this
+	private boolean consumerReading; // guarded by this
+
+	PagePrefetcher(Callable<PAGE> firstPageRequest, NextPageFactory<PAGE> nextPageFactory, int prefetchDepth) {
+		if (prefetchDepth < 1) throw new IllegalArgumentException("invalid prefetch depth " + prefetchDepth);
+		this.pendingRequest = firstPageRequest;
+		this.nextPageFactory = nextPageFactory;
+		this.pages = new ArrayBlockingQueue<Object>(prefetchDepth);
+		this.deadline = Deadline.current();
+	}
+
+	/**
+	 * Start reading the pages with the {@code executor}.
+	 */
+	PagePrefetcher<PAGE> start(Executor executor) {
+		executor.execute(this);
+		return this;
+	}
+
+	@Override
+	public void run() {
+		synchronized (this) {
+			if (cancelled)
+				return;
+			producer = Thread.currentThread();
+			try {
+				// the consumer is reading the pending page itself
+				while (consumerReading && !cancelled) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				if (!cancelled)
+					Thread.currentThread().interrupt();
+			}
+			producerStarted = true;
+		}
+		Deadline previousDeadline = Deadline.enter(deadline);
+		Object last = END;
+		try {
+			Callable<PAGE> pageRequest = pendingRequest;
+			while (null != pageRequest && !cancelled) {
+				PAGE page = pageRequest.call();
+				// request the next page before the current page is consumed
+				pageRequest = nextPageFactory.createCallable(page);
+				pendingRequest = pageRequest;
+				if (!enqueue(null == page ? NULL_PAGE : page))
+					break;
+			}
+		} catch (Exception e) {
+			last = new Failure(e);
+		} finally {
+			pendingRequest = null;
+			Deadline.exit(previousDeadline);
+			try {
+				enqueue(last);
+			} catch (InterruptedException ignored) {
+				// interrupted while waiting for the pages to be consumed
+			}
+			synchronized (this) {
+				producer = null;
+			}
+			if (cancelled)
+				Thread.interrupted(); // don't leave the interrupt of cancel() to the next task of the executor thread
+		}
+	}
+
+	/**
+	 * Wait until there's room for the {@code item} or the reading is cancelled, {@link #cancel()} interrupts the wait.
+	 *
+	 * @return {@code false} if the reading was cancelled.
+	 */
+	private boolean enqueue(Object item) throws InterruptedException {
+		if (cancelled)
+			return false;
+		try {
+			pages.put(item);
+			return true;
+		} catch (InterruptedException e) {
+			if (cancelled)
+				return false;
+			throw e;
+		}
+	}
+
+	/**
+	 * Wait for the next page.
+	 *
+	 * @return {@code true} if a page was read, {@code false} if there are no more pages.
+	 * @throws Exception the error raised while reading the page.
+	 * @see #getPage()
+	 */
+	boolean next() throws Exception {
+		if (ended)
+			return false;
+		boolean readInline;
+		synchronized (this) {
+			readInline = consumerReading = !producerStarted;
+		}
+		if (readInline)
+			return readPage();
+
+		Object page = pages.take();
+		if (END == page) {
+			ended = true;
+			return false;
+		}
+		if (page instanceof Failure) {
+			ended = true;
+			throw ((Failure) page).exception;
+		}
+		currentPage = page;
+		return true;
+	}
+
+	/**
+	 * Read the pending page in the calling thread, the background reading has not started yet.
+	 */
+	private boolean readPage() throws Exception {
+		try {
+			Callable<PAGE> pageRequest = pendingRequest;
+			if (null == pageRequest || cancelled) {
+				ended = true;
+				return false;
+			}
+			PAGE page = pageRequest.call();
+			pendingRequest = nextPageFactory.createCallable(page);
+			currentPage = null == page ? NULL_PAGE : page;
+			return true;
+		} catch (Exception e) {
+			ended = true;
+			pendingRequest = null;
+			if (cancelled)
+				return false;
+			throw e;
+		} finally {
+			synchronized (this) {
+				consumerReading = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @return the page read by the last successful call to {@link #next()}.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	PAGE getPage() {
+		return NULL_PAGE == currentPage ? null : (PAGE) currentPage;
+	}
+
+	/**
+	 * Stop reading pages and abort the page being read.
+	 * <p>Can be called from any thread.</p>
+	 */
+	void cancel() {
+		cancelled = true;
+		ended = true;
+		pages.clear(); // free the pages
+		pages.offer(END); // wake up a consumer waiting for a page
+
+		Callable<PAGE> pageRequest = pendingRequest;
+		if (pageRequest instanceof HttpEngine)
+			((HttpEngine<?, ?>) pageRequest).cancel();
+		else if (pageRequest instanceof Future)
+			((Future<?>) pageRequest).cancel(true);
+
+		// wake up the reading thread waiting for room in the queue
+		synchronized (this) {
+			if (null != producer)
+				producer.interrupt();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package co.tophe.paging;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.CacheControl;
+import co.tophe.HttpEngine;
+import co.tophe.HttpRequest;
+import co.tophe.HttpResponse;
+import co.tophe.ImmutableHttpRequest;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.TypedHttpRequest;
+import co.tophe.parser.ParserException;
+import co.tophe.parser.XferTransform;
+
+/**
+ * A refresh of a paginated list using the validators kept in a {@link co.tophe.paging.PageRevalidationCache}.
+ * <p>The page requests created with {@link #createEngine(String, co.tophe.TypedHttpRequest)} are conditional when the
+ * page is in the cache. The {@link co.tophe.paging.NextPageFactory} wrapped with {@link #stopWhenUnchanged(NextPageFactory)}
+ * stops the reading once {@code maxUnchangedPages} consecutive pages are not modified, the following pages are
+ * considered unchanged as well.</p>
+ * <p>The pages of a refresh are expected to be read one after the other, as done by {@link co.tophe.paging.PagingHelper}.</p>
+ *
+ * @param <PAGE> Type of the Object representing a page
+ * @see PageRevalidationCache#newRefresh(int)
+ */
+public final class PageRefresh<PAGE> {
+
+	private static final String HEADER_ETAG = "ETag";
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+	private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+	private static final int HTTP_NOT_MODIFIED = 304;
+
+	private final PageRevalidationCache<PAGE> cache;
+	private final int maxUnchangedPages;
+	private final AtomicInteger unchangedPages = new AtomicInteger();
+	private final AtomicInteger notModifiedPages = new AtomicInteger();
+
+	PageRefresh(PageRevalidationCache<PAGE> cache, int maxUnchangedPages) {
+		if (maxUnchangedPages < 0) throw new IllegalArgumentException("invalid number of unchanged pages " + maxUnchangedPages);
+		this.cache = cache;
+		this.maxUnchangedPages = maxUnchangedPages;
+	}
+
+	/**
+	 * Create the {@link co.tophe.HttpEngine} to read a page, the page URI is used as the key in the cache.
+	 *
+	 * @see #createEngine(String, co.tophe.TypedHttpRequest)
+	 */
+	@NonNull
+	public <SE extends ServerException> HttpEngine<PAGE, SE> createEngine(@NonNull TypedHttpRequest<PAGE, SE> request) {
+		return createEngine(request.getUri().toString(), request);
+	}
+
+	/**
+	 * Create the {@link co.tophe.HttpEngine} to read a page.
+	 * <p>If the page is in the cache, the request is sent with {@code If-None-Match} and/or {@code If-Modified-Since}
+	 * and the cached page is returned when the server answers {@code 304 Not Modified}.</p>
+	 *
+	 * @param key     the key identifying the page in the cache.
+	 * @param request the request to read the page.
+	 */
+	@NonNull
+	public <SE extends ServerException> HttpEngine<PAGE, SE> createEngine(@NonNull String key, @NonNull TypedHttpRequest<PAGE, SE> request) {
+		PageRevalidationCache.Entry<PAGE> previous = cache.get(key);
+		HttpEngine<PAGE, SE> engine = new HttpEngine.Builder<PAGE, SE>()
+				.setRequest(request)
+				.setResponseHandler(createResponseHandler(key, previous, request.getResponseHandler()))
+				.build();
+		if (null != previous) {
+			if (null != previous.etag)
+				engine.setHeader(HEADER_IF_NONE_MATCH, previous.etag);
+			if (null != previous.lastModified)
+				engine.setHeader(HEADER_IF_MODIFIED_SINCE, previous.lastModified);
+		}
+		return engine;
+	}
+
+	/**
+	 * Wrap the {@code nextPageFactory} to stop reading pages once {@code maxUnchangedPages} consecutive pages are unchanged.
+	 *
+	 * @param nextPageFactory the factory creating the page requests with {@link #createEngine(String, co.tophe.TypedHttpRequest)}.
+	 */
+	public NextPageFactory<PAGE> stopWhenUnchanged(final NextPageFactory<PAGE> nextPageFactory) {
+		return new NextPageFactory<PAGE>() {
+			@Nullable
+			@Override
+			public Callable<PAGE> createCallable(PAGE page) {
+				if (isStopped())
+					return null;
+				return nextPageFactory.createCallable(page);
+			}
+		};
+	}
+
+	/**
+	 * @return whether enough consecutive pages were unchanged to stop reading the next pages.
+	 */
+	public boolean isStopped() {
+		return 0 != maxUnchangedPages && unchangedPages.get() >= maxUnchangedPages;
+	}
+
+	/**
+	 * @return the number of pages that were answered with {@code 304 Not Modified} during this refresh.
+	 */
+	public int getNotModifiedCount() {
+		return notModifiedPages.get();
+	}
+
+	@NonNull
+	<SE extends ServerException> ResponseHandler<PAGE, SE> createResponseHandler(String key, @Nullable PageRevalidationCache.Entry<PAGE> previous, ResponseHandler<PAGE, SE> handler) {
+		return new RevalidatingResponseHandler<PAGE, SE>(new RevalidatingParser(key, previous, handler.contentParser), handler);
+	}
+
+	private void onPageRead(boolean unchanged) {
+		if (unchanged)
+			unchangedPages.incrementAndGet();
+		else
+			unchangedPages.set(0);
+	}
+
+	/**
+	 * Return the cached page on {@code 304 Not Modified}, parse and keep the page otherwise.
+	 */
+	private class RevalidatingParser implements XferTransform<HttpResponse, PAGE> {
+		private final String key;
+		@Nullable
+		private final PageRevalidationCache.Entry<PAGE> previous;
+		private final XferTransform<HttpResponse, PAGE> contentParser;
+
+		RevalidatingParser(String key, @Nullable PageRevalidationCache.Entry<PAGE> previous, XferTransform<HttpResponse, PAGE> contentParser) {
+			this.key = key;
+			this.previous = previous;
+			this.contentParser = contentParser;
+		}
+
+		@Override
+		public PAGE transformData(HttpResponse response, ImmutableHttpRequest request) throws IOException, ParserException {
+			String etag = response.getHeaderField(HEADER_ETAG);
+			String lastModified = response.getHeaderField(HEADER_LAST_MODIFIED);
+
+			if (HTTP_NOT_MODIFIED == response.getResponseCode()) {
+				if (null == previous)
+					throw new ParserException("unexpected 304 response for " + key, null, null);
+				// the 304 may carry updated validators
+				cache.put(key, new PageRevalidationCache.Entry<PAGE>(null != etag ? etag : previous.etag,
+						null != lastModified ? lastModified : previous.lastModified, previous.page));
+				notModifiedPages.incrementAndGet();
+				onPageRead(true);
+				return previous.page;
+			}
+
+			PAGE page = contentParser.transformData(response, request);
+			if ((null == etag && null == lastModified) || CacheControl.parse(response).noStore())
+				cache.remove(key);
+			else
+				cache.put(key, new PageRevalidationCache.Entry<PAGE>(etag, lastModified, page));
+
+			// a full response with the same strong ETag has the same content
+			onPageRead(null != previous && null != etag && !etag.startsWith("W/") && etag.equals(previous.etag));
+			return page;
+		}
+	}
+
+	private static class RevalidatingResponseHandler<PAGE, SE extends ServerException> extends ResponseHandler<PAGE, SE> {
+		private final ResponseHandler<PAGE, SE> handler;
+
+		RevalidatingResponseHandler(XferTransform<HttpResponse, PAGE> contentParser, ResponseHandler<PAGE, SE> handler) {
+			super(contentParser, handler.errorParser);
+			this.handler = handler;
+		}
+
+		@Override
+		public void onHttpResponse(@NonNull HttpRequest request, @NonNull HttpResponse response) {
+			handler.onHttpResponse(request, response);
+		}
+
+		@Nullable
+		@Override
+		public Boolean followsRedirect() {
+			return handler.followsRedirect();
+		}
+	}
+}
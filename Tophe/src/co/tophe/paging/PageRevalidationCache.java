@@ -0,0 +1,97 @@
+package co.tophe.paging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Remember the validators ({@code ETag} and {@code Last-Modified}) and the parsed page of the page requests so
+ * the pages can be refreshed with conditional requests.
+ * <p>When the server answers {@code 304 Not Modified} the page parsed the previous time is reused. Pages sent with
+ * {@code Cache-Control: no-store} or without any validator are not kept.</p>
+ * <p>The cache is safe to use from multiple threads, the least recently used pages are dropped when it's full.
+ * Each refresh of a list is done with a new {@link co.tophe.paging.PageRefresh} from {@link #newRefresh(int)}.</p>
+ *
+ * @param <PAGE> Type of the Object representing a page
+ */
+public final class PageRevalidationCache<PAGE> {
+
+	/**
+	 * Validators and parsed page of a previous response.
+	 */
+	static final class Entry<PAGE> {
+		@Nullable
+		final String etag;
+		@Nullable
+		final String lastModified;
+		final PAGE page;
+
+		Entry(@Nullable String etag, @Nullable String lastModified, PAGE page) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.page = page;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry<PAGE>> entries;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxPages maximum number of pages kept in the cache.
+	 */
+	public PageRevalidationCache(final int maxPages) {
+		if (maxPages < 1) throw new IllegalArgumentException("invalid cache size " + maxPages);
+		this.entries = new LinkedHashMap<String, Entry<PAGE>>(Math.min(maxPages, 64), 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PageRevalidationCache.Entry<PAGE>> eldest) {
+				return size() > maxPages;
+			}
+		};
+	}
+
+	/**
+	 * Start a refresh of a paginated list.
+	 *
+	 * @param maxUnchangedPages number of consecutive unchanged pages after which the refresh stops, {@code 0} to read all the pages.
+	 * @return the {@link co.tophe.paging.PageRefresh} to create the page requests with.
+	 */
+	public PageRefresh<PAGE> newRefresh(int maxUnchangedPages) {
+		return new PageRefresh<PAGE>(this, maxUnchangedPages);
+	}
+
+	/**
+	 * @param key the key of the page request.
+	 * @return the page kept for the {@code key} or {@code null}.
+	 */
+	@Nullable
+	public PAGE getPage(@NonNull String key) {
+		Entry<PAGE> entry = get(key);
+		return null == entry ? null : entry.page;
+	}
+
+	/**
+	 * Forget the page kept for the {@code key}, the next request for this page will not be conditional.
+	 */
+	public synchronized void remove(@NonNull String key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Forget all the pages.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	@Nullable
+	synchronized Entry<PAGE> get(String key) {
+		return entries.get(key);
+	}
+
+	synchronized void put(String key, Entry<PAGE> entry) {
+		entries.put(key, entry);
+	}
+}
@@ -0,0 +1,20 @@
+package co.tophe.paging;
+
+/**
+ * Unchecked exception thrown by a {@link co.tophe.paging.PageIterator} when a page cannot be read.
+ * <p>The {@link #getCause()} is the original error, usually a {@link co.tophe.HttpException HttpException} or a
+ * {@link co.tophe.ServerException ServerException}.</p>
+ */
+public class PagingException extends RuntimeException {
+
+	private static final long serialVersionUID = -3094817266455912873L;
+
+	public PagingException(Exception cause) {
+		super(cause);
+	}
+
+	@Override
+	public Exception getCause() {
+		return (Exception) super.getCause();
+	}
+}
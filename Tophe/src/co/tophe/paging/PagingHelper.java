@@ -1,5 +1,6 @@
 package co.tophe.paging;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -7,12 +8,14 @@ import java.util.concurrent.Executor;
 
 import android.support.annotation.Nullable;
 
+import co.tophe.Deadline;
 import co.tophe.async.AsyncCallback;
 import co.tophe.async.AsyncTopheClient;
 import co.tophe.async.AsyncTask;
 
 /**
  * Helper class to handle page loading.
+ * <p>The {@link co.tophe.Deadline} of the thread starting the page loading applies to all the pages.</p>
  *
  * @author Created by robUx4 on 02/09/2014.
  */
@@ -38,7 +41,7 @@ public final class PagingHelper {
 	}
 
 	/**
-	 * Read a {@link PAGE}, store it and read the next page recursively until there's none
+	 * Read a {@link PAGE}, store it and read the next page until there's none
 	 *
 	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
 	 * @param pagedHolder        Object that will keep all the pages
@@ -48,20 +51,279 @@ public final class PagingHelper {
 	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processPage(final Callable<PAGE> currentPageRequest, final PAGE_HOLDER pagedHolder,
 	                                                                    @Nullable final PageCallback<PAGE_HOLDER, PAGE> pageCallback,
 	                                                                    final NextPageFactory<PAGE> nextPageFactory) {
+		final Deadline deadline = Deadline.current();
 		return new Callable<PAGE_HOLDER>() {
 			@Override
 			public PAGE_HOLDER call() throws Exception {
-				PAGE newPage = currentPageRequest.call();
-				if (null != pageCallback)
-					pageCallback.onNewPage(pagedHolder, newPage);
-				Callable<PAGE> nextPageCall = nextPageFactory.createCallable(newPage);
-				if (null == nextPageCall)
+				Deadline previousDeadline = Deadline.enter(deadline);
+				try {
+					Callable<PAGE> pageRequest = currentPageRequest;
+					while (null != pageRequest) {
+						PAGE newPage = pageRequest.call();
+						if (null != pageCallback)
+							pageCallback.onNewPage(pagedHolder, newPage);
+						pageRequest = nextPageFactory.createCallable(newPage);
+					}
 					return pagedHolder;
-				return processPage(nextPageCall, pagedHolder, pageCallback, nextPageFactory).call();
+				} finally {
+					Deadline.exit(previousDeadline);
+				}
 			}
 		};
 	}
 
+	/**
+	 * Read a {@link PAGE}, store it and read the next page until there's none, the next page is read while the current
+	 * one is processed by the {@code pageCallback}
+	 * <p>The pages are read with the {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.</p>
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory until they are processed
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processPagePrefetch(Callable<PAGE> currentPageRequest, PAGE_HOLDER pagedHolder,
+	                                                                            @Nullable PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            NextPageFactory<PAGE> nextPageFactory, int prefetchDepth) {
+		return processPagePrefetch(currentPageRequest, pagedHolder, pageCallback, nextPageFactory, prefetchDepth, AsyncTopheClient.getExecutor());
+	}
+
+	/**
+	 * Read a {@link PAGE}, store it and read the next page until there's none, the next page is read while the current
+	 * one is processed by the {@code pageCallback}
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory until they are processed
+	 * @param executor           {@link java.util.concurrent.Executor} with which the pages are read
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processPagePrefetch(final Callable<PAGE> currentPageRequest, final PAGE_HOLDER pagedHolder,
+	                                                                            @Nullable final PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            final NextPageFactory<PAGE> nextPageFactory, final int prefetchDepth,
+	                                                                            final Executor executor) {
+		if (prefetchDepth < 1) throw new IllegalArgumentException("invalid prefetch depth " + prefetchDepth);
+		final Deadline deadline = Deadline.current();
+		return new Callable<PAGE_HOLDER>() {
+			@Override
+			public PAGE_HOLDER call() throws Exception {
+				Deadline previousDeadline = Deadline.enter(deadline);
+				PagePrefetcher<PAGE> prefetcher = null;
+				try {
+					prefetcher = new PagePrefetcher<PAGE>(currentPageRequest, nextPageFactory, prefetchDepth).start(executor);
+					while (prefetcher.next()) {
+						if (null != pageCallback)
+							pageCallback.onNewPage(pagedHolder, prefetcher.getPage());
+					}
+					prefetcher = null;
+					return pagedHolder;
+				} finally {
+					if (null != prefetcher)
+						prefetcher.cancel(); // don't read more pages after an error
+					Deadline.exit(previousDeadline);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Iterate over the pages starting with the current one, a page is read only when the iterator reaches it
+	 * <p>The pages are read in advance with the {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.</p>
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory, {@code 0} to read each page
+	 *                           in the thread iterating
+	 * @return A {@link co.tophe.paging.PageIterator} to {@link co.tophe.paging.PageIterator#close() close} if the iteration doesn't go to the end
+	 */
+	public static <PAGE> PageIterator<PAGE> iteratePages(Callable<PAGE> currentPageRequest, NextPageFactory<PAGE> nextPageFactory, int prefetchDepth) {
+		return iteratePages(currentPageRequest, nextPageFactory, prefetchDepth, AsyncTopheClient.getExecutor());
+	}
+
+	/**
+	 * Iterate over the pages starting with the current one, a page is read only when the iterator reaches it
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory, {@code 0} to read each page
+	 *                           in the thread iterating
+	 * @param executor           {@link java.util.concurrent.Executor} with which the pages are read in advance
+	 * @return A {@link co.tophe.paging.PageIterator} to {@link co.tophe.paging.PageIterator#close() close} if the iteration doesn't go to the end
+	 */
+	public static <PAGE> PageIterator<PAGE> iteratePages(Callable<PAGE> currentPageRequest, NextPageFactory<PAGE> nextPageFactory, int prefetchDepth,
+	                                                     Executor executor) {
+		return new PageIterator<PAGE>(currentPageRequest, nextPageFactory, prefetchDepth, executor);
+	}
+
+	/**
+	 * Iterate over the items of the pages starting with the current one, a page is read only when the iterator reaches its items
+	 * <p>The pages are read in advance with the {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.</p>
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param itemsReader        Reader of the items in a page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory, {@code 0} to read each page
+	 *                           in the thread iterating
+	 * @return A {@link co.tophe.paging.ItemIterator} to {@link co.tophe.paging.ItemIterator#close() close} if the iteration doesn't go to the end
+	 */
+	public static <PAGE, ITEM> ItemIterator<PAGE, ITEM> iterateItems(Callable<PAGE> currentPageRequest, NextPageFactory<PAGE> nextPageFactory,
+	                                                                 PageItemsReader<PAGE, ITEM> itemsReader, int prefetchDepth) {
+		return iterateItems(currentPageRequest, nextPageFactory, itemsReader, prefetchDepth, AsyncTopheClient.getExecutor());
+	}
+
+	/**
+	 * Iterate over the items of the pages starting with the current one, a page is read only when the iterator reaches its items
+	 *
+	 * @param currentPageRequest Request to get the current {@link PAGE} data (usually a {@link co.tophe.HttpEngine HttpEngine})
+	 * @param nextPageFactory    Factory to get the {@link java.util.concurrent.Callable} to retrieve the next page
+	 * @param itemsReader        Reader of the items in a page
+	 * @param prefetchDepth      Maximum number of pages read in advance and kept in memory, {@code 0} to read each page
+	 *                           in the thread iterating
+	 * @param executor           {@link java.util.concurrent.Executor} with which the pages are read in advance
+	 * @return A {@link co.tophe.paging.ItemIterator} to {@link co.tophe.paging.ItemIterator#close() close} if the iteration doesn't go to the end
+	 */
+	public static <PAGE, ITEM> ItemIterator<PAGE, ITEM> iterateItems(Callable<PAGE> currentPageRequest, NextPageFactory<PAGE> nextPageFactory,
+	                                                                 PageItemsReader<PAGE, ITEM> itemsReader, int prefetchDepth, Executor executor) {
+		return new ItemIterator<PAGE, ITEM>(iteratePages(currentPageRequest, nextPageFactory, prefetchDepth, executor), itemsReader);
+	}
+
+	/**
+	 * Read {@code pageCount} pages accessed by their index, several pages are read at the same time and the
+	 * {@code pageCallback} receives them in order
+	 * <p>The pages are read with the {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.</p>
+	 *
+	 * @param pageFactory        Factory to get the {@link java.util.concurrent.Callable} to retrieve a page from its index
+	 * @param pageCount          Total number of pages to read
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param maxConcurrentPages Maximum number of pages being read or waiting to be processed at the same time
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processIndexedPages(IndexedPageFactory<PAGE> pageFactory, int pageCount,
+	                                                                            PAGE_HOLDER pagedHolder, @Nullable PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            int maxConcurrentPages) {
+		return processIndexedPages(pageFactory, pageCount, pagedHolder, pageCallback, maxConcurrentPages, AsyncTopheClient.getExecutor());
+	}
+
+	/**
+	 * Read {@code pageCount} pages accessed by their index, several pages are read at the same time and the
+	 * {@code pageCallback} receives them in order
+	 *
+	 * @param pageFactory        Factory to get the {@link java.util.concurrent.Callable} to retrieve a page from its index
+	 * @param pageCount          Total number of pages to read
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param maxConcurrentPages Maximum number of pages being read or waiting to be processed at the same time
+	 * @param executor           {@link java.util.concurrent.Executor} with which the pages are read
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processIndexedPages(final IndexedPageFactory<PAGE> pageFactory, final int pageCount,
+	                                                                            final PAGE_HOLDER pagedHolder, @Nullable final PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            final int maxConcurrentPages, final Executor executor) {
+		if (maxConcurrentPages < 1) throw new IllegalArgumentException("invalid concurrent pages " + maxConcurrentPages);
+		final Deadline deadline = Deadline.current();
+		return new Callable<PAGE_HOLDER>() {
+			@Override
+			public PAGE_HOLDER call() throws Exception {
+				readIndexedPages(pageFactory, 0, pageCount, pagedHolder, pageCallback, maxConcurrentPages, executor, deadline);
+				return pagedHolder;
+			}
+		};
+	}
+
+	/**
+	 * Read the first page to know the total number of pages, then read the other pages accessed by their index,
+	 * several pages are read at the same time and the {@code pageCallback} receives them in order
+	 * <p>The pages are read with the {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.</p>
+	 *
+	 * @param pageFactory        Factory to get the {@link java.util.concurrent.Callable} to retrieve a page from its index
+	 * @param pageCountReader    Reader of the total number of pages in the first page
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param maxConcurrentPages Maximum number of pages being read or waiting to be processed at the same time
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processIndexedPages(IndexedPageFactory<PAGE> pageFactory, PageCountReader<PAGE> pageCountReader,
+	                                                                            PAGE_HOLDER pagedHolder, @Nullable PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            int maxConcurrentPages) {
+		return processIndexedPages(pageFactory, pageCountReader, pagedHolder, pageCallback, maxConcurrentPages, AsyncTopheClient.getExecutor());
+	}
+
+	/**
+	 * Read the first page to know the total number of pages, then read the other pages accessed by their index,
+	 * several pages are read at the same time and the {@code pageCallback} receives them in order
+	 *
+	 * @param pageFactory        Factory to get the {@link java.util.concurrent.Callable} to retrieve a page from its index
+	 * @param pageCountReader    Reader of the total number of pages in the first page
+	 * @param pagedHolder        Object that will keep all the pages
+	 * @param pageCallback       Callback to handle the loaded {@link PAGE} with the {@link PAGE_HOLDER}, may be {@code null}
+	 * @param maxConcurrentPages Maximum number of pages being read or waiting to be processed at the same time
+	 * @param executor           {@link java.util.concurrent.Executor} with which the pages after the first one are read
+	 * @return A {@link java.util.concurrent.Callable} to get all the pages
+	 */
+	public static <PAGE_HOLDER, PAGE> Callable<PAGE_HOLDER> processIndexedPages(final IndexedPageFactory<PAGE> pageFactory, final PageCountReader<PAGE> pageCountReader,
+	                                                                            final PAGE_HOLDER pagedHolder, @Nullable final PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                                            final int maxConcurrentPages, final Executor executor) {
+		if (maxConcurrentPages < 1) throw new IllegalArgumentException("invalid concurrent pages " + maxConcurrentPages);
+		final Deadline deadline = Deadline.current();
+		return new Callable<PAGE_HOLDER>() {
+			@Override
+			public PAGE_HOLDER call() throws Exception {
+				PAGE firstPage;
+				Deadline previousDeadline = Deadline.enter(deadline);
+				try {
+					firstPage = pageFactory.createCallable(0).call();
+				} finally {
+					Deadline.exit(previousDeadline);
+				}
+				if (null != pageCallback)
+					pageCallback.onNewPage(pagedHolder, firstPage);
+				int pageCount = pageCountReader.getPageCount(firstPage);
+				readIndexedPages(pageFactory, 1, pageCount, pagedHolder, pageCallback, maxConcurrentPages, executor, deadline);
+				return pagedHolder;
+			}
+		};
+	}
+
+	private static <PAGE_HOLDER, PAGE> void readIndexedPages(IndexedPageFactory<PAGE> pageFactory, int firstIndex, int pageCount,
+	                                                         PAGE_HOLDER pagedHolder, @Nullable PageCallback<PAGE_HOLDER, PAGE> pageCallback,
+	                                                         int maxConcurrentPages, Executor executor, @Nullable Deadline deadline) throws Exception {
+		ArrayDeque<IndexedPageTask<PAGE>> pendingPages = new ArrayDeque<IndexedPageTask<PAGE>>(Math.min(maxConcurrentPages, Math.max(1, pageCount)));
+		int nextIndex = firstIndex;
+		try {
+			while (nextIndex < pageCount && pendingPages.size() < maxConcurrentPages) {
+				pendingPages.add(startIndexedPage(pageFactory, nextIndex++, executor, deadline));
+			}
+			while (!pendingPages.isEmpty()) {
+				IndexedPageTask<PAGE> head = pendingPages.peek();
+				// the executor may be busy with tasks waiting like this one, does nothing if the page is already read
+				head.run();
+				PAGE page = head.getPage();
+				pendingPages.poll();
+				// keep the window full while the page is processed
+				if (nextIndex < pageCount)
+					pendingPages.add(startIndexedPage(pageFactory, nextIndex++, executor, deadline));
+				if (null != pageCallback)
+					pageCallback.onNewPage(pagedHolder, page);
+			}
+		} finally {
+			// don't read more pages after an error
+			for (IndexedPageTask<PAGE> pendingPage : pendingPages) {
+				pendingPage.cancel(true);
+			}
+		}
+	}
+
+	private static <PAGE> IndexedPageTask<PAGE> startIndexedPage(IndexedPageFactory<PAGE> pageFactory, int pageIndex, Executor executor, @Nullable Deadline deadline) {
+		IndexedPageTask<PAGE> task = new IndexedPageTask<PAGE>(pageFactory.createCallable(pageIndex), deadline);
+		executor.execute(task);
+		return task;
+	}
+
 	/**
 	 * Read all the {@link PAGE} and give the {@code resultCallback} these pages in a {@link List}
 	 *
@@ -128,18 +390,25 @@ public final class PagingHelper {
 	public static <PAGE_HOLDER, PAGE> void processPagesAsync(final Callable<PAGE> currentPageRequest, final PAGE_HOLDER pagesHolder, @Nullable final PageCallback<PAGE_HOLDER, PAGE> pageCallback,
 	                                                         final NextPageFactory<PAGE> nextPageFactory,
 	                                                         final AsyncCallback<PAGE_HOLDER> resultCallback, final Executor executor) {
+		final Deadline deadline = Deadline.current();
 		Callable<PAGE_HOLDER> pageCallable = new Callable<PAGE_HOLDER>() {
 			@Override
 			public PAGE_HOLDER call() throws Exception {
-				PAGE page = currentPageRequest.call();
-				if (null != pageCallback)
-					pageCallback.onNewPage(pagesHolder, page);
-				Callable<PAGE> nextCall = nextPageFactory.createCallable(page);
-				if (nextCall == null)
-					return pagesHolder; // no more pages to load, now we return the result for good
+				Deadline previousDeadline = Deadline.enter(deadline);
+				try {
+					PAGE page = currentPageRequest.call();
+					if (null != pageCallback)
+						pageCallback.onNewPage(pagesHolder, page);
+					Callable<PAGE> nextCall = nextPageFactory.createCallable(page);
+					if (nextCall == null)
+						return pagesHolder; // no more pages to load, now we return the result for good
 
-				processPagesAsync(nextCall, pagesHolder, pageCallback, nextPageFactory, resultCallback, executor);
-				return null;
+					// the next page is started with the same deadline
+					processPagesAsync(nextCall, pagesHolder, pageCallback, nextPageFactory, resultCallback, executor);
+					return null;
+				} finally {
+					Deadline.exit(previousDeadline);
+				}
 			}
 		};
 		AsyncTask<PAGE_HOLDER> asyncTask = new AsyncTask<PAGE_HOLDER>(pageCallable, resultCallback, false);
@@ -33,6 +33,10 @@ public class XferTransformInputStreamServerException implements XferTransform<In
 
 	@Override
 	public ServerException transformData(InputStream errorStream, ImmutableHttpRequest request) throws IOException, ParserException {
+		if (null == errorStream)
+			// error without a body, like for a HEAD request
+			return new ServerException(request, null);
+
 		Object errorData = null;
 		MediaType type = MediaType.parse(request.getHttpResponse().getContentType());
 		if (MEDIA_TYPE_JSON.equalsType(type)) {
@@ -0,0 +1,84 @@
+package co.tophe.signed;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * An OAuth2 access token and the data to renew it.
+ *
+ * @see co.tophe.signed.OAuth2TokenManager
+ */
+public final class OAuth2Token {
+
+	/**
+	 * Expiration time of a token that doesn't expire.
+	 */
+	public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+	private final String accessToken;
+	@Nullable
+	private final String refreshToken;
+	private final long expiresAt;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param accessToken  the token sent in the {@code Authorization} header.
+	 * @param refreshToken the token to get a new access token, may be {@code null}.
+	 * @param expiresAt    the {@link System#currentTimeMillis()} time when the access token expires, or {@link #NEVER_EXPIRES}.
+	 */
+	public OAuth2Token(@NonNull String accessToken, @Nullable String refreshToken, long expiresAt) {
+		if (null == accessToken) throw new NullPointerException("missing the OAuth2 access token");
+		this.accessToken = accessToken;
+		this.refreshToken = refreshToken;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Create a token from the {@code expires_in} field of a token response.
+	 *
+	 * @param accessToken  the token sent in the {@code Authorization} header.
+	 * @param refreshToken the token to get a new access token, may be {@code null}.
+	 * @param expiresIn    the lifetime of the access token in seconds, {@code 0} or less if it's unknown.
+	 */
+	public static OAuth2Token fromExpiresIn(@NonNull String accessToken, @Nullable String refreshToken, long expiresIn) {
+		return new OAuth2Token(accessToken, refreshToken, expiresIn <= 0 ? NEVER_EXPIRES : System.currentTimeMillis() + expiresIn * 1000L);
+	}
+
+	@NonNull
+	public String getAccessToken() {
+		return accessToken;
+	}
+
+	@Nullable
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	/**
+	 * @return the {@link System#currentTimeMillis()} time when the access token expires, or {@link #NEVER_EXPIRES}.
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @param now the current time in milliseconds.
+	 * @return whether the access token should not be used anymore.
+	 */
+	public boolean isExpired(long now) {
+		return expiresAt <= now;
+	}
+
+	/**
+	 * @return a copy of this token that is already expired, to force its renewal.
+	 */
+	OAuth2Token expire() {
+		return new OAuth2Token(accessToken, refreshToken, 0L);
+	}
+
+	@Override
+	public String toString() {
+		return "OAuth2Token{expiresAt=" + expiresAt + '}';
+	}
+}
@@ -0,0 +1,208 @@
+package co.tophe.signed;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpSignException;
+import co.tophe.async.AsyncTopheClient;
+
+/**
+ * Keep the OAuth2 access token used by a {@link co.tophe.signed.RequestSignerOAuth2} valid.
+ * <p>The token is renewed with an {@link co.tophe.signed.OAuth2TokenRefresher} and only one refresh runs at a time: the
+ * requests that need a new token wait for the running refresh instead of starting their own. A token that is about to
+ * expire is renewed in the background while the requests keep using it.</p>
+ * <p>When the server rejects a token with {@code 401 Unauthorized} the token is renewed and the request sent again once.</p>
+ *
+ * @see co.tophe.signed.RequestSignerOAuth2#withTokenManager(OAuth2TokenManager)
+ */
+public final class OAuth2TokenManager {
+
+	private final OAuth2TokenRefresher refresher;
+	private final long refreshMargin;
+	private final Executor executor;
+	private final AtomicInteger refreshCount = new AtomicInteger();
+
+	private final Object lock = new Object();
+	private OAuth2Token token;
+	private FutureTask<OAuth2Token> runningRefresh;
+
+	public static class Builder {
+		private final OAuth2TokenRefresher refresher;
+		private OAuth2Token token;
+		private long refreshMargin = 60000L;
+		private Executor executor;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param refresher the object that gets new access tokens.
+		 */
+		public Builder(@NonNull OAuth2TokenRefresher refresher) {
+			if (null == refresher) throw new NullPointerException("missing an OAuth2TokenRefresher");
+			this.refresher = refresher;
+		}
+
+		/**
+		 * @param token the current token, {@code null} to get one from the refresher on the first request (default).
+		 * @return the Builder.
+		 */
+		public Builder setToken(@Nullable OAuth2Token token) {
+			this.token = token;
+			return this;
+		}
+
+		/**
+		 * @param refreshMargin the time in milliseconds before the token expires when it's renewed in the background,
+		 *                      default is 60s.
+		 * @return the Builder.
+		 */
+		public Builder setRefreshMargin(long refreshMargin) {
+			if (refreshMargin < 0) throw new IllegalArgumentException("invalid refresh margin " + refreshMargin);
+			this.refreshMargin = refreshMargin;
+			return this;
+		}
+
+		/**
+		 * @param executor the {@link java.util.concurrent.Executor} running the background refreshes, by default the
+		 *                 {@link co.tophe.async.AsyncTopheClient#getExecutor() AsyncTopheClient executor}.
+		 * @return the Builder.
+		 */
+		public Builder setExecutor(@Nullable Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public OAuth2TokenManager build() {
+			return new OAuth2TokenManager(this);
+		}
+	}
+
+	private OAuth2TokenManager(Builder builder) {
+		this.refresher = builder.refresher;
+		this.token = builder.token;
+		this.refreshMargin = builder.refreshMargin;
+		this.executor = builder.executor;
+	}
+
+	/**
+	 * @return the current token, it may be expired. {@code null} if there is no token yet.
+	 */
+	@Nullable
+	public OAuth2Token getToken() {
+		synchronized (lock) {
+			return token;
+		}
+	}
+
+	/**
+	 * Replace the current token, for example after the user logged in again.
+	 */
+	public void setToken(@Nullable OAuth2Token token) {
+		synchronized (lock) {
+			this.token = token;
+		}
+	}
+
+	/**
+	 * Mark the access token as rejected by the server, the next request will wait for a new token.
+	 * <p>Nothing is done if the current token is not {@code accessToken}, it was already renewed.</p>
+	 */
+	public void invalidateToken(@NonNull String accessToken) {
+		synchronized (lock) {
+			if (null != token && token.getAccessToken().equals(accessToken))
+				token = token.expire();
+		}
+	}
+
+	/**
+	 * @return the number of times the token was refreshed with this manager.
+	 */
+	public int getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	/**
+	 * Get a token that is not expired, waiting for a refresh if needed.
+	 *
+	 * @param request the request the token is for, to report errors.
+	 * @throws HttpSignException if the token couldn't be refreshed.
+	 */
+	@NonNull
+	OAuth2Token getValidToken(@NonNull HttpRequestInfo request) throws HttpSignException {
+		FutureTask<OAuth2Token> refresh;
+		OAuth2Token validToken = null;
+		synchronized (lock) {
+			long now = System.currentTimeMillis();
+			if (null != token && !token.isExpired(now)) {
+				if (null != runningRefresh || !token.isExpired(now + refreshMargin))
+					return token;
+				// about to expire, renew it in the background
+				validToken = token;
+				refresh = runningRefresh = createRefresh(token);
+			} else {
+				refresh = runningRefresh;
+				if (null == refresh)
+					refresh = runningRefresh = createRefresh(token);
+			}
+		}
+
+		if (null != validToken) {
+			startBackgroundRefresh(refresh);
+			return validToken;
+		}
+
+		// a background refresh may still be queued in an executor busy with requests waiting for it,
+		// does nothing if the refresh is already running or done
+		refresh.run();
+
+		try {
+			return refresh.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HttpSignException.Builder(request).setErrorMessage("interrupted while refreshing the OAuth2 token").setCause(e).build();
+		} catch (ExecutionException e) {
+			throw new HttpSignException.Builder(request).setErrorMessage("failed to refresh the OAuth2 token").setCause(e.getCause()).build();
+		}
+	}
+
+	private void startBackgroundRefresh(FutureTask<OAuth2Token> refresh) {
+		try {
+			(null != executor ? executor : AsyncTopheClient.getExecutor()).execute(refresh);
+		} catch (RejectedExecutionException e) {
+			// the current token is still valid, we'll try again on the next request
+			synchronized (lock) {
+				if (runningRefresh == refresh)
+					runningRefresh = null;
+			}
+		}
+	}
+
+	private FutureTask<OAuth2Token> createRefresh(final OAuth2Token currentToken) {
+		return new FutureTask<OAuth2Token>(new Callable<OAuth2Token>() {
+			@Override
+			public OAuth2Token call() throws Exception {
+				OAuth2Token newToken = null;
+				try {
+					newToken = refresher.refreshToken(currentToken);
+					if (null == newToken) throw new NullPointerException("no token from " + refresher);
+					refreshCount.incrementAndGet();
+					return newToken;
+				} finally {
+					synchronized (lock) {
+						if (null != newToken)
+							token = newToken;
+						runningRefresh = null;
+					}
+				}
+			}
+		});
+	}
+}
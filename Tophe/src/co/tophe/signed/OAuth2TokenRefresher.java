@@ -0,0 +1,25 @@
+package co.tophe.signed;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import co.tophe.TopheException;
+
+/**
+ * Get a new OAuth2 access token from the token endpoint.
+ *
+ * @see co.tophe.signed.OAuth2TokenManager
+ */
+public interface OAuth2TokenRefresher {
+
+	/**
+	 * Request a new access token, usually with the {@code refresh_token} grant.
+	 * <p>Only one refresh runs at a time for an {@link co.tophe.signed.OAuth2TokenManager}.</p>
+	 *
+	 * @param currentToken the token to renew, {@code null} if the manager has no token yet.
+	 * @return the new token.
+	 * @throws TopheException if the token endpoint request failed, the requests waiting for the token fail too.
+	 */
+	@NonNull
+	OAuth2Token refreshToken(@Nullable OAuth2Token currentToken) throws TopheException;
+}
@@ -0,0 +1,21 @@
+package co.tophe.signed;
+
+import co.tophe.HttpEngine;
+
+/**
+ * {@link co.tophe.signed.RequestSigner} with credentials that can be renewed when the server rejects them.
+ * <p>A request signed with it that fails with a {@code 401 Unauthorized} response is signed and sent again once, if its
+ * body can be written again.</p>
+ *
+ * @see co.tophe.engine.ReauthenticatingHttpEngine
+ */
+public interface RenewableRequestSigner extends RequestSigner {
+
+	/**
+	 * Called when the server answered {@code 401 Unauthorized} to a request signed by this signer.
+	 *
+	 * @param engine the engine that received the response, with the headers it was signed with.
+	 * @return whether the request should be signed and sent again.
+	 */
+	boolean onUnauthorized(HttpEngine<?, ?> engine);
+}
@@ -1,15 +1,21 @@
 package co.tophe.signed;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import co.tophe.HttpEngine;
+import co.tophe.HttpSignException;
 
 /**
  * Helper class to sign a {@link co.tophe.BaseHttpRequest} with OAuth2.
+ *
+ * @see #withTokenManager(OAuth2TokenManager)
  */
 public class RequestSignerOAuth2 extends AbstractOAuthSigner {
 
+	private static final String BEARER = "Bearer ";
+
 	/**
 	 * A {@link RequestSignerOAuth2} for the specified authenticating user.
 	 *
@@ -19,13 +25,49 @@ public class RequestSignerOAuth2 extends AbstractOAuthSigner {
 		super(user);
 	}
 
+	/**
+	 * A {@link RequestSignerOAuth2} using the token of a {@link co.tophe.signed.OAuth2TokenManager}.
+	 * <p>The token is renewed when it expires and the requests rejected with {@code 401 Unauthorized} are sent again
+	 * once with a new token.</p>
+	 *
+	 * @param tokenManager The manager keeping the token valid, it can be shared by many signers.
+	 */
+	@NonNull
+	public static RequestSignerOAuth2 withTokenManager(@NonNull OAuth2TokenManager tokenManager) {
+		if (null == tokenManager) throw new NullPointerException("We need an OAuth2TokenManager to authenticate");
+		return new TokenManagerSigner(tokenManager);
+	}
+
 	@Override
-	public void sign(HttpEngine<?, ?> req) {
+	public void sign(HttpEngine<?, ?> req) throws HttpSignException {
 		OAuthUser user = getOAuthUser();
 		if (null != user) {
 			String tokenSecret = user.getTokenSecret();
 			if (!TextUtils.isEmpty(tokenSecret))
-				req.setHeader("Authorization", "Bearer " + tokenSecret);
+				req.setHeader("Authorization", BEARER + tokenSecret);
+		}
+	}
+
+	private static final class TokenManagerSigner extends RequestSignerOAuth2 implements RenewableRequestSigner {
+		private final OAuth2TokenManager tokenManager;
+
+		TokenManagerSigner(OAuth2TokenManager tokenManager) {
+			super((OAuthUser) null);
+			this.tokenManager = tokenManager;
+		}
+
+		@Override
+		public void sign(HttpEngine<?, ?> req) throws HttpSignException {
+			req.setHeader("Authorization", BEARER + tokenManager.getValidToken(req.getHttpRequest()).getAccessToken());
+		}
+
+		@Override
+		public boolean onUnauthorized(HttpEngine<?, ?> engine) {
+			String authorization = engine.getHeader("Authorization");
+			if (null == authorization || !authorization.startsWith(BEARER))
+				return false;
+			tokenManager.invalidateToken(authorization.substring(BEARER.length()));
+			return true;
 		}
 	}
 }
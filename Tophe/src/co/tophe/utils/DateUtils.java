@@ -46,17 +46,407 @@ public final class DateUtils {
         }
     };
 
+    /**
+     * Value returned by {@link #parseHttpDate(String)} when the date cannot be parsed.
+     */
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000L;
+    private static final long DAY_IN_MILLIS = 24 * 60 * MINUTE_IN_MILLIS;
+
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final String[] WEEK_DAYS = {"Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed"}; // starting from 1970-01-01
+
+    /**
+     * Last date parsed, the same header value is often received many times in a row.
+     */
+    private static final class ParsedDate {
+        final String dateString;
+        final long time;
+
+        ParsedDate(String dateString, long time) {
+            this.dateString = dateString;
+            this.time = time;
+        }
+    }
+
+    private static volatile ParsedDate lastParsed;
+
     /**
      * Parse a date {@code String} coming from HTTP headers.
-     * <p>This method is thread-safe, but you should avoid using too many threads to parse dates.</p>
+     * <p>RFC 1123, RFC 1036 and asctime dates are parsed directly, other formats go through {@link java.text.SimpleDateFormat}.</p>
+     * <p>This method is thread-safe.</p>
      *
      * @see #parseDate(String, String[])
+     * @see #parseHttpDate(String)
      */
     @Nullable
     public static Date parseDate(@Nullable String dateString) {
+        long time = parseHttpDate(dateString);
+        if (time != INVALID_DATE)
+            return new Date(time);
         return parseDate(dateString, HTTP_DATE_FORMATS);
     }
 
+    /**
+     * Parse a date {@code String} in the RFC 1123, RFC 1036 or asctime format without allocating anything.
+     * <p>The day and month names are not case sensitive, the timezone can be a numeric offset, {@code GMT}, {@code UTC},
+     * {@code Z} or one of the North American zones of RFC 822. UTC is used when there's no timezone.</p>
+     *
+     * @return the time in milliseconds since the epoch or {@link #INVALID_DATE} if the date was not recognized.
+     */
+    public static long parseHttpDate(@Nullable String dateString) {
+        if (null == dateString)
+            return INVALID_DATE;
+
+        ParsedDate last = lastParsed;
+        if (null != last && last.dateString.equals(dateString))
+            return last.time;
+
+        long time = parseHttpDateString(dateString);
+        if (time != INVALID_DATE)
+            lastParsed = new ParsedDate(dateString, time);
+        return time;
+    }
+
+    private static long parseHttpDateString(String s) {
+        final int length = s.length();
+        int pos = skipSpaces(s, 0);
+
+        // optional day of the week, not checked
+        int end = skipLetters(s, pos);
+        if (end != pos) {
+            pos = end;
+            if (pos < length && s.charAt(pos) == ',')
+                pos++;
+            pos = skipSpaces(s, pos);
+        }
+        if (pos >= length)
+            return INVALID_DATE;
+
+        int day, month, year, hour, minute, second;
+        long offset = 0;
+        if (isDigit(s.charAt(pos))) {
+            // RFC 1123 "06 Nov 1994 08:49:37 GMT" or RFC 1036 "06-Nov-94 08:49:37 GMT"
+            end = skipDigits(s, pos, 2);
+            if (end == pos)
+                return INVALID_DATE;
+            day = parseNumber(s, pos, end);
+            pos = end;
+            if (pos >= length || (s.charAt(pos) != ' ' && s.charAt(pos) != '-'))
+                return INVALID_DATE;
+            pos = skipSpaces(s, pos + 1);
+
+            month = parseMonth(s, pos);
+            if (month < 0)
+                return INVALID_DATE;
+            pos += 3;
+            if (pos >= length || (s.charAt(pos) != ' ' && s.charAt(pos) != '-'))
+                return INVALID_DATE;
+            pos = skipSpaces(s, pos + 1);
+
+            end = skipDigits(s, pos, 4);
+            if (end - pos == 2)
+                year = twoDigitsYear(parseNumber(s, pos, end));
+            else if (end - pos == 4)
+                year = parseNumber(s, pos, end);
+            else
+                return INVALID_DATE;
+            pos = skipSpaces(s, end);
+
+            end = parseTime(s, pos);
+            if (end < 0)
+                return INVALID_DATE;
+            hour = parseNumber(s, pos, pos + 2);
+            minute = parseNumber(s, pos + 3, pos + 5);
+            second = parseNumber(s, pos + 6, pos + 8);
+            pos = skipSpaces(s, end);
+
+            if (pos < length) {
+                offset = parseZone(s, pos);
+                if (offset == INVALID_DATE)
+                    return INVALID_DATE;
+            }
+        } else {
+            // asctime "Nov  6 08:49:37 1994"
+            month = parseMonth(s, pos);
+            if (month < 0)
+                return INVALID_DATE;
+            pos = skipSpaces(s, pos + 3);
+
+            end = skipDigits(s, pos, 2);
+            if (end == pos)
+                return INVALID_DATE;
+            day = parseNumber(s, pos, end);
+            pos = skipSpaces(s, end);
+
+            end = parseTime(s, pos);
+            if (end < 0)
+                return INVALID_DATE;
+            hour = parseNumber(s, pos, pos + 2);
+            minute = parseNumber(s, pos + 3, pos + 5);
+            second = parseNumber(s, pos + 6, pos + 8);
+            pos = skipSpaces(s, end);
+
+            end = skipDigits(s, pos, 4);
+            if (end - pos != 4)
+                return INVALID_DATE;
+            year = parseNumber(s, pos, end);
+            pos = skipSpaces(s, end);
+            if (pos != length)
+                return INVALID_DATE;
+        }
+
+        if (day < 1 || day > 31 || hour > 23 || minute > 59 || second > 60)
+            return INVALID_DATE;
+
+        long days = daysFromEpoch(year, month + 1, day);
+        return days * DAY_IN_MILLIS + ((hour * 60 + minute) * 60 + second) * 1000L - offset;
+    }
+
+    /**
+     * Parse the timezone starting at {@code pos} up to the end of the string.
+     *
+     * @return the offset from UTC in milliseconds or {@link #INVALID_DATE}.
+     */
+    private static long parseZone(String s, int pos) {
+        final int length = s.length();
+        char c = s.charAt(pos);
+        if (c == '+' || c == '-') {
+            long offset = parseNumericOffset(s, pos + 1);
+            if (offset == INVALID_DATE)
+                return INVALID_DATE;
+            return c == '-' ? -offset : offset;
+        }
+
+        int end = skipLetters(s, pos);
+        if (end == pos)
+            return INVALID_DATE;
+        int zoneLength = end - pos;
+        long offset;
+        if (zoneLength == 1 && (c == 'Z' || c == 'z'))
+            offset = 0;
+        else if (zoneLength == 2 && s.regionMatches(true, pos, "UT", 0, 2))
+            offset = 0;
+        else if (zoneLength == 3 && (s.regionMatches(true, pos, "GMT", 0, 3) || s.regionMatches(true, pos, "UTC", 0, 3)))
+            offset = 0;
+        else if (zoneLength == 3 && (s.charAt(pos + 2) == 'T' || s.charAt(pos + 2) == 't')
+                && (s.charAt(pos + 1) == 'S' || s.charAt(pos + 1) == 's' || s.charAt(pos + 1) == 'D' || s.charAt(pos + 1) == 'd')) {
+            // North American zones of RFC 822
+            int standardHours;
+            switch (Character.toUpperCase(c)) {
+                case 'E':
+                    standardHours = -5;
+                    break;
+                case 'C':
+                    standardHours = -6;
+                    break;
+                case 'M':
+                    standardHours = -7;
+                    break;
+                case 'P':
+                    standardHours = -8;
+                    break;
+                default:
+                    return INVALID_DATE;
+            }
+            boolean daylight = s.charAt(pos + 1) == 'D' || s.charAt(pos + 1) == 'd';
+            offset = (standardHours + (daylight ? 1 : 0)) * 60 * MINUTE_IN_MILLIS;
+        } else
+            return INVALID_DATE;
+
+        if (end == length)
+            return offset;
+        // "GMT+01:00"
+        c = s.charAt(end);
+        if (offset == 0 && (c == '+' || c == '-')) {
+            long extra = parseNumericOffset(s, end + 1);
+            if (extra == INVALID_DATE)
+                return INVALID_DATE;
+            return c == '-' ? -extra : extra;
+        }
+        return skipSpaces(s, end) == length ? offset : INVALID_DATE;
+    }
+
+    /**
+     * Parse a {@code hhmm} or {@code hh:mm} offset that must end the string.
+     */
+    private static long parseNumericOffset(String s, int pos) {
+        final int length = s.length();
+        int end = skipDigits(s, pos, 4);
+        int hours, minutes;
+        if (end - pos == 4) {
+            hours = parseNumber(s, pos, pos + 2);
+            minutes = parseNumber(s, pos + 2, end);
+        } else if (end - pos == 2 && end + 3 <= length && s.charAt(end) == ':' && skipDigits(s, end + 1, 2) == end + 3) {
+            hours = parseNumber(s, pos, end);
+            minutes = parseNumber(s, end + 1, end + 3);
+            end += 3;
+        } else
+            return INVALID_DATE;
+        if (minutes > 59 || skipSpaces(s, end) != length)
+            return INVALID_DATE;
+        return (hours * 60 + minutes) * MINUTE_IN_MILLIS;
+    }
+
+    /**
+     * Check there is a {@code HH:mm:ss} time at {@code pos}.
+     *
+     * @return the index after the time or {@code -1}.
+     */
+    private static int parseTime(String s, int pos) {
+        if (pos + 8 > s.length())
+            return -1;
+        if (!isDigit(s.charAt(pos)) || !isDigit(s.charAt(pos + 1)) || s.charAt(pos + 2) != ':'
+                || !isDigit(s.charAt(pos + 3)) || !isDigit(s.charAt(pos + 4)) || s.charAt(pos + 5) != ':'
+                || !isDigit(s.charAt(pos + 6)) || !isDigit(s.charAt(pos + 7)))
+            return -1;
+        return pos + 8;
+    }
+
+    /**
+     * @return the month index from 0 to 11 or {@code -1}.
+     */
+    private static int parseMonth(String s, int pos) {
+        if (pos + 3 > s.length())
+            return -1;
+        for (int month = 0; month < MONTHS.length; ++month) {
+            if (s.regionMatches(true, pos, MONTHS[month], 0, 3))
+                return month;
+        }
+        return -1;
+    }
+
+    /**
+     * Map a two digits year to the century starting 80 years ago, like {@link java.text.SimpleDateFormat} does.
+     */
+    private static int twoDigitsYear(int year) {
+        int currentYear = (int) (1970 + System.currentTimeMillis() / (DAY_IN_MILLIS * 36524L / 100L));
+        int firstYear = currentYear - 80;
+        int result = firstYear - firstYear % 100 + year;
+        if (result < firstYear)
+            result += 100;
+        return result;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipDigits(String s, int pos, int maxDigits) {
+        int end = pos;
+        while (end < s.length() && end - pos < maxDigits && isDigit(s.charAt(end))) {
+            end++;
+        }
+        if (end < s.length() && isDigit(s.charAt(end)))
+            return pos; // too many digits
+        return end;
+    }
+
+    private static int skipLetters(String s, int pos) {
+        while (pos < s.length()) {
+            char c = s.charAt(pos);
+            if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z'))
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipSpaces(String s, int pos) {
+        while (pos < s.length() && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int parseNumber(String s, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; ++i) {
+            result = result * 10 + (s.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Format a date in the RFC 1123 format used by HTTP, like {@code Sun, 06 Nov 1994 08:49:37 GMT}.
+     */
+    @NonNull
+    public static String formatHttpDate(@NonNull Date date) {
+        return formatHttpDate(date.getTime());
+    }
+
+    /**
+     * Format a time in milliseconds since the epoch in the RFC 1123 format used by HTTP, like {@code Sun, 06 Nov 1994 08:49:37 GMT}.
+     */
+    @NonNull
+    public static String formatHttpDate(long time) {
+        long days = time / DAY_IN_MILLIS;
+        long millisOfDay = time % DAY_IN_MILLIS;
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += DAY_IN_MILLIS;
+        }
+        int secondOfDay = (int) (millisOfDay / 1000L);
+
+        // civil from days
+        long z = days + 719468L;
+        long era = (z >= 0 ? z : z - 146096L) / 146097L;
+        int dayOfEra = (int) (z - era * 146097L);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] buffer = new char[29];
+        int weekDayIndex = (int) (days % 7);
+        String weekDay = WEEK_DAYS[weekDayIndex < 0 ? weekDayIndex + 7 : weekDayIndex];
+        buffer[0] = weekDay.charAt(0);
+        buffer[1] = weekDay.charAt(1);
+        buffer[2] = weekDay.charAt(2);
+        buffer[3] = ',';
+        buffer[4] = ' ';
+        putTwoDigits(buffer, 5, day);
+        buffer[7] = ' ';
+        String monthName = MONTHS[month - 1];
+        buffer[8] = monthName.charAt(0);
+        buffer[9] = monthName.charAt(1);
+        buffer[10] = monthName.charAt(2);
+        buffer[11] = ' ';
+        putTwoDigits(buffer, 12, (int) (year / 100));
+        putTwoDigits(buffer, 14, (int) (year % 100));
+        buffer[16] = ' ';
+        putTwoDigits(buffer, 17, secondOfDay / 3600);
+        buffer[19] = ':';
+        putTwoDigits(buffer, 20, (secondOfDay / 60) % 60);
+        buffer[22] = ':';
+        putTwoDigits(buffer, 23, secondOfDay % 60);
+        buffer[25] = ' ';
+        buffer[26] = 'G';
+        buffer[27] = 'M';
+        buffer[28] = 'T';
+        return new String(buffer);
+    }
+
+    private static void putTwoDigits(char[] buffer, int pos, int value) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+    }
+
     /**
      * Parse a date {@code String} with multiple date format support.
      * <p>This method is thread-safe, but you should avoid using too many threads to parse dates.</p>
@@ -0,0 +1,99 @@
+package co.tophe.utils;
+
+/**
+ * Helpers to parse HTTP header values without regular expressions or intermediate objects.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7230#section-3.2.6">RFC 7230 field value components</a>
+ */
+public final class HeaderParser {
+
+	private static final boolean[] TOKEN_CHARS = new boolean[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; ++c) {
+			TOKEN_CHARS[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; ++c) {
+			TOKEN_CHARS[c] = true;
+		}
+		for (char c = '0'; c <= '9'; ++c) {
+			TOKEN_CHARS[c] = true;
+		}
+		String others = "-!#$%&'*+.^_`{|}~";
+		for (int i = 0; i < others.length(); ++i) {
+			TOKEN_CHARS[others.charAt(i)] = true;
+		}
+	}
+
+	private HeaderParser() {
+	}
+
+	/**
+	 * @return {@code true} if {@code c} can be used in an HTTP token.
+	 */
+	public static boolean isTokenChar(char c) {
+		return c < 0x80 && TOKEN_CHARS[c];
+	}
+
+	/**
+	 * @return the index of the first character after the token starting at {@code start}, {@code start} if there's no token.
+	 */
+	public static int skipToken(String value, int start) {
+		int pos = start;
+		while (pos < value.length() && isTokenChar(value.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return the index of the first character after the whitespaces starting at {@code start}.
+	 */
+	public static int skipWhitespace(String value, int start) {
+		int pos = start;
+		while (pos < value.length() && isWhitespace(value.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return the index of the closing quote of the quoted string starting at {@code start}, {@code -1} if it's not terminated.
+	 */
+	public static int skipQuoted(String value, int start) {
+		for (int pos = start + 1; pos < value.length(); ++pos) {
+			char c = value.charAt(pos);
+			if (c == '\\')
+				pos++;
+			else if (c == '"')
+				return pos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Parse the delta-seconds value between {@code start} and {@code end}.
+	 *
+	 * @return the amount of seconds, {@link Integer#MAX_VALUE} if it's too large, {@code -1} if it's not a number.
+	 */
+	public static int parseSeconds(String value, int start, int end) {
+		if (start >= end)
+			return -1;
+		long result = 0;
+		for (int pos = start; pos < end; ++pos) {
+			char c = value.charAt(pos);
+			if (c < '0' || c > '9')
+				return -1;
+			if (result < Integer.MAX_VALUE)
+				result = result * 10 + (c - '0');
+		}
+		return (int) Math.min(result, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return {@code true} for the whitespace characters allowed around header value elements.
+	 */
+	public static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f' || c == 0x0B;
+	}
+}
@@ -0,0 +1,86 @@
+package co.tophe.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Write ASCII text, like the output of a {@link co.tophe.utils.PercentEncoder}, straight into an {@link java.io.OutputStream}
+ * through a reusable byte buffer.
+ * <p>Characters outside of the ASCII range are not allowed. Call {@link #flush()} when done to write what remains in the buffer.</p>
+ *
+ * @see co.tophe.utils.PercentEncoder#encode(CharSequence, Appendable)
+ */
+public final class PercentEncodedWriter implements Appendable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 2048;
+
+	private final OutputStream output;
+	private final byte[] buffer;
+	private int position;
+
+	/**
+	 * Constructor with a default buffer.
+	 *
+	 * @param output the stream receiving the ASCII bytes.
+	 */
+	public PercentEncodedWriter(@NonNull OutputStream output) {
+		this(output, new byte[DEFAULT_BUFFER_SIZE]);
+	}
+
+	/**
+	 * Constructor with a buffer that can be reused between writers.
+	 *
+	 * @param output the stream receiving the ASCII bytes.
+	 * @param buffer the buffer to use to group writes into {@code output}.
+	 */
+	public PercentEncodedWriter(@NonNull OutputStream output, @NonNull byte[] buffer) {
+		if (buffer.length == 0) throw new IllegalArgumentException("empty buffer");
+		this.output = output;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Encode {@code value} with {@code encoder} into the stream.
+	 */
+	public PercentEncodedWriter append(@NonNull PercentEncoder encoder, @NonNull CharSequence value) throws IOException {
+		encoder.encode(value, this);
+		return this;
+	}
+
+	@Override
+	public PercentEncodedWriter append(CharSequence csq) throws IOException {
+		return append(csq, 0, csq.length());
+	}
+
+	@Override
+	public PercentEncodedWriter append(CharSequence csq, int start, int end) throws IOException {
+		for (int i = start; i < end; ++i) {
+			append(csq.charAt(i));
+		}
+		return this;
+	}
+
+	@Override
+	public PercentEncodedWriter append(char c) throws IOException {
+		if (c >= 0x80) throw new IllegalArgumentException("not an ASCII character " + c);
+		if (position == buffer.length) {
+			output.write(buffer, 0, position);
+			position = 0;
+		}
+		buffer[position++] = (byte) c;
+		return this;
+	}
+
+	/**
+	 * Write the buffered bytes into the stream and flush it.
+	 */
+	public void flush() throws IOException {
+		if (position != 0) {
+			output.write(buffer, 0, position);
+			position = 0;
+		}
+		output.flush();
+	}
+}
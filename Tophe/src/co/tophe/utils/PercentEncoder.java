@@ -0,0 +1,154 @@
+package co.tophe.utils;
+
+import java.io.IOException;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Table driven UTF-8 percent-encoder, as defined in <a href="https://tools.ietf.org/html/rfc3986#section-2.1">RFC 3986</a>.
+ * <p>Each instance has its own set of characters that are not encoded. All instances are immutable and thread-safe.</p>
+ */
+public final class PercentEncoder {
+
+	private static final String UNRESERVED = "-._~";
+	private static final String SUB_DELIMS = "!$&'()*+,;=";
+
+	/**
+	 * Encoder for a value in the query of a URL, only the unreserved characters are kept as is.
+	 */
+	public static final PercentEncoder QUERY = new PercentEncoder(UNRESERVED, false);
+
+	/**
+	 * Encoder for a segment of the path of a URL, {@code '/'} is encoded.
+	 */
+	public static final PercentEncoder PATH_SEGMENT = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@", false);
+
+	/**
+	 * Encoder for parts of a URL that may already contain reserved characters or escaped sequences. Only the characters
+	 * not allowed anywhere in a URL are encoded.
+	 */
+	public static final PercentEncoder URL = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@/?#[]%", false);
+
+	/**
+	 * Encoder for names and values of an {@code application/x-www-form-urlencoded} body, spaces are turned into {@code '+'}.
+	 * <p>It gives the same result as {@link java.net.URLEncoder} with UTF-8.</p>
+	 */
+	public static final PercentEncoder FORM = new PercentEncoder("-._*", true);
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private final boolean[] safeChars = new boolean[128];
+	private final boolean spaceAsPlus;
+
+	private PercentEncoder(String safe, boolean spaceAsPlus) {
+		for (char c = 'a'; c <= 'z'; ++c) {
+			safeChars[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; ++c) {
+			safeChars[c] = true;
+		}
+		for (char c = '0'; c <= '9'; ++c) {
+			safeChars[c] = true;
+		}
+		for (int i = 0; i < safe.length(); ++i) {
+			safeChars[safe.charAt(i)] = true;
+		}
+		this.spaceAsPlus = spaceAsPlus;
+	}
+
+	/**
+	 * Encode {@code value} into a new {@code String}.
+	 */
+	@NonNull
+	public String encode(@NonNull CharSequence value) {
+		if (!needsEncoding(value))
+			return value.toString();
+		StringBuilder sb = new StringBuilder(value.length() + 16);
+		encode(value, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Encode {@code value} at the end of {@code output}.
+	 */
+	public void encode(@NonNull CharSequence value, @NonNull StringBuilder output) {
+		try {
+			encode(value, (Appendable) output);
+		} catch (IOException e) {
+			throw new AssertionError(e); // StringBuilder doesn't throw
+		}
+	}
+
+	/**
+	 * Encode {@code value} into {@code output}, for example a {@link co.tophe.utils.PercentEncodedWriter} to write the
+	 * encoded bytes directly into an {@link java.io.OutputStream}.
+	 */
+	public void encode(@NonNull CharSequence value, @NonNull Appendable output) throws IOException {
+		for (int i = 0, length = value.length(); i < length; ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				if (safeChars[c])
+					output.append(c);
+				else if (c == ' ' && spaceAsPlus)
+					output.append('+');
+				else
+					appendEscaped(output, c);
+			} else if (c < 0x800) {
+				appendEscaped(output, 0xC0 | (c >> 6));
+				appendEscaped(output, 0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				appendEscaped(output, 0xF0 | (codePoint >> 18));
+				appendEscaped(output, 0x80 | ((codePoint >> 12) & 0x3F));
+				appendEscaped(output, 0x80 | ((codePoint >> 6) & 0x3F));
+				appendEscaped(output, 0x80 | (codePoint & 0x3F));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				// unpaired surrogate, same replacement as String.getBytes()
+				appendEscaped(output, '?');
+			} else {
+				appendEscaped(output, 0xE0 | (c >> 12));
+				appendEscaped(output, 0x80 | ((c >> 6) & 0x3F));
+				appendEscaped(output, 0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of ASCII characters {@link #encode(CharSequence)} would produce for {@code value}.
+	 */
+	public int encodedLength(@NonNull CharSequence value) {
+		int result = 0;
+		for (int i = 0, length = value.length(); i < length; ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				result += (safeChars[c] || (c == ' ' && spaceAsPlus)) ? 1 : 3;
+			} else if (c < 0x800) {
+				result += 2 * 3;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				result += 4 * 3;
+				++i;
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				result += 3;
+			} else {
+				result += 3 * 3;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@code true} if some characters of {@code value} need to be encoded.
+	 */
+	public boolean needsEncoding(@NonNull CharSequence value) {
+		for (int i = 0, length = value.length(); i < length; ++i) {
+			char c = value.charAt(i);
+			if (c >= 0x80 || !safeChars[c])
+				return true;
+		}
+		return false;
+	}
+
+	private static void appendEscaped(Appendable output, int b) throws IOException {
+		output.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+	}
+}
@@ -0,0 +1,36 @@
+package co.tophe;
+
+import junit.framework.TestCase;
+
+public class CacheControlTest extends TestCase {
+
+	public void testDirectives() throws Exception {
+		CacheControl cacheControl = CacheControl.parse("public, max-age=3600, must-revalidate, stale-while-revalidate=60");
+		assertTrue(cacheControl.isPublic());
+		assertTrue(cacheControl.mustRevalidate());
+		assertFalse(cacheControl.noCache());
+		assertEquals(3600, cacheControl.maxAgeSeconds());
+		assertEquals(60, cacheControl.staleWhileRevalidateSeconds());
+		assertEquals(-1, cacheControl.sMaxAgeSeconds());
+	}
+
+	public void testQuotedAndCase() throws Exception {
+		CacheControl cacheControl = CacheControl.parse("No-Cache=\"Set-Cookie, X-Other\", PRIVATE, s-maxage = \"10\"");
+		assertTrue(cacheControl.noCache());
+		assertTrue(cacheControl.isPrivate());
+		assertEquals(10, cacheControl.sMaxAgeSeconds());
+	}
+
+	public void testInvalidValues() throws Exception {
+		CacheControl cacheControl = CacheControl.parse("max-age=abc, max-stale, no-store");
+		assertEquals(-1, cacheControl.maxAgeSeconds());
+		assertEquals(Integer.MAX_VALUE, cacheControl.maxStaleSeconds());
+		assertTrue(cacheControl.noStore());
+		assertEquals(Integer.MAX_VALUE, CacheControl.parse("max-age=99999999999").maxAgeSeconds());
+	}
+
+	public void testEmpty() throws Exception {
+		assertSame(CacheControl.EMPTY, CacheControl.parse((String) null));
+		assertEquals(-1, CacheControl.parse("").maxAgeSeconds());
+	}
+}
@@ -0,0 +1,96 @@
+package co.tophe;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import co.tophe.async.CallableChain;
+import co.tophe.async.NextCallable;
+import co.tophe.paging.NextPageFactory;
+import co.tophe.paging.PagingHelper;
+
+public class DeadlineTest extends TestCase {
+
+	private static final Callable<Deadline> CURRENT_DEADLINE = new Callable<Deadline>() {
+		@Override
+		public Deadline call() throws Exception {
+			return Deadline.current();
+		}
+	};
+
+	public void testExpiration() throws Exception {
+		Deadline deadline = Deadline.after(0);
+		assertTrue(deadline.isExpired());
+		assertEquals(0, deadline.getRemainingMillis());
+
+		Deadline later = Deadline.after(60000);
+		assertFalse(later.isExpired());
+		assertTrue(later.getRemainingMillis() > 59000);
+		assertSame(deadline, later.earliest(deadline));
+		assertSame(deadline, deadline.earliest(later));
+		assertSame(later, later.earliest(null));
+	}
+
+	public void testEnterExit() throws Exception {
+		assertNull(Deadline.current());
+		Deadline outer = Deadline.after(1000);
+		Deadline previous = Deadline.enter(outer);
+		try {
+			assertNull(previous);
+			assertSame(outer, Deadline.current());
+
+			// a later deadline cannot extend the current one
+			Deadline nestedPrevious = Deadline.enter(Deadline.after(60000));
+			assertSame(outer, Deadline.current());
+			Deadline.exit(nestedPrevious);
+
+			Deadline inner = Deadline.after(10);
+			nestedPrevious = Deadline.enter(inner);
+			assertSame(inner, Deadline.current());
+			Deadline.exit(nestedPrevious);
+			assertSame(outer, Deadline.current());
+		} finally {
+			Deadline.exit(previous);
+		}
+		assertNull(Deadline.current());
+	}
+
+	public void testChainPropagation() throws Exception {
+		Deadline deadline = Deadline.after(60000);
+		CallableChain<Deadline, Deadline> chain = new CallableChain<Deadline, Deadline>(CURRENT_DEADLINE, new NextCallable<Deadline, Deadline>() {
+			@Override
+			public Callable<Deadline> createCallable(Deadline input) throws Exception {
+				assertNotNull(input);
+				return CURRENT_DEADLINE;
+			}
+		}, deadline);
+		assertSame(deadline, chain.call());
+		assertNull(Deadline.current());
+	}
+
+	public void testPagingPropagation() throws Exception {
+		final Deadline deadline = Deadline.after(60000);
+		Callable<List<Deadline>> pages;
+		Deadline previous = Deadline.enter(deadline);
+		try {
+			pages = PagingHelper.readPages(CURRENT_DEADLINE, new NextPageFactory<Deadline>() {
+				private int count;
+
+				@Override
+				public Callable<Deadline> createCallable(Deadline page) {
+					return ++count < 3 ? CURRENT_DEADLINE : null;
+				}
+			});
+		} finally {
+			Deadline.exit(previous);
+		}
+
+		// run outside of the deadline scope, like in another thread
+		List<Deadline> result = pages.call();
+		assertEquals(3, result.size());
+		for (Deadline pageDeadline : result) {
+			assertSame(deadline, pageDeadline);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package co.tophe;
+
+import junit.framework.TestCase;
+
+public class HeadersTest extends TestCase {
+
+	public void testCaseInsensitive() throws Exception {
+		Headers headers = new Headers();
+		headers.set("Content-Type", "text/plain");
+		assertEquals("text/plain", headers.get("content-type"));
+		headers.set("CONTENT-TYPE", "text/html");
+		assertEquals(1, headers.size());
+		assertEquals("text/html", headers.get("Content-Type"));
+		assertEquals("CONTENT-TYPE", headers.getName(0));
+	}
+
+	public void testAddAndSet() throws Exception {
+		Headers headers = new Headers();
+		headers.add("Accept", "text/html");
+		headers.add("X-Test", "1");
+		headers.add("accept", "application/json");
+		headers.add("Accept", "text/html");
+		assertEquals(3, headers.size());
+		assertEquals("text/html", headers.get("Accept"));
+
+		headers.set("Accept", "*/*");
+		assertEquals(2, headers.size());
+		assertEquals("*/*", headers.get("Accept"));
+		assertEquals("1", headers.get("X-Test"));
+
+		headers.set("X-Test", null);
+		assertEquals(1, headers.size());
+		assertNull(headers.get("X-Test"));
+	}
+
+	public void testCopyOnWrite() throws Exception {
+		Headers source = new Headers();
+		source.set("User-Agent", "tophe");
+		Headers copy = source.copy();
+		copy.set("User-Agent", "other");
+		copy.add("DNT", "1");
+		source.add("X-Source", "yes");
+
+		assertEquals("tophe", source.get("User-Agent"));
+		assertNull(source.get("DNT"));
+		assertEquals("other", copy.get("User-Agent"));
+		assertNull(copy.get("X-Source"));
+	}
+
+	public void testFrozen() throws Exception {
+		Headers frozen = new Headers(new Header[]{new Header("DNT", "1")}).freeze();
+		try {
+			frozen.set("DNT", "0");
+			fail("frozen headers modified");
+		} catch (UnsupportedOperationException expected) {
+		}
+
+		Headers copy = frozen.copy();
+		copy.set("DNT", "0");
+		assertEquals("1", frozen.get("DNT"));
+		assertEquals("0", copy.get("DNT"));
+		assertEquals(1, copy.toArray().length);
+	}
+}
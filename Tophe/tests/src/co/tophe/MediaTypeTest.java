@@ -0,0 +1,50 @@
+package co.tophe;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+
+public class MediaTypeTest extends TestCase {
+
+	public void testParse() throws Exception {
+		MediaType type = MediaType.parse("Application/JSON; charset=\"UTF-8\"");
+		assertNotNull(type);
+		assertEquals("application", type.type());
+		assertEquals("json", type.subtype());
+		assertEquals(Charset.forName("UTF-8"), type.charset());
+		assertEquals("Application/JSON; charset=\"UTF-8\"", type.toString());
+	}
+
+	public void testParameters() throws Exception {
+		MediaType type = MediaType.parse("text/html;level=1; charset=iso-8859-1;");
+		assertNotNull(type);
+		assertEquals(Charset.forName("ISO-8859-1"), type.charset());
+		assertNull(MediaType.parse("text/plain").charset());
+	}
+
+	public void testInvalid() throws Exception {
+		assertNull(MediaType.parse(null));
+		assertNull(MediaType.parse("text"));
+		assertNull(MediaType.parse("text/"));
+		assertNull(MediaType.parse("text/plain; charset"));
+		assertNull(MediaType.parse("text/plain; charset=\"utf-8"));
+		assertNull(MediaType.parse("application/json, text/plain"));
+		try {
+			MediaType.parse("text/plain; charset=utf-8; charset=utf-16");
+			fail("multiple charsets not detected");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testUnsupportedCharset() throws Exception {
+		MediaType type = MediaType.parse("text/plain; charset=x-unknown-charset");
+		assertNotNull(type);
+		assertNull(type.charset());
+		assertEquals(Charset.forName("UTF-8"), type.charset(Charset.forName("UTF-8")));
+	}
+
+	public void testInterned() throws Exception {
+		assertSame(MediaType.parse("application/json"), MediaType.parse("application/json"));
+		assertTrue(MediaType.parse("application/json").equalsType(MediaType.parse("APPLICATION/json; charset=utf-8")));
+	}
+}
@@ -0,0 +1,60 @@
+package co.tophe;
+
+import junit.framework.TestCase;
+
+import co.tophe.parser.BodyToString;
+
+public class RequestTemplateTest extends TestCase {
+
+	private final RequestTemplate<String, ServerException> template = new RequestTemplate.Builder<String, ServerException>()
+			.setUrl("https://api.example.com/users/{user}/posts?count={count}&lang=fr")
+			.setHeader("Accept", "text/plain")
+			.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+			.build();
+
+	public void testPlaceholders() throws Exception {
+		String[] names = template.getPlaceholderNames();
+		assertEquals(2, names.length);
+		assertEquals("user", names[0]);
+		assertEquals("count", names[1]);
+	}
+
+	public void testExpandUrl() throws Exception {
+		assertEquals("https://api.example.com/users/robUx4/posts?count=20&lang=fr", template.expandUrl(null, "robUx4", "20"));
+		assertEquals("https://api.example.com/users/a%2Fb%20c/posts?count=1%262&lang=fr", template.expandUrl(null, "a/b c", "1&2"));
+		assertEquals("https://api.example.com/users/%C3%A9t%C3%A9/posts?count=%E2%82%AC&lang=fr", template.expandUrl(null, "été", "€"));
+	}
+
+	public void testExtraParams() throws Exception {
+		UriParams params = new UriParams(2);
+		params.add("q", "a b");
+		params.add("since", 42);
+		assertEquals("https://api.example.com/users/me/posts?count=5&lang=fr&q=a%20b&since=42", template.expandUrl(params, "me", "5"));
+
+		RequestTemplate<String, ServerException> noQuery = new RequestTemplate.Builder<String, ServerException>()
+				.setUrl("https://api.example.com/items/{id}")
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.build();
+		assertEquals("https://api.example.com/items/7?q=a%20b&since=42", noQuery.expandUrl(params, "7"));
+	}
+
+	public void testWrongValues() throws Exception {
+		try {
+			template.expandUrl(null, "one");
+			fail("missing value not detected");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testNewRequest() throws Exception {
+		BaseHttpRequest<String, ServerException> request = template.newRequest("robUx4", "10");
+		assertEquals("GET", request.getHttpMethod());
+		assertEquals("text/plain", request.getHeader("Accept"));
+		assertEquals("https://api.example.com/users/robUx4/posts?count=10&lang=fr", request.getUri().toString());
+		assertSame(BodyToString.RESPONSE_HANDLER, request.getResponseHandler());
+
+		// each request has its own headers
+		request.setHeader("Accept", "*/*");
+		assertEquals("text/plain", template.newRequest("robUx4", "10").getHeader("Accept"));
+	}
+}
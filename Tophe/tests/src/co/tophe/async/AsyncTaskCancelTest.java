@@ -0,0 +1,135 @@
+package co.tophe.async;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import junit.framework.TestCase;
+
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpResponse;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+
+public class AsyncTaskCancelTest extends TestCase {
+
+	/**
+	 * Engine blocked until it's cancelled, like a socket read that ignores interrupts.
+	 */
+	private static class BlockingEngine implements HttpEngine<String, ServerException> {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+
+		@Override
+		public String call() throws ServerException, HttpException {
+			started.countDown();
+			while (cancelled.getCount() != 0) {
+				try {
+					cancelled.await();
+				} catch (InterruptedException ignored) {
+					// like a socket read, interrupts don't stop it
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void cancel() {
+			cancelled.countDown();
+		}
+
+		@NonNull
+		@Override
+		public ResponseHandler<String, ServerException> getResponseHandler() {
+			throw new AssertionError("not supported");
+		}
+
+		@Override
+		public void setHeader(@NonNull String name, @Nullable String value) {
+			throw new AssertionError("not supported");
+		}
+
+		@NonNull
+		@Override
+		public String getHeader(String name) {
+			throw new AssertionError("not supported");
+		}
+
+		@Override
+		public HttpRequestInfo getHttpRequest() {
+			return null;
+		}
+
+		@Nullable
+		@Override
+		public HttpResponse getHttpResponse() {
+			return null;
+		}
+	}
+
+	public void testCancelAbortsEngine() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			BlockingEngine engine = new BlockingEngine();
+			AsyncTask<String> task = new AsyncTask<String>(engine, null);
+			executor.execute(task);
+			assertTrue(engine.started.await(5, TimeUnit.SECONDS));
+			assertTrue(task.cancel(true));
+			assertEquals(0, engine.cancelled.getCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testCancelChain() throws Exception {
+		BlockingEngine engine = new BlockingEngine();
+		CallableChain<String, String> chain = new CallableChain<String, String>(engine, new NextCallable<String, String>() {
+			@Override
+			public Callable<String> createCallable(String input) throws Exception {
+				return null;
+			}
+		});
+		AsyncTask<String> task = new AsyncTask<String>(chain, null);
+		assertTrue(task.cancel(true));
+		assertEquals(0, engine.cancelled.getCount());
+	}
+
+	public void testCancelDependentStage() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final BlockingEngine engine = new BlockingEngine();
+			AsyncTask<String> first = new AsyncTask<String>(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return "first";
+				}
+			}, null);
+			AsyncTask<String> next = first.thenAsync(new NextCallable<String, String>() {
+				@Override
+				public Callable<String> createCallable(String input) throws Exception {
+					return engine;
+				}
+			}, executor);
+			first.run();
+			assertTrue(engine.started.await(5, TimeUnit.SECONDS));
+			assertTrue(next.cancel(true));
+			assertEquals(0, engine.cancelled.getCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testCancelWithoutInterrupt() throws Exception {
+		BlockingEngine engine = new BlockingEngine();
+		AsyncTask<String> task = new AsyncTask<String>(engine, null);
+		assertTrue(task.cancel(false));
+		assertEquals(1, engine.cancelled.getCount());
+	}
+}
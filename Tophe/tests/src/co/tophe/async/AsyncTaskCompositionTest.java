@@ -0,0 +1,147 @@
+package co.tophe.async;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class AsyncTaskCompositionTest extends TestCase {
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	private static <T> AsyncTask<T> task(final T value) {
+		return new AsyncTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return value;
+			}
+		}, null);
+	}
+
+	private static AsyncTask<String> failingTask(final Exception error) {
+		return new AsyncTask<String>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw error;
+			}
+		}, null);
+	}
+
+	private static final NextCallable<Integer, Integer> DOUBLE = new NextCallable<Integer, Integer>() {
+		@Override
+		public Callable<Integer> createCallable(final Integer input) throws Exception {
+			return new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return input * 2;
+				}
+			};
+		}
+	};
+
+	public void testThen() throws Exception {
+		AsyncTask<Integer> source = task(21);
+		AsyncTask<Integer> result = source.then(DOUBLE);
+		assertFalse(result.isDone());
+		executor.execute(source);
+		assertEquals(Integer.valueOf(42), result.get(5, TimeUnit.SECONDS));
+
+		// already completed source
+		assertEquals(Integer.valueOf(84), result.then(DOUBLE).get(5, TimeUnit.SECONDS));
+	}
+
+	public void testThenAsync() throws Exception {
+		AsyncTask<Integer> source = task(1);
+		AsyncTask<Integer> result = source.thenAsync(DOUBLE, executor).thenAsync(DOUBLE, executor);
+		executor.execute(source);
+		assertEquals(Integer.valueOf(4), result.get(5, TimeUnit.SECONDS));
+	}
+
+	public void testFailurePropagation() throws Exception {
+		IOException error = new IOException("failed");
+		AsyncTask<String> source = failingTask(error);
+		AsyncTask<String> next = source.then(new NextCallable<String, String>() {
+			@Override
+			public Callable<String> createCallable(String input) throws Exception {
+				fail("should not be called");
+				return null;
+			}
+		});
+		executor.execute(source);
+		try {
+			next.get(5, TimeUnit.SECONDS);
+			fail("should have failed");
+		} catch (ExecutionException e) {
+			assertSame(error, e.getCause());
+		}
+
+		AsyncTask<String> recovered = next.exceptionally(new FailureRecovery<String>() {
+			@Override
+			public String recover(Throwable error) throws Exception {
+				return "recovered " + error.getMessage();
+			}
+		});
+		assertEquals("recovered failed", recovered.get(5, TimeUnit.SECONDS));
+	}
+
+	public void testCancelPropagation() throws Exception {
+		AsyncTask<Integer> source = task(1);
+		AsyncTask<Integer> next = source.then(DOUBLE);
+		source.cancel(false);
+		assertTrue(next.isCancelled());
+		try {
+			next.get();
+			fail("should be cancelled");
+		} catch (CancellationException ignored) {
+		}
+	}
+
+	public void testAllOf() throws Exception {
+		AsyncTask<Integer> first = task(1);
+		AsyncTask<Integer> second = task(2);
+		AsyncTask<Integer> third = task(3);
+		AsyncTask<List<Integer>> all = AsyncTask.allOf(Arrays.asList(first, second, third));
+		executor.execute(third);
+		executor.execute(first);
+		assertFalse(all.isDone());
+		executor.execute(second);
+		assertEquals(Arrays.asList(1, 2, 3), all.get(5, TimeUnit.SECONDS));
+	}
+
+	public void testAnyOf() throws Exception {
+		final CountDownLatch blocker = new CountDownLatch(1);
+		AsyncTask<String> slow = new AsyncTask<String>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				blocker.await();
+				return "slow";
+			}
+		}, null);
+		AsyncTask<String> fast = task("fast");
+		AsyncTask<String> any = AsyncTask.anyOf(Arrays.asList(slow, fast));
+		executor.execute(slow);
+		executor.execute(fast);
+		assertEquals("fast", any.get(5, TimeUnit.SECONDS));
+		blocker.countDown();
+	}
+}
@@ -0,0 +1,90 @@
+package co.tophe.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import android.support.annotation.Nullable;
+
+import junit.framework.TestCase;
+
+public class CallbackDispatcherTest extends TestCase {
+
+	private static class RecordingCallback implements AsyncCallback<String> {
+		final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void onAsyncResult(@Nullable String result) {
+			events.add("result " + result);
+		}
+
+		@Override
+		public void onAsyncFailed(Throwable t) {
+			events.add("failed");
+		}
+
+		@Override
+		public void onAsyncTaskStarted(AsyncTask<String> task) {
+			events.add("started");
+		}
+
+		@Override
+		public void onAsyncTaskFinished(AsyncTask<String> task) {
+			events.add("finished");
+		}
+	}
+
+	private static final Callable<String> HELLO = new Callable<String>() {
+		@Override
+		public String call() throws Exception {
+			return "hello";
+		}
+	};
+
+	public void testDirect() throws Exception {
+		RecordingCallback callback = new RecordingCallback();
+		AsyncTask<String> task = new AsyncTask.Builder<String>()
+				.setCallable(HELLO)
+				.setHttpAsyncCallback(callback)
+				.setCallbackDispatcher(DirectCallbackDispatcher.INSTANCE)
+				.build();
+		task.run();
+		assertEquals(Arrays.asList("started", "result hello", "finished"), callback.events);
+	}
+
+	public void testNoStarted() throws Exception {
+		RecordingCallback callback = new RecordingCallback();
+		AsyncTask<String> task = new AsyncTask.Builder<String>()
+				.setCallable(HELLO)
+				.setHttpAsyncCallback(callback)
+				.setCallbackDispatcher(DirectCallbackDispatcher.INSTANCE)
+				.setNotifyStarted(false)
+				.build();
+		task.run();
+		assertEquals(Arrays.asList("result hello", "finished"), callback.events);
+	}
+
+	public void testExecutor() throws Exception {
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		RecordingCallback callback = new RecordingCallback();
+		AsyncTask<String> task = new AsyncTask.Builder<String>()
+				.setCallable(HELLO)
+				.setHttpAsyncCallback(callback)
+				.setCallbackDispatcher(new ExecutorCallbackDispatcher(new Executor() {
+					@Override
+					public void execute(Runnable command) {
+						queued.add(command);
+					}
+				}))
+				.build();
+		task.run();
+		assertTrue(callback.events.isEmpty());
+		assertEquals(2, queued.size());
+		for (Runnable runnable : queued) {
+			runnable.run();
+		}
+		assertEquals(Arrays.asList("started", "result hello", "finished"), callback.events);
+	}
+}
@@ -0,0 +1,67 @@
+package co.tophe.async;
+
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+public class TaggedTaskRegistryTest extends TestCase {
+
+	private static AsyncTask<String> newTask() {
+		return new AsyncTask<String>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "done";
+			}
+		}, null);
+	}
+
+	public void testReplace() throws Exception {
+		TaggedTaskRegistry registry = new TaggedTaskRegistry();
+		AsyncTask<String> first = newTask();
+		AsyncTask<String> second = newTask();
+		assertNull(registry.register("tag", first));
+		assertSame(first, registry.register("tag", second));
+		assertTrue(first.isCancelled());
+		assertFalse(second.isCancelled());
+		assertSame(second, registry.get("tag"));
+		assertEquals(1, registry.getReplacedCount());
+		assertEquals(1, registry.size());
+	}
+
+	public void testUnregisterWhenDone() throws Exception {
+		TaggedTaskRegistry registry = new TaggedTaskRegistry();
+		AsyncTask<String> task = newTask();
+		registry.register("tag", task);
+		task.setCallbackDispatcher(DirectCallbackDispatcher.INSTANCE, false);
+		task.run();
+		assertNull(registry.get("tag"));
+		assertEquals(0, registry.size());
+	}
+
+	public void testGroupCancel() throws Exception {
+		TaggedTaskRegistry registry = new TaggedTaskRegistry();
+		AsyncTask<String> refresh = newTask();
+		AsyncTask<String> more = newTask();
+		AsyncTask<String> timelineOther = newTask();
+		AsyncTask<String> profile = newTask();
+		registry.register("screen:timeline:refresh", refresh);
+		registry.register("screen:timeline:more", more);
+		registry.register("screen:timelineOther", timelineOther);
+		registry.register("screen:profile", profile);
+
+		assertEquals(2, registry.cancelGroup("screen:timeline"));
+		assertTrue(refresh.isCancelled());
+		assertTrue(more.isCancelled());
+		assertFalse(timelineOther.isCancelled());
+		assertFalse(profile.isCancelled());
+		assertEquals(2, registry.size());
+		assertEquals(2, registry.getCancelledCount());
+
+		assertTrue(registry.cancel("screen:profile"));
+		assertFalse(registry.cancel("screen:profile"));
+		assertEquals(3, registry.getCancelledCount());
+		assertEquals(1, registry.cancelGroup("screen"));
+		assertTrue(timelineOther.isCancelled());
+		assertEquals(0, registry.size());
+	}
+}
@@ -0,0 +1,137 @@
+package co.tophe.async;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import co.tophe.BaseHttpRequest;
+import co.tophe.ServerException;
+import co.tophe.parser.BodyToString;
+
+/**
+ * Compare the throughput of the default thread pool and of the {@link co.tophe.async.VirtualThreadExecutor} with many
+ * concurrent slow requests on a loopback server.
+ * <p>It only runs on a JVM when the {@code tophe.benchmark} system property is set. The number of requests is set with
+ * {@code tophe.benchmark.requests} (default 1000) and the server delay in milliseconds with {@code tophe.benchmark.delay}
+ * (default 200).</p>
+ */
+public class VirtualThreadExecutorBenchmark extends TestCase {
+
+	private static final byte[] RESPONSE = "ok".getBytes();
+
+	private HttpServer server;
+	private ScheduledExecutorService responseScheduler;
+	private int requestCount;
+	private long delay;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		requestCount = Integer.getInteger("tophe.benchmark.requests", 1000);
+		delay = Long.getLong("tophe.benchmark.delay", 200L);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (null != server)
+			server.stop(0);
+		if (null != responseScheduler)
+			responseScheduler.shutdownNow();
+		super.tearDown();
+	}
+
+	/**
+	 * Start a server answering every request after {@link #delay} ms without holding a thread while waiting.
+	 */
+	private String startServer() throws IOException {
+		responseScheduler = Executors.newScheduledThreadPool(4);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), requestCount);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				responseScheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							exchange.sendResponseHeaders(200, RESPONSE.length);
+							OutputStream body = exchange.getResponseBody();
+							body.write(RESPONSE);
+							body.close();
+						} catch (IOException ignored) {
+						} finally {
+							exchange.close();
+						}
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			}
+		});
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+	}
+
+	/**
+	 * @return the number of requests completed per second.
+	 */
+	private double runRequests(String url, Executor executor) throws Exception {
+		List<AsyncTask<String>> tasks = new ArrayList<AsyncTask<String>>(requestCount);
+		long start = System.nanoTime();
+		for (int i = 0; i < requestCount; ++i) {
+			BaseHttpRequest<String, ServerException> request = new BaseHttpRequest.Builder<String, ServerException>()
+					.setUrl(url)
+					.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+					.build();
+			tasks.add(new AsyncTask.Builder<String>()
+					.setTypedRequest(request)
+					.setCallbackDispatcher(DirectCallbackDispatcher.INSTANCE)
+					.setExecutor(executor)
+					.execute());
+		}
+		for (AsyncTask<String> task : tasks) {
+			assertEquals("ok", task.get());
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		return requestCount * 1000000000.0 / elapsedNanos;
+	}
+
+	public void testThroughput() throws Exception {
+		if (null == System.getProperty("tophe.benchmark"))
+			return;
+
+		String url = startServer();
+
+		// same size as the default AsyncTopheClient pool
+		ExecutorService pool = Executors.newFixedThreadPool(3 * Runtime.getRuntime().availableProcessors());
+		try {
+			double pooled = runRequests(url, pool);
+			System.out.println(String.format("thread pool: %d requests of %d ms, %.1f requests/s", requestCount, delay, pooled));
+		} finally {
+			pool.shutdown();
+		}
+
+		VirtualThreadExecutor virtualThreads = VirtualThreadExecutor.create(requestCount);
+		if (null == virtualThreads) {
+			System.out.println("virtual threads: not supported by this runtime");
+			return;
+		}
+		try {
+			double virtual = runRequests(url, virtualThreads);
+			System.out.println(String.format("virtual threads: %d requests of %d ms, %.1f requests/s", requestCount, delay, virtual));
+		} finally {
+			virtualThreads.shutdown();
+		}
+	}
+}
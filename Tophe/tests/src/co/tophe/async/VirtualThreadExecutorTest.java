@@ -0,0 +1,55 @@
+package co.tophe.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class VirtualThreadExecutorTest extends TestCase {
+
+	public void testFallback() throws Exception {
+		if (VirtualThreadExecutor.isSupported())
+			return;
+
+		Executor previous = AsyncTopheClient.getExecutor();
+		assertNull(VirtualThreadExecutor.create(10));
+		assertFalse(AsyncTopheClient.useVirtualThreads(10));
+		assertSame(previous, AsyncTopheClient.getExecutor());
+	}
+
+	public void testConcurrencyLimit() throws Exception {
+		VirtualThreadExecutor executor = VirtualThreadExecutor.create(2);
+		if (null == executor)
+			return; // not supported by this runtime
+
+		try {
+			final int taskCount = 20;
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger maxRunning = new AtomicInteger();
+			final CountDownLatch done = new CountDownLatch(taskCount);
+			for (int i = 0; i < taskCount; ++i) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						int current = running.incrementAndGet();
+						int max;
+						while ((max = maxRunning.get()) < current && !maxRunning.compareAndSet(max, current)) {
+						}
+						try {
+							Thread.sleep(5);
+						} catch (InterruptedException ignored) {
+						}
+						running.decrementAndGet();
+						done.countDown();
+					}
+				});
+			}
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertTrue(maxRunning.get() <= 2);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
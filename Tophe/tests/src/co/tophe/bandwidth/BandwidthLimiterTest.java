@@ -0,0 +1,83 @@
+package co.tophe.bandwidth;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class BandwidthLimiterTest extends TestCase {
+
+	private static final int BACKGROUND_TAG = 0x5A5A;
+	private static final long RATE = 64 * 1024;
+
+	@Override
+	protected void tearDown() throws Exception {
+		BandwidthLimiter.clear();
+		super.tearDown();
+	}
+
+	public void testUnlimited() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertSame(output, BandwidthLimiter.limitOutputStream(output, 0));
+		InputStream input = new ByteArrayInputStream(new byte[16]);
+		assertSame(input, BandwidthLimiter.limitInputStream(input, 0));
+	}
+
+	public void testClassUploadRate() throws Exception {
+		BandwidthLimiter.setClassRate(BACKGROUND_TAG, 0, RATE);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		OutputStream limited = BandwidthLimiter.limitOutputStream(output, BACKGROUND_TAG);
+		long start = System.nanoTime();
+		// one second of burst then half a second of data
+		limited.write(new byte[(int) (RATE + RATE / 2)]);
+		long elapsedMs = (System.nanoTime() - start) / 1000000L;
+
+		assertEquals(RATE + RATE / 2, output.size());
+		assertTrue("too fast " + elapsedMs, elapsedMs >= 400);
+	}
+
+	public void testBackgroundWaitsForLink() throws Exception {
+		BandwidthLimiter.setLinkRate(RATE, 0);
+		BandwidthLimiter.setBackground(BACKGROUND_TAG, true);
+
+		// the foreground traffic uses all the link capacity
+		InputStream foreground = BandwidthLimiter.limitInputStream(new ByteArrayInputStream(new byte[(int) RATE]), 0);
+		byte[] buffer = new byte[4096];
+		long start = System.nanoTime();
+		while (foreground.read(buffer) != -1) {
+		}
+		assertTrue("foreground should not wait", (System.nanoTime() - start) / 1000000L < 200);
+
+		InputStream background = BandwidthLimiter.limitInputStream(new ByteArrayInputStream(new byte[(int) (RATE / 4)]), BACKGROUND_TAG);
+		start = System.nanoTime();
+		while (background.read(buffer) != -1) {
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1000000L;
+		assertTrue("background too fast " + elapsedMs, elapsedMs >= 150);
+	}
+
+	public void testForegroundDebtBounded() throws Exception {
+		BandwidthLimiter.setLinkRate(RATE, 0);
+
+		// one second of burst, one second of debt, then the link rate applies
+		InputStream foreground = BandwidthLimiter.limitInputStream(new ByteArrayInputStream(new byte[(int) (3 * RATE)]), 0);
+		byte[] buffer = new byte[4096];
+		long start = System.nanoTime();
+		while (foreground.read(buffer) != -1) {
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1000000L;
+		assertTrue("foreground too fast " + elapsedMs, elapsedMs >= 800);
+	}
+
+	public void testRateReset() throws Exception {
+		BandwidthLimiter.setClassRate(BACKGROUND_TAG, RATE, 0);
+		InputStream input = new ByteArrayInputStream(new byte[16]);
+		assertNotSame(input, BandwidthLimiter.limitInputStream(input, BACKGROUND_TAG));
+
+		BandwidthLimiter.setClassRate(BACKGROUND_TAG, 0, 0);
+		assertSame(input, BandwidthLimiter.limitInputStream(input, BACKGROUND_TAG));
+	}
+}
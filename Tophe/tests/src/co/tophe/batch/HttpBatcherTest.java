@@ -0,0 +1,350 @@
+package co.tophe.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import co.tophe.BaseHttpRequest;
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpRequestGet;
+import co.tophe.HttpSignException;
+import co.tophe.ServerException;
+import co.tophe.parser.BodyToString;
+import co.tophe.signed.RequestSigner;
+
+public class HttpBatcherTest extends TestCase {
+
+	/**
+	 * Batch endpoint answering each part with the path of its request, and endpoint for the requests sent alone.
+	 */
+	private static class StubServer implements HttpHandler {
+		private static final Pattern PART_REQUEST = Pattern.compile("Content-ID: <([^>]+)>\\r\\n\\r\\nGET (\\S+) HTTP/1.1");
+
+		final HttpServer server;
+		final AtomicInteger batchRequests = new AtomicInteger();
+		final AtomicInteger aloneRequests = new AtomicInteger();
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+		volatile boolean sendContentIds = true;
+		volatile int batchStatus = 200;
+
+		StubServer() throws IOException {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+			server.createContext("/", this);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.start();
+		}
+
+		String getUrl(String path) {
+			return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+		}
+
+		void stop() {
+			server.stop(0);
+			((ExecutorService) server.getExecutor()).shutdownNow();
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				String path = exchange.getRequestURI().getPath();
+				if (!"/batch".equals(path)) {
+					aloneRequests.incrementAndGet();
+					send(exchange, 200, "text/plain", path);
+					return;
+				}
+
+				batchRequests.incrementAndGet();
+				if (200 != batchStatus) {
+					send(exchange, batchStatus, "text/plain", "batch error");
+					return;
+				}
+				Matcher part = PART_REQUEST.matcher(readAll(exchange.getRequestBody()));
+				StringBuilder response = new StringBuilder();
+				int count = 0;
+				while (part.find()) {
+					++count;
+					response.append("--resp\r\nContent-Type: application/http\r\n");
+					if (sendContentIds)
+						response.append("Content-ID: <response-").append(part.group(1)).append(">\r\n");
+					response.append("\r\nHTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\n")
+							.append(part.group(2)).append("\r\n");
+				}
+				response.append("--resp--\r\n");
+				synchronized (batchSizes) {
+					batchSizes.add(count);
+				}
+				send(exchange, 200, "multipart/mixed; boundary=resp", response.toString());
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private static String readAll(InputStream input) throws IOException {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			for (int length; (length = input.read(buffer)) > 0; ) {
+				output.write(buffer, 0, length);
+			}
+			return output.toString("UTF-8");
+		}
+
+		private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+			byte[] data = body.getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			exchange.sendResponseHeaders(status, data.length);
+			OutputStream output = exchange.getResponseBody();
+			output.write(data);
+			output.close();
+		}
+	}
+
+	private static final String RESPONSE = "preamble\r\n" +
+			"--batch_abc\r\n" +
+			"Content-Type: application/http\r\n" +
+			"Content-ID: <response-item2>\r\n" +
+			"\r\n" +
+			"HTTP/1.1 404 Not Found\r\n" +
+			"Content-Type: application/json; charset=UTF-8\r\n" +
+			"\r\n" +
+			"{\"error\":404}\r\n" +
+			"--batch_abc\r\n" +
+			"Content-Type: application/http\r\n" +
+			"Content-ID: <response-item1>\r\n" +
+			"\r\n" +
+			"HTTP/1.1 200 OK\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"ETag: \"1\"\r\n" +
+			"\r\n" +
+			"line1\r\nline2\r\n" +
+			"--batch_abc--\r\n";
+
+	public void testBoundary() throws Exception {
+		assertEquals("batch_abc", BatchResponseParser.getBoundary("multipart/mixed; boundary=batch_abc"));
+		assertEquals("batch abc", BatchResponseParser.getBoundary("multipart/mixed; BOUNDARY=\"batch abc\"; charset=UTF-8"));
+		assertEquals("b", BatchResponseParser.getBoundary("multipart/mixed;boundary=b;charset=UTF-8"));
+		assertNull(BatchResponseParser.getBoundary("multipart/mixed"));
+		assertNull(BatchResponseParser.getBoundary(null));
+	}
+
+	public void testParseResponse() throws Exception {
+		List<HttpResponseBatchPart> parts = BatchResponseParser.parse(RESPONSE.getBytes("UTF-8"), "batch_abc");
+		assertEquals(2, parts.size());
+
+		HttpResponseBatchPart notFound = parts.get(0);
+		assertEquals("item2", HttpBatcher.getRequestContentId(notFound.getContentId()));
+		assertEquals(404, notFound.getResponseCode());
+		assertEquals("Not Found", notFound.getResponseMessage());
+		assertEquals("application/json; charset=UTF-8", notFound.getContentType());
+		assertEquals("{\"error\":404}", new String(readAll(notFound), "UTF-8"));
+
+		HttpResponseBatchPart ok = parts.get(1);
+		assertEquals("item1", HttpBatcher.getRequestContentId(ok.getContentId()));
+		assertEquals(200, ok.getResponseCode());
+		assertEquals("\"1\"", ok.getHeaderField("etag"));
+		assertEquals("line1\r\nline2", new String(readAll(ok), "UTF-8"));
+	}
+
+	public void testEncodeRequests() throws Exception {
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl("http://example.com/batch").build();
+		HttpBatcher.BatchedCall<String, ?> first = batcher.newCall(new HttpRequestGet<String>("http://example.com/items/1?fields=id", BodyToString.INSTANCE));
+		HttpBatcher.BatchedCall<String, ?> second = batcher.newCall(new HttpRequestGet<String>("http://example.com/items/2", BodyToString.INSTANCE));
+		first.contentId = "item1";
+		second.contentId = "item2";
+		second.setHeader("X-Test", "yes");
+
+		HttpBodyBatch body = new HttpBodyBatch("b", Arrays.asList(first, second));
+		assertEquals("multipart/mixed; boundary=b", body.getContentType());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		body.writeBodyTo(output, null, null);
+		String encoded = output.toString("UTF-8");
+		assertEquals(body.getContentLength(), output.size());
+		assertTrue(encoded, encoded.startsWith("--b\r\nContent-Type: application/http\r\nContent-ID: <item1>\r\n\r\nGET /items/1?fields=id HTTP/1.1\r\n"));
+		assertTrue(encoded, encoded.contains("Content-ID: <item2>\r\n\r\nGET /items/2 HTTP/1.1\r\n"));
+		assertTrue(encoded, encoded.contains("X-Test: yes\r\n"));
+		assertTrue(encoded, encoded.endsWith("--b--\r\n"));
+	}
+
+	public void testParseBareLineFeeds() throws Exception {
+		List<HttpResponseBatchPart> parts = BatchResponseParser.parse(RESPONSE.replace("\r\n", "\n").getBytes("UTF-8"), "batch_abc");
+		assertEquals(2, parts.size());
+		assertEquals(404, parts.get(0).getResponseCode());
+		assertEquals("{\"error\":404}", new String(readAll(parts.get(0)), "UTF-8"));
+		assertEquals("\"1\"", parts.get(1).getHeaderField("etag"));
+		assertEquals("line1\nline2", new String(readAll(parts.get(1)), "UTF-8"));
+	}
+
+	public void testSignedParts() throws Exception {
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl("http://example.com/batch").build();
+		HttpBatcher.BatchedCall<String, ?> signed = batcher.newCall(new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl("http://example.com/items/1")
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.setSigner(new RequestSigner() {
+					@Override
+					public void sign(HttpEngine<?, ?> req) throws HttpSignException {
+						req.setHeader("Authorization", "Bearer item1");
+					}
+				})
+				.build());
+		HttpBatcher.BatchedCall<String, ?> failed = batcher.newCall(new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl("http://example.com/items/2")
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.setSigner(new RequestSigner() {
+					@Override
+					public void sign(HttpEngine<?, ?> req) throws HttpSignException {
+						throw new HttpSignException.Builder(req.getHttpRequest()).setErrorMessage("no token").build();
+					}
+				})
+				.build());
+		HttpBatcher.BatchedCall<String, ?> unsigned = batcher.newCall(new HttpRequestGet<String>("http://example.com/items/3", BodyToString.INSTANCE));
+		signed.contentId = "item1";
+		failed.contentId = "item2";
+		unsigned.contentId = "item3";
+
+		List<HttpBatcher.BatchedCall<?, ?>> calls = HttpBatcher.signCalls(Arrays.<HttpBatcher.BatchedCall<?, ?>>asList(signed, failed, unsigned));
+		assertEquals(Arrays.<HttpBatcher.BatchedCall<?, ?>>asList(signed, unsigned), calls);
+		assertTrue(failed.isDone());
+		try {
+			failed.call();
+			fail("the request could not be signed");
+		} catch (HttpSignException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("no token"));
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new HttpBodyBatch("b", calls).writeBodyTo(output, null, null);
+		String encoded = output.toString("UTF-8");
+		assertTrue(encoded, encoded.contains("GET /items/1 HTTP/1.1\r\n"));
+		assertTrue(encoded, encoded.contains("Authorization: Bearer item1\r\n"));
+		assertEquals(encoded, encoded.indexOf("Authorization"), encoded.lastIndexOf("Authorization"));
+	}
+
+	private StubServer stub;
+	private ExecutorService callers;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		stub = new StubServer();
+		callers = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		callers.shutdownNow();
+		stub.stop();
+		super.tearDown();
+	}
+
+	/**
+	 * Call {@code count} requests for {@code /items/<index>} at the same time.
+	 */
+	private List<Future<String>> callConcurrently(HttpBatcher batcher, int count) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<Future<String>>(count);
+		for (int i = 0; i < count; ++i) {
+			final HttpBatcher.BatchedCall<String, ?> call = batcher.newCall(new HttpRequestGet<String>(stub.getUrl("/items/" + i), BodyToString.INSTANCE));
+			results.add(callers.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					start.await();
+					return call.call();
+				}
+			}));
+		}
+		start.countDown();
+		return results;
+	}
+
+	public void testConcurrentCallsBatched() throws Exception {
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl(stub.getUrl("/batch")).setWindow(500).build();
+		List<Future<String>> results = callConcurrently(batcher, 5);
+		for (int i = 0; i < results.size(); ++i) {
+			assertEquals("/items/" + i, results.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, batcher.getBatchCount());
+		assertEquals(1, stub.batchRequests.get());
+		assertEquals(Arrays.asList(5), stub.batchSizes);
+		assertEquals(0, stub.aloneRequests.get());
+	}
+
+	public void testFullBatchSentRightAway() throws Exception {
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl(stub.getUrl("/batch")).setWindow(60000).setMaxBatchSize(3).build();
+		List<Future<String>> results = callConcurrently(batcher, 3);
+		for (int i = 0; i < results.size(); ++i) {
+			assertEquals("/items/" + i, results.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, batcher.getBatchCount());
+	}
+
+	public void testSingleCallSentAlone() throws Exception {
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl(stub.getUrl("/batch")).setWindow(0).build();
+		assertEquals("/items/0", batcher.newCall(new HttpRequestGet<String>(stub.getUrl("/items/0"), BodyToString.INSTANCE)).call());
+		assertEquals(0, batcher.getBatchCount());
+		assertEquals(0, stub.batchRequests.get());
+		assertEquals(1, stub.aloneRequests.get());
+	}
+
+	public void testResponsesByOrder() throws Exception {
+		stub.sendContentIds = false;
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl(stub.getUrl("/batch")).setWindow(500).build();
+		List<Future<String>> results = callConcurrently(batcher, 4);
+		List<String> responses = new ArrayList<String>();
+		for (Future<String> result : results) {
+			responses.add(result.get(5, TimeUnit.SECONDS));
+		}
+		// the parts are answered in the order of the batch, each call gets the response of its own request
+		for (int i = 0; i < responses.size(); ++i) {
+			assertEquals("/items/" + i, responses.get(i));
+		}
+		assertEquals(1, batcher.getBatchCount());
+	}
+
+	public void testBatchFailureFailsAllCalls() throws Exception {
+		stub.batchStatus = 503;
+		HttpBatcher batcher = new HttpBatcher.Builder().setUrl(stub.getUrl("/batch")).setWindow(500).build();
+		List<Future<String>> results = callConcurrently(batcher, 3);
+		for (Future<String> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				fail("the batch failed");
+			} catch (ExecutionException e) {
+				assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof HttpException);
+				assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("batch failed"));
+			}
+		}
+		assertEquals(1, stub.batchRequests.get());
+	}
+
+	private static byte[] readAll(HttpResponseBatchPart part) throws Exception {
+		InputStream input = part.getContentStream();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		for (int length; (length = input.read(buffer)) > 0; ) {
+			output.write(buffer, 0, length);
+		}
+		return output.toByteArray();
+	}
+}
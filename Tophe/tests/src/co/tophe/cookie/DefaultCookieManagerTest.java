@@ -0,0 +1,175 @@
+package co.tophe.cookie;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+public class DefaultCookieManagerTest extends TestCase {
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private File journalFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		journalFile = File.createTempFile("cookies", ".journal");
+		journalFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		journalFile.delete();
+		new File(journalFile.getPath() + ".tmp").delete();
+		super.tearDown();
+	}
+
+	public void testParse() throws Exception {
+		long now = 1000000L;
+		Cookie cookie = Cookie.parse("sid=abc; Domain=.Example.com; Path=/api; Max-Age=60; Secure; HttpOnly", "www.example.com", "/api/items", now);
+		assertNotNull(cookie);
+		assertEquals("sid", cookie.getName());
+		assertEquals("abc", cookie.getValue());
+		assertEquals("example.com", cookie.getDomain());
+		assertEquals("/api", cookie.getPath());
+		assertEquals(now + 60000L, cookie.getExpiresAt());
+		assertFalse(cookie.isHostOnly());
+		assertTrue(cookie.isSecure());
+		assertTrue(cookie.isHttpOnly());
+
+		cookie = Cookie.parse("lang=fr", "www.example.com", "/api/items", now);
+		assertEquals("/api", cookie.getPath());
+		assertTrue(cookie.isHostOnly());
+		assertFalse(cookie.isPersistent());
+
+		assertNull(Cookie.parse("novalue", "www.example.com", "/", now));
+		assertNull(Cookie.parse("a=b; Domain=other.com", "www.example.com", "/", now));
+		assertNull(Cookie.parse("a=b; Domain=com", "www.example.com", "/", now));
+		assertNull(Cookie.parse("a=b; Domain=co.uk", "www.example.co.uk", "/", now));
+		assertEquals("web.de", Cookie.parse("a=b; Domain=web.de", "www.web.de", "/", now).getDomain());
+		assertEquals("example.co.uk", Cookie.parse("a=b; Domain=example.co.uk", "www.example.co.uk", "/", now).getDomain());
+		assertEquals("example.com", Cookie.parse("a=b; Domain=example.com", "a.b.example.com", "/", now).getDomain());
+		assertEquals("b.example.com", Cookie.parse("a=b; Domain=b.example.com", "a.b.example.com", "/", now).getDomain());
+		assertNull(Cookie.parse("a=b; Domain=168.1.20", "192.168.1.20", "/", now));
+		assertTrue(Cookie.parse("a=b; Max-Age=0", "www.example.com", "/", now).isExpired(now));
+		assertTrue(Cookie.parse("a=b; Expires=Wed, 21 Oct 2015 07:28:00 GMT", "www.example.com", "/", now).isPersistent());
+	}
+
+	public void testRegistrableDomain() throws Exception {
+		assertEquals("example.com", Cookie.getRegistrableDomain("www.example.com"));
+		assertEquals("example.com", Cookie.getRegistrableDomain("example.com"));
+		assertEquals("example.co.uk", Cookie.getRegistrableDomain("a.b.example.co.uk"));
+		assertEquals("google.de", Cookie.getRegistrableDomain("www.google.de"));
+		assertEquals("web.de", Cookie.getRegistrableDomain("www.web.de"));
+		assertEquals("gmx.de", Cookie.getRegistrableDomain("gmx.de"));
+		assertNull(Cookie.getRegistrableDomain("co.uk"));
+		assertNull(Cookie.getRegistrableDomain("localhost"));
+		assertNull(Cookie.getRegistrableDomain("192.168.1.20"));
+	}
+
+	public void testPathMatch() throws Exception {
+		Cookie cookie = Cookie.parse("a=b; Path=/docs", "example.com", "/", 0L);
+		assertTrue(cookie.matchesPath("/docs"));
+		assertTrue(cookie.matchesPath("/docs/"));
+		assertTrue(cookie.matchesPath("/docs/web"));
+		assertFalse(cookie.matchesPath("/docsets"));
+		assertFalse(cookie.matchesPath("/"));
+	}
+
+	public void testDomainKey() throws Exception {
+		assertEquals("example.com", DefaultCookieManager.getDomainKey("example.com"));
+		assertEquals("example.com", DefaultCookieManager.getDomainKey("a.b.example.com"));
+		assertEquals("example.co.uk", DefaultCookieManager.getDomainKey("www.example.co.uk"));
+		assertEquals("other.co.uk", DefaultCookieManager.getDomainKey("other.co.uk"));
+		assertEquals("localhost", DefaultCookieManager.getDomainKey("localhost"));
+		assertEquals("192.168.1.20", DefaultCookieManager.getDomainKey("192.168.1.20"));
+	}
+
+	public void testCookieHeader() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().build();
+		assertTrue(manager.setCookie(Uri.parse("https://www.example.com/"), "root=1; Domain=example.com"));
+		assertTrue(manager.setCookie(Uri.parse("https://www.example.com/api/list"), "api=2"));
+		assertTrue(manager.setCookie(Uri.parse("https://www.example.com/"), "secure=3; Secure"));
+		assertFalse(manager.setCookie(Uri.parse("http://www.example.com/"), "insecure=4; Secure"));
+
+		assertEquals("api=2; root=1; secure=3", manager.getCookieHeader(Uri.parse("https://www.example.com/api/items?page=2")));
+		assertEquals("api=2; root=1", manager.getCookieHeader(Uri.parse("http://www.example.com/api/items")));
+		assertEquals("root=1", manager.getCookieHeader(Uri.parse("http://static.example.com/")));
+		assertNull(manager.getCookieHeader(Uri.parse("http://example.org/")));
+
+		// the cached header is updated when a cookie changes
+		assertTrue(manager.setCookie(Uri.parse("https://www.example.com/"), "root=5; Domain=example.com"));
+		assertEquals("api=2; root=5", manager.getCookieHeader(Uri.parse("http://www.example.com/api/items")));
+		assertTrue(manager.setCookie(Uri.parse("https://www.example.com/"), "root=; Domain=example.com; Max-Age=0"));
+		assertEquals("api=2", manager.getCookieHeader(Uri.parse("http://www.example.com/api/items")));
+	}
+
+	public void testCountrySitesDontShareCookies() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().setMaxCookiesPerDomain(1).build();
+		assertTrue(manager.setCookie(Uri.parse("http://www.first.co.uk/"), "a=1"));
+		assertTrue(manager.setCookie(Uri.parse("http://www.second.co.uk/"), "b=2"));
+		assertEquals("a=1", manager.getCookieHeader(Uri.parse("http://www.first.co.uk/")));
+		assertEquals("b=2", manager.getCookieHeader(Uri.parse("http://www.second.co.uk/")));
+	}
+
+	public void testMaxCookiesPerDomain() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().setMaxCookiesPerDomain(2).build();
+		manager.setCookie(Uri.parse("http://example.com/"), "a=1");
+		Thread.sleep(2);
+		manager.setCookie(Uri.parse("http://example.com/"), "b=2");
+		Thread.sleep(2);
+		manager.setCookie(Uri.parse("http://example.com/"), "c=3");
+		assertEquals("b=2; c=3", manager.getCookieHeader(Uri.parse("http://example.com/")));
+	}
+
+	public void testJournal() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		manager.setCookie(Uri.parse("http://example.com/"), "kept=1; Max-Age=3600");
+		manager.setCookie(Uri.parse("http://example.com/"), "session=2");
+		manager.setCookie(Uri.parse("http://example.com/"), "removed=3; Max-Age=3600");
+		manager.setCookie(Uri.parse("http://example.com/"), "removed=; Max-Age=0");
+		manager.close();
+
+		DefaultCookieManager reloaded = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		assertEquals("kept=1", reloaded.getCookieHeader(Uri.parse("http://example.com/")));
+		reloaded.close();
+	}
+
+	public void testJournalCompaction() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		for (int i = 0; i < 500; ++i) {
+			manager.setCookie(Uri.parse("http://example.com/"), "counter=" + i + "; Max-Age=3600");
+		}
+		manager.close();
+		assertTrue("journal size " + journalFile.length(), journalFile.length() < 100 * 60);
+
+		DefaultCookieManager reloaded = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		assertEquals("counter=499", reloaded.getCookieHeader(Uri.parse("http://example.com/")));
+		reloaded.close();
+	}
+
+	public void testJournalCompactionAfterRemovals() throws Exception {
+		DefaultCookieManager manager = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		for (int i = 0; i < 200; ++i) {
+			manager.setCookie(Uri.parse("http://example.com/"), "c" + (i % 40) + "=1; Max-Age=3600");
+		}
+		for (int i = 0; i < 40; ++i) {
+			manager.setCookie(Uri.parse("http://example.com/"), "c" + i + "=; Max-Age=0");
+		}
+		manager.setCookie(Uri.parse("http://example.com/"), "kept=1; Max-Age=3600");
+		manager.close();
+		assertTrue("journal size " + journalFile.length(), journalFile.length() < 100 * 60);
+
+		DefaultCookieManager reloaded = new DefaultCookieManager.Builder().setJournal(journalFile).setExecutor(DIRECT).build();
+		assertEquals("kept=1", reloaded.getCookieHeader(Uri.parse("http://example.com/")));
+		reloaded.close();
+	}
+}
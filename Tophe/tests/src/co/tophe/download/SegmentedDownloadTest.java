@@ -0,0 +1,211 @@
+package co.tophe.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import co.tophe.HttpException;
+
+public class SegmentedDownloadTest extends TestCase {
+
+	private static final int RESOURCE_SIZE = 200 * 1024;
+	private static final int MIN_SEGMENT_SIZE = 32 * 1024;
+
+	/**
+	 * Serve a resource with or without byte ranges, honoring {@code If-Range} with the current ETag.
+	 */
+	private static class ResourceHandler implements HttpHandler {
+		final byte[] resource;
+		final AtomicInteger rangeRequests = new AtomicInteger();
+		final AtomicInteger fullRequests = new AtomicInteger();
+		volatile boolean supportsHead = true;
+		volatile boolean supportsRanges = true;
+		volatile String etag = "\"v1\"";
+		/** the ETag set when the first range is requested */
+		volatile String nextEtag;
+		/** the amount of range requests answered with half their data */
+		final AtomicInteger shortRanges = new AtomicInteger();
+
+		ResourceHandler(byte[] resource) {
+			this.resource = resource;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if ("HEAD".equals(exchange.getRequestMethod())) {
+					if (!supportsHead) {
+						exchange.sendResponseHeaders(405, -1);
+						return;
+					}
+					exchange.getResponseHeaders().set("ETag", etag);
+					if (supportsRanges)
+						exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+					exchange.getResponseHeaders().set("Content-Length", String.valueOf(resource.length));
+					exchange.sendResponseHeaders(200, -1);
+					return;
+				}
+
+				String range = exchange.getRequestHeaders().getFirst("Range");
+				if (supportsRanges && null != range) {
+					int count = rangeRequests.incrementAndGet();
+					if (1 == count && null != nextEtag)
+						etag = nextEtag;
+					String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+					if (null == ifRange || ifRange.equals(etag)) {
+						sendRange(exchange, range);
+						return;
+					}
+				}
+
+				fullRequests.incrementAndGet();
+				exchange.getResponseHeaders().set("ETag", etag);
+				exchange.sendResponseHeaders(200, resource.length);
+				OutputStream output = exchange.getResponseBody();
+				output.write(resource);
+				output.close();
+			} catch (IOException ignored) {
+				// the client stopped reading
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private void sendRange(HttpExchange exchange, String range) throws IOException {
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			int start = Integer.parseInt(bounds[0]);
+			int end = Math.min(resource.length - 1, Integer.parseInt(bounds[1]));
+			exchange.getResponseHeaders().set("ETag", etag);
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + start + '-' + end + '/' + resource.length);
+			int length = end - start + 1;
+			OutputStream output;
+			if (shortRanges.getAndDecrement() > 0) {
+				// the connection ends cleanly before the end of the range
+				exchange.sendResponseHeaders(206, 0);
+				output = exchange.getResponseBody();
+				output.write(resource, start, length / 2);
+			} else {
+				exchange.sendResponseHeaders(206, length);
+				output = exchange.getResponseBody();
+				output.write(resource, start, length);
+			}
+			output.close();
+		}
+	}
+
+	private HttpServer server;
+	private ExecutorService serverThreads;
+	private ExecutorService downloadExecutor;
+	private ResourceHandler handler;
+	private File destination;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		byte[] resource = new byte[RESOURCE_SIZE];
+		new Random(42).nextBytes(resource);
+		handler = new ResourceHandler(resource);
+
+		serverThreads = Executors.newCachedThreadPool();
+		downloadExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", handler);
+		server.setExecutor(serverThreads);
+		server.start();
+		destination = File.createTempFile("segmented", ".bin");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+		serverThreads.shutdownNow();
+		downloadExecutor.shutdownNow();
+		destination.delete();
+		super.tearDown();
+	}
+
+	private SegmentedDownload createDownload() {
+		return new SegmentedDownload.Builder()
+				.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/resource")
+				.setDestination(destination)
+				.setSegmentCount(4)
+				.setMinSegmentSize(MIN_SEGMENT_SIZE)
+				.setExecutor(downloadExecutor)
+				.build();
+	}
+
+	private void assertDownloaded() throws IOException {
+		byte[] data = new byte[(int) destination.length()];
+		RandomAccessFile file = new RandomAccessFile(destination, "r");
+		try {
+			file.readFully(data);
+		} finally {
+			file.close();
+		}
+		assertTrue(Arrays.equals(handler.resource, data));
+	}
+
+	public void testPartialContent() throws Exception {
+		SegmentedDownload download = createDownload();
+		assertEquals(destination, download.call());
+		assertDownloaded();
+		assertEquals(RESOURCE_SIZE, download.getTotalLength());
+		assertEquals(RESOURCE_SIZE, download.getDownloadedLength());
+		assertTrue(String.valueOf(handler.rangeRequests), handler.rangeRequests.get() >= 4);
+		assertEquals(0, handler.fullRequests.get());
+	}
+
+	public void testPartialContentWithoutHead() throws Exception {
+		// the size is found with the Content-Range of a one byte range
+		handler.supportsHead = false;
+		SegmentedDownload download = createDownload();
+		download.call();
+		assertDownloaded();
+		assertTrue(String.valueOf(handler.rangeRequests), handler.rangeRequests.get() >= 5);
+		assertEquals(0, handler.fullRequests.get());
+	}
+
+	public void testRangeIgnored() throws Exception {
+		handler.supportsRanges = false;
+		SegmentedDownload download = createDownload();
+		download.call();
+		assertDownloaded();
+		assertEquals(RESOURCE_SIZE, download.getTotalLength());
+		assertEquals(1, handler.fullRequests.get());
+	}
+
+	public void testEtagChanged() throws Exception {
+		handler.nextEtag = "\"v2\"";
+		try {
+			createDownload().call();
+			fail("the resource changed during the download");
+		} catch (HttpException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("resource changed"));
+		}
+		// the changed ranges are not retried
+		assertTrue(String.valueOf(handler.fullRequests), handler.fullRequests.get() <= 4);
+	}
+
+	public void testShortSegmentRetried() throws Exception {
+		handler.shortRanges.set(1);
+		SegmentedDownload download = createDownload();
+		download.call();
+		assertDownloaded();
+		assertEquals(RESOURCE_SIZE, download.getDownloadedLength());
+		assertTrue(String.valueOf(handler.rangeRequests), handler.rangeRequests.get() >= 5);
+	}
+}
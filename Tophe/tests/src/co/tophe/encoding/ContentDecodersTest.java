@@ -0,0 +1,118 @@
+package co.tophe.encoding;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class ContentDecodersTest extends TestCase {
+
+	private static final String BODY = "{\"status\":\"ok\",\"items\":[1,2,3,4,5,6,7,8,9,10]}";
+
+	public void testGzip() throws Exception {
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(gzip(BODY.getBytes("UTF-8"))), "gzip");
+		assertEquals(BODY, read(stream));
+	}
+
+	public void testGzipAlias() throws Exception {
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(gzip(BODY.getBytes("UTF-8"))), "x-gzip");
+		assertEquals(BODY, read(stream));
+	}
+
+	public void testGzipBadCrc() throws Exception {
+		byte[] data = gzip(BODY.getBytes("UTF-8"));
+		data[data.length - 8] ^= 0xFF;
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(data), "gzip");
+		try {
+			read(stream);
+			fail("corrupted CRC not detected");
+		} catch (ZipException expected) {
+		}
+	}
+
+	public void testDeflateZlib() throws Exception {
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(deflate(BODY.getBytes("UTF-8"), false)), "deflate");
+		assertEquals(BODY, read(stream));
+	}
+
+	public void testDeflateRaw() throws Exception {
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(deflate(BODY.getBytes("UTF-8"), true)), "deflate");
+		assertEquals(BODY, read(stream));
+	}
+
+	public void testStackedEncodings() throws Exception {
+		byte[] data = gzip(deflate(BODY.getBytes("UTF-8"), false));
+		InputStream stream = ContentDecoders.decode(new ByteArrayInputStream(data), "deflate, identity, gzip");
+		assertEquals(BODY, read(stream));
+	}
+
+	public void testIdentity() throws Exception {
+		InputStream source = new ByteArrayInputStream(BODY.getBytes("UTF-8"));
+		assertSame(source, ContentDecoders.decode(source, "identity"));
+		assertSame(source, ContentDecoders.decode(source, null));
+	}
+
+	public void testRegister() throws Exception {
+		ContentDecoder reversed = new ContentDecoder() {
+			@Override
+			public InputStream decode(InputStream encoded) throws IOException {
+				byte[] data = readBytes(encoded);
+				for (int i = 0, j = data.length - 1; i < j; i++, j--) {
+					byte b = data[i];
+					data[i] = data[j];
+					data[j] = b;
+				}
+				return new ByteArrayInputStream(data);
+			}
+		};
+		ContentDecoders.register("x-reversed", reversed);
+		try {
+			assertTrue(ContentDecoders.getAcceptEncoding().contains("x-reversed"));
+			byte[] data = new StringBuilder(BODY).reverse().toString().getBytes("UTF-8");
+			assertEquals(BODY, read(ContentDecoders.decode(new ByteArrayInputStream(data), "X-Reversed")));
+		} finally {
+			ContentDecoders.register("x-reversed", null);
+		}
+		assertFalse(ContentDecoders.getAcceptEncoding().contains("x-reversed"));
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(data);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+		deflate.write(data);
+		deflate.close();
+		return out.toByteArray();
+	}
+
+	private static String read(InputStream stream) throws IOException {
+		try {
+			return new String(readBytes(stream), "UTF-8");
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static byte[] readBytes(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,176 @@
+package co.tophe.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.support.annotation.Nullable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import co.tophe.AbstractHttpEngine;
+import co.tophe.BaseHttpRequest;
+import co.tophe.HttpEngine;
+import co.tophe.HttpEngineFactory;
+import co.tophe.ServerException;
+import co.tophe.TopheException;
+import co.tophe.parser.BodyToString;
+
+public class HedgedHttpEngineTest extends TestCase {
+
+	/**
+	 * Create {@link co.tophe.engine.HttpEngineUrlConnection} engines and keep them to check them after the request.
+	 */
+	private static class RecordingFactory implements HttpEngineFactory {
+		final List<AbstractHttpEngine<?, ?, ?>> engines = new CopyOnWriteArrayList<AbstractHttpEngine<?, ?, ?>>();
+		final boolean reportsHeaders;
+
+		RecordingFactory(boolean reportsHeaders) {
+			this.reportsHeaders = reportsHeaders;
+		}
+
+		@Nullable
+		@Override
+		public <T, SE extends ServerException> HttpEngine<T, SE> createEngine(HttpEngine.Builder<T, SE> builder) {
+			AbstractHttpEngine<T, SE, ?> engine;
+			if (reportsHeaders) {
+				engine = new HttpEngineUrlConnection<T, SE>(builder);
+			} else {
+				engine = new HttpEngineUrlConnection<T, SE>(builder) {
+					@Override
+					protected boolean reportsHeadersReceived() {
+						return false;
+					}
+				};
+			}
+			engines.add(engine);
+			return engine;
+		}
+	}
+
+	/**
+	 * Answer each request with the status and the delay of its position.
+	 */
+	private static class ScriptedHandler implements HttpHandler {
+		final AtomicInteger requests = new AtomicInteger();
+		final int[] statusCodes;
+		final long[] delays;
+
+		ScriptedHandler(int[] statusCodes, long[] delays) {
+			this.statusCodes = statusCodes;
+			this.delays = delays;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			int index = requests.getAndIncrement();
+			try {
+				Thread.sleep(delays[index]);
+			} catch (InterruptedException e) {
+				exchange.close();
+				return;
+			}
+			byte[] body = ("response" + index).getBytes("UTF-8");
+			try {
+				exchange.sendResponseHeaders(statusCodes[index], body.length);
+				OutputStream output = exchange.getResponseBody();
+				output.write(body);
+				output.close();
+			} catch (IOException ignored) {
+				// the client cancelled the request
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	private HttpServer server;
+	private ExecutorService serverThreads;
+	private ExecutorService hedgeExecutor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		serverThreads = Executors.newCachedThreadPool();
+		hedgeExecutor = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (null != server)
+			server.stop(0);
+		serverThreads.shutdownNow();
+		hedgeExecutor.shutdownNow();
+		super.tearDown();
+	}
+
+	private String startServer(HttpHandler handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", handler);
+		server.setExecutor(serverThreads);
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	private HttpEngine<String, ServerException> createEngine(String url, HttpEngineFactory factory) {
+		BaseHttpRequest<String, ServerException> request = new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl(url)
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.build();
+		return new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(request)
+				.setHttpEngineFactory(factory)
+				.setHedgingPolicy(new HedgingPolicy.Builder().setDelay(50).setExecutor(hedgeExecutor).build())
+				.build();
+	}
+
+	public void testDuplicateWins() throws Exception {
+		String url = startServer(new ScriptedHandler(new int[]{200, 200}, new long[]{10000, 0}));
+		RecordingFactory factory = new RecordingFactory(true);
+		HttpEngine<String, ServerException> engine = createEngine(url, factory);
+		assertTrue(engine instanceof HedgedHttpEngine);
+
+		long start = System.nanoTime();
+		assertEquals("response1", engine.call());
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		assertEquals(2, factory.engines.size());
+		assertTrue(factory.engines.get(0).isCancelled());
+		assertFalse(factory.engines.get(1).isCancelled());
+	}
+
+	public void testBothFail() throws Exception {
+		// the duplicate fails first, the error of the original request is reported
+		String url = startServer(new ScriptedHandler(new int[]{500, 503}, new long[]{300, 0}));
+		RecordingFactory factory = new RecordingFactory(true);
+		HttpEngine<String, ServerException> engine = createEngine(url, factory);
+
+		try {
+			engine.call();
+			fail("both requests failed");
+		} catch (TopheException e) {
+			assertEquals(500, e.getStatusCode());
+		}
+		assertEquals(2, factory.engines.size());
+		assertFalse(factory.engines.get(0).isCancelled());
+	}
+
+	public void testNoHeadersTimeNotHedged() throws Exception {
+		String url = startServer(new ScriptedHandler(new int[]{200}, new long[]{200}));
+		RecordingFactory factory = new RecordingFactory(false);
+		HttpEngine<String, ServerException> engine = createEngine(url, factory);
+		assertFalse(engine instanceof HedgedHttpEngine);
+		assertEquals("response0", engine.call());
+		assertEquals(1, factory.engines.size());
+	}
+}
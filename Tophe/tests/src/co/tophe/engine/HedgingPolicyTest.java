@@ -0,0 +1,73 @@
+package co.tophe.engine;
+
+import junit.framework.TestCase;
+
+import co.tophe.HttpRequestInfo;
+import co.tophe.RawHttpRequest;
+
+public class HedgingPolicyTest extends TestCase {
+
+	private static HttpRequestInfo request(String method, String url) {
+		return new RawHttpRequest.Builder().setHttpMethod(method).setUrl(url).build();
+	}
+
+	public void testIdempotentOnly() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy.Builder().build();
+		assertTrue(policy.isHedgeable(request("GET", "http://example.com/")));
+		assertTrue(policy.isHedgeable(request("HEAD", "http://example.com/")));
+		assertFalse(policy.isHedgeable(request("POST", "http://example.com/")));
+		assertFalse(policy.isHedgeable(request("DELETE", "http://example.com/")));
+	}
+
+	public void testFixedDelay() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy.Builder().setDelay(250).build();
+		HttpRequestInfo request = request("GET", "http://example.com/");
+		policy.recordLatency(request, 10);
+		assertEquals(250, policy.getDelay(request));
+	}
+
+	public void testAdaptiveDelay() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy.Builder()
+				.setDelay(500)
+				.setAdaptiveDelay(95, 20, 400)
+				.setMinSamples(10)
+				.build();
+		HttpRequestInfo request = request("GET", "http://example.com/items");
+		HttpRequestInfo otherHost = request("GET", "http://other.example.com/items");
+
+		// not enough samples yet, use the fixed delay within the bounds
+		assertEquals(400, policy.getDelay(request));
+
+		for (int i = 1; i <= 100; ++i) {
+			policy.recordLatency(request, i);
+		}
+		assertEquals(95, policy.getDelay(request));
+		assertEquals(400, policy.getDelay(otherHost));
+
+		// older samples are dropped from the rolling window
+		for (int i = 0; i < 200; ++i) {
+			policy.recordLatency(request, 1);
+		}
+		assertEquals(20, policy.getDelay(request));
+	}
+
+	public void testBudget() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy.Builder().setBudget(0.5f, 2).build();
+		assertTrue(policy.tryAcquireHedge());
+		assertTrue(policy.tryAcquireHedge());
+		assertFalse(policy.tryAcquireHedge());
+
+		policy.onRequest();
+		assertFalse(policy.tryAcquireHedge());
+		policy.onRequest();
+		assertTrue(policy.tryAcquireHedge());
+		assertEquals(3, policy.getHedgedCount());
+
+		for (int i = 0; i < 100; ++i) {
+			policy.onRequest();
+		}
+		assertTrue(policy.tryAcquireHedge());
+		assertTrue(policy.tryAcquireHedge());
+		assertFalse(policy.tryAcquireHedge());
+	}
+}
@@ -0,0 +1,142 @@
+package co.tophe.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import co.tophe.BaseHttpRequest;
+import co.tophe.Deadline;
+import co.tophe.HttpEngine;
+import co.tophe.HttpException;
+import co.tophe.HttpSignException;
+import co.tophe.HttpTimeoutException;
+import co.tophe.ServerException;
+import co.tophe.parser.BodyToString;
+import co.tophe.signed.RequestSigner;
+
+public class HttpEngineUrlConnectionCancelTest extends TestCase {
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private final AtomicInteger requests = new AtomicInteger();
+	private String url;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newSingleThreadExecutor();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				byte[] body = "ok".getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream output = exchange.getResponseBody();
+				output.write(body);
+				output.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	private static HttpEngine<String, ServerException> createEngine(String url, RequestSigner signer) {
+		BaseHttpRequest.Builder<String, ServerException> request = new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl(url)
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER);
+		if (null != signer)
+			request.setSigner(signer);
+		return new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(request.build())
+				.build();
+	}
+
+	public void testNotCancelled() throws Exception {
+		HttpEngine<String, ServerException> engine = createEngine(url, null);
+		assertEquals("ok", engine.call());
+		assertEquals(1, requests.get());
+	}
+
+	public void testCancelWhileSigning() throws Exception {
+		final CountDownLatch signing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final HttpEngine<String, ServerException> engine = createEngine(url, new RequestSigner() {
+			@Override
+			public void sign(HttpEngine<?, ?> req) throws HttpSignException {
+				// like a signer waiting for a token refresh
+				signing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+			}
+		});
+		Future<String> result = executor.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return engine.call();
+			}
+		});
+
+		assertTrue(signing.await(5, TimeUnit.SECONDS));
+		engine.cancel();
+		release.countDown();
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			fail("the request was cancelled");
+		} catch (ExecutionException e) {
+			assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof HttpException);
+			assertFalse(e.getCause() instanceof HttpTimeoutException);
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("cancelled"));
+		}
+		assertEquals(0, requests.get());
+	}
+
+	public void testDeadlineWhileSigning() throws Exception {
+		HttpEngine<String, ServerException> engine = createEngine(url, new RequestSigner() {
+			@Override
+			public void sign(HttpEngine<?, ?> req) throws HttpSignException {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+			}
+		});
+
+		Deadline previous = Deadline.enter(Deadline.after(100));
+		try {
+			engine.call();
+			fail("the deadline expired while signing");
+		} catch (HttpTimeoutException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("deadline exceeded"));
+		} finally {
+			Deadline.exit(previous);
+		}
+		assertEquals(0, requests.get());
+	}
+}
@@ -0,0 +1,54 @@
+package co.tophe.internal;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import co.tophe.DownloadProgressListener;
+import co.tophe.HttpRequestGet;
+import co.tophe.HttpRequestInfo;
+import co.tophe.parser.XferTransformResponseInputStream;
+
+public class ProgressInputStreamTest extends TestCase {
+
+	private static final int BODY_SIZE = 10000;
+
+	private final List<Long> progress = new ArrayList<Long>();
+	private final DownloadProgressListener listener = new DownloadProgressListener() {
+		@Override
+		public void onDownloadProgress(HttpRequestInfo request, long bytesReceived, long contentLength) {
+			progress.add(bytesReceived);
+		}
+	};
+
+	public void testEveryRead() throws Exception {
+		HttpRequestGet<InputStream> request = new HttpRequestGet<InputStream>("http://www.example.com/", XferTransformResponseInputStream.INSTANCE);
+		DownloadProgressNotifier notifier = new DownloadProgressNotifier(request, listener, BODY_SIZE, 0);
+		readAll(new ProgressInputStream(new ByteArrayInputStream(new byte[BODY_SIZE]), notifier));
+
+		assertEquals(BODY_SIZE / 1000, progress.size());
+		assertEquals(BODY_SIZE, (long) progress.get(progress.size() - 1));
+	}
+
+	public void testThrottled() throws Exception {
+		HttpRequestGet<InputStream> request = new HttpRequestGet<InputStream>("http://www.example.com/", XferTransformResponseInputStream.INSTANCE);
+		DownloadProgressNotifier notifier = new DownloadProgressNotifier(request, listener, -1, Long.MAX_VALUE);
+		readAll(new ProgressInputStream(new ByteArrayInputStream(new byte[BODY_SIZE]), notifier));
+
+		// the first read and the end of the stream
+		assertEquals(2, progress.size());
+		assertEquals(1000L, (long) progress.get(0));
+		assertEquals(BODY_SIZE, (long) progress.get(1));
+	}
+
+	private static void readAll(InputStream stream) throws IOException {
+		byte[] buffer = new byte[1000];
+		while (stream.read(buffer) != -1) {
+		}
+		stream.close();
+	}
+}
@@ -0,0 +1,147 @@
+package co.tophe.paging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class IndexedPagingTest extends TestCase {
+
+	/**
+	 * Pages returning their index, the later pages are faster to read.
+	 */
+	private static class SlowFirstPages implements IndexedPageFactory<Integer> {
+		final int pageCount;
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final AtomicInteger requested = new AtomicInteger();
+
+		SlowFirstPages(int pageCount) {
+			this.pageCount = pageCount;
+		}
+
+		@Override
+		public Callable<Integer> createCallable(final int pageIndex) {
+			return new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					requested.incrementAndGet();
+					int current = running.incrementAndGet();
+					int max;
+					while ((max = maxRunning.get()) < current && !maxRunning.compareAndSet(max, current)) {
+					}
+					try {
+						Thread.sleep(2 * (pageCount - pageIndex));
+					} finally {
+						running.decrementAndGet();
+					}
+					return pageIndex;
+				}
+			};
+		}
+	}
+
+	private static final PageCallback<List<Integer>, Integer> ADD_PAGE = new PageCallback<List<Integer>, Integer>() {
+		@Override
+		public void onNewPage(List<Integer> pagesHolder, Integer page) {
+			pagesHolder.add(page);
+		}
+	};
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testOrderedDelivery() throws Exception {
+		SlowFirstPages pages = new SlowFirstPages(20);
+		List<Integer> result = PagingHelper.processIndexedPages(pages, 20, new ArrayList<Integer>(), ADD_PAGE, 4, executor).call();
+		assertEquals(20, result.size());
+		for (int i = 0; i < 20; ++i) {
+			assertEquals(i, result.get(i).intValue());
+		}
+		assertTrue(pages.maxRunning.get() <= 4);
+		assertTrue(pages.maxRunning.get() > 1);
+	}
+
+	public void testPageCountFromFirstPage() throws Exception {
+		SlowFirstPages pages = new SlowFirstPages(7);
+		List<Integer> result = PagingHelper.processIndexedPages(pages, new PageCountReader<Integer>() {
+			@Override
+			public int getPageCount(Integer firstPage) {
+				assertEquals(0, firstPage.intValue());
+				return 7;
+			}
+		}, new ArrayList<Integer>(), ADD_PAGE, 3, executor).call();
+		assertEquals(7, result.size());
+		for (int i = 0; i < 7; ++i) {
+			assertEquals(i, result.get(i).intValue());
+		}
+		assertEquals(7, pages.requested.get());
+	}
+
+	public void testNoPages() throws Exception {
+		SlowFirstPages pages = new SlowFirstPages(0);
+		List<Integer> result = PagingHelper.processIndexedPages(pages, 0, new ArrayList<Integer>(), ADD_PAGE, 3, executor).call();
+		assertTrue(result.isEmpty());
+		assertEquals(0, pages.requested.get());
+	}
+
+	public void testErrorStopsReading() throws Exception {
+		final AtomicInteger requested = new AtomicInteger();
+		IndexedPageFactory<Integer> failing = new IndexedPageFactory<Integer>() {
+			@Override
+			public Callable<Integer> createCallable(final int pageIndex) {
+				return new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						requested.incrementAndGet();
+						if (2 == pageIndex)
+							throw new IllegalStateException("page 2 failed");
+						return pageIndex;
+					}
+				};
+			}
+		};
+		List<Integer> holder = new ArrayList<Integer>();
+		try {
+			PagingHelper.processIndexedPages(failing, 1000, holder, ADD_PAGE, 3, executor).call();
+			fail("the error was not reported");
+		} catch (IllegalStateException e) {
+			assertEquals("page 2 failed", e.getMessage());
+		}
+		assertEquals(2, holder.size());
+		assertTrue(requested.get() <= 6);
+	}
+
+	public void testSaturatedExecutor() throws Exception {
+		// every thread of the pool runs a paging that waits for pages queued in the same pool
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<List<Integer>>> results = new ArrayList<Future<List<Integer>>>();
+			for (int i = 0; i < 2; ++i) {
+				results.add(pool.submit(PagingHelper.processIndexedPages(new SlowFirstPages(10), 10, new ArrayList<Integer>(), ADD_PAGE, 3, pool)));
+			}
+			for (Future<List<Integer>> result : results) {
+				assertEquals(10, result.get(5, TimeUnit.SECONDS).size());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
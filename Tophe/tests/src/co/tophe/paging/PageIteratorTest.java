@@ -0,0 +1,171 @@
+package co.tophe.paging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class PageIteratorTest extends TestCase {
+
+	/**
+	 * Pages numbered from 0 to {@code pageCount - 1}, page {@code failingPage} throws an error.
+	 */
+	private static class CountingPages implements NextPageFactory<Integer> {
+		final int pageCount;
+		final int failingPage;
+		final AtomicInteger requested = new AtomicInteger();
+
+		CountingPages(int pageCount) {
+			this(pageCount, -1);
+		}
+
+		CountingPages(int pageCount, int failingPage) {
+			this.pageCount = pageCount;
+			this.failingPage = failingPage;
+		}
+
+		Callable<Integer> page(final int index) {
+			return new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					requested.incrementAndGet();
+					if (index == failingPage)
+						throw new IllegalStateException("page " + index + " failed");
+					return index;
+				}
+			};
+		}
+
+		@Override
+		public Callable<Integer> createCallable(Integer page) {
+			return page + 1 < pageCount ? page(page + 1) : null;
+		}
+	}
+
+	private static final PageItemsReader<Integer, String> THREE_ITEMS = new PageItemsReader<Integer, String>() {
+		@Override
+		public Iterable<String> getItems(Integer page) {
+			return Arrays.asList(page + "a", page + "b", page + "c");
+		}
+	};
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testLazyRead() throws Exception {
+		CountingPages pages = new CountingPages(10);
+		PageIterator<Integer> iterator = PagingHelper.iteratePages(pages.page(0), pages, 0, executor);
+		assertEquals(0, pages.requested.get());
+		assertTrue(iterator.hasNext());
+		assertEquals(1, pages.requested.get());
+		assertEquals(0, iterator.next().intValue());
+		assertEquals(1, pages.requested.get());
+		assertEquals(1, iterator.next().intValue());
+		assertEquals(2, pages.requested.get());
+	}
+
+	public void testAllPages() throws Exception {
+		for (int prefetchDepth = 0; prefetchDepth < 3; ++prefetchDepth) {
+			CountingPages pages = new CountingPages(25);
+			List<Integer> result = new ArrayList<Integer>();
+			for (Integer page : PagingHelper.iteratePages(pages.page(0), pages, prefetchDepth, executor)) {
+				result.add(page);
+			}
+			assertEquals(25, result.size());
+			for (int i = 0; i < 25; ++i) {
+				assertEquals(i, result.get(i).intValue());
+			}
+			assertEquals(25, pages.requested.get());
+		}
+	}
+
+	public void testItems() throws Exception {
+		CountingPages pages = new CountingPages(4);
+		List<String> result = new ArrayList<String>();
+		for (String item : PagingHelper.iterateItems(pages.page(0), pages, THREE_ITEMS, 2, executor)) {
+			result.add(item);
+		}
+		assertEquals(12, result.size());
+		assertEquals("0a", result.get(0));
+		assertEquals("3c", result.get(11));
+	}
+
+	public void testEmptyPages() throws Exception {
+		CountingPages pages = new CountingPages(5);
+		ItemIterator<Integer, String> items = PagingHelper.iterateItems(pages.page(0), pages, new PageItemsReader<Integer, String>() {
+			@Override
+			public Iterable<String> getItems(Integer page) {
+				return 3 == page ? Arrays.asList("only") : new ArrayList<String>();
+			}
+		}, 0, executor);
+		assertTrue(items.hasNext());
+		assertEquals("only", items.next());
+		assertFalse(items.hasNext());
+		assertEquals(5, pages.requested.get());
+	}
+
+	public void testCloseStopsReading() throws Exception {
+		CountingPages pages = new CountingPages(1000);
+		ItemIterator<Integer, String> items = PagingHelper.iterateItems(pages.page(0), pages, THREE_ITEMS, 2, executor);
+		assertEquals("0a", items.next());
+		items.close();
+		assertFalse(items.hasNext());
+		Thread.sleep(100);
+		int requested = pages.requested.get();
+		// the page being consumed, 2 pages in the buffer and 1 page waiting for room
+		assertTrue("read " + requested, requested <= 4);
+		Thread.sleep(100);
+		assertEquals(requested, pages.requested.get());
+	}
+
+	public void testError() throws Exception {
+		for (int prefetchDepth = 0; prefetchDepth < 2; ++prefetchDepth) {
+			CountingPages pages = new CountingPages(10, 2);
+			PageIterator<Integer> iterator = PagingHelper.iteratePages(pages.page(0), pages, prefetchDepth, executor);
+			assertEquals(0, iterator.next().intValue());
+			assertEquals(1, iterator.next().intValue());
+			try {
+				iterator.hasNext();
+				fail("the error was not reported");
+			} catch (PagingException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+				assertEquals("page 2 failed", e.getCause().getMessage());
+			}
+			assertFalse(iterator.hasNext());
+			assertEquals(3, pages.requested.get());
+		}
+	}
+
+	public void testExecutorNotRunning() throws Exception {
+		// like a pool busy with tasks waiting for their pages, the pages are read by the iterating thread
+		Executor busy = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+			}
+		};
+		CountingPages pages = new CountingPages(5);
+		List<Integer> result = new ArrayList<Integer>();
+		for (Integer page : PagingHelper.iteratePages(pages.page(0), pages, 2, busy)) {
+			result.add(page);
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), result);
+		assertEquals(5, pages.requested.get());
+	}
+}
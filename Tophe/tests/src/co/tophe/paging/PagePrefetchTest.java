@@ -0,0 +1,194 @@
+package co.tophe.paging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class PagePrefetchTest extends TestCase {
+
+	/**
+	 * Pages numbered from 0 to {@code pageCount - 1}.
+	 */
+	private static class CountingPages implements NextPageFactory<Integer> {
+		final int pageCount;
+		final AtomicInteger requested = new AtomicInteger();
+
+		CountingPages(int pageCount) {
+			this.pageCount = pageCount;
+		}
+
+		Callable<Integer> page(final int index) {
+			return new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					requested.incrementAndGet();
+					return index;
+				}
+			};
+		}
+
+		@Override
+		public Callable<Integer> createCallable(Integer page) {
+			return page + 1 < pageCount ? page(page + 1) : null;
+		}
+	}
+
+	private static final PageCallback<List<Integer>, Integer> ADD_PAGE = new PageCallback<List<Integer>, Integer>() {
+		@Override
+		public void onNewPage(List<Integer> pagesHolder, Integer page) {
+			pagesHolder.add(page);
+		}
+	};
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	public void testManyPagesIterative() throws Exception {
+		CountingPages pages = new CountingPages(20000);
+		List<Integer> result = PagingHelper.processPage(pages.page(0), new ArrayList<Integer>(), ADD_PAGE, pages).call();
+		assertEquals(20000, result.size());
+		assertEquals(19999, result.get(19999).intValue());
+	}
+
+	public void testPrefetchOrder() throws Exception {
+		CountingPages pages = new CountingPages(50);
+		List<Integer> result = PagingHelper.processPagePrefetch(pages.page(0), new ArrayList<Integer>(), ADD_PAGE, pages, 3, executor).call();
+		assertEquals(50, result.size());
+		for (int i = 0; i < 50; ++i) {
+			assertEquals(i, result.get(i).intValue());
+		}
+	}
+
+	public void testNextPageReadDuringProcessing() throws Exception {
+		final CountingPages pages = new CountingPages(3);
+		final List<Integer> requestedWhileProcessing = new ArrayList<Integer>();
+		PagingHelper.processPagePrefetch(pages.page(0), new ArrayList<Integer>(), new PageCallback<List<Integer>, Integer>() {
+			@Override
+			public void onNewPage(List<Integer> pagesHolder, Integer page) {
+				if (0 == page) {
+					long end = System.currentTimeMillis() + 5000;
+					while (pages.requested.get() < 2 && System.currentTimeMillis() < end) {
+						Thread.yield();
+					}
+					requestedWhileProcessing.add(pages.requested.get());
+				}
+			}
+		}, pages, 1, executor).call();
+		assertTrue(requestedWhileProcessing.get(0) >= 2);
+	}
+
+	public void testBoundedBuffer() throws Exception {
+		final CountingPages pages = new CountingPages(100);
+		final CountDownLatch firstPage = new CountDownLatch(1);
+		final int[] requestedAfterWait = new int[1];
+		PagingHelper.processPagePrefetch(pages.page(0), new ArrayList<Integer>(), new PageCallback<List<Integer>, Integer>() {
+			@Override
+			public void onNewPage(List<Integer> pagesHolder, Integer page) {
+				if (0 == page) {
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException ignored) {
+					}
+					requestedAfterWait[0] = pages.requested.get();
+					firstPage.countDown();
+				}
+			}
+		}, pages, 2, executor).call();
+		assertTrue(firstPage.await(1, TimeUnit.SECONDS));
+		// the page being processed, 2 pages in the buffer and 1 page waiting for room
+		assertTrue("read " + requestedAfterWait[0], requestedAfterWait[0] <= 4);
+	}
+
+	public void testErrorStopsReading() throws Exception {
+		final AtomicInteger requested = new AtomicInteger();
+		NextPageFactory<Integer> failing = new NextPageFactory<Integer>() {
+			@Override
+			public Callable<Integer> createCallable(final Integer page) {
+				return new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						requested.incrementAndGet();
+						if (page == 2)
+							throw new IllegalStateException("page 3 failed");
+						return page + 1;
+					}
+				};
+			}
+		};
+		List<Integer> holder = new ArrayList<Integer>();
+		try {
+			PagingHelper.processPagePrefetch(failing.createCallable(-1), holder, ADD_PAGE, failing, 2, executor).call();
+			fail("the error was not reported");
+		} catch (IllegalStateException e) {
+			assertEquals("page 3 failed", e.getMessage());
+		}
+		assertEquals(3, holder.size());
+		assertEquals(4, requested.get());
+	}
+
+	public void testCancelWakesReader() throws Exception {
+		final CountingPages pages = new CountingPages(100);
+		final PagePrefetcher<Integer> prefetcher = new PagePrefetcher<Integer>(pages.page(0), pages, 1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final boolean[] interruptLeft = new boolean[1];
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				prefetcher.run();
+				interruptLeft[0] = Thread.currentThread().isInterrupted();
+				stopped.countDown();
+			}
+		});
+
+		// the first page fills the queue, the reader waits with the second page
+		long end = System.currentTimeMillis() + 5000;
+		while (pages.requested.get() < 2 && System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertEquals(2, pages.requested.get());
+
+		prefetcher.cancel();
+		assertTrue(stopped.await(1, TimeUnit.SECONDS));
+		assertFalse(interruptLeft[0]);
+		assertFalse(prefetcher.next());
+		assertEquals(2, pages.requested.get());
+	}
+
+	public void testSaturatedExecutor() throws Exception {
+		// every thread of the pool runs a paging that waits for a reader queued in the same pool
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<List<Integer>>> results = new ArrayList<Future<List<Integer>>>();
+			for (int i = 0; i < 2; ++i) {
+				CountingPages pages = new CountingPages(10);
+				results.add(pool.submit(PagingHelper.processPagePrefetch(pages.page(0), new ArrayList<Integer>(), ADD_PAGE, pages, 2, pool)));
+			}
+			for (Future<List<Integer>> result : results) {
+				List<Integer> pages = result.get(5, TimeUnit.SECONDS);
+				assertEquals(10, pages.size());
+				assertEquals(9, pages.get(9).intValue());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
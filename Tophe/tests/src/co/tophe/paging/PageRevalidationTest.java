@@ -0,0 +1,213 @@
+package co.tophe.paging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import co.tophe.BaseResponseHandler;
+import co.tophe.HttpEngine;
+import co.tophe.HttpRequestGet;
+import co.tophe.HttpResponse;
+import co.tophe.ImmutableHttpRequest;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.parser.BodyToString;
+import co.tophe.parser.XferTransform;
+
+public class PageRevalidationTest extends TestCase {
+
+	private static class FakeResponse implements HttpResponse {
+		final int code;
+		final String body;
+		final Map<String, String> headers = new HashMap<String, String>();
+
+		FakeResponse(int code, String body) {
+			this.code = code;
+			this.body = body;
+		}
+
+		FakeResponse header(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+
+		@Override
+		public String getContentType() {
+			return "text/plain";
+		}
+
+		@Override
+		public int getResponseCode() {
+			return code;
+		}
+
+		@Override
+		public Map<String, List<String>> getHeaderFields() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public String getHeaderField(String name) {
+			return headers.get(name);
+		}
+
+		@Override
+		public int getContentLength() {
+			return body.length();
+		}
+
+		@Override
+		public String getResponseMessage() {
+			return null;
+		}
+
+		@Override
+		public String getContentEncoding() {
+			return null;
+		}
+
+		@Override
+		public void disconnect() {
+		}
+
+		@Override
+		public InputStream getContentStream() throws IOException {
+			if (304 == code)
+				throw new IOException("no body to read");
+			return new ByteArrayInputStream(body.getBytes("UTF-8"));
+		}
+	}
+
+	/**
+	 * Server with the pages {@code contents} answering 304 when the ETag matches.
+	 */
+	private static class Server {
+		final String[] contents;
+		int requested;
+		int notModified;
+
+		Server(String... contents) {
+			this.contents = contents;
+		}
+
+		FakeResponse respond(int page, String ifNoneMatch) {
+			++requested;
+			String etag = "\"" + contents[page].hashCode() + '"';
+			if (etag.equals(ifNoneMatch)) {
+				++notModified;
+				return new FakeResponse(304, "");
+			}
+			return new FakeResponse(200, contents[page]).header("ETag", etag);
+		}
+	}
+
+	private static final ResponseHandler<String, ServerException> STRING_HANDLER = new BaseResponseHandler<String>(new XferTransform<HttpResponse, String>() {
+		@Override
+		public String transformData(HttpResponse response, ImmutableHttpRequest request) throws IOException {
+			InputStream input = response.getContentStream();
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			for (int b; (b = input.read()) >= 0; ) {
+				output.write(b);
+			}
+			return output.toString("UTF-8");
+		}
+	});
+
+	private static Callable<String> page(final Server server, final PageRefresh<String> refresh, final PageRevalidationCache<String> cache, final int index) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				String key = "page" + index;
+				PageRevalidationCache.Entry<String> previous = cache.get(key);
+				ResponseHandler<String, ServerException> handler = refresh.createResponseHandler(key, previous, STRING_HANDLER);
+				return handler.contentParser.transformData(server.respond(index, null == previous ? null : previous.etag), null);
+			}
+		};
+	}
+
+	private static List<String> refresh(final Server server, final PageRevalidationCache<String> cache, int maxUnchangedPages) throws Exception {
+		final PageRefresh<String> refresh = cache.newRefresh(maxUnchangedPages);
+		return PagingHelper.readPages(page(server, refresh, cache, 0), refresh.stopWhenUnchanged(new NextPageFactory<String>() {
+			int index;
+
+			@Override
+			public Callable<String> createCallable(String page) {
+				return ++index < server.contents.length ? page(server, refresh, cache, index) : null;
+			}
+		})).call();
+	}
+
+	public void testNotModifiedReusesPage() throws Exception {
+		Server server = new Server("a", "b", "c");
+		PageRevalidationCache<String> cache = new PageRevalidationCache<String>(10);
+		assertEquals(3, refresh(server, cache, 0).size());
+		assertEquals(0, server.notModified);
+
+		server.contents[1] = "B";
+		List<String> pages = refresh(server, cache, 0);
+		assertEquals("a", pages.get(0));
+		assertEquals("B", pages.get(1));
+		assertEquals("c", pages.get(2));
+		assertEquals(2, server.notModified);
+	}
+
+	public void testStopWhenUnchanged() throws Exception {
+		Server server = new Server("a", "b", "c", "d", "e", "f");
+		PageRevalidationCache<String> cache = new PageRevalidationCache<String>(10);
+		refresh(server, cache, 2);
+		assertEquals(6, server.requested);
+
+		server.requested = 0;
+		server.contents[0] = "new";
+		List<String> pages = refresh(server, cache, 2);
+		assertEquals(3, pages.size());
+		assertEquals("new", pages.get(0));
+		assertEquals(3, server.requested);
+	}
+
+	public void testNoValidatorNotKept() throws Exception {
+		PageRevalidationCache<String> cache = new PageRevalidationCache<String>(10);
+		PageRefresh<String> refresh = cache.newRefresh(0);
+		ResponseHandler<String, ServerException> handler = refresh.createResponseHandler("key", null, STRING_HANDLER);
+		assertEquals("data", handler.contentParser.transformData(new FakeResponse(200, "data"), null));
+		assertNull(cache.getPage("key"));
+
+		assertEquals("data", handler.contentParser.transformData(new FakeResponse(200, "data").header("ETag", "\"1\"").header("Cache-Control", "no-store"), null));
+		assertNull(cache.getPage("key"));
+
+		assertEquals("data", handler.contentParser.transformData(new FakeResponse(200, "data").header("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT"), null));
+		assertEquals("data", cache.getPage("key"));
+	}
+
+	public void testConditionalHeaders() throws Exception {
+		PageRevalidationCache<String> cache = new PageRevalidationCache<String>(10);
+		cache.put("http://example.com/list", new PageRevalidationCache.Entry<String>("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT", "old"));
+		PageRefresh<String> refresh = cache.newRefresh(0);
+
+		HttpEngine<String, ServerException> engine = refresh.createEngine(new HttpRequestGet<String>("http://example.com/list", BodyToString.INSTANCE));
+		assertEquals("\"v1\"", engine.getHeader("If-None-Match"));
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", engine.getHeader("If-Modified-Since"));
+
+		engine = refresh.createEngine(new HttpRequestGet<String>("http://example.com/other", BodyToString.INSTANCE));
+		assertNull(engine.getHeader("If-None-Match"));
+	}
+
+	public void testLeastRecentlyUsedDropped() throws Exception {
+		PageRevalidationCache<String> cache = new PageRevalidationCache<String>(2);
+		cache.put("a", new PageRevalidationCache.Entry<String>("\"a\"", null, "a"));
+		cache.put("b", new PageRevalidationCache.Entry<String>("\"b\"", null, "b"));
+		assertEquals("a", cache.getPage("a"));
+		cache.put("c", new PageRevalidationCache.Entry<String>("\"c\"", null, "c"));
+		assertNull(cache.getPage("b"));
+		assertEquals("a", cache.getPage("a"));
+		assertEquals("c", cache.getPage("c"));
+	}
+}
@@ -0,0 +1,374 @@
+package co.tophe.signed;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import junit.framework.TestCase;
+
+import co.tophe.BaseHttpRequest;
+import co.tophe.HttpEngine;
+import co.tophe.HttpEngineFactory;
+import co.tophe.HttpException;
+import co.tophe.HttpRequestInfo;
+import co.tophe.HttpResponse;
+import co.tophe.HttpSignException;
+import co.tophe.RawHttpRequest;
+import co.tophe.ResponseHandler;
+import co.tophe.ServerException;
+import co.tophe.TopheException;
+import co.tophe.body.HttpBodyMultiPart;
+import co.tophe.body.HttpBodyUrlEncoded;
+import co.tophe.engine.ReauthenticatingHttpEngine;
+import co.tophe.parser.BodyToString;
+
+public class OAuth2TokenManagerTest extends TestCase {
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private static final HttpRequestInfo REQUEST = new RawHttpRequest.Builder().setUrl("http://example.com/").build();
+
+	private static class CountingRefresher implements OAuth2TokenRefresher {
+		final AtomicInteger calls = new AtomicInteger();
+		volatile long delay;
+		volatile boolean fail;
+
+		@NonNull
+		@Override
+		public OAuth2Token refreshToken(@Nullable OAuth2Token currentToken) throws TopheException {
+			int call = calls.incrementAndGet();
+			if (0 != delay) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ignored) {
+				}
+			}
+			if (fail)
+				throw new HttpException.Builder(REQUEST, null).setErrorMessage("token endpoint down").build();
+			return OAuth2Token.fromExpiresIn("token" + call, "refresh", 3600);
+		}
+	}
+
+	private static OAuth2Token expired() {
+		return new OAuth2Token("expired", "refresh", System.currentTimeMillis() - 1000L);
+	}
+
+	public void testSingleFlightRefresh() throws Exception {
+		final CountingRefresher refresher = new CountingRefresher();
+		refresher.delay = 100;
+		final OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(expired()).build();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<OAuth2Token>> tokens = new ArrayList<Future<OAuth2Token>>();
+			for (int i = 0; i < 8; ++i) {
+				tokens.add(executor.submit(new Callable<OAuth2Token>() {
+					@Override
+					public OAuth2Token call() throws Exception {
+						start.await();
+						return manager.getValidToken(REQUEST);
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<OAuth2Token> token : tokens) {
+				assertEquals("token1", token.get().getAccessToken());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, refresher.calls.get());
+		assertEquals(1, manager.getRefreshCount());
+	}
+
+	public void testNoTokenYet() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).build();
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+		assertEquals(1, refresher.calls.get());
+	}
+
+	public void testProactiveRefresh() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2Token expiring = new OAuth2Token("expiring", "refresh", System.currentTimeMillis() + 30000L);
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(expiring).setRefreshMargin(60000L)
+				.setExecutor(DIRECT).build();
+
+		// the token is still valid, it's used while the refresh runs
+		assertSame(expiring, manager.getValidToken(REQUEST));
+		assertEquals(1, refresher.calls.get());
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+		assertEquals(1, refresher.calls.get());
+	}
+
+	public void testExpiredWhileRefreshQueued() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2Token expiring = new OAuth2Token("expiring", "refresh", System.currentTimeMillis() + 30000L);
+		// like a pool busy with requests waiting for the token, the background refresh never starts
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(expiring).setRefreshMargin(60000L)
+				.setExecutor(new Executor() {
+					@Override
+					public void execute(Runnable command) {
+						queued.add(command);
+					}
+				}).build();
+
+		assertSame(expiring, manager.getValidToken(REQUEST));
+		assertEquals(1, queued.size());
+		assertEquals(0, refresher.calls.get());
+
+		manager.invalidateToken("expiring");
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+		assertEquals(1, refresher.calls.get());
+
+		// the queued refresh doesn't run again
+		queued.get(0).run();
+		assertEquals(1, refresher.calls.get());
+	}
+
+	public void testInvalidateToken() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(OAuth2Token.fromExpiresIn("valid", null, 3600)).build();
+		assertEquals("valid", manager.getValidToken(REQUEST).getAccessToken());
+
+		manager.invalidateToken("valid");
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+
+		// another request rejected with the old token doesn't cause another refresh
+		manager.invalidateToken("valid");
+		assertEquals("token1", manager.getValidToken(REQUEST).getAccessToken());
+		assertEquals(1, refresher.calls.get());
+	}
+
+	public void testRefreshFailure() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		refresher.fail = true;
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(expired()).build();
+		try {
+			manager.getValidToken(REQUEST);
+			fail("the refresh should fail");
+		} catch (HttpSignException e) {
+			assertTrue(e.getCause() instanceof HttpException);
+		}
+
+		// the next request tries again
+		refresher.fail = false;
+		assertEquals("token2", manager.getValidToken(REQUEST).getAccessToken());
+	}
+
+	private static class FakeResponse implements HttpResponse {
+		private final int code;
+
+		FakeResponse(int code) {
+			this.code = code;
+		}
+
+		@Override
+		public String getContentType() {
+			return "text/plain";
+		}
+
+		@Override
+		public int getResponseCode() {
+			return code;
+		}
+
+		@Override
+		public Map<String, List<String>> getHeaderFields() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public String getHeaderField(String name) {
+			return null;
+		}
+
+		@Override
+		public int getContentLength() {
+			return 0;
+		}
+
+		@Override
+		public String getResponseMessage() {
+			return null;
+		}
+
+		@Override
+		public String getContentEncoding() {
+			return null;
+		}
+
+		@Override
+		public void disconnect() {
+		}
+
+		@Override
+		public InputStream getContentStream() throws IOException {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+	}
+
+	/**
+	 * Engines answering 401 unless the request is signed with one of the accepted tokens.
+	 */
+	private static class FakeEngineFactory implements HttpEngineFactory {
+		final List<String> acceptedTokens = new ArrayList<String>();
+		final AtomicInteger requests = new AtomicInteger();
+
+		@Nullable
+		@Override
+		public <T, SE extends ServerException> HttpEngine<T, SE> createEngine(final HttpEngine.Builder<T, SE> builder) {
+			return new HttpEngine<T, SE>() {
+				private final Map<String, String> headers = new HashMap<String, String>();
+				private HttpResponse response;
+
+				@SuppressWarnings("unchecked")
+				@Override
+				public T call() throws SE, HttpException {
+					requests.incrementAndGet();
+					builder.getHttpRequest().getRequestSigner().sign(this);
+					String authorization = headers.get("Authorization");
+					if (!acceptedTokens.contains(authorization.substring("Bearer ".length()))) {
+						response = new FakeResponse(401);
+						throw new HttpException.Builder(builder.getHttpRequest(), response).setErrorMessage("unauthorized").build();
+					}
+					response = new FakeResponse(200);
+					return (T) authorization;
+				}
+
+				@Override
+				public void cancel() {
+				}
+
+				@NonNull
+				@Override
+				public ResponseHandler<T, SE> getResponseHandler() {
+					return builder.getResponseHandler();
+				}
+
+				@Override
+				public void setHeader(@NonNull String name, @Nullable String value) {
+					headers.put(name, value);
+				}
+
+				@Override
+				public String getHeader(String name) {
+					return headers.get(name);
+				}
+
+				@Override
+				public HttpRequestInfo getHttpRequest() {
+					return builder.getHttpRequest();
+				}
+
+				@Nullable
+				@Override
+				public HttpResponse getHttpResponse() {
+					return response;
+				}
+			};
+		}
+	}
+
+	private static HttpEngine<String, ServerException> createEngine(FakeEngineFactory factory, OAuth2TokenManager manager, boolean replayableBody) {
+		BaseHttpRequest.Builder<String, ServerException> request = new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl("http://example.com/api")
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.setSigner(RequestSignerOAuth2.withTokenManager(manager));
+		if (replayableBody) {
+			HttpBodyUrlEncoded body = new HttpBodyUrlEncoded();
+			body.add("name", "value");
+			request.setBody(body);
+		} else {
+			HttpBodyMultiPart body = new HttpBodyMultiPart();
+			body.addStream("file", new ByteArrayInputStream(new byte[16]), 16, null);
+			request.setBody(body);
+		}
+		return new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(request.build())
+				.setHttpEngineFactory(factory)
+				.build();
+	}
+
+	public void testReplayOnUnauthorized() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(OAuth2Token.fromExpiresIn("revoked", null, 3600)).build();
+		FakeEngineFactory factory = new FakeEngineFactory();
+		factory.acceptedTokens.add("token1");
+
+		HttpEngine<String, ServerException> engine = createEngine(factory, manager, true);
+		assertTrue(engine instanceof ReauthenticatingHttpEngine);
+		assertEquals("Bearer token1", engine.call());
+		assertEquals(2, factory.requests.get());
+		assertEquals(200, engine.getHttpResponse().getResponseCode());
+		assertEquals(1, refresher.calls.get());
+	}
+
+	public void testReplayedOnlyOnce() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(OAuth2Token.fromExpiresIn("revoked", null, 3600)).build();
+		FakeEngineFactory factory = new FakeEngineFactory();
+
+		try {
+			createEngine(factory, manager, true).call();
+			fail("the request should be rejected");
+		} catch (HttpException e) {
+			assertEquals(401, e.getStatusCode());
+		}
+		assertEquals(2, factory.requests.get());
+	}
+
+	public void testNoReplayWithStreamBody() throws Exception {
+		CountingRefresher refresher = new CountingRefresher();
+		OAuth2TokenManager manager = new OAuth2TokenManager.Builder(refresher).setToken(OAuth2Token.fromExpiresIn("revoked", null, 3600)).build();
+		FakeEngineFactory factory = new FakeEngineFactory();
+		factory.acceptedTokens.add("token1");
+
+		HttpEngine<String, ServerException> engine = createEngine(factory, manager, false);
+		assertFalse(engine instanceof ReauthenticatingHttpEngine);
+		try {
+			engine.call();
+			fail("the request should be rejected");
+		} catch (HttpException e) {
+			assertEquals(401, e.getStatusCode());
+		}
+		assertEquals(1, factory.requests.get());
+		assertEquals(0, refresher.calls.get());
+	}
+
+	public void testNoReplayWithoutTokenManager() throws Exception {
+		BaseHttpRequest<String, ServerException> request = new BaseHttpRequest.Builder<String, ServerException>()
+				.setUrl("http://example.com/api")
+				.setResponseHandler(BodyToString.RESPONSE_HANDLER)
+				.setSigner(new RequestSignerOAuth2((OAuthUser) null))
+				.build();
+		HttpEngine<String, ServerException> engine = new HttpEngine.Builder<String, ServerException>()
+				.setTypedRequest(request)
+				.setHttpEngineFactory(new FakeEngineFactory())
+				.build();
+		assertFalse(engine instanceof ReauthenticatingHttpEngine);
+	}
+}
@@ -2,7 +2,10 @@ package co.tophe.utils;
 
 import junit.framework.TestCase;
 
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
 
 public class DateUtilsTest extends TestCase {
 
@@ -1411,4 +1414,39 @@ public class DateUtilsTest extends TestCase {
 			}
 		}
 	}
+
+	public void testParseMatchesSimpleDateFormat() throws Exception {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for (String dateString : TEST_DATES) {
+			assertEquals(dateString, format.parse(dateString).getTime(), DateUtils.parseHttpDate(dateString));
+		}
+		String[] others = {HTTP_DATE1, HTTP_DATE2, HTTP_DATE3, HTTP_DATE4, HTTP_DATE5, HTTP_DATE6};
+		for (String dateString : others) {
+			assertEquals(dateString, format.parse(dateString).getTime(), DateUtils.parseHttpDate(dateString));
+		}
+	}
+
+	public void testParseFormats() throws Exception {
+		long expected = DateUtils.parseHttpDate("Sun, 06 Nov 1994 08:49:37 GMT");
+		assertEquals(784111777000L, expected);
+		assertEquals(expected, DateUtils.parseHttpDate("Sunday, 06-Nov-94 08:49:37 GMT"));
+		assertEquals(expected, DateUtils.parseHttpDate("Sun Nov  6 08:49:37 1994"));
+		assertEquals(expected, DateUtils.parseHttpDate("Sun, 06 Nov 1994 09:49:37 GMT+01:00"));
+		assertEquals(expected, DateUtils.parseHttpDate("Sun, 06 Nov 1994 00:49:37 PST"));
+		assertEquals(expected, DateUtils.parseHttpDate("Sun, 06 Nov 1994 08:49:37 Z"));
+		assertEquals(DateUtils.INVALID_DATE, DateUtils.parseHttpDate("Sun, 06 Foo 1994 08:49:37 GMT"));
+		assertEquals(DateUtils.INVALID_DATE, DateUtils.parseHttpDate("Sun, 06 Nov 1994 08:49 GMT"));
+		assertEquals(DateUtils.INVALID_DATE, DateUtils.parseHttpDate(""));
+		assertEquals(DateUtils.INVALID_DATE, DateUtils.parseHttpDate(null));
+	}
+
+	public void testFormatDate() throws Exception {
+		assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", DateUtils.formatHttpDate(784111777000L));
+		assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", DateUtils.formatHttpDate(0L));
+		for (String dateString : TEST_DATES) {
+			long time = DateUtils.parseHttpDate(dateString);
+			assertEquals(dateString, time, DateUtils.parseHttpDate(DateUtils.formatHttpDate(time)));
+		}
+	}
 }
@@ -0,0 +1,62 @@
+package co.tophe.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URLEncoder;
+
+import junit.framework.TestCase;
+
+import co.tophe.body.HttpBodyUrlEncoded;
+
+public class PercentEncoderTest extends TestCase {
+
+	private static final String[] VALUES = {
+			"",
+			"simple",
+			"with space",
+			"a+b=c&d",
+			"~tilde*star-dash_under.dot",
+			"accents éàü",
+			"emoji 😀",
+			"euro €",
+	};
+
+	public void testFormMatchesURLEncoder() throws Exception {
+		for (String value : VALUES) {
+			String expected = URLEncoder.encode(value, "UTF-8");
+			assertEquals(expected, PercentEncoder.FORM.encode(value));
+			assertEquals(value, expected.length(), PercentEncoder.FORM.encodedLength(value));
+		}
+	}
+
+	public void testQuery() throws Exception {
+		assertEquals("with%20space", PercentEncoder.QUERY.encode("with space"));
+		assertEquals(1, PercentEncoder.QUERY.encodedLength("~"));
+		assertEquals("a%2Fb%3Fc", PercentEncoder.QUERY.encode("a/b?c"));
+	}
+
+	public void testWriter() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PercentEncodedWriter writer = new PercentEncodedWriter(output, new byte[3]);
+		writer.append(PercentEncoder.FORM, "a b").append('=').append(PercentEncoder.FORM, "é");
+		writer.flush();
+		assertEquals("a+b=%C3%A9", output.toString("US-ASCII"));
+	}
+
+	public void testUrlEncodedBody() throws Exception {
+		HttpBodyUrlEncoded body = new HttpBodyUrlEncoded();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < VALUES.length; ++i) {
+			body.add("key" + i, VALUES[i]);
+			if (i != 0)
+				expected.append('&');
+			expected.append("key").append(i).append('=').append(URLEncoder.encode(VALUES[i], "UTF-8"));
+		}
+		body.add("nullValue", null);
+		expected.append("&nullValue=");
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		body.writeBodyTo(output, null, null);
+		assertEquals(expected.toString(), output.toString("US-ASCII"));
+		assertEquals(output.size(), body.getContentLength());
+	}
+}